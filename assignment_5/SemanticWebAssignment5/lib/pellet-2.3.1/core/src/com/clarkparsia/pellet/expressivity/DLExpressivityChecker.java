@@ -172,7 +172,10 @@ public class DLExpressivityChecker extends ProfileBasedExpressivityChecker {
 		}
 
 		void visitRole(ATermAppl p) {
-			if( !ATermUtils.isPrimitive( p ) ) {
+			if( p.equals( ATermUtils.TOP_OBJECT_PROPERTY ) ) {
+				m_Expressivity.setHasUniversalRole(true);
+			}
+			else if( !ATermUtils.isPrimitive( p ) ) {
 				m_Expressivity.setHasInverse(true);
 				m_Expressivity.addAnonInverse((ATermAppl) p.getArgument( 0 ));				
 			}
@@ -76,6 +76,10 @@ public class Expressivity {
 	private boolean			hasDisjointRoles	= false;
 	private boolean			hasAsymmetry		= false;
 	private boolean			hasComplexSubRoles	= false;
+	/**
+	 * The top object property is used in a restriction
+	 */
+	private boolean			hasUniversalRole	= false;
 	private boolean			hasDatatype			= false;
 	private boolean			hasUserDefinedDatatype = false;
 
@@ -114,6 +118,7 @@ public class Expressivity {
 		hasDisjointRoles = other.hasDisjointRoles;
 		hasAsymmetry = other.hasAsymmetry;
 		hasComplexSubRoles = other.hasComplexSubRoles;
+		hasUniversalRole = other.hasUniversalRole;
 		hasDatatype = other.hasDatatype;
 		hasKeys = other.hasKeys;
 		hasDomain = other.hasDomain;
@@ -367,6 +372,14 @@ public class Expressivity {
 		hasAsymmetry = v;
 	}
 
+	public boolean hasUniversalRole() {
+		return hasUniversalRole;
+	}
+
+	public void setHasUniversalRole(boolean v) {
+		hasUniversalRole = v;
+	}
+
 	public boolean hasComplexSubRoles() {
 		return hasComplexSubRoles;
 	}
@@ -432,6 +445,16 @@ public class Expressivity {
 		return !nominals.isEmpty();
 	}
 
+	/**
+	 * Returns <code>true</code> if individuals that are not connected through
+	 * role assertions cannot affect each other, i.e. there are no nominals,
+	 * keys or restrictions on the top object property. The consistency of each
+	 * connected component of such an ABox can be checked independently.
+	 */
+	public boolean hasIndependentComponents() {
+		return nominals.isEmpty() && !hasKeys && !hasUniversalRole;
+	}
+
 	public Set<ATermAppl> getNominals() {
 		return nominals;
 	}
@@ -453,4 +476,4 @@ public class Expressivity {
 	public void addAnonInverse(ATermAppl p) {
 		anonInverses.add(p);
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
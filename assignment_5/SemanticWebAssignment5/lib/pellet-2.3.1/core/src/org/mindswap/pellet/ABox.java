@@ -32,6 +32,7 @@ package org.mindswap.pellet;
 
 import static java.lang.String.format;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -50,6 +51,7 @@ import org.mindswap.pellet.tableau.cache.CachedNode;
 import org.mindswap.pellet.tableau.cache.CachedNodeFactory;
 import org.mindswap.pellet.tableau.cache.ConceptCache;
 import org.mindswap.pellet.tableau.cache.ConceptCacheLRU;
+import org.mindswap.pellet.tableau.cache.PersistentConceptCache;
 import org.mindswap.pellet.tableau.completion.CompletionStrategy;
 import org.mindswap.pellet.tableau.completion.SROIQIncStrategy;
 import org.mindswap.pellet.tableau.completion.queue.BasicCompletionQueue;
@@ -62,6 +64,8 @@ import org.mindswap.pellet.utils.ATermUtils;
 import org.mindswap.pellet.utils.Bool;
 import org.mindswap.pellet.utils.CandidateSet;
 import org.mindswap.pellet.utils.SetUtils;
+import org.mindswap.pellet.utils.TermDictionary;
+import org.mindswap.pellet.utils.TermMap;
 import org.mindswap.pellet.utils.Timer;
 import org.mindswap.pellet.utils.fsm.State;
 import org.mindswap.pellet.utils.fsm.Transition;
@@ -113,6 +117,12 @@ public class ABox {
 	 */
 	protected final DatatypeReasoner		dtReasoner;
 
+	/**
+	 * Dictionary that assigns integer ids to the names of nodes and the
+	 * concepts in their labels. Shared by all the copies of this ABox.
+	 */
+	protected final TermDictionary			dictionary;
+
 	/**
 	 * This is a list of nodes. Each node has a name expressed as an ATerm which
 	 * is used as the key in the Hashtable. The value is the actual node object
@@ -188,9 +198,22 @@ public class ABox {
 	// flag set when incrementally updating the abox with explicit assertions
 	private boolean							syntacticUpdate		= false;
 
+	private boolean							persistentCache		= true;
+
 	public ABox(KnowledgeBase kb) {
+		this( kb, new TermDictionary() );
+	}
+
+	/**
+	 * Create an empty ABox that uses the given dictionary. A copy of a KB
+	 * should use a dictionary forked from the dictionary of the original KB
+	 * (see {@link TermDictionary#TermDictionary(TermDictionary)}) so nodes can
+	 * be copied between them without translating the ids of their labels.
+	 */
+	public ABox(KnowledgeBase kb, TermDictionary dictionary) {
 		this.kb = kb;
-		nodes = new HashMap<ATermAppl, Node>();
+		this.dictionary = dictionary;
+		nodes = new TermMap<Node>( dictionary );
 		nodeList = new ArrayList<ATermAppl>();
 		clash = null;
 		assertedClashes = new HashSet<Clash>();
@@ -234,6 +257,11 @@ public class ABox {
 
 	public ABox(KnowledgeBase kb, ABox abox, ATermAppl extraIndividual, boolean copyIndividuals) {
 		this.kb = kb;
+		// copies for the same KB share the dictionary, a different KB gets
+		// a fork so the terms it adds are released with it
+		dictionary = (kb == abox.kb)
+			? abox.dictionary
+			: new TermDictionary( abox.dictionary );
 		Timer timer = kb.timers.startTimer( "cloneABox" );
 
 
@@ -254,7 +282,7 @@ public class ABox {
 			? abox.nodes.size()
 			: 0);
 
-		nodes = new HashMap<ATermAppl, Node>( nodeCount );
+		nodes = new TermMap<Node>( dictionary, nodeCount );
 		nodeList = new ArrayList<ATermAppl>( nodeCount );
 
 		if( PelletOptions.TRACK_BRANCH_EFFECTS ) {
@@ -402,6 +430,101 @@ public class ABox {
 		return new ABox( kb, this, extraIndividual, copyIndividuals );
 	}
 
+	/**
+	 * Copy the given nodes of the source ABox, which should be closed under
+	 * edges, differents and merges, to this empty ABox. The pending merges
+	 * of the copied nodes are copied too. The source ABox is not modified so
+	 * several threads can copy different parts of it at the same time.
+	 */
+	void copyComponent(ABox source, Collection<ATermAppl> names) {
+		// fresh names created for this ABox will not clash with the names in
+		// the source ABox
+		setAnonCount( source.getAnonCount() );
+
+		for( ATermAppl x : names ) {
+			Node copy = source.getNode( x ).copyTo( this );
+			nodes.put( x, copy );
+			nodeList.add( x );
+		}
+
+		for( ATermAppl x : names ) {
+			nodes.get( x ).updateNodeReferences();
+		}
+
+		toBeMerged = new ArrayList<NodeMerge>();
+		for( NodeMerge merge : source.toBeMerged ) {
+			if( nodes.containsKey( merge.getSource() ) ) {
+				toBeMerged.add( merge );
+			}
+		}
+
+		setChanged( true );
+	}
+
+	/**
+	 * Replace the given nodes of this ABox with their completed versions
+	 * from the component ABox. The nodes the component ABox created during
+	 * completion are added to this ABox with fresh names. Should only be used
+	 * if no branches were created during the completion of the component so
+	 * none of the dependency sets refer to branches of the component.
+	 * 
+	 * @param component
+	 *            ABox created by {@link #copyComponent(ABox, Collection)} and
+	 *            completed without any clashes
+	 * @param names
+	 *            names of the nodes that were copied to the component
+	 */
+	void mergeComponent(ABox component, Set<ATermAppl> names) {
+		List<Node> completed = new ArrayList<Node>();
+		for( ATermAppl x : component.nodeList ) {
+			Node node = component.getNode( x );
+			if( node == null ) {
+				continue;
+			}
+
+			// the component ABox is discarded after merging so the nodes can
+			// be renamed in place, which keeps the references between the
+			// nodes consistent
+			if( !names.contains( x ) ) {
+				if( node instanceof Literal ) {
+					node.name = ATermUtils.makeLiteral( createUniqueName( false ) );
+				}
+				else {
+					node.name = createUniqueName( ATermUtils.isAnonNominal( x ) );
+				}
+			}
+
+			completed.add( node );
+		}
+
+		List<Node> copies = new ArrayList<Node>( completed.size() );
+		for( Node node : completed ) {
+			Node copy = node.copyTo( this );
+			if( nodes.put( copy.getName(), copy ) == null ) {
+				nodeList.add( copy.getName() );
+			}
+			copies.add( copy );
+		}
+
+		for( Node copy : copies ) {
+			copy.updateNodeReferences();
+		}
+
+		List<NodeMerge> merges = new ArrayList<NodeMerge>( toBeMerged.size() );
+		for( NodeMerge merge : toBeMerged ) {
+			if( !names.contains( merge.getSource() ) ) {
+				merges.add( merge );
+			}
+		}
+		toBeMerged = merges;
+
+		if( component.stats.treeDepth > stats.treeDepth ) {
+			stats.treeDepth = component.stats.treeDepth;
+		}
+
+		setChanged( true );
+	}
+
 	public void copyOnWrite() {
 		if( sourceABox == null ) {
 	        return;
@@ -467,10 +590,29 @@ public class ABox {
 		lastCompletion = null;
 
 		if( clearSatCache ) {
-			cache = new ConceptCacheLRU( kb );
+			cache = createCache();
 		}
 	}
 
+	/**
+	 * Sets if the concept satisfiability caches created for this ABox are
+	 * backed by a file when {@link PelletOptions#CONCEPT_CACHE_DIRECTORY} is
+	 * set. Copies of a KB share the directory with the original KB and should
+	 * not write the same cache file.
+	 */
+	public void setPersistentCache(boolean persistentCache) {
+		this.persistentCache = persistentCache;
+	}
+
+	private ConceptCache createCache() {
+		if( persistentCache && PelletOptions.CONCEPT_CACHE_DIRECTORY != null
+				&& PersistentConceptCache.isPersistable( kb ) ) {
+			return new PersistentConceptCache( kb, new File( PelletOptions.CONCEPT_CACHE_DIRECTORY ) );
+		}
+
+		return new ConceptCacheLRU( kb );
+	}
+
 	public Bool getCachedSat(ATermAppl c) {
 		return cache.getSat( c );
 	}
@@ -1411,19 +1553,29 @@ public class ABox {
 	        log.fine( "Consistency check starts" );
         }
 
-		CompletionStrategy strategy = kb.chooseStrategy( abox, expr );
+		// check the connected components in parallel first, there is no need
+		// to complete the ABox if one of them is inconsistent
+		boolean componentsConsistent = true;
+		if( initialConsistencyCheck && !emptyConsistencyCheck
+				&& ParallelConsistencyChecker.isApplicable( this, expr ) ) {
+			componentsConsistent = new ParallelConsistencyChecker( this, expr ).check();
+		}
 
-		if( log.isLoggable( Level.FINE ) ) {
-	        log.fine( "Strategy: " + strategy.getClass().getName() );
-        }
+		if( componentsConsistent ) {
+			CompletionStrategy strategy = kb.chooseStrategy( abox, expr );
 
-		Timer completionTimer = kb.timers.getTimer( "complete" );
-		completionTimer.start();
-		try {
-			strategy.complete( expr );
-		}
-		finally {
-			completionTimer.stop();
+			if( log.isLoggable( Level.FINE ) ) {
+		        log.fine( "Strategy: " + strategy.getClass().getName() );
+	        }
+
+			Timer completionTimer = kb.timers.getTimer( "complete" );
+			completionTimer.start();
+			try {
+				strategy.complete( expr );
+			}
+			finally {
+				completionTimer.stop();
+			}
 		}
 
 		boolean consistent = !abox.isClosed();
@@ -2057,6 +2209,14 @@ public class ABox {
 		return kb;
 	}
 
+	/**
+	 * Returns the dictionary used to assign ids to the names of nodes and the
+	 * concepts in their labels.
+	 */
+	public TermDictionary getTermDictionary() {
+		return dictionary;
+	}
+
 	/**
 	 * Convenience function to get the named role.
 	 */
@@ -64,11 +64,27 @@ public class DependencySet {
 	public static final DependencySet	INDEPENDENT;
 
 	public static final IntSet			ZERO;
+
+	/**
+	 * Shared sets for dependency sets that depend on a single branch with a
+	 * small branch number. These sets are never modified.
+	 */
+	private static final IntSet[]		SINGLETONS;
+
+	/**
+	 * Shared empty set that is never modified
+	 */
+	private static final IntSet			EMPTY_SET;
 	static {
 		log			= Logger.getLogger( DependencySet.class.getName() );
 		NO_BRANCH	= -1;
-		ZERO = IntSetFactory.create();
-		ZERO.add( 0 );
+		EMPTY_SET = IntSetFactory.create();
+		SINGLETONS = new IntSet[64];
+		for( int i = 0; i < SINGLETONS.length; i++ ) {
+			SINGLETONS[i] = IntSetFactory.create();
+			SINGLETONS[i].add( i );
+		}
+		ZERO = SINGLETONS[0];
 		EMPTY = new DependencySet();
 		INDEPENDENT	= new DependencySet( 0 );
 	}
@@ -84,6 +100,12 @@ public class DependencySet {
 	 */
 	private IntSet						depends;
 
+	/**
+	 * <code>true</code> if <code>depends</code> might be referenced by
+	 * another dependency set in which case it is copied before it is modified
+	 */
+	private boolean						shared;
+
 	/**
 	 * branch number when this assertion was added to ABox
 	 */
@@ -95,7 +117,8 @@ public class DependencySet {
 	 * Create an empty set
 	 */
 	private DependencySet() {
-		depends = IntSetFactory.create();
+		depends = EMPTY_SET;
+		shared = true;
 		setExplain( SetUtils.<ATermAppl>emptySet() );
 	}
 
@@ -106,20 +129,27 @@ public class DependencySet {
 	 *            Branch number
 	 */
 	public DependencySet(int branch) {
-		this.depends = IntSetFactory.create();
+		if( branch >= 0 && branch < SINGLETONS.length ) {
+			this.depends = SINGLETONS[branch];
+			this.shared = true;
+		}
+		else {
+			this.depends = IntSetFactory.create();
+			depends.add( branch );
+		}
 
-		depends.add( branch );
 		setExplain( SetUtils.<ATermAppl>emptySet() );
 	}
 
 	/**
 	 * Creates a dependency set with the given IntSet (no separate copy of
-	 * IntSet is created so if IntSet is modified this DependencySet will be
-	 * affected).
+	 * IntSet is created). If <code>shared</code> is <code>true</code> the
+	 * IntSet will be copied before this DependencySet modifies it.
 	 */
-	private DependencySet(int branch, IntSet depends, Set<ATermAppl> explain) {
+	private DependencySet(int branch, IntSet depends, Set<ATermAppl> explain, boolean shared) {
 		this.branch = branch;
 		this.depends = depends;
+		this.shared = shared;
 		this.setExplain( explain );
 	}
 
@@ -128,6 +158,7 @@ public class DependencySet {
 	 */
 	public DependencySet(ATermAppl explainAtom) {
 		this.depends = DependencySet.ZERO;
+		this.shared = true;
 		this.setExplain( SetUtils.singleton( explainAtom ) );
 
 	}
@@ -138,17 +169,37 @@ public class DependencySet {
 	 */
 	public DependencySet(Set<ATermAppl> explain) {
 		this.depends = DependencySet.ZERO;
+		this.shared = true;
 		this.setExplain( explain );
 	}
 
 	/**
-	 * Creates a new DependencySet object with a new branch number where the IntSet 
-     * is shared (changing one will change the other).
+	 * Creates a new DependencySet object with a new branch number where the
+	 * IntSet is shared until one of the sets is modified.
 	 * 
 	 * @return
 	 */
 	public DependencySet copy(int newBranch) {
-		return new DependencySet( newBranch, depends, explain );
+		markShared();
+		return new DependencySet( newBranch, depends, explain, true );
+	}
+
+	private void markShared() {
+		// avoid writing to the static instances that are read by all threads
+		if( !shared ) {
+			shared = true;
+		}
+	}
+
+	/**
+	 * Make sure <code>depends</code> is not referenced by any other
+	 * dependency set before it is modified.
+	 */
+	private void prepareForUpdate() {
+		if( shared ) {
+			depends = depends.copy();
+			shared = false;
+		}
 	}
 
 	/**
@@ -167,7 +218,10 @@ public class DependencySet {
 	 * @param b
 	 */
 	public void add(int b) {
-		depends.add( b );
+		if( !depends.contains( b ) ) {
+			prepareForUpdate();
+			depends.add( b );
+		}
 	}
 
 	/**
@@ -176,7 +230,10 @@ public class DependencySet {
 	 * @param b
 	 */
 	public void remove(int b) {
-		depends.remove( b );
+		if( depends.contains( b ) ) {
+			prepareForUpdate();
+			depends.remove( b );
+		}
 	}
 
 	/**
@@ -216,13 +273,20 @@ public class DependencySet {
 	
 	/**
 	 * Create a new DependencySet and all the elements of <code>this</code>
-	 * and <code>set</code> .
+	 * and <code>set</code>. The given set might be shared with the new
+	 * DependencySet so it should not be modified afterwards.
 	 * 
 	 * @param ds
 	 * @return
 	 */
 	public DependencySet union(IntSet set) {
-		return new DependencySet( branch, depends.union( set ), explain );
+		IntSet newDepends = IntSetFactory.union( depends, set );
+		if( newDepends == depends ) {
+			markShared();
+		}
+
+		return new DependencySet( branch, newDepends, explain, newDepends == depends
+				|| newDepends == set );
 	}
 	
 	/**
@@ -234,7 +298,19 @@ public class DependencySet {
 	 * @return
 	 */
 	public DependencySet union(DependencySet ds, boolean doExplanation) {
-		IntSet newDepends = depends.union( ds.depends );
+		// no new IntSet is created if one set contains the other (e.g. union
+		// with an independent set) so the result shares the bigger set
+		IntSet newDepends = IntSetFactory.union( depends, ds.depends );
+		boolean newShared = false;
+		if( newDepends == depends ) {
+			markShared();
+			newShared = true;
+		}
+		else if( newDepends == ds.depends ) {
+			ds.markShared();
+			newShared = true;
+		}
+
 		Set<ATermAppl> newExplain;
 		
 		if( doExplanation ) {
@@ -244,7 +320,7 @@ public class DependencySet {
 			newExplain = SetUtils.emptySet();
 		}
 
-		return new DependencySet( branch, newDepends, newExplain );
+		return new DependencySet( branch, newDepends, newExplain, newShared );
 	}
 
 	/**
@@ -257,7 +333,8 @@ public class DependencySet {
 		if( !doExplanation || explain.isEmpty() )
 			return this;
 
-		return new DependencySet( branch, depends.copy(), SetUtils.union( this.explain, explain ) );
+		markShared();
+		return new DependencySet( branch, depends, SetUtils.union( this.explain, explain ), true );
 	}
 
 	public String toString() {
@@ -288,10 +365,19 @@ public class DependencySet {
 
 	}
 
+	/**
+	 * Set the branches this set depends on. The given set is not copied and it
+	 * will not be modified by this DependencySet.
+	 */
 	public void setDepends(IntSet depends) {
 		this.depends = depends;
+		this.shared = true;
 	}
 
+	/**
+	 * Returns the branches this set depends on. The returned set might be
+	 * shared with other dependency sets so it should not be modified.
+	 */
 	public IntSet getDepends() {
 		return depends;
 	}
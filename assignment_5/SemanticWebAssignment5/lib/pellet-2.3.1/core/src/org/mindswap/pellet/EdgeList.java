@@ -31,10 +31,18 @@
 package org.mindswap.pellet;
 
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -43,10 +51,170 @@ import org.mindswap.pellet.utils.ATermUtils;
 import aterm.ATermAppl;
 
 /**
+ * A list of edges. Small lists are searched linearly. When the list grows
+ * beyond {@link PelletOptions#EDGE_LIST_INDEX_THRESHOLD} edges an index is
+ * built that partitions the edges by role and, on demand, by the nodes at the
+ * two ends of the edges. The index is updated by every function that modifies
+ * the list so it stays in sync when the edges are removed during restore. The
+ * order of edges returned by the search functions for indexed lists might be
+ * different from the order of edges in the list.
+ * 
  * @author Evren Sirin
  *
  */
 public class EdgeList implements Iterable<Edge> {
+	/**
+	 * Index for the edges in a large list. Edges are always indexed by their
+	 * exact role. Indexes based on nodes are created the first time they are
+	 * needed because some edges (e.g. cached edges) do not store nodes. The
+	 * edges of a node all have the same node at one end so the index for that
+	 * end would be useless and it is not kept.
+	 */
+	private static class EdgeIndex {
+		private Map<Role, Set<Edge>>	roles	= new LinkedHashMap<Role, Set<Edge>>();
+		private Map<Node, Set<Edge>>	from;
+		private Map<Node, Set<Edge>>	to;
+		/**
+		 * The only node at the from (to) end of the edges if there is one
+		 */
+		private Node					singleFrom;
+		private Node					singleTo;
+
+		public void add(Edge e) {
+			add( roles, e.getRole(), e );
+			if( from != null )
+				add( from, e.getFrom(), e );
+			else if( singleFrom != null && !singleFrom.equals( e.getFrom() ) )
+				singleFrom = null;
+			if( to != null )
+				add( to, e.getTo(), e );
+			else if( singleTo != null && !singleTo.equals( e.getTo() ) )
+				singleTo = null;
+		}
+
+		public void remove(Edge e) {
+			remove( roles, e.getRole(), e );
+			if( from != null )
+				remove( from, e.getFrom(), e );
+			if( to != null )
+				remove( to, e.getTo(), e );
+		}
+
+		private static <K> void add(Map<K, Set<Edge>> map, K key, Edge e) {
+			Set<Edge> edges = map.get( key );
+			if( edges == null ) {
+				edges = new LinkedHashSet<Edge>();
+				map.put( key, edges );
+			}
+			edges.add( e );
+		}
+
+		private static <K> void remove(Map<K, Set<Edge>> map, K key, Edge e) {
+			Set<Edge> edges = map.get( key );
+			if( edges != null && edges.remove( e ) && edges.isEmpty() )
+				map.remove( key );
+		}
+
+		/**
+		 * Returns the index for the from (or to) nodes creating it if
+		 * necessary or <code>null</code> if all the edges have the same node at
+		 * that end.
+		 */
+		private Map<Node, Set<Edge>> index(boolean isFrom) {
+			Map<Node, Set<Edge>> map = isFrom
+				? from
+				: to;
+			if( map != null || (isFrom
+				? singleFrom
+				: singleTo) != null )
+				return map;
+
+			map = new HashMap<Node, Set<Edge>>();
+			for( Set<Edge> edges : roles.values() ) {
+				for( Edge e : edges ) {
+					add( map, isFrom
+						? e.getFrom()
+						: e.getTo(), e );
+				}
+			}
+
+			Node single = null;
+			if( map.size() == 1 ) {
+				single = map.keySet().iterator().next();
+				map = null;
+			}
+
+			if( isFrom ) {
+				from = map;
+				singleFrom = single;
+			}
+			else {
+				to = map;
+				singleTo = single;
+			}
+
+			return map;
+		}
+
+		private static Collection<Edge> get(Map<?, Set<Edge>> map, Object key) {
+			Set<Edge> edges = map.get( key );
+			return edges == null
+				? Collections.<Edge>emptySet()
+				: edges;
+		}
+
+		/**
+		 * Returns the smallest set of edges found in the index that contains
+		 * all the edges matching the given parameters or <code>null</code> if
+		 * the index cannot narrow down the search.
+		 */
+		public Collection<Edge> candidates(Role role, Individual from, Node to, boolean exact) {
+			Collection<Edge> candidates = null;
+			if( to != null ) {
+				Map<Node, Set<Edge>> map = index( false );
+				if( map != null )
+					candidates = get( map, to );
+			}
+			if( from != null && (candidates == null || candidates.size() > 1) ) {
+				Map<Node, Set<Edge>> map = index( true );
+				if( map != null ) {
+					Collection<Edge> edges = get( map, from );
+					if( candidates == null || edges.size() < candidates.size() )
+						candidates = edges;
+				}
+			}
+			if( role != null && (candidates == null || candidates.size() > 1) ) {
+				if( exact ) {
+					Collection<Edge> edges = get( roles, role );
+					if( candidates == null || edges.size() < candidates.size() )
+						candidates = edges;
+				}
+				else {
+					List<Set<Edge>> matches = new ArrayList<Set<Edge>>();
+					int size = 0;
+					for( Map.Entry<Role, Set<Edge>> entry : roles.entrySet() ) {
+						if( entry.getKey().isSubRoleOf( role ) ) {
+							matches.add( entry.getValue() );
+							size += entry.getValue().size();
+						}
+					}
+					if( candidates == null || size < candidates.size() ) {
+						if( matches.size() == 1 ) {
+							candidates = matches.get( 0 );
+						}
+						else {
+							List<Edge> edges = new ArrayList<Edge>( size );
+							for( Set<Edge> match : matches )
+								edges.addAll( match );
+							candidates = edges;
+						}
+					}
+				}
+			}
+			return candidates;
+		}
+	}
+
 	private class EdgeIterator implements Iterator<Edge> {
 		private int	curr = 0;
 
@@ -71,6 +239,7 @@ public class EdgeList implements Iterable<Edge> {
 	
 	private Edge[] list;
 	private int size;
+	private EdgeIndex index;
 	
 	public EdgeList() {
 		this( 10 );
@@ -114,12 +283,48 @@ public class EdgeList implements Iterable<Edge> {
 		int edgesSize = edges.size;
 		allocate(size + edgesSize); 
         System.arraycopy(edges.list, 0, list, size, edgesSize);
+        if( index != null ) {
+        	for( int i = 0; i < edgesSize; i++ )
+        		index.add( edges.list[i] );
+        }
         size += edgesSize;		
+        updateIndex();
 	}
 		
 	public void addEdge(Edge e) {
 		allocate(size + 1);
 		list[size++] = e;
+		if( index != null )
+			index.add( e );
+		else
+			updateIndex();
+	}
+	
+	/**
+	 * Creates the index if the list became large enough or discards it if the
+	 * list became small enough. The index is kept until the size drops below
+	 * half of the threshold so it is not rebuilt over and over when edges are
+	 * added and removed around the threshold.
+	 */
+	private void updateIndex() {
+		int threshold = PelletOptions.EDGE_LIST_INDEX_THRESHOLD;
+		if( index == null ) {
+			if( size > threshold ) {
+				index = new EdgeIndex();
+				for( int i = 0; i < size; i++ )
+					index.add( list[i] );
+			}
+		}
+		else if( size < threshold / 2 ) {
+			index = null;
+		}
+	}
+	
+	/**
+	 * Returns <code>true</code> if the edges in this list are indexed.
+	 */
+	public boolean isIndexed() {
+		return index != null;
 	}
 	
 	public boolean removeEdge(Edge edge) {
@@ -134,9 +339,14 @@ public class EdgeList implements Iterable<Edge> {
 		return false;			
 	}
 	
-	protected void removeEdge(int index) {
-		list[index] = list[--size];
+	protected void removeEdge(int i) {
+		Edge e = list[i];
+		list[i] = list[--size];
 		list[size] = null;
+		if( index != null ) {
+			index.remove( e );
+			updateIndex();
+		}
 	}
 	
 	public Edge edgeAt(int i) {
@@ -164,9 +374,31 @@ public class EdgeList implements Iterable<Edge> {
 		return new EdgeIterator();
 	}
 	
+	/**
+	 * Returns the edges from the index that should be searched for the given
+	 * parameters or <code>null</code> if all the edges should be searched.
+	 */
+	private Collection<Edge> candidates(Role role, Individual from, Node to, boolean exact) {
+		return index == null
+			? null
+			: index.candidates( role, from, to, exact );
+	}
+	
 	private EdgeList findEdges(Role role, Individual from, Node to) {
 		EdgeList result = new EdgeList();
 		
+		Collection<Edge> candidates = candidates( role, from, to, false );
+		if( candidates != null ) {
+			for( Edge e : candidates ) {
+				if( (from == null || from.equals( e.getFrom() )) &&
+					(role == null || e.getRole().isSubRoleOf(role)) &&
+					(to == null || to.equals( e.getTo() )) )
+					result.addEdge(e);
+			}
+			
+			return result;
+		}
+		
 		for(int i = 0; i < size; i++) {
 			Edge e = list[i];
             if( (from == null || from.equals( e.getFrom() )) &&
@@ -199,6 +431,9 @@ public class EdgeList implements Iterable<Edge> {
 	}
 		
 	public EdgeList getEdges(Role role) {
+		if( index != null )
+			return findEdges(role, null, null);
+		
 		EdgeList result = new EdgeList();
 		
 		for(int i = 0; i < size; i++) {
@@ -211,6 +446,9 @@ public class EdgeList implements Iterable<Edge> {
 	}
 
 	public Set<Role> getRoles() {
+		if( index != null )
+			return new HashSet<Role>( index.roles.keySet() );
+		
 		Set<Role> result = new HashSet<Role>();
 		
 		for(int i = 0; i < size; i++) {
@@ -301,6 +539,18 @@ public class EdgeList implements Iterable<Edge> {
 	 * @return
 	 */
 	public boolean hasEdge(Individual from, Role role, Node to) {
+		Collection<Edge> candidates = candidates( role, from, to, false );
+		if( candidates != null ) {
+			for( Edge e : candidates ) {
+				if( (from == null || from.equals( e.getFrom() )) &&
+					(role == null || e.getRole().isSubRoleOf(role)) &&
+					(to == null || to.equals( e.getTo() )) )
+					return true;
+			}
+			
+			return false;
+		}
+		
 		for(int i = 0; i < size; i++) {
 			Edge e = list[i];
             if( (from == null || from.equals( e.getFrom() )) &&
@@ -323,15 +573,7 @@ public class EdgeList implements Iterable<Edge> {
 	 * @return
 	 */
 	public boolean hasExactEdge(Individual from, Role role, Node to) {
-		for(int i = 0; i < size; i++) {
-			Edge e = list[i];
-            if( (from == null || from.equals( e.getFrom() )) &&
-                (role == null || e.getRole().equals(role)) &&
-                (to == null || to.equals( e.getTo() )) )
-				return true;
-		}		
-		
-		return false;
+		return getExactEdge( from, role, to ) != null;
 	}
 	
 	public boolean hasEdge(Edge e) {
@@ -339,6 +581,18 @@ public class EdgeList implements Iterable<Edge> {
 	}
 	
 	public Edge getExactEdge(Individual from, Role role, Node to) {
+		Collection<Edge> candidates = candidates( role, from, to, true );
+		if( candidates != null ) {
+			for( Edge e : candidates ) {
+				if( (from == null || from.equals( e.getFrom() )) &&
+					(role == null || e.getRole().equals(role)) &&
+					(to == null || to.equals( e.getTo() )) )
+					return e;
+			}
+			
+			return null;
+		}
+		
 		for(int i = 0; i < size; i++) {
 			Edge e = list[i];
             if( (from == null || from.equals( e.getFrom() )) &&
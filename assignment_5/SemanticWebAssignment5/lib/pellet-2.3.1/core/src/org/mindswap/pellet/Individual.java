@@ -58,6 +58,11 @@ import com.clarkparsia.pellet.datatypes.exceptions.DatatypeReasonerException;
 public class Individual extends Node implements CachedNode {
 	private EdgeList outEdges;
 
+	/**
+	 * Types of this individual grouped by their kind. The lists are only
+	 * allocated when the first type of their kind is added since most
+	 * individuals have only a few kinds of types.
+	 */
 	@SuppressWarnings("unchecked")
 	private ArrayList<ATermAppl>[] types = new ArrayList[TYPES]; // Known warning message
 	public int[] applyNext = new int[TYPES];
@@ -86,11 +91,6 @@ public class Individual extends Node implements CachedNode {
 			depth = (short) (parent.depth + 1);
 		}
 		
-		for(int i = 0; i < TYPES; i++) {
-			types[i] = new ArrayList<ATermAppl>();
-			applyNext[i] = 0;		
-		}
-		
 		outEdges = new EdgeList();
 	}
 	
@@ -101,7 +101,8 @@ public class Individual extends Node implements CachedNode {
 		parent = ind.parent;
 
 		for(int i = 0; i < TYPES; i++) {
-			types[i] = new ArrayList<ATermAppl>(ind.types[i]);		
+			if( ind.types[i] != null )
+				types[i] = new ArrayList<ATermAppl>(ind.types[i]);		
 			applyNext[i] = ind.applyNext[i];		
 		}
 			
@@ -167,7 +168,25 @@ public class Individual extends Node implements CachedNode {
 	}
 	
 	public List<ATermAppl> getTypes(int type) {
-		return types[type];
+		List<ATermAppl> list = types[type];
+		return list == null
+			? Collections.<ATermAppl>emptyList()
+			: list;
+	}
+
+	private List<ATermAppl> createTypes(int type) {
+		ArrayList<ATermAppl> list = types[type];
+		if( list == null ) {
+			list = new ArrayList<ATermAppl>( 2 );
+			types[type] = list;
+		}
+		return list;
+	}
+
+	private void removeFromTypes(int type, ATermAppl c) {
+		List<ATermAppl> list = types[type];
+		if( list != null )
+			list.remove( c );
 	}
 		
 	public boolean isDifferent( Node node ) {
@@ -215,7 +234,8 @@ public class Individual extends Node implements CachedNode {
 	}
 	
 	public boolean canApply(int type) {
-		return applyNext[type] < types[type].size();
+		List<ATermAppl> list = types[type];
+		return list != null && applyNext[type] < list.size();
 	}
 	
 	public void addType(ATermAppl c, DependencySet ds) {
@@ -281,7 +301,7 @@ public class Individual extends Node implements CachedNode {
 		
 		if (ATermUtils.isPrimitive(c)) {
 			setChanged(ATOM);
-			types[ATOM].add(c);
+			createTypes(ATOM).add(c);
 
 			if(PelletOptions.USE_COMPLETION_QUEUE){
 				//update completion queue
@@ -298,7 +318,7 @@ public class Individual extends Node implements CachedNode {
 			}
 			else if (c.getAFun().equals(ATermUtils.ALLFUN)) {
 				setChanged(ALL);			
-				types[ALL].add(c);			
+				createTypes(ALL).add(c);			
 
 				if(PelletOptions.USE_COMPLETION_QUEUE){
 					//update completion queue
@@ -307,7 +327,7 @@ public class Individual extends Node implements CachedNode {
 			}
 			else if (c.getAFun().equals(ATermUtils.MINFUN)) {
 				if(!isRedundantMin(c)) {
-					types[MIN].add(c);
+					createTypes(MIN).add(c);
 					setChanged(MIN);
 					
 					if(PelletOptions.USE_COMPLETION_QUEUE){		
@@ -327,7 +347,7 @@ public class Individual extends Node implements CachedNode {
 				ATermAppl x = (ATermAppl) c.getArgument(0);
 				if(ATermUtils.isAnd(x)) {
 					setChanged(OR);
-					types[OR].add(c);
+					createTypes(OR).add(c);
 					
 					if(PelletOptions.USE_COMPLETION_QUEUE){
 						//update completion queue
@@ -336,7 +356,7 @@ public class Individual extends Node implements CachedNode {
 				}
 				else if(ATermUtils.isAllValues(x)) {
 					setChanged(SOME);
-					types[SOME].add(c);
+					createTypes(SOME).add(c);
 					
 					if(PelletOptions.USE_COMPLETION_QUEUE){
 						//update completion queue					
@@ -345,7 +365,7 @@ public class Individual extends Node implements CachedNode {
 				}
 				else if(ATermUtils.isMin(x)) {
 					if(!isRedundantMax(x)) {
-						types[MAX].add(c);
+						createTypes(MAX).add(c);
 						setChanged(MAX);
 						
 						if(PelletOptions.USE_COMPLETION_QUEUE){
@@ -365,7 +385,7 @@ public class Individual extends Node implements CachedNode {
 				}
 				else if(ATermUtils.isNominal(x)) {
 					setChanged(ATOM);
-					types[ATOM].add(c);
+					createTypes(ATOM).add(c);
 						
 					if(PelletOptions.USE_COMPLETION_QUEUE){
 						//update completion queue					
@@ -385,7 +405,7 @@ public class Individual extends Node implements CachedNode {
 	            }
 				else if(x.getArity() == 0) {
 					setChanged(ATOM);
-					types[ATOM].add(c);
+					createTypes(ATOM).add(c);
 					
 					if(PelletOptions.USE_COMPLETION_QUEUE){
 						//update completion queue					
@@ -397,7 +417,7 @@ public class Individual extends Node implements CachedNode {
 			}
 			else if (c.getAFun().equals(ATermUtils.VALUEFUN)) {
 				setChanged(NOM);
-				types[NOM].add(c);
+				createTypes(NOM).add(c);
 			
 				if(PelletOptions.USE_COMPLETION_QUEUE){
 					//update completion queue				
@@ -406,7 +426,7 @@ public class Individual extends Node implements CachedNode {
 			}		
             else if (ATermUtils.isSelf(c)) {
             	setChanged( ATOM );
-                types[ATOM].add(c);
+                createTypes(ATOM).add(c);
             }
 			else {
 				throw new InternalReasonerException("Warning: Adding invalid class constructor - " + c);
@@ -427,7 +447,7 @@ public class Individual extends Node implements CachedNode {
 			return true;
 		}
 
-		for(ATermAppl mc : types[MAX]) {
+		for(ATermAppl mc : getTypes( MAX )) {
 			// max(r, n) is in normalized form not(min(p, n + 1))
 			ATermAppl maxCard = (ATermAppl) mc.getArgument(0);								
 			Role maxR = abox.getRole(maxCard.getArgument(0));
@@ -458,7 +478,7 @@ public class Individual extends Node implements CachedNode {
 		int max = ((ATermInt) maxCard.getArgument(1)).getInt() - 1;
         ATermAppl maxC = (ATermAppl) maxCard.getArgument(2);
 
-		for(ATermAppl minCard : types[MIN]) {											
+		for(ATermAppl minCard : getTypes( MIN )) {											
 			Role minR = abox.getRole(minCard.getArgument(0));	
 			if( minR == null )
 				return false;
@@ -488,7 +508,7 @@ public class Individual extends Node implements CachedNode {
 		int min = ((ATermInt) minCard.getArgument(1)).getInt();
         ATermAppl minQ = (ATermAppl) minCard.getArgument( 2 );
         
-        for( ATermAppl prevMinCard : types[MIN] ) {
+        for( ATermAppl prevMinCard : getTypes( MIN ) ) {
 			Role prevMinR = abox.getRole(prevMinCard.getArgument(0));
 			
 			 if( prevMinR == null )
@@ -519,7 +539,7 @@ public class Individual extends Node implements CachedNode {
         
         ATermAppl maxQ = (ATermAppl) maxCard.getArgument( 2 );
 		
-        for( ATermAppl mc : types[MAX] ) {
+        for( ATermAppl mc : getTypes( MAX ) ) {
 			// max(r, n) is in normalized form not(min(p, n + 1))
 			ATermAppl prevMaxCard = (ATermAppl) mc.getArgument(0);								
 			Role prevMaxR = abox.getRole(prevMaxCard.getArgument(0));
@@ -541,7 +561,7 @@ public class Individual extends Node implements CachedNode {
 	}
 
 	public DependencySet hasMax1( Role r ) {
-		for( ATermAppl mc : types[MAX] ) {
+		for( ATermAppl mc : getTypes( MAX ) ) {
             // max(r, n, c) is in normalized form not(min(p, n + 1))
 			ATermAppl maxCard = (ATermAppl) mc.getArgument(0);
 			Role maxR = abox.getRole(maxCard.getArgument(0));
@@ -560,7 +580,7 @@ public class Individual extends Node implements CachedNode {
 	
 	public int getMaxCard( Role r ) {
 	    int min = Integer.MAX_VALUE;
-	    for(ATermAppl mc : types[MAX]) {
+	    for(ATermAppl mc : getTypes( MAX )) {
 			// max(r, n) is in normalized form not(min(p, n + 1))
 			ATermAppl maxCard = (ATermAppl) mc.getArgument(0);								
 			Role maxR = abox.getRole( maxCard.getArgument(0) );
@@ -578,7 +598,7 @@ public class Individual extends Node implements CachedNode {
 	
 	public int getMinCard( Role r, ATermAppl c ) {
 	    int maxOfMins = 0;
-	    for(ATermAppl minCard : types[MIN]) {							
+	    for(ATermAppl minCard : getTypes( MIN )) {							
 			Role minR = abox.getRole( minCard.getArgument(0) );			
 			int min = ((ATermInt) minCard.getArgument(1)).getInt();
 			ATermAppl minC = (ATermAppl) minCard.getArgument(2);
@@ -596,34 +616,34 @@ public class Individual extends Node implements CachedNode {
 		// it is important to continue removal here because restore function
 		// modified depends map directly 
 		if (ATermUtils.isPrimitive(c) || ATermUtils.isSelf(c)) {
-			types[ATOM].remove(c);
+			removeFromTypes(ATOM, c);
 		}
 		else {
 			if(c.getAFun().equals(ATermUtils.ANDFUN)) {
 //			    types[AND].remove(c);
 			}
 			else if (c.getAFun().equals(ATermUtils.ALLFUN)) {
-				types[ALL].remove(c);
+				removeFromTypes(ALL, c);
 			}
 			else if (c.getAFun().equals(ATermUtils.MINFUN)) {
-				types[MIN].remove(c);
+				removeFromTypes(MIN, c);
 			}
 			else if (c.getAFun().equals(ATermUtils.NOTFUN)) {
 				ATermAppl x = (ATermAppl) c.getArgument(0);
 				if(ATermUtils.isAnd(x)) {
-					types[OR].remove(c);
+					removeFromTypes(OR, c);
 				}
 				else if(ATermUtils.isAllValues(x)) {
-					types[SOME].remove(c);
+					removeFromTypes(SOME, c);
 				}
 				else if(ATermUtils.isMin(x)) {
-					types[MAX].remove(c);
+					removeFromTypes(MAX, c);
 				}
 				else if(ATermUtils.isNominal(x)) {
-					types[ATOM].remove(c);
+					removeFromTypes(ATOM, c);
 				}
 				else if(x.getArity() == 0) {
-					types[ATOM].remove(c);
+					removeFromTypes(ATOM, c);
 				}
 				else if(ATermUtils.isSelf(x)) {
 					// do nothing
@@ -632,7 +652,7 @@ public class Individual extends Node implements CachedNode {
 				    throw new InternalReasonerException( "Invalid type " +  c + " for individual " + name);				
 			}
 			else if(c.getAFun().equals(ATermUtils.VALUEFUN))
-				types[NOM].remove(c);
+				removeFromTypes(NOM, c);
 			else
 				throw new RuntimeException("Invalid concept " + c);
 		}
@@ -1038,6 +1058,9 @@ public class Individual extends Node implements CachedNode {
     protected void resetTypes() {
     	for(int type = 0; type < TYPES; type++) {
     		ArrayList<ATermAppl> list = types[type];
+    		if( list == null )
+    			continue;
+
     		int size = list.size();
     		for(int i = 0; i < size; i++) {
     			ATermAppl c = list.get(i);
@@ -1216,13 +1239,13 @@ public class Individual extends Node implements CachedNode {
 	public String debugString() {
 		return name.getName() +
         " = " + 
-		types[ATOM] + 
-		types[ALL] +
-		types[SOME] +
-		types[OR] +
-		types[MIN] +
-		types[MAX] +
-		types[NOM] +
+		getTypes(ATOM) + 
+		getTypes(ALL) +
+		getTypes(SOME) +
+		getTypes(OR) +
+		getTypes(MIN) +
+		getTypes(MAX) +
+		getTypes(NOM) +
 		"; **" + outEdges + "**" +
 		 "; **" + inEdges + "**" + 
 		 " --> " + depends + 
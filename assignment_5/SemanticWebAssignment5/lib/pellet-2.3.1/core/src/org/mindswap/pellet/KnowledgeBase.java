@@ -79,11 +79,14 @@ import org.mindswap.pellet.tbox.TBoxFactory;
 import org.mindswap.pellet.utils.ATermUtils;
 import org.mindswap.pellet.utils.AnnotationClasses;
 import org.mindswap.pellet.utils.Bool;
+import org.mindswap.pellet.utils.InstanceCache;
 import org.mindswap.pellet.utils.MultiValueMap;
 import org.mindswap.pellet.utils.SizeEstimate;
 import org.mindswap.pellet.utils.TaxonomyUtils;
+import org.mindswap.pellet.utils.TermDictionary;
 import org.mindswap.pellet.utils.Timer;
 import org.mindswap.pellet.utils.Timers;
+import org.mindswap.pellet.utils.concurrent.WorkerPool;
 import org.mindswap.pellet.utils.progress.ProgressMonitor;
 
 import aterm.ATerm;
@@ -155,10 +158,22 @@ public class KnowledgeBase {
 
 	protected EnumSet<ReasoningState>		state	= EnumSet.noneOf( ReasoningState.class );
 
-	private Map<ATermAppl, Set<ATermAppl>>	instances;
+	private InstanceCache					instances;
 
 	private ExpressivityChecker				expChecker;
 
+	/**
+	 * Workers sharing the taxonomy of this KB that are kept until the KB
+	 * changes or is realized, see {@link #getTaxonomyWorkers(int)}
+	 */
+	private WorkerPool						taxonomyWorkers;
+
+	/**
+	 * Workers with copies of the ABox of this KB used for instance retrieval
+	 * that are kept until the KB changes, see {@link #getRetrievalWorkers(int)}
+	 */
+	private WorkerPool						retrievalWorkers;
+
 	/**
 	 * Timers used in various different parts of KB. There may be many different
 	 * timers created here depending on the level of debugging or application
@@ -177,6 +192,9 @@ public class KnowledgeBase {
 	 * Putting a timeout will mean that any single consistency check should be
 	 * completed in a certain amount of time.</li>
 	 * </ul>
+	 * The timers for consistency, classification, realization and query
+	 * answering are created as spans so the time spent in each of them is also
+	 * broken down by the operation that triggered it.
 	 */
 	public Timers							timers	= new Timers();
 
@@ -417,9 +435,7 @@ public class KnowledgeBase {
 	public KnowledgeBase() {
 		clear();
 
-		timers.createTimer( "preprocessing" );
-		timers.createTimer( "consistency" );
-		timers.createTimer( "complete" );
+		createTimers( timers );
 		state = EnumSet.noneOf( ReasoningState.class );
 
 		if( PelletOptions.USE_INCREMENTAL_DELETION ) {
@@ -459,10 +475,10 @@ public class KnowledgeBase {
 		}
 
 		if( emptyABox ) {
-			abox = new ABox( this );
+			abox = new ABox( this, new TermDictionary( kb.abox.getTermDictionary() ) );
 
 			individuals = new HashSet<ATermAppl>();
-			instances = new HashMap<ATermAppl, Set<ATermAppl>>();
+			instances = new InstanceCache( this );
 
 			// even though we don't copy the individuals over to the new KB
 			// we should still create individuals for the
@@ -482,7 +498,7 @@ public class KnowledgeBase {
 			}
 
 			individuals = new HashSet<ATermAppl>( kb.individuals );
-			instances = new HashMap<ATermAppl, Set<ATermAppl>>( kb.instances );
+			instances = kb.instances.copy( this );
 
 			// copy deleted assertions
 			if( kb.getDeletedAssertions() != null ) {
@@ -500,6 +516,10 @@ public class KnowledgeBase {
 			}
 		}
 
+		// only the original KB writes the persistent concept cache, copies
+		// that need a new cache get one that is kept in memory
+		abox.setPersistentCache( false );
+
 		if( kb.isConsistencyDone() ) {
 			prepare();
 
@@ -519,6 +539,19 @@ public class KnowledgeBase {
 		// timers.createTimer("consistency");
 	}
 
+	/**
+	 * Create the timers that are used by every KB.
+	 */
+	public static void createTimers(Timers timers) {
+		timers.createTimer( "preprocessing" );
+		timers.createSpan( "consistency" );
+		timers.createTimer( "complete" );
+		timers.createSpan( "isConsistent" );
+		timers.createSpan( "classify" );
+		timers.createSpan( "realize" );
+		timers.createSpan( "query" );
+	}
+
 	public Expressivity getExpressivity() {
 		return getExpressivityChecker().getExpressivity();
 	}
@@ -558,11 +591,14 @@ public class KnowledgeBase {
 
 		aboxAssertions = new MultiValueMap<AssertionType, ATermAppl>();
 
-		instances = new HashMap<ATermAppl, Set<ATermAppl>>();
+		instances = new InstanceCache( this );
 		// typeChecks = new HashMap();
 
 		builder = null;
 
+		discardTaxonomyWorkers();
+		discardRetrievalWorkers();
+
 		state.clear();
 		changes = EnumSet.of( ChangeType.ABOX_ADD, ChangeType.TBOX_ADD, ChangeType.RBOX_ADD );
 	}
@@ -594,6 +630,90 @@ public class KnowledgeBase {
 		return new KnowledgeBase( this, emptyABox );
 	}
 
+	/**
+	 * Make this KB use the taxonomy of the classified KB it was copied from
+	 * instead of classifying it again. The types of individuals are shared as
+	 * well if the other KB is realized. The taxonomy is not copied so neither KB
+	 * should be modified afterwards and this KB should not be asked anything
+	 * that would update the taxonomy, e.g. the direct instances or the
+	 * subclasses of a class expression.
+	 * 
+	 * @param kb
+	 *            classified KB this KB was copied from
+	 */
+	public void shareTaxonomy(KnowledgeBase kb) {
+		if( !kb.isClassified() )
+			throw new IllegalStateException( "Cannot share the taxonomy of an unclassified KB" );
+
+		builder = kb.builder;
+		state.add( ReasoningState.CLASSIFY );
+		if( kb.isRealized() )
+			state.add( ReasoningState.REALIZE );
+	}
+
+	/**
+	 * Returns a pool whose workers share the taxonomy of this classified KB
+	 * (see {@link #shareTaxonomy(KnowledgeBase)}). The pool is kept so that
+	 * the KB is not copied again for every batch of tasks and it is shut down
+	 * when the KB changes or is realized. The threads of the pool should be
+	 * stopped with {@link WorkerPool#stopThreads()} once the tasks submitted by
+	 * the caller are finished.
+	 * 
+	 * @param threadCount
+	 *            number of worker threads
+	 */
+	public WorkerPool getTaxonomyWorkers(int threadCount) {
+		if( !isClassified() )
+			throw new IllegalStateException( "Cannot share the taxonomy of an unclassified KB" );
+
+		if( taxonomyWorkers != null && taxonomyWorkers.getThreadCount() != threadCount )
+			discardTaxonomyWorkers();
+
+		if( taxonomyWorkers == null )
+			taxonomyWorkers = new WorkerPool( this, threadCount, false, true );
+
+		return taxonomyWorkers;
+	}
+
+	private void discardTaxonomyWorkers() {
+		if( taxonomyWorkers != null ) {
+			taxonomyWorkers.shutdown();
+			taxonomyWorkers = null;
+		}
+	}
+
+	/**
+	 * Returns a pool whose workers have a copy of the ABox of this consistent
+	 * KB. The pool is kept so that the ABox is not copied again for every
+	 * instance retrieval, e.g. when the individuals are realized by retrieving
+	 * the instances of each class, and it is shut down when the KB changes.
+	 * The threads of the pool should be stopped with
+	 * {@link WorkerPool#stopThreads()} once the tasks submitted by the caller
+	 * are finished.
+	 * 
+	 * @param threadCount
+	 *            number of worker threads
+	 */
+	public WorkerPool getRetrievalWorkers(int threadCount) {
+		if( !isConsistencyDone() )
+			throw new IllegalStateException( "Cannot copy the ABox before the consistency check" );
+
+		if( retrievalWorkers != null && retrievalWorkers.getThreadCount() != threadCount )
+			discardRetrievalWorkers();
+
+		if( retrievalWorkers == null )
+			retrievalWorkers = new WorkerPool( this, threadCount, false );
+
+		return retrievalWorkers;
+	}
+
+	private void discardRetrievalWorkers() {
+		if( retrievalWorkers != null ) {
+			retrievalWorkers.shutdown();
+			retrievalWorkers = null;
+		}
+	}
+
 	public void loadKRSS(Reader reader) throws IOException {
 		KRSSLoader loader = new KRSSLoader( this );
 		loader.parse( reader );
@@ -758,6 +878,7 @@ public class KnowledgeBase {
 
 		// set addition flag
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addIndividualChange();
 
 		// if we can use inc reasoning then update incremental completion
 		// structures
@@ -810,6 +931,7 @@ public class KnowledgeBase {
 	public void addType(ATermAppl i, ATermAppl c, DependencySet ds) {
 		// set addition flag
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addChange( c );
 
 		// if use incremental reasoning then update the cached pseudo model as
 		// well
@@ -838,6 +960,7 @@ public class KnowledgeBase {
 	public void addSame(ATermAppl i1, ATermAppl i2) {
 		// set addition flag
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addGlobalChange();
 
 		if( canUseIncConsistency() ) {
 			// TODO: refactor the access to the updatedIndividuals and
@@ -859,6 +982,7 @@ public class KnowledgeBase {
 	public void addAllDifferent(ATermList list) {
 		// set addition flag
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addGlobalChange();
 
 		// if we can use incremental consistency checking then add to
 		// pseudomodel
@@ -897,6 +1021,7 @@ public class KnowledgeBase {
 	public void addDifferent(ATermAppl i1, ATermAppl i2) {
 		// set addition flag
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addGlobalChange();
 
 		// if we can use incremental consistency checking then add to
 		// pseudomodel
@@ -978,6 +1103,7 @@ public class KnowledgeBase {
 
 		// set addition flag
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addChange( p );
 
 		if( !canUseIncConsistency() ) {
 			Edge edge = abox.addEdge( p, s, obj.getName(), ds );
@@ -1045,6 +1171,7 @@ public class KnowledgeBase {
 
 	public boolean addNegatedPropertyValue(ATermAppl p, ATermAppl s, ATermAppl o) {
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addChange( p );
 
 		Individual subj = abox.getIndividual( s );
 		Role role = getRole( p );
@@ -1588,6 +1715,7 @@ public class KnowledgeBase {
 
 		// set deletion flag
 		changes.add( ChangeType.ABOX_DEL );
+		instances.addChange( p );
 
 		if( !canUseIncConsistency() ) {
 			abox.reset();
@@ -1709,6 +1837,7 @@ public class KnowledgeBase {
 		
 		// set deletion flag
 		changes.add( ChangeType.ABOX_DEL );
+		instances.addChange( c );
 
 		if( log.isLoggable( Level.FINER ) )
 			log.finer( "Remove Type " + ind + " " + c );
@@ -1747,6 +1876,10 @@ public class KnowledgeBase {
 		if( !isChanged() )
 			return;
 
+		// the copies of the workers do not have the changes
+		discardTaxonomyWorkers();
+		discardRetrievalWorkers();
+
 		boolean explain = abox.doExplanation();
 		abox.setDoExplanation( true );
 
@@ -1769,6 +1902,17 @@ public class KnowledgeBase {
 				// there are no nominals
 				&& (!expChecker.getExpressivity().hasNominal() || PelletOptions.USE_PSEUDO_NOMINALS);
 
+		// an EL classification may be updated with the consequences of the
+		// new axioms if ...
+		boolean updateTaxonomy = PelletOptions.USE_INCREMENTAL_EL_CLASSIFICATION
+				// classification has been previously done by the EL classifier
+				&& state.contains( ReasoningState.CLASSIFY )
+				&& builder instanceof SimplifiedELClassifier
+				// nothing has been removed from the TBox
+				&& !changes.contains( ChangeType.TBOX_DEL )
+				// RBox did not change since classification
+				&& !isRBoxChanged();
+
 		if( isRBoxChanged() ) {
 			if( log.isLoggable( Level.FINER ) )
 				log.finer( "Role hierarchy..." );
@@ -1805,11 +1949,11 @@ public class KnowledgeBase {
 			}
 		}
 
+		boolean schemaChanged = isTBoxChanged() || isRBoxChanged();
+
 		// reset flags
 		changes.clear();
 
-		instances.clear();
-
 		estimate = new SizeEstimate( this );
 		abox.setDoExplanation( explain );
 
@@ -1819,13 +1963,25 @@ public class KnowledgeBase {
 
 			expChecker.prepare();
 		}
+
+		// drop the cached instances the changes may have affected
+		instances.update( schemaChanged, expChecker.getExpressivity() );
 		
+		// save the satisfiability results computed so far before the cache is
+		// discarded so they can be reused if the schema did not change
+		if( !reuseTaxonomy && abox.getCache() != null )
+			abox.getCache().flush();
+
 		abox.clearCaches( !reuseTaxonomy );
 		abox.cache.setMaxSize( PelletOptions.MAX_ANONYMOUS_CACHE );
 
 		if( !reuseTaxonomy ) {
 			state.remove( ReasoningState.CLASSIFY );
-			builder = null;
+			// keep the EL classifier if the ontology is still in EL so the
+			// next classification only processes the new axioms
+			if( !updateTaxonomy || !expChecker.getExpressivity().isEL()
+					|| PelletOptions.DISABLE_EL_CLASSIFIER )
+				builder = null;
 			// taxonomy = null;
 		}
 
@@ -2102,6 +2258,8 @@ public class KnowledgeBase {
 		state.add( ReasoningState.CLASSIFY );
 
 		estimate.computKBCosts();
+
+		abox.getCache().flush();
 	}
 
 	public void realize() {
@@ -2125,7 +2283,13 @@ public class KnowledgeBase {
 
 		state.add( ReasoningState.REALIZE );
 
+		// workers created before realization would not use the types of
+		// individuals in the taxonomy
+		discardTaxonomyWorkers();
+
 		estimate.computKBCosts();
+
+		abox.getCache().flush();
 	}
 
 	/**
@@ -3403,9 +3567,16 @@ public class KnowledgeBase {
 			return Collections.emptySet();
 		}
 
-		if( instances.containsKey( c ) )
-			return instances.get( c );
-		else if( isRealized() ) {
+		if( PelletOptions.CACHE_RETRIEVAL ) {
+			// process the pending changes before the cache is used
+			ensureConsistency();
+
+			Set<ATermAppl> cached = instances.get( c );
+			if( cached != null )
+				return cached;
+		}
+
+		if( isRealized() ) {
 			if( builder == null )
 				throw new NullPointerException( "Builder is null" );
 
@@ -4193,32 +4364,53 @@ public class KnowledgeBase {
 	public Set<ATermAppl> retrieve(ATermAppl d, Collection<ATermAppl> individuals) {
 		ensureConsistency();
 
+		Taxonomy<ATermAppl> taxonomy = null;
+		if( isClassified() ) {
+			if( builder == null )
+				throw new NullPointerException( "Builder is null" );
+
+			taxonomy = builder.getTaxonomy();
+
+			if( taxonomy == null )
+				throw new NullPointerException( "Taxonomy" );
+		}
+
+		return retrieve( d, individuals, taxonomy );
+	}
+
+	/**
+	 * Return all the individuals that belong to the given class which is not
+	 * necessarily a named class. The given taxonomy, if not <code>null</code>,
+	 * is used to find the obvious instances. This allows a copy of this KB to
+	 * use the taxonomy of the original KB.
+	 * 
+	 * @param d
+	 * @param individuals
+	 * @param taxonomy
+	 * @return
+	 */
+	public Set<ATermAppl> retrieve(ATermAppl d, Collection<ATermAppl> individuals,
+			Taxonomy<ATermAppl> taxonomy) {
+		ensureConsistency();
+
 		ATermAppl c = ATermUtils.normalize( d );
 
 		Timer timer = timers.startTimer( "retrieve" );
+		long start = System.nanoTime();
 
 		ATermAppl notC = ATermUtils.negate( c );
 		List<ATermAppl> knowns = new ArrayList<ATermAppl>();
 
+		boolean universal = !abox.isSatisfiable( notC );
 		// this is mostly to ensure that a model for notC is cached
-		if( !abox.isSatisfiable( notC ) ) {
+		if( universal ) {
 			// if negation is unsat c itself is TOP
 			knowns.addAll( getIndividuals() );
 		}
 		else if( abox.isSatisfiable( c ) ) {
 			Set<ATermAppl> subs = Collections.emptySet();
-			if( isClassified() ) {
-				if( builder == null )
-					throw new NullPointerException( "Builder is null" );
-
-				Taxonomy<ATermAppl> taxonomy = builder.getTaxonomy();
-
-				if( taxonomy == null )
-					throw new NullPointerException( "Taxonomy" );
-
-				if( taxonomy.contains( c ) )
-					subs = taxonomy.getFlattenedSubs( c, false );
-			}
+			if( taxonomy != null && taxonomy.contains( c ) )
+				subs = taxonomy.getFlattenedSubs( c, false );
 
 			List<ATermAppl> unknowns = new ArrayList<ATermAppl>();
 			for( ATermAppl x : individuals ) {
@@ -4248,8 +4440,9 @@ public class KnowledgeBase {
 
 		Set<ATermAppl> result = Collections.unmodifiableSet( new HashSet<ATermAppl>( knowns ) );
 
-		if( PelletOptions.CACHE_RETRIEVAL )
-			instances.put( c, result );
+		// only the instances retrieved from all the individuals are cached
+		if( PelletOptions.CACHE_RETRIEVAL && individuals == this.individuals )
+			instances.put( c, result, System.nanoTime() - start, universal );
 
 		return result;
 	}
@@ -4315,6 +4508,19 @@ public class KnowledgeBase {
 
 	public void binaryInstanceRetrieval(ATermAppl c, List<ATermAppl> candidates,
 			Collection<ATermAppl> results) {
+		if( ParallelInstanceRetrieval.isApplicable( this, candidates ) )
+			new ParallelInstanceRetrieval( this ).retrieve( c, candidates, results );
+		else
+			sequentialInstanceRetrieval( c, candidates, results );
+	}
+
+	/**
+	 * Binary instance retrieval in the ABox of this KB. Used by the workers of
+	 * {@link ParallelInstanceRetrieval} which should not start another
+	 * parallel retrieval for their partitions.
+	 */
+	void sequentialInstanceRetrieval(ATermAppl c, List<ATermAppl> candidates,
+			Collection<ATermAppl> results) {
 		if( candidates.isEmpty() )
 			return;
 		else {
@@ -4327,21 +4533,21 @@ public class KnowledgeBase {
 			Collection<ATermAppl> results) {
 		if( partitions[0].size() == 1 ) {
 			ATermAppl i = partitions[0].get( 0 );
-			binaryInstanceRetrieval( c, partitions[1], results );
+			sequentialInstanceRetrieval( c, partitions[1], results );
 
 			if( abox.isType( i, c ) )
 				results.add( i );
 		}
 		else if( !abox.isType( partitions[0], c ) ) {
-			binaryInstanceRetrieval( c, partitions[1], results );
+			sequentialInstanceRetrieval( c, partitions[1], results );
 		}
 		else {
 			if( !abox.isType( partitions[1], c ) ) {
-				binaryInstanceRetrieval( c, partitions[0], results );
+				sequentialInstanceRetrieval( c, partitions[0], results );
 			}
 			else {
-				binaryInstanceRetrieval( c, partitions[0], results );
-				binaryInstanceRetrieval( c, partitions[1], results );
+				sequentialInstanceRetrieval( c, partitions[0], results );
+				sequentialInstanceRetrieval( c, partitions[1], results );
 			}
 		}
 	}
@@ -4584,12 +4790,21 @@ public class KnowledgeBase {
 		return estimate;
 	}
 
+	/**
+	 * Returns the cache of the instances retrieved for concepts which also
+	 * keeps the hit and miss counts of the cache.
+	 */
+	public InstanceCache getInstanceCache() {
+		return instances;
+	}
+
 	/**
 	 * Add a rule to the KB.
 	 */
 	public boolean addRule(Rule rule) {
 		// DL-safe rules affects the ABox so we might redo the reasoning
 		changes.add( ChangeType.ABOX_ADD );
+		instances.addGlobalChange();
 
 		rules.put( rule, normalize( rule ) );
 
@@ -32,6 +32,7 @@ package org.mindswap.pellet;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -49,6 +50,7 @@ import org.mindswap.pellet.tableau.completion.queue.QueueElement;
 import org.mindswap.pellet.utils.ATermUtils;
 import org.mindswap.pellet.utils.Bool;
 import org.mindswap.pellet.utils.SetUtils;
+import org.mindswap.pellet.utils.TermMap;
 
 import aterm.ATerm;
 import aterm.ATermAppl;
@@ -79,7 +81,7 @@ public abstract class Node {
 	
 	protected ABox abox;
 	protected ATermAppl name;
-	protected Map<ATermAppl, DependencySet> depends;
+	protected TermMap<DependencySet> depends;
 	private boolean isRoot;
 	private boolean isConceptRoot;		
 	
@@ -106,6 +108,10 @@ public abstract class Node {
 	 */
 	protected Set<Node> merged;
 	
+	/**
+	 * Nodes that are different from this node. Most nodes have no differents
+	 * so the map is only allocated when the first one is added.
+	 */
 	protected Map<Node, DependencySet> differents;
 	
 	protected Node(ATermAppl name, ABox abox) {
@@ -116,8 +122,8 @@ public abstract class Node {
 		isConceptRoot = false;
 		
 		mergeDepends = DependencySet.INDEPENDENT; 
-		differents = CollectionUtils.makeMap();
-		depends = CollectionUtils.makeMap();
+		differents = Collections.emptyMap();
+		depends = new TermMap<DependencySet>( abox.getTermDictionary() );
 
         inEdges = new EdgeList();
 	}
@@ -137,7 +143,7 @@ public abstract class Node {
 		// do not copy differents right now because we need to
 		// update node references later anyway
 		differents = node.differents;
-		depends = CollectionUtils.makeMap(node.depends);
+		depends = new TermMap<DependencySet>( abox.getTermDictionary(), node.depends );
 		        
         inEdges = node.inEdges;
 	}
@@ -145,13 +151,15 @@ public abstract class Node {
 	protected void updateNodeReferences() {
         mergedTo = abox.getNode( mergedTo.getName() );
 
-        Map<Node, DependencySet> diffs = new HashMap<Node, DependencySet>( differents.size() );
-        for(Map.Entry<Node, DependencySet> entry : differents.entrySet() ) {
-            Node node = entry.getKey();
+        if( !differents.isEmpty() ) {
+            Map<Node, DependencySet> diffs = new HashMap<Node, DependencySet>( differents.size() );
+            for(Map.Entry<Node, DependencySet> entry : differents.entrySet() ) {
+                Node node = entry.getKey();
 
-            diffs.put( abox.getNode( node.getName() ), entry.getValue() );
+                diffs.put( abox.getNode( node.getName() ), entry.getValue() );
+            }
+            differents = diffs;
         }
-        differents = diffs;
 
         if( merged != null ) {
             Set<Node> sames = new HashSet<Node>( merged.size() );
@@ -281,11 +289,10 @@ public abstract class Node {
     }
     
     protected void resetTypes() {
-    	Iterator<DependencySet> i = depends.values().iterator();
-    	while( i.hasNext()) {
-    		DependencySet d = i.next();
+    	for( int i = depends.nextSlot( 0 ); i >= 0; i = depends.nextSlot( i + 1 ) ) {
+    		DependencySet d = depends.getValueAt( i );
 			if( d.getBranch() != DependencySet.NO_BRANCH ) {
-				i.remove();
+				depends.removeAt( i );
 			}			    
 		}
     }
@@ -341,14 +348,14 @@ public abstract class Node {
 
 		boolean restored = false;
 		
-		List<ATermAppl> conjunctions = new ArrayList<ATermAppl>();
+		List<ATermAppl> conjunctions = null;
 
 		
 		boolean removed = false;
 		
-		for( Iterator<ATermAppl> i = getTypes().iterator(); i.hasNext(); ) {									
-			ATermAppl c = i.next();	
-			DependencySet d = getDepends(c);
+		for( int i = depends.nextSlot( 0 ); i >= 0; i = depends.nextSlot( i + 1 ) ) {
+			ATermAppl c = depends.getKeyAt( i );
+			DependencySet d = depends.getValueAt( i );
 			
 			boolean removeType = PelletOptions.USE_SMART_RESTORE
 //                ? ( !d.contains( branch ) )
@@ -366,11 +373,13 @@ public abstract class Node {
 					abox.getIncrementalChangeTracker().addDeletedType( this, c );
 				}
 								
-				i.remove();
+				depends.removeAt( i );
 				removeType(c);
 				restored = true;
 			}
 			else if( PelletOptions.USE_SMART_RESTORE && ATermUtils.isAnd( c ) ) {
+				if( conjunctions == null )
+					conjunctions = new ArrayList<ATermAppl>();
 			    conjunctions.add( c );
 			}			    
 		}			
@@ -391,7 +400,7 @@ public abstract class Node {
 		// but not the conjunction. this is the case if conjunct was added before 
 		// the conjunction but depended on an earlier branch. so we need to make
 		// sure all conjunctions are actually applied
-		if( PelletOptions.USE_SMART_RESTORE ) {
+		if( conjunctions != null ) {
 			for( Iterator<ATermAppl> i = conjunctions.iterator(); i.hasNext(); ) {
 				ATermAppl c = i.next();
 				DependencySet d = getDepends(c);
@@ -805,6 +814,8 @@ public abstract class Node {
 		}
 		
 		ds = ds.copy( abox.getBranch() );
+		if( differents.isEmpty() )
+			differents = CollectionUtils.makeMap();
 		differents.put(node, ds);
 		node.setDifferent(this, ds);
 		abox.setChanged( true );
@@ -0,0 +1,395 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.tableau.completion.CompletionStrategy;
+import org.mindswap.pellet.utils.ATermUtils;
+import org.mindswap.pellet.utils.TermDictionary;
+import org.mindswap.pellet.utils.Timer;
+import org.mindswap.pellet.utils.concurrent.WorkerPool;
+
+import aterm.ATermAppl;
+
+import com.clarkparsia.pellet.expressivity.Expressivity;
+
+/**
+ * <p>
+ * Title: Parallel Consistency Checker
+ * </p>
+ * <p>
+ * Description: Checks the consistency of the connected components of an ABox
+ * in parallel. Two nodes are in the same component if they are connected by
+ * an edge, a different individuals assertion or a pending merge. If the KB has
+ * nothing else that can relate two individuals (see
+ * {@link Expressivity#hasIndependentComponents()}) the ABox is consistent iff
+ * every component is consistent.
+ * </p>
+ * <p>
+ * The components are grouped into tasks that are completed by the workers of a
+ * {@link WorkerPool}, each task in an ABox that contains only the nodes of its
+ * own components. The tasks are taken from a shared queue as workers become
+ * idle so one expensive component does not hold up the rest. As soon as one
+ * task finds a clash the remaining tasks are skipped.
+ * </p>
+ * <p>
+ * The completed components are then merged back into the original ABox if
+ * they were completed without creating any branches. Branch numbers are local
+ * to the ABox that created them so nondeterministic components cannot be
+ * merged; they are left as they are and completed again, along with the final
+ * pass over the merged nodes, by the usual completion of the original ABox.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ParallelConsistencyChecker {
+	public final static Logger	log				= Logger.getLogger( ParallelConsistencyChecker.class
+														.getName() );
+
+	/**
+	 * Number of tasks created for each thread. More tasks than threads are
+	 * needed to balance the load when component sizes vary.
+	 */
+	private static final int	TASKS_PER_THREAD	= 4;
+
+	private static class Task implements WorkerPool.Task<Result> {
+		private ABox			abox;
+		private Expressivity	expr;
+		private AtomicBoolean	clashFound;
+		private List<ATermAppl>	names;
+
+		Task(ABox abox, Expressivity expr, AtomicBoolean clashFound) {
+			this.abox = abox;
+			this.expr = expr;
+			this.clashFound = clashFound;
+			this.names = new ArrayList<ATermAppl>();
+		}
+
+		public Result call(KnowledgeBase worker) {
+			if( clashFound.get() ) {
+				return null;
+			}
+
+			ABox component = worker.getABox().copy( null, false );
+			component.copyComponent( abox, names );
+
+			CompletionStrategy strategy = worker.chooseStrategy( component, expr );
+			strategy.complete( expr );
+
+			Result result = new Result( this );
+			if( component.isClosed() ) {
+				clashFound.set( true );
+				result.clash = component.getClash();
+			}
+			else if( component.getBranches().isEmpty() && hasFreshNames( component ) ) {
+				result.component = component;
+			}
+
+			return result;
+		}
+
+		/**
+		 * Check that all the nodes created during completion have fresh names
+		 * that can be replaced when the nodes are merged to the original ABox.
+		 * This is not true for literals created for a data value.
+		 */
+		private boolean hasFreshNames(ABox component) {
+			Set<ATermAppl> original = new HashSet<ATermAppl>( names );
+			for( ATermAppl x : component.getNodeNames() ) {
+				if( original.contains( x ) || component.getNode( x ) == null ) {
+					continue;
+				}
+
+				if( ATermUtils.isLiteral( x ) ) {
+					x = (ATermAppl) x.getArgument( ATermUtils.LIT_VAL_INDEX );
+				}
+
+				if( !ATermUtils.isAnon( x ) && !ATermUtils.isAnonNominal( x ) ) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	private static class Result {
+		private Task	task;
+
+		/**
+		 * The completed ABox if it can be merged to the original ABox
+		 */
+		private ABox	component;
+
+		/**
+		 * The clash if the component is inconsistent
+		 */
+		private Clash	clash;
+
+		Result(Task task) {
+			this.task = task;
+		}
+	}
+
+	private ABox				abox;
+
+	private Expressivity		expr;
+
+	private int					componentCount;
+
+	private int					mergedCount;
+
+	public ParallelConsistencyChecker(ABox abox, Expressivity expr) {
+		this.abox = abox;
+		this.expr = expr;
+	}
+
+	/**
+	 * Returns <code>true</code> if the consistency of the components of the
+	 * given ABox can be checked in parallel. This requires that parallel
+	 * consistency is enabled, the ABox has not been completed before and
+	 * none of the options that track the completion globally are enabled.
+	 */
+	public static boolean isApplicable(ABox abox, Expressivity expr) {
+		return PelletOptions.CONSISTENCY_THREADS > 1 && !abox.isInitialized()
+				&& abox.getClash() == null && !abox.doExplanation()
+				&& expr.hasIndependentComponents() && abox.getKB().getRules().isEmpty()
+				&& !PelletOptions.USE_COMPLETION_QUEUE
+				&& !PelletOptions.USE_INCREMENTAL_CONSISTENCY
+				&& !PelletOptions.USE_INCREMENTAL_DELETION
+				&& !PelletOptions.TRACK_BRANCH_EFFECTS && !PelletOptions.SATURATE_TABLEAU;
+	}
+
+	/**
+	 * Returns the number of components found in the last check.
+	 */
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+	/**
+	 * Returns the number of components that were merged back to the ABox in
+	 * the last check.
+	 */
+	public int getMergedCount() {
+		return mergedCount;
+	}
+
+	/**
+	 * Check the consistency of the components. If a component is inconsistent
+	 * the clash of the ABox is set. Otherwise the components that were
+	 * completed deterministically are merged back to the ABox.
+	 *
+	 * @return <code>false</code> if a component is inconsistent
+	 */
+	public boolean check() {
+		List<List<ATermAppl>> components = findComponents();
+		componentCount = components.size();
+		mergedCount = 0;
+
+		if( componentCount < 2 ) {
+			return true;
+		}
+
+		int threadCount = PelletOptions.CONSISTENCY_THREADS;
+		List<Task> tasks = createTasks( components, threadCount * TASKS_PER_THREAD );
+
+		if( log.isLoggable( Level.FINE ) ) {
+			log.fine( "Checking " + componentCount + " components in " + tasks.size()
+					+ " tasks with " + threadCount + " threads" );
+		}
+
+		KnowledgeBase kb = abox.getKB();
+		WorkerPool pool = new WorkerPool( kb, Math.min( threadCount, tasks.size() ), true );
+		List<Result> results;
+		try {
+			results = pool.invokeAll( "parallelConsistency", tasks );
+		} finally {
+			pool.shutdown();
+		}
+
+		for( Result result : results ) {
+			if( result != null && result.clash != null ) {
+				setClash( result );
+				return false;
+			}
+		}
+
+		Timer timer = kb.timers.startTimer( "mergeComponents" );
+		for( Result result : results ) {
+			if( result.component != null ) {
+				abox.mergeComponent( result.component, new HashSet<ATermAppl>( result.task.names ) );
+				mergedCount += result.task.names.size();
+			}
+		}
+		timer.stop();
+
+		if( log.isLoggable( Level.FINE ) ) {
+			log.fine( "Merged " + mergedCount + " nodes of deterministic components in "
+					+ timer.getLast() + "ms" );
+		}
+
+		return true;
+	}
+
+	/**
+	 * Find the connected components with a union-find over the dictionary ids
+	 * of the node names.
+	 */
+	private List<List<ATermAppl>> findComponents() {
+		TermDictionary dictionary = abox.getTermDictionary();
+		int[] parent = new int[dictionary.size()];
+		for( int i = 0; i < parent.length; i++ ) {
+			parent[i] = i;
+		}
+
+		for( Node node : abox.getNodes() ) {
+			int id = dictionary.lookup( node.getName() );
+
+			if( node instanceof Individual ) {
+				for( Edge edge : ((Individual) node).getOutEdges() ) {
+					union( parent, id, dictionary.lookup( edge.getToName() ) );
+				}
+			}
+
+			for( Node other : node.getDifferents() ) {
+				union( parent, id, dictionary.lookup( other.getName() ) );
+			}
+
+			if( node.isMerged() ) {
+				union( parent, id, dictionary.lookup( node.getMergedTo().getName() ) );
+			}
+		}
+
+		for( NodeMerge merge : abox.getToBeMerged() ) {
+			union( parent, dictionary.lookup( merge.getSource() ), dictionary.lookup( merge
+					.getTarget() ) );
+		}
+
+		// components are listed in the order their first node was created
+		int[] componentIndex = new int[parent.length];
+		List<List<ATermAppl>> components = new ArrayList<List<ATermAppl>>();
+		for( ATermAppl x : abox.getNodeNames() ) {
+			if( abox.getNode( x ) == null ) {
+				continue;
+			}
+
+			int root = find( parent, dictionary.lookup( x ) );
+			int index = componentIndex[root] - 1;
+			if( index < 0 ) {
+				index = components.size();
+				componentIndex[root] = index + 1;
+				components.add( new ArrayList<ATermAppl>() );
+			}
+			components.get( index ).add( x );
+		}
+
+		return components;
+	}
+
+	private static int find(int[] parent, int i) {
+		while( parent[i] != i ) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int i, int j) {
+		i = find( parent, i );
+		j = find( parent, j );
+		if( i < j ) {
+			parent[j] = i;
+		}
+		else if( j < i ) {
+			parent[i] = j;
+		}
+	}
+
+	/**
+	 * Group the components into tasks of roughly equal size. Components larger
+	 * than the target size get a task of their own and the rest are added to
+	 * the task that is currently the smallest.
+	 */
+	private List<Task> createTasks(List<List<ATermAppl>> components, int maxTasks) {
+		List<List<ATermAppl>> sorted = new ArrayList<List<ATermAppl>>( components );
+		Collections.sort( sorted, new Comparator<List<ATermAppl>>() {
+			public int compare(List<ATermAppl> c1, List<ATermAppl> c2) {
+				return c2.size() - c1.size();
+			}
+		} );
+
+		AtomicBoolean clashFound = new AtomicBoolean( false );
+		int taskCount = Math.min( maxTasks, sorted.size() );
+		List<Task> tasks = new ArrayList<Task>( taskCount );
+		for( int i = 0; i < taskCount; i++ ) {
+			tasks.add( new Task( abox, expr, clashFound ) );
+		}
+
+		// largest components first, each to the smallest task so far
+		for( List<ATermAppl> component : sorted ) {
+			Task smallest = tasks.get( 0 );
+			for( Task task : tasks ) {
+				if( task.names.size() < smallest.names.size() ) {
+					smallest = task;
+				}
+			}
+			smallest.names.addAll( component );
+		}
+
+		// run the largest tasks first
+		Collections.sort( tasks, new Comparator<Task>() {
+			public int compare(Task t1, Task t2) {
+				return t2.names.size() - t1.names.size();
+			}
+		} );
+
+		return tasks;
+	}
+
+	/**
+	 * Set the clash of the original ABox from the clash found in a component.
+	 * Nodes created during completion do not exist in the original ABox so the
+	 * clash is reported on the individual that is the root of the tree the
+	 * node belongs to.
+	 */
+	private void setClash(Result result) {
+		Node node = result.clash.getNode();
+		while( node != null && abox.getNode( node.getName() ) == null ) {
+			if( node instanceof Individual ) {
+				node = ((Individual) node).getParent();
+			}
+			else {
+				EdgeList edges = node.getInEdges();
+				node = edges.isEmpty()
+					? null
+					: edges.edgeAt( 0 ).getFrom();
+			}
+		}
+
+		ATermAppl name = node != null
+			? node.getName()
+			: result.task.names.get( 0 );
+
+		Clash clash = result.clash.copyTo( abox );
+		clash.setNode( abox.getNode( name ) );
+		abox.setClash( clash );
+	}
+}
@@ -0,0 +1,181 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.utils.concurrent.WorkerPool;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Parallel Instance Retrieval
+ * </p>
+ * <p>
+ * Description: Runs the binary instance retrieval of a KB with the workers of
+ * the retrieval pool of the KB (see
+ * {@link KnowledgeBase#getRetrievalWorkers(int)}) so the ABox is only copied
+ * once for all the retrievals until the KB changes. The first levels of the bisection are unfolded by the
+ * calling thread until there are enough partitions to keep the workers busy.
+ * The partitions are independent so each one is checked by a task that tests
+ * whether any candidate in the partition can be an instance and, if so,
+ * continues the bisection of the partition in the ABox of its worker exactly
+ * as {@link KnowledgeBase#binaryInstanceRetrieval(ATermAppl, List, Collection)}
+ * does. The tasks are taken from a shared queue as workers become idle so
+ * partitions that need to be bisected further do not hold up the rest.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ParallelInstanceRetrieval {
+	public final static Logger	log					= Logger.getLogger( ParallelInstanceRetrieval.class
+															.getName() );
+
+	/**
+	 * Minimum number of candidates for which the retrieval is done in
+	 * parallel. Running the tasks on other threads is not worth it when there
+	 * are few candidates and the first parallel retrieval also copies the ABox
+	 * once per thread.
+	 */
+	public static int			MIN_CANDIDATES		= 1000;
+
+	/**
+	 * Number of partitions created for each thread. More partitions than
+	 * threads are needed to balance the load since the instances are usually
+	 * not spread evenly over the candidates.
+	 */
+	private static final int	TASKS_PER_THREAD	= 4;
+
+	private static class Task implements WorkerPool.Task<List<ATermAppl>> {
+		private ATermAppl		c;
+		private List<ATermAppl>	candidates;
+
+		Task(ATermAppl c, List<ATermAppl> candidates) {
+			this.c = c;
+			this.candidates = candidates;
+		}
+
+		public List<ATermAppl> call(KnowledgeBase worker) {
+			List<ATermAppl> results = new ArrayList<ATermAppl>();
+
+			if( candidates.size() == 1 || worker.getABox().isType( candidates, c ) ) {
+				worker.sequentialInstanceRetrieval( c, candidates, results );
+			}
+
+			return results;
+		}
+	}
+
+	private KnowledgeBase	kb;
+
+	private int				taskCount;
+
+	public ParallelInstanceRetrieval(KnowledgeBase kb) {
+		this.kb = kb;
+	}
+
+	/**
+	 * Returns <code>true</code> if the instances of a concept can be retrieved
+	 * in parallel from the given candidates. This requires that parallel
+	 * retrieval is enabled, there are enough candidates and the KB has no
+	 * rules or explanation enabled which the worker copies do not support.
+	 */
+	public static boolean isApplicable(KnowledgeBase kb, List<ATermAppl> candidates) {
+		return PelletOptions.RETRIEVAL_THREADS > 1 && candidates.size() >= MIN_CANDIDATES
+				&& candidates.size() > 1 && kb.getRules().isEmpty() && !kb.doExplanation()
+				&& kb.isConsistencyDone();
+	}
+
+	/**
+	 * Returns the number of partitions checked by the workers in the last
+	 * retrieval.
+	 */
+	public int getTaskCount() {
+		return taskCount;
+	}
+
+	/**
+	 * Find the instances of the given concept among the candidates and add
+	 * them to the results. The instances are added in the order they appear in
+	 * the candidates list.
+	 */
+	public void retrieve(ATermAppl c, List<ATermAppl> candidates, Collection<ATermAppl> results) {
+		int threadCount = PelletOptions.RETRIEVAL_THREADS;
+		List<List<ATermAppl>> partitions = bisect( candidates, threadCount * TASKS_PER_THREAD );
+
+		List<Task> tasks = new ArrayList<Task>( partitions.size() );
+		for( List<ATermAppl> partition : partitions ) {
+			tasks.add( new Task( c, partition ) );
+		}
+		taskCount = tasks.size();
+
+		if( log.isLoggable( Level.FINE ) ) {
+			log.fine( "Retrieving instances of " + c + " from " + candidates.size()
+					+ " candidates in " + tasks.size() + " partitions with " + threadCount
+					+ " threads" );
+		}
+
+		WorkerPool pool = kb.getRetrievalWorkers( threadCount );
+		List<List<ATermAppl>> taskResults;
+		try {
+			taskResults = pool.invokeAll( "retrieveParallel", tasks );
+		} finally {
+			// the copies are kept for the next retrieval but idle threads are
+			// not, e.g. if this KB is itself the copy of a worker
+			pool.stopThreads();
+		}
+
+		for( List<ATermAppl> taskResult : taskResults ) {
+			results.addAll( taskResult );
+		}
+	}
+
+	/**
+	 * Bisect the candidates level by level until there are at least the given
+	 * number of partitions or the partitions cannot be split further.
+	 */
+	private static List<List<ATermAppl>> bisect(List<ATermAppl> candidates, int minPartitions) {
+		List<List<ATermAppl>> partitions = new ArrayList<List<ATermAppl>>();
+		partitions.add( candidates );
+
+		boolean split = true;
+		while( partitions.size() < minPartitions && split ) {
+			split = false;
+
+			List<List<ATermAppl>> next = new ArrayList<List<ATermAppl>>( 2 * partitions.size() );
+			for( List<ATermAppl> partition : partitions ) {
+				int n = partition.size();
+				if( n > 1 ) {
+					next.add( partition.subList( 0, n / 2 ) );
+					next.add( partition.subList( n / 2, n ) );
+					split = true;
+				}
+				else {
+					next.add( partition );
+				}
+			}
+			partitions = next;
+		}
+
+		// the workers should not share the views of the candidates list
+		List<List<ATermAppl>> copies = new ArrayList<List<ATermAppl>>( partitions.size() );
+		for( List<ATermAppl> partition : partitions ) {
+			copies.add( new ArrayList<ATermAppl>( partition ) );
+		}
+
+		return copies;
+	}
+}
@@ -119,6 +119,15 @@ public class PelletOptions {
 		CACHE_RETRIEVAL = getBooleanProperty( newOptions, "CACHE_RETRIEVAL", CACHE_RETRIEVAL,
 				oldOptions );
 
+		MAX_INSTANCE_CACHE = getIntProperty( newOptions, "MAX_INSTANCE_CACHE", MAX_INSTANCE_CACHE,
+				oldOptions );
+
+		CLASSIFICATION_THREADS = getIntProperty( newOptions, "CLASSIFICATION_THREADS",
+				CLASSIFICATION_THREADS, oldOptions );
+
+		EL_CLASSIFICATION_THREADS = getIntProperty( newOptions, "EL_CLASSIFICATION_THREADS",
+				EL_CLASSIFICATION_THREADS, oldOptions );
+
 		DL_SAFE_RULES = getBooleanProperty( newOptions, "DL_SAFE_RULES", DL_SAFE_RULES, oldOptions );
 
 		FREEZE_BUILTIN_NAMESPACES = getBooleanProperty( newOptions, "FREEZE_BUILTIN_NAMESPACES",
@@ -142,12 +151,31 @@ public class PelletOptions {
 		MAX_ANONYMOUS_CACHE = getIntProperty( newOptions, "MAX_ANONYMOUS_CACHE",
 				MAX_ANONYMOUS_CACHE, oldOptions );
 
+		CONCEPT_CACHE_DIRECTORY = getStringProperty( newOptions, "CONCEPT_CACHE_DIRECTORY",
+				CONCEPT_CACHE_DIRECTORY, oldOptions );
+
+		EDGE_LIST_INDEX_THRESHOLD = getIntProperty( newOptions, "EDGE_LIST_INDEX_THRESHOLD",
+				EDGE_LIST_INDEX_THRESHOLD, oldOptions );
+
 		OPTIMIZE_DOWN_MONOTONIC = getBooleanProperty( newOptions, "OPTIMIZE_DOWN_MONOTONIC",
 				OPTIMIZE_DOWN_MONOTONIC, oldOptions );
 
 		REALIZE_INDIVIDUAL_AT_A_TIME = getBooleanProperty( newOptions,
 				"REALIZE_INDIVIDUAL_AT_A_TIME", REALIZE_INDIVIDUAL_AT_A_TIME, oldOptions );
 
+		REALIZATION_THREADS = getIntProperty( newOptions, "REALIZATION_THREADS",
+				REALIZATION_THREADS, oldOptions );
+
+		CONSISTENCY_THREADS = getIntProperty( newOptions, "CONSISTENCY_THREADS",
+				CONSISTENCY_THREADS, oldOptions );
+
+		QUERY_THREADS = getIntProperty( newOptions, "QUERY_THREADS", QUERY_THREADS, oldOptions );
+
+		LOADER_THREADS = getIntProperty( newOptions, "LOADER_THREADS", LOADER_THREADS, oldOptions );
+
+		RETRIEVAL_THREADS = getIntProperty( newOptions, "RETRIEVAL_THREADS", RETRIEVAL_THREADS,
+				oldOptions );
+
 		RETURN_DEDUCTIONS_GRAPH = getBooleanProperty( newOptions, "RETURN_DEDUCTIONS_GRAPH",
 				RETURN_DEDUCTIONS_GRAPH, oldOptions );
 
@@ -163,6 +191,9 @@ public class PelletOptions {
 		STATIC_REORDERING_LIMIT = getIntProperty( newOptions, "STATIC_REORDERING_LIMIT",
 				STATIC_REORDERING_LIMIT, oldOptions );
 
+		QUERY_PLAN_CACHE_SIZE = getIntProperty( newOptions, "QUERY_PLAN_CACHE_SIZE",
+				QUERY_PLAN_CACHE_SIZE, oldOptions );
+
 		TRACK_BRANCH_EFFECTS = getBooleanProperty( newOptions, "TRACK_BRANCH_EFFECTS",
 				TRACK_BRANCH_EFFECTS, oldOptions );
 
@@ -240,6 +271,9 @@ public class PelletOptions {
 		
 		DISABLE_EL_CLASSIFIER = getBooleanProperty( newOptions, "DISABLE_EL_CLASSIFIER", DISABLE_EL_CLASSIFIER, 
 				oldOptions );
+
+		USE_INCREMENTAL_EL_CLASSIFICATION = getBooleanProperty( newOptions,
+				"USE_INCREMENTAL_EL_CLASSIFICATION", USE_INCREMENTAL_EL_CLASSIFICATION, oldOptions );
 		
 		PROCESS_JENA_UPDATES_INCREMENTALLY = getBooleanProperty(newOptions, "PROCESS_JENA_UPDATES_INCREMENTALLY",
 		                PROCESS_JENA_UPDATES_INCREMENTALLY, oldOptions);
@@ -321,6 +355,29 @@ public class PelletOptions {
 		return intValue;
 	}
 
+	private static String getStringProperty(Properties properties, String property,
+			String defaultValue, Properties defaultValues) {
+		// empty string is used for null values since properties cannot be null
+		defaultValues.setProperty( property, defaultValue == null
+			? ""
+			: defaultValue );
+		String value = properties.getProperty( property );
+		String returnValue = defaultValue;
+
+		if( value != null ) {
+			value = value.trim();
+			returnValue = value.length() == 0
+				? null
+				: value;
+		}
+
+		properties.setProperty( property, returnValue == null
+			? ""
+			: returnValue );
+
+		return returnValue;
+	}
+
 	private static <T extends Enum<T>> T getEnumProperty(Properties properties, String property,
 			T defaultValue, Properties defaultValues) {
 		defaultValues.setProperty( property, String.valueOf( defaultValue ) );
@@ -466,6 +523,25 @@ public class PelletOptions {
 	 */
 	public static int									MAX_ANONYMOUS_CACHE						= 20000;
 
+	/**
+	 * Directory where the concept satisfiability cache is persisted between
+	 * runs. Cache files are named after a fingerprint of the TBox and RBox so
+	 * different ontologies (or different versions of the same ontology) can
+	 * share the same directory. The cache is not persisted for ontologies with
+	 * nominals. The default value <code>null</code> disables persistence.
+	 */
+	public static String								CONCEPT_CACHE_DIRECTORY					= null;
+
+	/**
+	 * The number of edges after which the edges of a node are indexed by role
+	 * and by neighbor. Below this size searching edges linearly is faster than
+	 * using the index (see <code>profiler.bench.HubEdgeListBenchmark</code>).
+	 * The index is created when an edge list grows beyond this size and
+	 * discarded when it shrinks below the half of this size. Setting this to
+	 * {@link Integer#MAX_VALUE} disables indexing.
+	 */
+	public static int									EDGE_LIST_INDEX_THRESHOLD				= 32;
+
 	/**
 	 * To decide if individual <code>i</code> has type class <code>c</code>
 	 * check if the edges from cached model of <code>c</code> to nominal nodes
@@ -547,6 +623,52 @@ public class PelletOptions {
 	 */
 	public static boolean								REALIZE_INDIVIDUAL_AT_A_TIME			= false;
 
+	/**
+	 * Number of worker threads used during realization. The individuals are
+	 * split into partitions that are realized independently, each worker using
+	 * its own copy of the ABox. Every worker copies the complete ABox so memory
+	 * consumption grows linearly with the number of threads. Values less than 2
+	 * disable parallel realization.
+	 */
+	public static int									REALIZATION_THREADS						= 1;
+
+	/**
+	 * Number of worker threads used for the initial ABox consistency check.
+	 * If there is nothing in the KB that relates unconnected individuals (see
+	 * {@link com.clarkparsia.pellet.expressivity.Expressivity#hasIndependentComponents()})
+	 * the connected components of the ABox are completed in parallel, each
+	 * worker using a copy of only the components it is working on. Values less
+	 * than 2 disable parallel consistency checking.
+	 */
+	public static int									CONSISTENCY_THREADS						= 1;
+
+	/**
+	 * Number of worker threads used to answer SPARQL-DL queries. The
+	 * independent parts of a query and the candidate bindings of one of its
+	 * variables are evaluated concurrently, each worker using its own copy of
+	 * the ABox and sharing the taxonomy of the KB. This is only done for
+	 * queries about individuals once the KB is classified. Values less than 2
+	 * disable parallel query answering.
+	 */
+	public static int									QUERY_THREADS							= 1;
+
+	/**
+	 * Number of threads used to convert the axioms of OWL API ontologies to
+	 * terms while they are loaded into the KB. The converted axioms are added
+	 * to the KB by a single thread in the same order as sequential loading.
+	 * Values less than 2 disable parallel loading.
+	 */
+	public static int									LOADER_THREADS							= 1;
+
+	/**
+	 * Number of worker threads used by binary instance retrieval. When there
+	 * are many candidates whose types are not known, the candidates are
+	 * bisected into partitions that are checked independently, each worker
+	 * using its own copy of the ABox. Values less than 2 disable parallel
+	 * instance retrieval.
+	 */
+	public static int									RETRIEVAL_THREADS						= 1;
+
 	/**
 	 * Validate ABox structure during completion (Should be used only for
 	 * debugging purposes).
@@ -612,6 +734,15 @@ public class PelletOptions {
 	 */
 	public static int									STATIC_REORDERING_LIMIT					= 8;
 
+	/**
+	 * The maximum number of parsed queries and query plans cached for each KB
+	 * so that queries executed repeatedly are not parsed and reordered every
+	 * time. Plans are shared by queries that only differ in their variable
+	 * names or the individuals and literals they mention. The caches are
+	 * cleared whenever the KB changes. Values less than 1 disable caching.
+	 */
+	public static int									QUERY_PLAN_CACHE_SIZE					= 1000;
+
 	/**
 	 * This option controls if the size estimates for all the classes and
 	 * properties in a KB will be computed fully when the PelletQueryExecution
@@ -619,8 +750,22 @@ public class PelletOptions {
 	 */
 	public static boolean								FULL_SIZE_ESTIMATE						= false;
 
+	/**
+	 * Cache the instances of the concepts retrieved by
+	 * {@link KnowledgeBase#getInstances(aterm.ATermAppl)} (see
+	 * {@link org.mindswap.pellet.utils.InstanceCache}).
+	 */
 	public static boolean								CACHE_RETRIEVAL							= false;
 
+	/**
+	 * Maximum size of the instance cache used when {@link #CACHE_RETRIEVAL} is
+	 * enabled, i.e. the total number of individuals in the cached results plus
+	 * the number of cached concepts. The results that took the least time to
+	 * compute per individual and that have not been used recently are evicted
+	 * first when the cache is full.
+	 */
+	public static int									MAX_INSTANCE_CACHE						= 1000000;
+
 	public static boolean								USE_TRACING								= false;
 
 	public static String								DEFAULT_CONFIGURATION_FILE				= "pellet.properties";
@@ -677,6 +822,10 @@ public class PelletOptions {
 	 * function might already be being used by the users, Pellet 1.5.1
 	 * introduces this option for backward compatibility and forces
 	 * PelletInfGraph return to the previous incorrect behavior.
+	 * <p>
+	 * The returned graph computes the inferences on demand. The first find
+	 * without a concrete subject computes the inferences about every entity in
+	 * the KB, after that the inferences are cached until the KB changes.
 	 * 
 	 * @deprecated This option is introduced as a temporary solution for
 	 *             backward compatibility and is scheduled to be removed in
@@ -749,6 +898,23 @@ public class PelletOptions {
 	 */
 	public static boolean								USE_CD_CLASSIFICATION					= true;
 
+	/**
+	 * Number of worker threads used during classification. Each worker runs
+	 * satisfiability and subsumption tests against its own copy of the KB while
+	 * a single thread builds the taxonomy, so the result is identical to
+	 * sequential classification. Values less than 2 disable parallel
+	 * classification.
+	 */
+	public static int									CLASSIFICATION_THREADS					= 1;
+
+	/**
+	 * Number of threads used to saturate the concepts when an EL ontology is
+	 * classified with the EL classifier. The computed taxonomy is identical to
+	 * the one computed by a single thread. Values less than 2 disable parallel
+	 * saturation.
+	 */
+	public static int									EL_CLASSIFICATION_THREADS				= 1;
+
 	@Deprecated
 	public static boolean								USE_NAIVE_QUERY_ENGINE					= false;
 
@@ -787,6 +953,16 @@ public class PelletOptions {
 	 * Do not use EL Classifier, even if the ontology is EL
 	 */
 	public static boolean 								DISABLE_EL_CLASSIFIER					= false;
+
+	/**
+	 * When axioms are only added to an EL ontology that has already been
+	 * classified, keep the saturation computed by the EL classifier and
+	 * process only the consequences of the new axioms. The existing taxonomy
+	 * is updated in place instead of being rebuilt. Any removal or change to
+	 * the role hierarchy still causes the ontology to be classified from
+	 * scratch.
+	 */
+	public static boolean								USE_INCREMENTAL_EL_CLASSIFICATION		= false;
 	
 	
 	public static boolean 								PROCESS_JENA_UPDATES_INCREMENTALLY		= true;
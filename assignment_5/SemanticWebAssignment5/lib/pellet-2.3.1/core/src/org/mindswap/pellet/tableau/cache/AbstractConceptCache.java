@@ -104,6 +104,13 @@ public abstract class AbstractConceptCache implements ConceptCache {
 	public void setMaxSize(int maxSize) {
 		this.maxSize = maxSize;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void flush() {
+		// nothing to write for in-memory caches
+	}
 	
 
 	private Bool checkTrivialClash(CachedNode node1, CachedNode node2) {
@@ -74,6 +74,20 @@ public class CachedConceptNode implements CachedNode {
 		}
 	}
 
+	/**
+	 * Creates a cached node from the previously computed information, e.g.
+	 * when a node is read back from a persistent cache. The dependency sets
+	 * in the types and the edges are expected to be already cached.
+	 */
+	CachedConceptNode(ATermAppl name, Map<ATermAppl, DependencySet> types, EdgeList outEdges,
+			EdgeList inEdges, boolean isIndependent) {
+		this.name = name;
+		this.types = types;
+		this.outEdges = outEdges;
+		this.inEdges = inEdges;
+		this.isIndependent = isIndependent;
+	}
+
 	private void collectComplexPropertyValues(Individual subj) {
 		Set<Role> collected = new HashSet<Role>();
 		for( Edge edge : subj.getOutEdges() ) {
@@ -81,4 +81,10 @@ public interface ConceptCache extends Map<ATermAppl, CachedNode> {
 	 * @return safety checker
 	 */
 	public CacheSafety getSafety();
+
+	/**
+	 * Writes the contents of the cache to the persistent storage backing this
+	 * cache. Caches that only live in memory do nothing.
+	 */
+	public void flush();
 }
@@ -0,0 +1,665 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.tableau.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.DependencySet;
+import org.mindswap.pellet.Edge;
+import org.mindswap.pellet.EdgeList;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.Role;
+import org.mindswap.pellet.utils.ATermUtils;
+
+import aterm.ATerm;
+import aterm.ATermAppl;
+import aterm.ATermFactory;
+import aterm.ATermInt;
+import aterm.ATermList;
+
+import com.clarkparsia.pellet.datatypes.DatatypeReasoner;
+import com.clarkparsia.pellet.utils.CollectionUtils;
+
+/**
+ * <p>
+ * Title: Persistent Concept Cache
+ * </p>
+ * <p>
+ * Description: A concept cache that survives JVM restarts. The cached nodes
+ * are stored in a file named after a fingerprint of the TBox, RBox, datatype
+ * definitions and reasoner options so a cache file is only ever used with
+ * exactly the same schema and settings it was computed for. Any change to
+ * these results in a different fingerprint, and a new (initially empty) cache
+ * file, the next time the KB is prepared.
+ * </p>
+ * <p>
+ * The file is memory-mapped when the cache is created and only the keys are
+ * read at that point. Cached nodes are decoded the first time they are
+ * requested and after that they are kept in memory like in
+ * {@link ConceptCacheLRU}. The file is rewritten by {@link #flush()} if new
+ * nodes have been added to the cache. The new contents is written to a
+ * temporary file which then replaces the old file so a cache file is always
+ * complete. Only one cache in a JVM should be backed by a given file, copies of
+ * a KB therefore use an in-memory cache (see
+ * {@link org.mindswap.pellet.ABox#setPersistentCache(boolean)}). Only the
+ * information used by the cache
+ * is persisted: types, edges and the independence flag of the node where
+ * dependency sets are reduced to independent or not as in
+ * {@link DependencySet#cache()}.
+ * </p>
+ * <p>
+ * Cached nodes might refer to nominals and therefore depend on the ABox so
+ * this cache should only be used for KBs without nominals, see
+ * {@link #isPersistable(KnowledgeBase)}.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class PersistentConceptCache extends ConceptCacheLRU {
+	public final static Logger		log				= Logger.getLogger( PersistentConceptCache.class
+															.getName() );
+
+	private static final int		MAGIC			= 0x50434331;
+
+	private static final int		VERSION			= 2;
+
+	private static final int		HEADER_SIZE		= 20;
+
+	private static final long		FNV_OFFSET		= 0xcbf29ce484222325L;
+
+	private static final long		FNV_PRIME		= 0x100000001b3L;
+
+	private static final byte		TOP				= 0;
+	private static final byte		BOTTOM			= 1;
+	private static final byte		INCOMPLETE		= 2;
+	private static final byte		CONCEPT			= 3;
+
+	private static final byte		APPL			= 0;
+	private static final byte		INT				= 1;
+	private static final byte		LIST			= 2;
+
+	private KnowledgeBase			kb;
+
+	private File					file;
+
+	private long					fingerprint;
+
+	private ByteBuffer				buffer;
+
+	/**
+	 * Offsets of the entries in the file that have not been read into memory
+	 * yet.
+	 */
+	private Map<ATermAppl, Integer>	stored;
+
+	/**
+	 * <code>true</code> if the contents of the cache differs from the file
+	 */
+	private boolean					changed;
+
+	/**
+	 * Creates a cache for the given KB backed by a file in the given
+	 * directory. If there is a file created for the same TBox and RBox, its
+	 * entries will be available in this cache.
+	 *
+	 * @param kb
+	 *            KB whose TBox and RBox have been prepared
+	 * @param directory
+	 *            directory where the cache files are stored
+	 */
+	public PersistentConceptCache(KnowledgeBase kb, File directory) {
+		super( kb );
+
+		this.kb = kb;
+		this.fingerprint = fingerprint( kb );
+		this.file = new File( directory, "pellet-cache-" + Long.toHexString( fingerprint ) + ".bin" );
+		this.stored = new HashMap<ATermAppl, Integer>();
+		this.changed = false;
+
+		if( file.exists() ) {
+			try {
+				open();
+			} catch( IOException e ) {
+				log.log( Level.WARNING, "Cannot read concept cache " + file, e );
+				buffer = null;
+				stored.clear();
+			} catch( RuntimeException e ) {
+				log.log( Level.WARNING, "Ignoring invalid concept cache " + file, e );
+				buffer = null;
+				stored.clear();
+			}
+		}
+	}
+
+	/**
+	 * Checks if the concept cache for the given KB can be persisted. Cached
+	 * nodes for KBs with nominals might depend on the ABox which is not part
+	 * of the fingerprint.
+	 */
+	public static boolean isPersistable(KnowledgeBase kb) {
+		return !kb.getExpressivity().hasNominal();
+	}
+
+	/**
+	 * Computes a fingerprint for the TBox, the RBox and the datatype
+	 * definitions of the KB together with the values of the reasoner options.
+	 * Each part is hashed on its own and the sorted hashes are hashed again so
+	 * the fingerprint does not depend on the order axioms were added. Every
+	 * option is included, except the cache directory and the thread counts,
+	 * since it is not feasible to track which options change the contents of
+	 * cached nodes.
+	 */
+	public static long fingerprint(KnowledgeBase kb) {
+		List<Long> hashes = new ArrayList<Long>();
+		for( ATermAppl axiom : kb.getTBox().getAssertedAxioms() ) {
+			hashes.add( hash( axiom.toString() ) );
+		}
+
+		for( Role role : kb.getRBox().getRoles() ) {
+			String name = role.getName().toString();
+			StringBuilder sb = new StringBuilder( name );
+			sb.append( ' ' ).append( role.getType() );
+			sb.append( role.isTransitive() ? " T" : "" );
+			sb.append( role.isReflexive() ? " R" : "" );
+			sb.append( role.isIrreflexive() ? " I" : "" );
+			sb.append( role.isSymmetric() ? " S" : "" );
+			sb.append( role.isAsymmetric() ? " A" : "" );
+			sb.append( role.isFunctional() ? " F" : "" );
+			sb.append( role.isInverseFunctional() ? " IF" : "" );
+			hashes.add( hash( sb.toString() ) );
+
+			for( Role sub : role.getSubRoles() ) {
+				hashes.add( hash( name + " sub " + sub.getName() ) );
+			}
+			for( ATermList chain : role.getSubRoleChains() ) {
+				hashes.add( hash( name + " chain " + chain ) );
+			}
+			for( Role disjoint : role.getDisjointRoles() ) {
+				hashes.add( hash( name + " disjoint " + disjoint.getName() ) );
+			}
+			for( ATermAppl domain : role.getDomains() ) {
+				hashes.add( hash( name + " domain " + domain ) );
+			}
+			for( ATermAppl range : role.getRanges() ) {
+				hashes.add( hash( name + " range " + range ) );
+			}
+		}
+
+		DatatypeReasoner dtReasoner = kb.getDatatypeReasoner();
+		for( ATermAppl datatype : dtReasoner.listDataRanges() ) {
+			hashes.add( hash( datatype + " datatype " + dtReasoner.getDefinition( datatype ) ) );
+		}
+
+		for( Field field : PelletOptions.class.getFields() ) {
+			int modifiers = field.getModifiers();
+			String name = field.getName();
+			if( !Modifier.isStatic( modifiers ) || Modifier.isFinal( modifiers )
+					|| name.equals( "CONCEPT_CACHE_DIRECTORY" ) || name.endsWith( "_THREADS" ) ) {
+				continue;
+			}
+			try {
+				hashes.add( hash( name + " option " + field.get( null ) ) );
+			} catch( IllegalAccessException e ) {
+				throw new IllegalStateException( e );
+			}
+		}
+
+		Collections.sort( hashes );
+
+		long fingerprint = hash( VERSION, FNV_OFFSET );
+		for( long hash : hashes ) {
+			fingerprint = hash( hash, fingerprint );
+		}
+
+		return fingerprint;
+	}
+
+	private static long hash(String str) {
+		// 64-bit FNV-1a
+		long hash = FNV_OFFSET;
+		for( int i = 0, n = str.length(); i < n; i++ ) {
+			hash ^= str.charAt( i );
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(long value, long hash) {
+		for( int i = 0; i < 64; i += 8 ) {
+			hash ^= (value >>> i) & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the file this cache is stored in.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	private void open() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile( file, "r" );
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+			buffer = mapped;
+		} finally {
+			raf.close();
+		}
+
+		if( buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+				|| buffer.getLong() != fingerprint ) {
+			throw new IllegalStateException( "Unexpected header" );
+		}
+
+		int count = buffer.getInt();
+		for( int i = 0; i < count; i++ ) {
+			int offset = buffer.position();
+			int length = buffer.getInt();
+			ATermAppl key = readTerm();
+			stored.put( key, offset );
+			buffer.position( offset + length );
+		}
+
+		if( log.isLoggable( Level.FINE ) )
+			log.fine( "Opened concept cache " + file + " with " + count + " entries" );
+	}
+
+	private CachedNode read(int offset) {
+		buffer.position( offset + 4 );
+		ATermAppl name = readTerm();
+		byte type = buffer.get();
+		switch ( type ) {
+		case TOP:
+			return CachedNodeFactory.createTopNode();
+		case BOTTOM:
+			return CachedNodeFactory.createBottomNode();
+		case INCOMPLETE:
+			return CachedNodeFactory.createSatisfiableNode();
+		case CONCEPT:
+			boolean isIndependent = buffer.get() != 0;
+			int typeCount = buffer.getInt();
+			Map<ATermAppl, DependencySet> types = CollectionUtils.makeIdentityMap( typeCount );
+			for( int i = 0; i < typeCount; i++ ) {
+				ATermAppl c = readTerm();
+				types.put( c, readDepends() );
+			}
+			EdgeList outEdges = readEdges( true );
+			EdgeList inEdges = readEdges( false );
+			if( outEdges == null || inEdges == null ) {
+				return null;
+			}
+			return new CachedConceptNode( name, types, outEdges, inEdges, isIndependent );
+		default:
+			throw new IllegalStateException( "Unknown cached node type " + type );
+		}
+	}
+
+	private EdgeList readEdges(boolean out) {
+		int edgeCount = buffer.getInt();
+		EdgeList edges = new EdgeList( edgeCount );
+		boolean valid = true;
+		for( int i = 0; i < edgeCount; i++ ) {
+			Role role = kb.getRole( readTerm() );
+			ATermAppl neighbor = readTerm();
+			DependencySet ds = readDepends();
+			if( role == null ) {
+				valid = false;
+			}
+			else {
+				edges.addEdge( out
+					? new CachedOutEdge( role, neighbor, ds )
+					: new CachedInEdge( role, neighbor, ds ) );
+			}
+		}
+
+		return valid
+			? edges
+			: null;
+	}
+
+	private DependencySet readDepends() {
+		return buffer.get() != 0
+			? DependencySet.INDEPENDENT
+			: DependencySet.DUMMY;
+	}
+
+	private ATermAppl readTerm() {
+		return (ATermAppl) readATerm();
+	}
+
+	private ATerm readATerm() {
+		ATermFactory factory = ATermUtils.getFactory();
+		byte type = buffer.get();
+		switch ( type ) {
+		case APPL:
+			String name = readString();
+			boolean isQuoted = buffer.get() != 0;
+			ATerm[] args = new ATerm[buffer.getInt()];
+			for( int i = 0; i < args.length; i++ ) {
+				args[i] = readATerm();
+			}
+			return factory.makeAppl( factory.makeAFun( name, args.length, isQuoted ), args );
+		case INT:
+			return factory.makeInt( buffer.getInt() );
+		case LIST:
+			ATerm[] elements = new ATerm[buffer.getInt()];
+			for( int i = 0; i < elements.length; i++ ) {
+				elements[i] = readATerm();
+			}
+			ATermList list = factory.makeList();
+			for( int i = elements.length - 1; i >= 0; i-- ) {
+				list = factory.makeList( elements[i], list );
+			}
+			return list;
+		default:
+			throw new IllegalStateException( "Unknown term type " + type );
+		}
+	}
+
+	private String readString() {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get( bytes );
+		try {
+			return new String( bytes, "UTF-8" );
+		} catch( UnsupportedEncodingException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private CachedNode load(Object key) {
+		Integer offset = stored.remove( key );
+		if( offset == null ) {
+			return null;
+		}
+
+		CachedNode node = read( offset );
+		if( node != null ) {
+			super.put( (ATermAppl) key, node );
+		}
+		else {
+			changed = true;
+		}
+
+		return node;
+	}
+
+	private void loadAll() {
+		if( stored.isEmpty() ) {
+			return;
+		}
+
+		for( Object key : stored.keySet().toArray() ) {
+			load( key );
+		}
+	}
+
+	/**
+	 * Writes the contents of the cache to the file if the cache has changed
+	 * since it was read. The remaining entries of the old file are decoded
+	 * first so the old file is no longer needed when it is replaced. The
+	 * mapping of the old file is only released when it is garbage collected
+	 * and some platforms (e.g. Windows) do not allow a mapped file to be
+	 * replaced, in which case the cache is kept in memory and writing is tried
+	 * again on the next flush. Errors are logged and otherwise ignored since
+	 * the cache can always be recomputed.
+	 */
+	@Override
+	public void flush() {
+		if( !changed ) {
+			return;
+		}
+
+		loadAll();
+		buffer = null;
+
+		File directory = file.getParentFile();
+		File tmp = null;
+		try {
+			directory.mkdirs();
+			tmp = File.createTempFile( "pellet-cache-", ".tmp", directory );
+			writeTo( tmp );
+			if( !tmp.renameTo( file ) && !(file.delete() && tmp.renameTo( file )) ) {
+				throw new IOException( "Cannot rename " + tmp + " to " + file );
+			}
+			changed = false;
+		} catch( IOException e ) {
+			log.log( Level.WARNING, "Cannot write concept cache " + file, e );
+			if( tmp != null ) {
+				tmp.delete();
+			}
+		}
+	}
+
+	private void writeTo(File tmp) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream( bytes );
+		ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+		DataOutputStream entry = new DataOutputStream( entryBytes );
+
+		int count = 0;
+		for( Map.Entry<ATermAppl, CachedNode> e : super.entrySet() ) {
+			entryBytes.reset();
+			try {
+				if( !write( entry, e.getKey(), e.getValue() ) ) {
+					continue;
+				}
+			} catch( IllegalArgumentException ex ) {
+				log.fine( "Not persisting " + e.getKey() + ": " + ex.getMessage() );
+				continue;
+			}
+			entry.flush();
+			out.writeInt( entryBytes.size() + 4 );
+			entryBytes.writeTo( out );
+			count++;
+		}
+		out.flush();
+
+		FileOutputStream fos = new FileOutputStream( tmp );
+		try {
+			FileChannel channel = fos.getChannel();
+			ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+			header.putInt( MAGIC ).putInt( VERSION ).putLong( fingerprint ).putInt( count );
+			header.flip();
+			channel.write( header );
+			channel.write( ByteBuffer.wrap( bytes.toByteArray() ) );
+		} finally {
+			fos.close();
+		}
+	}
+
+	private boolean write(DataOutputStream out, ATermAppl key, CachedNode node) throws IOException {
+		writeTerm( out, key );
+		if( node.isTop() ) {
+			out.writeByte( TOP );
+		}
+		else if( node.isBottom() ) {
+			out.writeByte( BOTTOM );
+		}
+		else if( !node.isComplete() ) {
+			out.writeByte( INCOMPLETE );
+		}
+		else if( node instanceof CachedConceptNode ) {
+			out.writeByte( CONCEPT );
+			out.writeBoolean( node.isIndependent() );
+			Map<ATermAppl, DependencySet> types = node.getDepends();
+			out.writeInt( types.size() );
+			for( Map.Entry<ATermAppl, DependencySet> e : types.entrySet() ) {
+				writeTerm( out, e.getKey() );
+				out.writeBoolean( e.getValue().isIndependent() );
+			}
+			writeEdges( out, node.getOutEdges(), true );
+			writeEdges( out, node.getInEdges(), false );
+		}
+		else {
+			// individuals are never persisted
+			return false;
+		}
+
+		return true;
+	}
+
+	private void writeEdges(DataOutputStream out, EdgeList edges, boolean isOut)
+			throws IOException {
+		out.writeInt( edges.size() );
+		for( Edge edge : edges ) {
+			writeTerm( out, edge.getRole().getName() );
+			writeTerm( out, isOut
+				? edge.getToName()
+				: edge.getFromName() );
+			out.writeBoolean( edge.getDepends().isIndependent() );
+		}
+	}
+
+	/**
+	 * Writes a term in a simple binary format. The textual ATerm format cannot
+	 * be used since not every name used by Pellet (e.g. <code>_TOP_</code>)
+	 * can be parsed back.
+	 */
+	private void writeTerm(DataOutputStream out, ATerm term) throws IOException {
+		switch ( term.getType() ) {
+		case ATerm.APPL:
+			ATermAppl appl = (ATermAppl) term;
+			out.writeByte( APPL );
+			writeString( out, appl.getName() );
+			out.writeBoolean( appl.isQuoted() );
+			out.writeInt( appl.getArity() );
+			for( int i = 0; i < appl.getArity(); i++ ) {
+				writeTerm( out, appl.getArgument( i ) );
+			}
+			break;
+		case ATerm.INT:
+			out.writeByte( INT );
+			out.writeInt( ((ATermInt) term).getInt() );
+			break;
+		case ATerm.LIST:
+			ATermList list = (ATermList) term;
+			out.writeByte( LIST );
+			out.writeInt( list.getLength() );
+			for( ; !list.isEmpty(); list = list.getNext() ) {
+				writeTerm( out, list.getFirst() );
+			}
+			break;
+		default:
+			throw new IllegalArgumentException( "Unsupported term " + term );
+		}
+	}
+
+	private void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes( "UTF-8" );
+		out.writeInt( bytes.length );
+		out.write( bytes );
+	}
+
+	@Override
+	public CachedNode get(Object key) {
+		CachedNode node = super.get( key );
+		if( node == null && !stored.isEmpty() ) {
+			node = load( key );
+		}
+		return node;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return super.containsKey( key ) || stored.containsKey( key );
+	}
+
+	@Override
+	public CachedNode put(ATermAppl key, CachedNode value) {
+		stored.remove( key );
+		changed = true;
+		return super.put( key, value );
+	}
+
+	@Override
+	public CachedNode remove(Object key) {
+		CachedNode node = get( key );
+		if( node != null ) {
+			changed = true;
+			super.remove( key );
+		}
+		return node;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		stored.clear();
+		changed = true;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return super.isEmpty() && stored.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return super.size() + stored.size();
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		loadAll();
+		return super.containsValue( value );
+	}
+
+	@Override
+	public Set<Map.Entry<ATermAppl, CachedNode>> entrySet() {
+		loadAll();
+		return super.entrySet();
+	}
+
+	@Override
+	public Set<ATermAppl> keySet() {
+		loadAll();
+		return super.keySet();
+	}
+
+	@Override
+	public Collection<CachedNode> values() {
+		loadAll();
+		return super.values();
+	}
+
+	@Override
+	public String toString() {
+		return "[Cache size: " + super.size() + "," + stored.size() + " (" + file + ")]";
+	}
+}
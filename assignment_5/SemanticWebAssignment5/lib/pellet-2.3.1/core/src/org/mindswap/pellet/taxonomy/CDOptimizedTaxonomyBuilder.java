@@ -21,18 +21,23 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.mindswap.pellet.ABox;
 import org.mindswap.pellet.Individual;
 import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.Role;
 import org.mindswap.pellet.exceptions.InternalReasonerException;
+import org.mindswap.pellet.tableau.cache.CachedNode;
+import org.mindswap.pellet.tableau.cache.ConceptCache;
 import org.mindswap.pellet.tbox.TBox;
 import org.mindswap.pellet.tbox.impl.Unfolding;
 import org.mindswap.pellet.utils.ATermUtils;
 import org.mindswap.pellet.utils.MemUtils;
+import org.mindswap.pellet.utils.Pair;
 import org.mindswap.pellet.utils.SetUtils;
 import org.mindswap.pellet.utils.TaxonomyUtils;
 import org.mindswap.pellet.utils.Timer;
+import org.mindswap.pellet.utils.concurrent.WorkerPool;
 import org.mindswap.pellet.utils.iterator.IteratorUtils;
 import org.mindswap.pellet.utils.progress.ProgressMonitor;
 import org.mindswap.pellet.utils.progress.SilentProgressMonitor;
@@ -97,6 +102,23 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 
 	private Map<ATermAppl, ConceptFlag>	conceptFlags;
 
+	/**
+	 * Maximum number of individuals realized by a single parallel task
+	 */
+	private static final int				MAX_REALIZATION_PARTITION_SIZE	= 1000;
+
+	/**
+	 * Workers used to run satisfiability and subsumption tests in parallel,
+	 * <code>null</code> if classification is sequential
+	 */
+	private WorkerPool						workers;
+
+	/**
+	 * Results of subsumption tests computed in parallel by the workers but not
+	 * yet consumed by the search. Keys are (sub, sup) pairs.
+	 */
+	private Map<Pair<ATermAppl, ATermAppl>, Boolean>	prefetchedSubsumptions;
+
 	public CDOptimizedTaxonomyBuilder() {
 
 	}
@@ -214,8 +236,18 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 
 		boolean completed = true;
 		
-		completed = completed && classify( phase1, /* requireTopSearch = */false );
-		completed = completed && classify( phase2, /* requireTopSearch = */true );
+		startWorkers();
+		try {
+			if( workers != null ) {
+				computeSatisfiability( definitionOrder );
+			}
+		
+			completed = completed && classify( phase1, /* requireTopSearch = */false );
+			completed = completed && classify( phase2, /* requireTopSearch = */true );
+		}
+		finally {
+			stopWorkers();
+		}
 
 		monitor.taskFinished();
 
@@ -239,6 +271,148 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 		return completed;
 	}
 	
+	private void startWorkers() {
+		if( PelletOptions.CLASSIFICATION_THREADS < 2 || !kb.getRules().isEmpty() ) {
+			return;
+		}
+
+		// individuals are only relevant for concept satisfiability if there
+		// are nominals so we do not copy them otherwise
+		boolean emptyABox = !kb.getExpressivity().hasNominal();
+		workers = new WorkerPool( kb, PelletOptions.CLASSIFICATION_THREADS, emptyABox );
+		prefetchedSubsumptions = new HashMap<Pair<ATermAppl, ATermAppl>, Boolean>();
+	}
+
+	private void stopWorkers() {
+		if( workers != null ) {
+			workers.shutdown();
+			workers = null;
+			prefetchedSubsumptions = null;
+		}
+	}
+
+	/**
+	 * Checks the satisfiability of the given concepts and their negations in
+	 * parallel. The cached models computed by the workers are merged into the
+	 * cache of the KB in the given order so {@link #checkSatisfiability(ATermAppl)}
+	 * will find the result in the cache and no test is repeated.
+	 */
+	private void computeSatisfiability(Iterable<ATermAppl> concepts) {
+		ConceptCache cache = kb.getABox().getCache();
+
+		List<SatisfiabilityTask> tasks = new ArrayList<SatisfiabilityTask>();
+		for( ATermAppl c : concepts ) {
+			ATermAppl notC = ATermUtils.negate( c );
+			if( cache.get( c ) == null || (PelletOptions.USE_CACHING && cache.get( notC ) == null) ) {
+				tasks.add( new SatisfiabilityTask( c ) );
+			}
+		}
+
+		if( tasks.isEmpty() ) {
+			return;
+		}
+
+		if( log.isLoggable( Level.FINE ) ) {
+			log.fine( "Checking satisfiability of " + tasks.size() + " classes using "
+					+ workers.getThreadCount() + " threads" );
+		}
+
+		List<CachedNode[]> results = workers.invokeAll( "classifyParallelSat", tasks );
+
+		Map<ATermAppl, CachedNode> merged = new LinkedHashMap<ATermAppl, CachedNode>();
+		for( int i = 0, n = tasks.size(); i < n; i++ ) {
+			ATermAppl c = tasks.get( i ).c;
+			CachedNode[] nodes = results.get( i );
+			mergeCached( cache, c, nodes[0], merged );
+			mergeCached( cache, ATermUtils.negate( c ), nodes[1], merged );
+		}
+
+		workers.updateCaches( merged );
+
+		kb.timers.getTimer( "classify" ).check();
+	}
+
+	private void mergeCached(ConceptCache cache, ATermAppl c, CachedNode node,
+			Map<ATermAppl, CachedNode> merged) {
+		if( node != null && cache.get( c ) == null ) {
+			cache.put( c, node );
+			merged.put( c, node );
+		}
+	}
+
+	private static class SatisfiabilityTask implements WorkerPool.Task<CachedNode[]> {
+		private final ATermAppl	c;
+
+		public SatisfiabilityTask(ATermAppl c) {
+			this.c = c;
+		}
+
+		public CachedNode[] call(KnowledgeBase worker) {
+			ABox abox = worker.getABox();
+			ATermAppl notC = ATermUtils.negate( c );
+
+			abox.isSatisfiable( c, true );
+			if( PelletOptions.USE_CACHING ) {
+				abox.isSatisfiable( notC, true );
+			}
+
+			ConceptCache cache = abox.getCache();
+			return new CachedNode[] { cache.get( c ), cache.get( notC ) };
+		}
+	}
+
+	private static class SubsumptionTask implements WorkerPool.Task<Boolean> {
+		private final ATermAppl	sub;
+		private final ATermAppl	sup;
+
+		public SubsumptionTask(ATermAppl sub, ATermAppl sup) {
+			this.sub = sub;
+			this.sup = sup;
+		}
+
+		public Boolean call(KnowledgeBase worker) {
+			return Boolean.valueOf( worker.getABox().isSubClassOf( sub, sup ) );
+		}
+	}
+
+	/**
+	 * Runs the subsumption tests between c and the unmarked nodes in parallel
+	 * before the search visits the nodes one by one. The search itself, and
+	 * hence the order in which nodes are marked and inserted to the
+	 * taxonomy, is not affected.
+	 */
+	private void prefetchSubsumptions(boolean topSearch, ATermAppl c,
+			Collection<TaxonomyNode<ATermAppl>> nodes) {
+		ABox abox = kb.getABox();
+
+		List<SubsumptionTask> tasks = new ArrayList<SubsumptionTask>();
+		for( TaxonomyNode<ATermAppl> node : nodes ) {
+			if( node.mark != null ) {
+				continue;
+			}
+
+			ATermAppl sub = topSearch ? c : node.getName();
+			ATermAppl sup = topSearch ? node.getName() : c;
+			if( prefetchedSubsumptions.containsKey( Pair.create( sub, sup ) )
+					|| abox.isKnownSubClassOf( sub, sup ).isKnown() ) {
+				continue;
+			}
+
+			tasks.add( new SubsumptionTask( sub, sup ) );
+		}
+
+		// not worth the synchronization overhead for a single test
+		if( tasks.size() < 2 ) {
+			return;
+		}
+
+		List<Boolean> results = workers.invokeAll( "classifyParallelSub", tasks );
+		for( int i = 0, n = tasks.size(); i < n; i++ ) {
+			SubsumptionTask task = tasks.get( i );
+			prefetchedSubsumptions.put( Pair.create( task.sub, task.sup ), results.get( i ) );
+		}
+	}
+	
 	private void logList(Level level, String header, List<ATermAppl> list) {
 		if( !log.isLoggable( Level.FINER ) ) {
 			return;
@@ -264,6 +438,10 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 				
 			classify( c, requireTopSearch );
 			monitor.incrementProgress();
+			
+			if( prefetchedSubsumptions != null ) {
+				prefetchedSubsumptions.clear();
+			}
 
 //			int percent = monitor.getProgressPercent();
 //			if( percent != lastPercent ) {
@@ -1070,6 +1248,10 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 			? x.getSubs()
 			: x.getSupers();
 
+		if( workers != null && list.size() > 1 ) {
+			prefetchSubsumptions( topSearch, c, list );
+		}
+
 		for( TaxonomyNode<ATermAppl> next : list ) {
 
 			if( topSearch ) {
@@ -1198,6 +1380,13 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 	}
 
 	private boolean subsumes(ATermAppl sup, ATermAppl sub) {
+		if( prefetchedSubsumptions != null ) {
+			Boolean prefetched = prefetchedSubsumptions.remove( Pair.create( sub, sup ) );
+			if( prefetched != null ) {
+				return prefetched.booleanValue();
+			}
+		}
+		
 		long time = 0, count = 0;
 		if( log.isLoggable( Level.FINER ) ) {
 			time = System.currentTimeMillis();
@@ -1236,11 +1425,135 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 	public boolean realize() {
 		monitor.setProgressTitle( "Realizing" );
 
+		if( PelletOptions.REALIZATION_THREADS > 1 && kb.getRules().isEmpty() ) {
+			return realizeInParallel();
+		}
+
 		return PelletOptions.REALIZE_INDIVIDUAL_AT_A_TIME
 			? realizeByIndividuals()
 			: realizeByConcepts();
 	}
 
+	/**
+	 * Realize the KB by splitting the individuals into partitions that are
+	 * realized by separate workers each using its own copy of the ABox. The
+	 * most specific types computed for each partition are added to the
+	 * taxonomy by the calling thread.
+	 * 
+	 * @return boolean False if the progress monitor is canceled
+	 */
+	private boolean realizeInParallel() {
+		List<ATermAppl> individuals = new ArrayList<ATermAppl>();
+		if( PelletOptions.REALIZE_INDIVIDUAL_AT_A_TIME ) {
+			for( Iterator<Individual> i = kb.getABox().getIndIterator(); i.hasNext(); ) {
+				individuals.add( i.next().getName() );
+			}
+		}
+		else {
+			individuals.addAll( kb.getIndividuals() );
+		}
+
+		if( individuals.isEmpty() ) {
+			return true;
+		}
+
+		int threads = PelletOptions.REALIZATION_THREADS;
+		int partitionSize = Math.min( MAX_REALIZATION_PARTITION_SIZE, (individuals.size()
+				+ threads - 1)
+				/ threads );
+
+		List<RealizationTask> tasks = new ArrayList<RealizationTask>();
+		for( int i = 0; i < individuals.size(); i += partitionSize ) {
+			int end = Math.min( i + partitionSize, individuals.size() );
+			tasks.add( new RealizationTask( individuals.subList( i, end ) ) );
+		}
+
+		if( log.isLoggable( Level.FINE ) ) {
+			log.fine( "Realizing " + individuals.size() + " individuals in " + tasks.size()
+					+ " partitions using " + threads + " threads" );
+		}
+
+		monitor.setProgressLength( individuals.size() );
+		monitor.taskStarted();
+
+		WorkerPool workers = new WorkerPool( kb, threads, /* emptyABox = */false );
+		try {
+			// submit one partition per thread at a time so we can report
+			// progress and react to cancellation between the rounds
+			for( int i = 0; i < tasks.size(); i += threads ) {
+				List<RealizationTask> round = tasks.subList( i, Math.min( i + threads, tasks
+						.size() ) );
+				List<Map<ATermAppl, Set<ATermAppl>>> results = workers.invokeAll(
+						"realizeParallel", round );
+
+				for( int j = 0; j < round.size(); j++ ) {
+					for( Map.Entry<ATermAppl, Set<ATermAppl>> entry : results.get( j ).entrySet() ) {
+						addInstances( taxonomy.getNode( entry.getKey() ), entry.getValue() );
+					}
+
+					monitor.setProgress( monitor.getProgress() + round.get( j ).individuals.size() );
+				}
+
+				kb.timers.getTimer( "realize" ).check();
+
+				if( monitor.isCanceled() ) {
+					return false;
+				}
+			}
+		} finally {
+			workers.shutdown();
+		}
+
+		monitor.taskFinished();
+
+		return true;
+	}
+
+	private class RealizationTask implements WorkerPool.Task<Map<ATermAppl, Set<ATermAppl>>> {
+		private final List<ATermAppl>	individuals;
+
+		public RealizationTask(List<ATermAppl> individuals) {
+			this.individuals = individuals;
+		}
+
+		/**
+		 * Returns the most specific types of the individuals in this partition
+		 * as a map from concepts to their direct instances.
+		 */
+		public Map<ATermAppl, Set<ATermAppl>> call(KnowledgeBase worker) {
+			Map<ATermAppl, Set<ATermAppl>> result = new HashMap<ATermAppl, Set<ATermAppl>>();
+
+			if( PelletOptions.REALIZE_INDIVIDUAL_AT_A_TIME ) {
+				for( ATermAppl x : individuals ) {
+					for( ATermAppl c : realizeIndividual( worker, x ) ) {
+						Set<ATermAppl> instances = result.get( c );
+						if( instances == null ) {
+							instances = new HashSet<ATermAppl>();
+							result.put( c, instances );
+						}
+						instances.add( x );
+					}
+				}
+			}
+			else {
+				realizeByConcept( worker, ATermUtils.TOP, new HashSet<ATermAppl>( individuals ),
+						new HashMap<ATermAppl, Set<ATermAppl>>(), result );
+			}
+
+			return result;
+		}
+	}
+
+	private void addInstances(TaxonomyNode<ATermAppl> node, Collection<ATermAppl> individuals) {
+		@SuppressWarnings("unchecked")
+		Set<ATermAppl> instances = (Set<ATermAppl>) node.getDatum( TaxonomyUtils.INSTANCES_KEY );
+		if( instances == null ) {
+			instances = new HashSet<ATermAppl>();
+			node.putDatum( TaxonomyUtils.INSTANCES_KEY, instances );
+		}
+		instances.addAll( individuals );
+	}
+
 	private boolean realizeByIndividuals() {
 		monitor.setProgressLength( kb.getIndividuals().size() );
 		monitor.taskStarted();
@@ -1261,42 +1574,56 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 	            log.finer( count + ") Realizing " + format( x.getName() ) + " " );
             }
 
-			Map<ATermAppl, Boolean> marked = new HashMap<ATermAppl, Boolean>();
+			for( ATermAppl c : realizeIndividual( kb, x.getName() ) ) {
+				addInstances( taxonomy.getNode( c ), Collections.singleton( x.getName() ) );
+			}
+		}
+
+		monitor.taskFinished();
 
-			List<ATermAppl> obviousTypes = new ArrayList<ATermAppl>();
-			List<ATermAppl> obviousNonTypes = new ArrayList<ATermAppl>();
+		return true;
+	}
 
-			kb.getABox().getObviousTypes( x.getName(), obviousTypes, obviousNonTypes );
+	/**
+	 * Find the most specific types of an individual using the given KB for
+	 * type checks.
+	 */
+	private List<ATermAppl> realizeIndividual(KnowledgeBase reasoner, ATermAppl x) {
+		Map<ATermAppl, Boolean> marked = new HashMap<ATermAppl, Boolean>();
 
-			for( ATermAppl c : obviousTypes ) {
-				// since nominals can be returned by getObviousTypes
-				// we need the following check
-				if( !taxonomy.contains( c ) ) {
-	                continue;
-                }
+		List<ATermAppl> obviousTypes = new ArrayList<ATermAppl>();
+		List<ATermAppl> obviousNonTypes = new ArrayList<ATermAppl>();
 
-				mark( taxonomy.getAllEquivalents( c ), marked, Boolean.TRUE );
-				mark( taxonomy.getFlattenedSupers( c, /* direct = */true ), marked, Boolean.TRUE );
+		reasoner.getABox().getObviousTypes( x, obviousTypes, obviousNonTypes );
 
-				// FIXME: markToldDisjoints operates on a map key'd with
-				// TaxonomyNodes, not ATermAppls
-				// markToldDisjoints( c, false );
-			}
+		for( ATermAppl c : obviousTypes ) {
+			// since nominals can be returned by getObviousTypes
+			// we need the following check
+			if( !taxonomy.contains( c ) ) {
+                continue;
+                }
 
-			for( ATermAppl c : obviousNonTypes ) {
-				mark( taxonomy.getAllEquivalents( c ), marked, Boolean.FALSE );
-				mark( taxonomy.getFlattenedSubs( c, /* direct = */true ), marked, Boolean.FALSE );
-			}
+			mark( taxonomy.getAllEquivalents( c ), marked, Boolean.TRUE );
+			mark( taxonomy.getFlattenedSupers( c, /* direct = */true ), marked, Boolean.TRUE );
 
-			realizeByIndividual( x.getName(), ATermUtils.TOP, marked );
+			// FIXME: markToldDisjoints operates on a map key'd with
+			// TaxonomyNodes, not ATermAppls
+			// markToldDisjoints( c, false );
 		}
 
-		monitor.taskFinished();
+		for( ATermAppl c : obviousNonTypes ) {
+			mark( taxonomy.getAllEquivalents( c ), marked, Boolean.FALSE );
+			mark( taxonomy.getFlattenedSubs( c, /* direct = */true ), marked, Boolean.FALSE );
+		}
 
-		return true;
+		List<ATermAppl> types = new ArrayList<ATermAppl>();
+		realizeByIndividual( reasoner, x, ATermUtils.TOP, marked, types );
+
+		return types;
 	}
 
-	private boolean realizeByIndividual(ATermAppl n, ATermAppl c, Map<ATermAppl, Boolean> marked) {
+	private boolean realizeByIndividual(KnowledgeBase reasoner, ATermAppl n, ATermAppl c,
+			Map<ATermAppl, Boolean> marked, List<ATermAppl> types) {
 		boolean realized = false;
 
 		if( c.equals( ATermUtils.BOTTOM ) ) {
@@ -1311,19 +1638,19 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 			long time = 0, count = 0;
 			if( log.isLoggable( Level.FINER ) ) {
 				time = System.currentTimeMillis();
-				count = kb.getABox().stats.consistencyCount;
+				count = reasoner.getABox().stats.consistencyCount;
 				log.finer( "Type checking for [" + format( n ) + ", " + format( c ) + "]..." );
 			}
 
-			Timer t = kb.timers.startTimer( "classifyType" );
-			isType = kb.isType( n, c );
+			Timer t = reasoner.timers.startTimer( "classifyType" );
+			isType = reasoner.isType( n, c );
 			t.stop();
 			marked.put( c, isType
 				? Boolean.TRUE
 				: Boolean.FALSE );
 
 			if( log.isLoggable( Level.FINER ) ) {
-				String sign = (kb.getABox().stats.consistencyCount > count)
+				String sign = (reasoner.getABox().stats.consistencyCount > count)
 					? "+"
 					: "-";
 				time = System.currentTimeMillis() - time;
@@ -1338,20 +1665,13 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 
 			for( TaxonomyNode<ATermAppl> sub : node.getSubs() ) {
 				ATermAppl d = sub.getName();
-				realized = realizeByIndividual( n, d, marked ) || realized;
+				realized = realizeByIndividual( reasoner, n, d, marked, types ) || realized;
 			}
 
 			// this concept is the most specific concept x belongs to
 			// so add it here and return true
 			if( !realized ) {
-				@SuppressWarnings("unchecked")
-				Set<ATermAppl> instances = (Set<ATermAppl>) node
-						.getDatum( TaxonomyUtils.INSTANCES_KEY );
-				if( instances == null ) {
-					instances = new HashSet<ATermAppl>();
-					node.putDatum( TaxonomyUtils.INSTANCES_KEY, instances );
-				}
-				instances.add( n );
+				types.add( c );
 				realized = true;
 			}
 		}
@@ -1436,6 +1756,46 @@ public class CDOptimizedTaxonomyBuilder implements TaxonomyBuilder {
 		return instances;
 	}
 
+	/**
+	 * Realize the given individuals top-down starting from concept c using the
+	 * given KB for instance retrieval. Unlike
+	 * {@link #realizeByConcept(ATermAppl, Collection)} the taxonomy is not
+	 * modified; visited concepts are recorded in the given map and the direct
+	 * instances are collected in the result map.
+	 */
+	private Set<ATermAppl> realizeByConcept(KnowledgeBase reasoner, ATermAppl c,
+			Set<ATermAppl> individuals, Map<ATermAppl, Set<ATermAppl>> visited,
+			Map<ATermAppl, Set<ATermAppl>> result) {
+		if( c.equals( ATermUtils.BOTTOM ) ) {
+			return SetUtils.emptySet();
+		}
+
+		Set<ATermAppl> instances = visited.get( c );
+		if( instances != null ) {
+			return instances;
+		}
+
+		instances = new HashSet<ATermAppl>( reasoner.retrieve( c, individuals, taxonomy ) );
+		// retrieve returns all the individuals in the KB if c is equivalent to
+		// TOP so restrict the result to this partition
+		instances.retainAll( individuals );
+		visited.put( c, instances );
+
+		if( !instances.isEmpty() ) {
+			Set<ATermAppl> mostSpecificInstances = new HashSet<ATermAppl>( instances );
+			for( TaxonomyNode<ATermAppl> sub : taxonomy.getNode( c ).getSubs() ) {
+				mostSpecificInstances.removeAll( realizeByConcept( reasoner, sub.getName(),
+						instances, visited, result ) );
+			}
+
+			if( !mostSpecificInstances.isEmpty() ) {
+				result.put( c, mostSpecificInstances );
+			}
+		}
+
+		return instances;
+	}
+
 	public void printStats() {
 		Timer t1 = kb.timers.getTimer( "satisfiability" );
 		Timer t2 = kb.timers.getTimer( "subClassSat" );
@@ -0,0 +1,222 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.utils;
+
+/**
+ * <p>
+ * Title: Histogram
+ * </p>
+ * <p>
+ * Description: A fixed size histogram of non-negative long values, typically
+ * latencies in nanoseconds. Values are counted in log-linear buckets: each
+ * power of two range is divided into {@value #SUB_BUCKETS} equal buckets so
+ * the percentiles computed from the histogram are within about 6% of the
+ * recorded values regardless of their magnitude. Recording a value is a
+ * constant time operation that does not allocate.
+ * </p>
+ * <p>
+ * This class is not thread-safe. {@link Timer} records its histogram while
+ * holding its own lock.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class Histogram {
+	private static final int	SUB_BITS	= 4;
+
+	public static final int		SUB_BUCKETS	= 1 << SUB_BITS;
+
+	/**
+	 * Values smaller than this are counted exactly
+	 */
+	private static final int	LINEAR		= 2 * SUB_BUCKETS;
+
+	private static final int	BUCKETS		= LINEAR + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+
+	private long[]				counts;
+
+	private long				count;
+
+	private long				total;
+
+	private long				min;
+
+	private long				max;
+
+	public Histogram() {
+		reset();
+	}
+
+	public Histogram(Histogram other) {
+		counts = other.counts == null
+			? null
+			: other.counts.clone();
+		count = other.count;
+		total = other.total;
+		min = other.min;
+		max = other.max;
+	}
+
+	private static int bucket(long value) {
+		if( value < LINEAR ) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros( value );
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+		return LINEAR + (exponent - SUB_BITS - 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value that is counted in the given bucket.
+	 */
+	private static long upperBound(int bucket) {
+		if( bucket < LINEAR ) {
+			return bucket;
+		}
+
+		int exponent = (bucket - LINEAR) / SUB_BUCKETS + SUB_BITS + 1;
+		long sub = (bucket - LINEAR) % SUB_BUCKETS;
+		long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+
+		return lower + (1L << (exponent - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * Count a value. Negative values are counted as zero.
+	 */
+	public void record(long value) {
+		if( value < 0 ) {
+			value = 0;
+		}
+
+		if( counts == null ) {
+			counts = new long[BUCKETS];
+		}
+
+		counts[bucket( value )]++;
+		count++;
+		total += value;
+		if( value < min ) {
+			min = value;
+		}
+		if( value > max ) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Add all the values counted in another histogram to this one.
+	 */
+	public void add(Histogram other) {
+		if( other.count == 0 ) {
+			return;
+		}
+
+		if( counts == null ) {
+			counts = new long[BUCKETS];
+		}
+
+		for( int i = 0; i < BUCKETS; i++ ) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		total += other.total;
+		min = Math.min( min, other.min );
+		max = Math.max( max, other.max );
+	}
+
+	public void reset() {
+		counts = null;
+		count = 0;
+		total = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/**
+	 * Returns the number of values counted.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the sum of the values counted.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the smallest value counted or 0 if the histogram is empty.
+	 */
+	public long getMin() {
+		return count == 0
+			? 0
+			: min;
+	}
+
+	/**
+	 * Returns the largest value counted or 0 if the histogram is empty.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count == 0
+			? 0
+			: (double) total / count;
+	}
+
+	/**
+	 * Returns an upper bound for the value at the given percentile, e.g.
+	 * <code>getPercentile( 99 )</code> returns a value such that at least 99%
+	 * of the counted values are not greater than it. The result is never
+	 * greater than {@link #getMax()}.
+	 *
+	 * @param percentile
+	 *            a number between 0 and 100
+	 * @return the percentile or 0 if the histogram is empty
+	 */
+	public long getPercentile(double percentile) {
+		if( percentile < 0 || percentile > 100 ) {
+			throw new IllegalArgumentException( "Invalid percentile: " + percentile );
+		}
+
+		if( count == 0 ) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil( percentile / 100 * count );
+		if( rank < 1 ) {
+			rank = 1;
+		}
+
+		long seen = 0;
+		for( int i = 0; i < BUCKETS; i++ ) {
+			seen += counts[i];
+			if( seen >= rank ) {
+				return Math.max( getMin(), Math.min( upperBound( i ), max ) );
+			}
+		}
+
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "count: " + count + " p50: " + getPercentile( 50 ) + " p99: " + getPercentile( 99 )
+				+ " max: " + max;
+	}
+}
@@ -0,0 +1,562 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.utils;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.Individual;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.Role;
+
+import aterm.ATerm;
+import aterm.ATermAppl;
+import aterm.ATermList;
+
+import com.clarkparsia.pellet.expressivity.Expressivity;
+
+/**
+ * <p>
+ * Title: Instance Cache
+ * </p>
+ * <p>
+ * Description: Caches the results of instance retrieval for a KB. The size of
+ * the cache is the total number of individuals in the cached results plus one
+ * for each entry and it is bounded by
+ * {@link PelletOptions#MAX_INSTANCE_CACHE}. When the cache is full, entries
+ * are evicted with the GreedyDual-Size policy: the priority of an entry is the
+ * time it took to retrieve the instances divided by its size, plus an
+ * inflation value that is raised to the priority of every evicted entry so
+ * that entries which are not used age out.
+ * </p>
+ * <p>
+ * Changes to the ABox only drop the entries they may affect. The names used in
+ * the KB are grouped such that two names are in the same group if they are
+ * connected through TBox axioms, role axioms or complex types in the ABox. An
+ * ABox change drops the entries whose signature is in the group of a name the
+ * change uses. Additions and removals of individuals also drop the entries
+ * for concepts equivalent to TOP. Changes to the TBox or RBox, equality and
+ * inequality assertions drop all the entries. Nothing is dropped selectively
+ * if the KB contains rules or features that merge individuals or relate
+ * unconnected individuals (nominals, keys, the universal role, functional
+ * properties and cardinality restrictions).
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class InstanceCache {
+	public final static Logger				log	= Logger.getLogger( InstanceCache.class.getName() );
+
+	private static class Entry {
+		ATermAppl		concept;
+		Set<ATermAppl>	instances;
+		Set<ATermAppl>	signature;
+		long			cost;
+		int				weight;
+		boolean			universal;
+		double			priority;
+		long			order;
+	}
+
+	private static final Comparator<Entry>	PRIORITY_COMPARATOR	= new Comparator<Entry>() {
+																	public int compare(Entry e1,
+																			Entry e2) {
+																		if( e1.priority < e2.priority )
+																			return -1;
+																		if( e1.priority > e2.priority )
+																			return 1;
+																		if( e1.order < e2.order )
+																			return -1;
+																		if( e1.order > e2.order )
+																			return 1;
+																		return 0;
+																	}
+																};
+
+	private KnowledgeBase					kb;
+
+	private long							maxSize;
+
+	private long							size;
+
+	private Map<ATermAppl, Entry>			entries;
+
+	private TreeSet<Entry>					queue;
+
+	private double							inflation;
+
+	private long							order;
+
+	/**
+	 * Groups of names connected through the axioms of the KB, built when the
+	 * entries are invalidated for the first time after a schema change
+	 */
+	private DisjointSet<ATermAppl>			dependencies;
+
+	/**
+	 * Names used in the ABox changes since the last update
+	 */
+	private Set<ATermAppl>					changedNames;
+
+	private boolean							changedIndividuals;
+
+	private boolean							changedAll;
+
+	private long							hits;
+
+	private long							misses;
+
+	private long							evictions;
+
+	private long							invalidations;
+
+	public InstanceCache(KnowledgeBase kb) {
+		this.kb = kb;
+		this.maxSize = PelletOptions.MAX_INSTANCE_CACHE;
+
+		entries = new HashMap<ATermAppl, Entry>();
+		queue = new TreeSet<Entry>( PRIORITY_COMPARATOR );
+		changedNames = new HashSet<ATermAppl>();
+	}
+
+	/**
+	 * Create a copy of this cache for another KB. The entries and the changes
+	 * not yet processed are copied but the statistics are not.
+	 */
+	public InstanceCache copy(KnowledgeBase kb) {
+		InstanceCache copy = new InstanceCache( kb );
+		copy.maxSize = maxSize;
+		copy.inflation = inflation;
+		for( Entry entry : queue ) {
+			copy.add( entry.concept, entry.instances, entry.signature, entry.cost, entry.universal );
+		}
+		copy.changedNames.addAll( changedNames );
+		copy.changedIndividuals = changedIndividuals;
+		copy.changedAll = changedAll;
+
+		return copy;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the maximum size of the cache, evicting entries if necessary.
+	 */
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+
+		while( size > maxSize ) {
+			evict();
+		}
+	}
+
+	/**
+	 * Return the total number of individuals in the cached results plus the
+	 * number of entries.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Return the number of cached concepts.
+	 */
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hits;
+	}
+
+	public long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Return the fraction of lookups that found the instances in the cache.
+	 */
+	public double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0
+			? 0
+			: (double) hits / lookups;
+	}
+
+	/**
+	 * Return the number of entries removed to make room for new entries.
+	 */
+	public long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Return the number of entries removed because of changes to the KB.
+	 */
+	public long getInvalidationCount() {
+		return invalidations;
+	}
+
+	public boolean contains(ATermAppl c) {
+		return entries.containsKey( c );
+	}
+
+	/**
+	 * Return the cached instances of the given concept or <code>null</code> if
+	 * the instances are not cached.
+	 */
+	public Set<ATermAppl> get(ATermAppl c) {
+		Entry entry = entries.get( c );
+		if( entry == null ) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+
+		queue.remove( entry );
+		entry.priority = inflation + (double) entry.cost / entry.weight;
+		entry.order = order++;
+		queue.add( entry );
+
+		return entry.instances;
+	}
+
+	/**
+	 * Cache the instances of a concept.
+	 *
+	 * @param c
+	 *            the concept
+	 * @param instances
+	 *            all the instances of the concept
+	 * @param cost
+	 *            the time it took to retrieve the instances (in nanoseconds)
+	 * @param universal
+	 *            <code>true</code> if the concept is equivalent to TOP so its
+	 *            instances change whenever individuals are added or removed
+	 */
+	public void put(ATermAppl c, Set<ATermAppl> instances, long cost, boolean universal) {
+		Set<ATermAppl> signature = new HashSet<ATermAppl>();
+		collectNames( c, signature );
+
+		add( c, instances, signature, cost, universal );
+	}
+
+	private void add(ATermAppl c, Set<ATermAppl> instances, Set<ATermAppl> signature, long cost,
+			boolean universal) {
+		remove( entries.get( c ) );
+
+		Entry entry = new Entry();
+		entry.concept = c;
+		entry.instances = instances;
+		entry.signature = signature;
+		entry.cost = Math.max( cost, 1 );
+		entry.weight = instances.size() + 1;
+		entry.universal = universal;
+		entry.priority = inflation + (double) entry.cost / entry.weight;
+		entry.order = order++;
+
+		if( entry.weight > maxSize ) {
+			return;
+		}
+
+		while( size + entry.weight > maxSize ) {
+			evict();
+		}
+
+		entries.put( c, entry );
+		queue.add( entry );
+		size += entry.weight;
+	}
+
+	private void evict() {
+		Entry entry = queue.first();
+		inflation = entry.priority;
+		remove( entry );
+		evictions++;
+	}
+
+	private void remove(Entry entry) {
+		if( entry == null ) {
+			return;
+		}
+
+		entries.remove( entry.concept );
+		queue.remove( entry );
+		size -= entry.weight;
+	}
+
+	/**
+	 * Remove all the entries.
+	 */
+	public void clear() {
+		invalidations += entries.size();
+
+		entries.clear();
+		queue.clear();
+		size = 0;
+		inflation = 0;
+		dependencies = null;
+
+		resetChanges();
+	}
+
+	private void resetChanges() {
+		changedNames.clear();
+		changedIndividuals = false;
+		changedAll = false;
+	}
+
+	/**
+	 * Record an ABox change that uses the names in the given term, e.g. the
+	 * concept of a type assertion or the role of a property assertion.
+	 */
+	public void addChange(ATermAppl term) {
+		collectNames( term, changedNames );
+	}
+
+	/**
+	 * Record that individuals have been added to or removed from the KB.
+	 */
+	public void addIndividualChange() {
+		changedIndividuals = true;
+	}
+
+	/**
+	 * Record a change that may affect the instances of any concept.
+	 */
+	public void addGlobalChange() {
+		changedAll = true;
+	}
+
+	/**
+	 * Drop the entries affected by the changes recorded since the last update.
+	 * The entries are dropped selectively only if the KB has been changed in a
+	 * way and has an expressivity that guarantees the remaining entries are
+	 * still correct.
+	 *
+	 * @param schemaChanged
+	 *            <code>true</code> if the TBox or the RBox has changed
+	 * @param expressivity
+	 *            the expressivity of the KB after the changes
+	 */
+	public void update(boolean schemaChanged, Expressivity expressivity) {
+		if( schemaChanged || changedAll || !isSelective( expressivity ) ) {
+			if( log.isLoggable( Level.FINE ) && !entries.isEmpty() )
+				log.fine( "Clearing the instance cache: " + this );
+
+			clear();
+			return;
+		}
+
+		if( changedNames.isEmpty() && !changedIndividuals ) {
+			return;
+		}
+
+		if( entries.isEmpty() ) {
+			// the dependencies are only needed to invalidate entries
+			dependencies = null;
+			resetChanges();
+			return;
+		}
+
+		if( dependencies == null ) {
+			buildDependencies();
+		}
+
+		// the change itself connects the names it uses
+		link( changedNames );
+
+		Set<ATermAppl> changedGroups = new HashSet<ATermAppl>();
+		for( ATermAppl name : changedNames ) {
+			changedGroups.add( dependencies.find( name ) );
+		}
+
+		int removed = 0;
+		for( Iterator<Entry> i = queue.iterator(); i.hasNext(); ) {
+			Entry entry = i.next();
+			if( isAffected( entry, changedGroups ) ) {
+				i.remove();
+				entries.remove( entry.concept );
+				size -= entry.weight;
+				removed++;
+			}
+		}
+		invalidations += removed;
+
+		if( log.isLoggable( Level.FINE ) )
+			log.fine( "Invalidated " + removed + " entries of the instance cache: " + this );
+
+		resetChanges();
+	}
+
+	private boolean isAffected(Entry entry, Set<ATermAppl> changedGroups) {
+		if( entry.universal && changedIndividuals ) {
+			return true;
+		}
+
+		// the top roles are not linked to their sub roles
+		if( entry.signature.contains( ATermUtils.TOP_OBJECT_PROPERTY )
+				|| entry.signature.contains( ATermUtils.TOP_DATA_PROPERTY ) ) {
+			return true;
+		}
+
+		for( ATermAppl name : entry.signature ) {
+			if( dependencies.contains( name ) && changedGroups.contains( dependencies.find( name ) ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean isSelective(Expressivity expressivity) {
+		return expressivity.hasIndependentComponents() && !expressivity.hasFunctionality()
+				&& !expressivity.hasCardinality() && !expressivity.hasCardinalityQ()
+				&& kb.getRules().isEmpty();
+	}
+
+	private void buildDependencies() {
+		Timer timer = kb.timers.startTimer( "instanceCacheDependencies" );
+
+		dependencies = new DisjointSet<ATermAppl>();
+
+		Set<ATermAppl> names = new HashSet<ATermAppl>();
+		for( ATermAppl axiom : kb.getTBox().getAssertedAxioms() ) {
+			names.clear();
+			collectNames( axiom, names );
+			link( names );
+		}
+
+		for( Role role : kb.getRBox().getRoles() ) {
+			// the bottom roles are sub roles of every role but have no
+			// instances
+			if( isBottomRole( role.getName() ) ) {
+				continue;
+			}
+
+			names.clear();
+			collectNames( role.getName(), names );
+			if( role.getInverse() != null ) {
+				collectNames( role.getInverse().getName(), names );
+			}
+			for( Role superRole : role.getSuperRoles() ) {
+				// every role is a sub role of the top roles which would
+				// otherwise put all the roles in one group
+				if( !isTopRole( superRole.getName() ) ) {
+					collectNames( superRole.getName(), names );
+				}
+			}
+			for( Role disjointRole : role.getDisjointRoles() ) {
+				collectNames( disjointRole.getName(), names );
+			}
+			for( ATermList chain : role.getSubRoleChains() ) {
+				collectNames( chain, names );
+			}
+			for( ATermAppl domain : role.getDomains() ) {
+				collectNames( domain, names );
+			}
+			for( ATermAppl range : role.getRanges() ) {
+				collectNames( range, names );
+			}
+			link( names );
+		}
+
+		for( ATermAppl name : kb.getIndividuals() ) {
+			Individual ind = kb.getABox().getIndividual( name );
+			if( ind == null ) {
+				continue;
+			}
+
+			for( ATermAppl type : ind.getTypes() ) {
+				if( !ATermUtils.isPrimitive( type ) ) {
+					names.clear();
+					collectNames( type, names );
+					link( names );
+				}
+			}
+		}
+
+		timer.stop();
+	}
+
+	private static boolean isTopRole(ATermAppl r) {
+		ATermAppl name = ATermUtils.isInv( r )
+			? (ATermAppl) r.getArgument( 0 )
+			: r;
+		return name.equals( ATermUtils.TOP_OBJECT_PROPERTY )
+				|| name.equals( ATermUtils.TOP_DATA_PROPERTY );
+	}
+
+	private static boolean isBottomRole(ATermAppl r) {
+		ATermAppl name = ATermUtils.isInv( r )
+			? (ATermAppl) r.getArgument( 0 )
+			: r;
+		return name.equals( ATermUtils.BOTTOM_OBJECT_PROPERTY )
+				|| name.equals( ATermUtils.BOTTOM_DATA_PROPERTY );
+	}
+
+	private void link(Collection<ATermAppl> names) {
+		ATermAppl first = null;
+		for( ATermAppl name : names ) {
+			dependencies.add( name );
+			if( first == null ) {
+				first = name;
+			}
+			else {
+				dependencies.union( first, name );
+			}
+		}
+	}
+
+	/**
+	 * Collect the names of the classes, properties and individuals used in a
+	 * term. TOP and BOTTOM are ignored since they do not relate the names they
+	 * are used with.
+	 */
+	private static void collectNames(ATerm term, Set<ATermAppl> names) {
+		if( term instanceof ATermList ) {
+			for( ATermList list = (ATermList) term; !list.isEmpty(); list = list.getNext() ) {
+				collectNames( list.getFirst(), names );
+			}
+		}
+		else if( term instanceof ATermAppl ) {
+			ATermAppl appl = (ATermAppl) term;
+			if( appl.getArity() == 0 ) {
+				if( !appl.equals( ATermUtils.TOP ) && !appl.equals( ATermUtils.BOTTOM ) ) {
+					names.add( appl );
+				}
+			}
+			else if( !ATermUtils.isLiteral( appl ) ) {
+				for( int i = 0; i < appl.getArity(); i++ ) {
+					collectNames( appl.getArgument( i ), names );
+				}
+			}
+		}
+	}
+
+	public String toString() {
+		return "[Instance cache entries: " + entries.size() + " size: " + size + " hits: " + hits
+				+ " misses: " + misses + " evictions: " + evictions + " invalidations: "
+				+ invalidations + "]";
+	}
+}
@@ -0,0 +1,234 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Term Dictionary
+ * </p>
+ * <p>
+ * Description: Assigns dense integer ids to terms. Ids start from 0 and are
+ * never reused so they can be used as indexes into arrays and as keys in
+ * primitive maps (see {@link TermMap}). Terms are compared by identity which
+ * is sufficient since ATerms are maximally shared.
+ * </p>
+ * <p>
+ * Dictionaries only grow, so a dictionary is scoped to one KB. The ABox copies
+ * made by the KB share its dictionary. A copy of the KB (e.g. a worker of a
+ * {@link org.mindswap.pellet.utils.concurrent.WorkerPool}) forks the
+ * dictionary with {@link #TermDictionary(TermDictionary)}. The fork resolves
+ * the ids that existed at that point through its parent and adds the terms
+ * found by the copy itself on top. Those terms are reclaimed together with the
+ * copy, and the two dictionaries agree on the common ids (see
+ * {@link #sharedIds(TermDictionary)}).
+ * </p>
+ * <p>
+ * A dictionary may be used by several threads at the same time, e.g. a parent
+ * is read by the workers while the original KB is used. New terms are added
+ * while holding the lock of the dictionary, but looking up existing terms
+ * does not require any locking.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class TermDictionary {
+	private static final int	INITIAL_CAPACITY	= 64;
+
+	/**
+	 * Open addressing hash table from terms to ids. A term is written to the
+	 * table after its id so a reader who sees the term also sees the id.
+	 */
+	private static class Table {
+		private final AtomicReferenceArray<ATermAppl>	keys;
+		private final int[]								ids;
+		private final int								mask;
+
+		private Table(int capacity) {
+			keys = new AtomicReferenceArray<ATermAppl>( capacity );
+			ids = new int[capacity];
+			mask = capacity - 1;
+		}
+
+		private int find(ATermAppl term) {
+			for( int i = hash( term ) & mask;; i = (i + 1) & mask ) {
+				ATermAppl key = keys.get( i );
+				if( key == term ) {
+					return ids[i];
+				}
+				else if( key == null ) {
+					return -1;
+				}
+			}
+		}
+
+		private void insert(ATermAppl term, int id) {
+			int i = hash( term ) & mask;
+			while( keys.get( i ) != null ) {
+				i = (i + 1) & mask;
+			}
+			ids[i] = id;
+			keys.set( i, term );
+		}
+	}
+
+	/**
+	 * Dictionary this one was forked from or <code>null</code>
+	 */
+	private final TermDictionary	parent;
+
+	/**
+	 * Ids below this value are resolved by the parent
+	 */
+	private final int				base;
+
+	private volatile Table			table;
+
+	/**
+	 * Terms added to this dictionary, the term with id <code>i</code> is
+	 * stored at <code>i - base</code>
+	 */
+	private volatile ATermAppl[]	terms;
+
+	private int						size;
+
+	public TermDictionary() {
+		this( null, 0 );
+	}
+
+	/**
+	 * Creates a dictionary that assigns the same ids as the given dictionary
+	 * to the terms the given dictionary contains at this point. The given
+	 * dictionary is not affected by terms added to the new one.
+	 */
+	public TermDictionary(TermDictionary parent) {
+		this( parent, parent.size() );
+	}
+
+	private TermDictionary(TermDictionary parent, int base) {
+		this.parent = parent;
+		this.base = base;
+		table = new Table( INITIAL_CAPACITY );
+		terms = new ATermAppl[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	private static int hash(ATermAppl term) {
+		int h = term.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+
+	/**
+	 * Returns the id of the given term or -1 if the term has not been added to
+	 * this dictionary.
+	 */
+	public int lookup(ATermAppl term) {
+		if( parent != null ) {
+			int id = parent.lookup( term );
+			if( id >= 0 && id < base ) {
+				return id;
+			}
+		}
+
+		return table.find( term );
+	}
+
+	/**
+	 * Returns the id of the given term adding the term to the dictionary if
+	 * necessary.
+	 */
+	public int intern(ATermAppl term) {
+		int id = lookup( term );
+		if( id >= 0 ) {
+			return id;
+		}
+
+		synchronized( this ) {
+			// check again in case another thread added the term
+			Table t = table;
+			id = t.find( term );
+			if( id >= 0 ) {
+				return id;
+			}
+
+			int index = size++;
+			id = base + index;
+
+			ATermAppl[] array = terms;
+			if( index == array.length ) {
+				ATermAppl[] newArray = new ATermAppl[array.length * 2];
+				System.arraycopy( array, 0, newArray, 0, array.length );
+				array = newArray;
+			}
+			array[index] = term;
+			terms = array;
+
+			// keep the load factor of the table at most 1/2
+			if( 2 * size > t.ids.length ) {
+				Table newTable = new Table( t.ids.length * 2 );
+				for( int i = 0; i < index; i++ ) {
+					newTable.insert( array[i], base + i );
+				}
+				t = newTable;
+				t.insert( term, id );
+				table = t;
+			}
+			else {
+				t.insert( term, id );
+			}
+
+			return id;
+		}
+	}
+
+	/**
+	 * Returns the term with the given id.
+	 */
+	public ATermAppl get(int id) {
+		return id < base
+			? parent.get( id )
+			: terms[id - base];
+	}
+
+	/**
+	 * Returns the number of terms in this dictionary which is also an upper
+	 * bound for the ids it has assigned.
+	 */
+	public synchronized int size() {
+		return base + size;
+	}
+
+	/**
+	 * Returns a bound such that every id below the bound is assigned to the
+	 * same term by this and the given dictionary (or to no term by either).
+	 * This is the number of ids taken from the closest dictionary both have
+	 * been forked from, or 0 if the dictionaries are not related.
+	 */
+	public int sharedIds(TermDictionary other) {
+		int limit = Integer.MAX_VALUE;
+		for( TermDictionary d = this; d != null; d = d.parent ) {
+			int otherLimit = Integer.MAX_VALUE;
+			for( TermDictionary o = other; o != null; o = o.parent ) {
+				if( o == d ) {
+					return Math.min( limit, otherLimit );
+				}
+				otherLimit = Math.min( otherLimit, o.base );
+			}
+			limit = Math.min( limit, d.base );
+		}
+
+		return 0;
+	}
+}
@@ -0,0 +1,522 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.utils;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Term Map
+ * </p>
+ * <p>
+ * Description: A map from terms to values that stores the ids assigned by a
+ * {@link TermDictionary} instead of the terms themselves. Ids and values are
+ * kept in two parallel arrays (open addressing with linear probing) so there
+ * are no entry objects and copying a map only copies two arrays. Terms are
+ * only materialized when the keys of the map are iterated. Empty maps share
+ * empty arrays so the arrays are only allocated when the first entry is added.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class TermMap<V> extends AbstractMap<ATermAppl, V> {
+	private static final int		MIN_CAPACITY	= 4;
+
+	private static final int[]		EMPTY_KEYS		= new int[0];
+
+	private static final Object[]	EMPTY_VALUES	= new Object[0];
+
+	/**
+	 * Slot values for free and removed slots. Other slots store the id of the
+	 * term plus one.
+	 */
+	private static final int		FREE			= 0;
+	private static final int		REMOVED			= -1;
+
+	private final TermDictionary	dictionary;
+
+	private int[]					keys;
+
+	private Object[]				values;
+
+	private int						shift;
+
+	private int						size;
+
+	/**
+	 * Number of slots that are not free, i.e. size plus the number of removed
+	 * slots
+	 */
+	private int						used;
+
+	private int						modCount;
+
+	public TermMap(TermDictionary dictionary) {
+		this( dictionary, 0 );
+	}
+
+	public TermMap(TermDictionary dictionary, int expectedSize) {
+		this.dictionary = dictionary;
+
+		allocate( capacity( expectedSize ) );
+	}
+
+	public TermMap(TermDictionary dictionary, Map<? extends ATermAppl, ? extends V> map) {
+		this.dictionary = dictionary;
+
+		if( map instanceof TermMap && hasSameIds( (TermMap<?>) map ) ) {
+			TermMap<?> other = (TermMap<?>) map;
+			if( other.size == 0 ) {
+				allocate( 0 );
+			}
+			else {
+				keys = other.keys.clone();
+				values = other.values.clone();
+				shift = other.shift;
+				size = other.size;
+				used = other.used;
+			}
+		}
+		else {
+			allocate( capacity( map.size() ) );
+			putAll( map );
+		}
+	}
+
+	/**
+	 * Checks if the ids used by the given map denote the same terms in the
+	 * dictionary of this map so the arrays of the given map can be copied.
+	 */
+	private boolean hasSameIds(TermMap<?> other) {
+		if( other.dictionary == dictionary ) {
+			return true;
+		}
+
+		int shared = dictionary.sharedIds( other.dictionary );
+		if( shared == 0 ) {
+			return false;
+		}
+
+		for( int key : other.keys ) {
+			// keys are ids plus one
+			if( key > shared ) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	private static int capacity(int expectedSize) {
+		if( expectedSize == 0 ) {
+			return 0;
+		}
+
+		int capacity = MIN_CAPACITY;
+		while( expectedSize * 4 > capacity * 3 ) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		if( capacity == 0 ) {
+			keys = EMPTY_KEYS;
+			values = EMPTY_VALUES;
+			shift = 0;
+			return;
+		}
+
+		keys = new int[capacity];
+		values = new Object[capacity];
+		shift = 32 - Integer.numberOfTrailingZeros( capacity );
+	}
+
+	private int hash(int key) {
+		return (key * 0x9E3779B9) >>> shift;
+	}
+
+	private int slot(Object term) {
+		if( size == 0 || !(term instanceof ATermAppl) ) {
+			return -1;
+		}
+
+		int id = dictionary.lookup( (ATermAppl) term );
+		if( id < 0 ) {
+			return -1;
+		}
+
+		int key = id + 1;
+		int mask = keys.length - 1;
+		for( int i = hash( key );; i = (i + 1) & mask ) {
+			int k = keys[i];
+			if( k == key ) {
+				return i;
+			}
+			else if( k == FREE ) {
+				return -1;
+			}
+		}
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+
+		allocate( capacity( size + 1 ) );
+		used = size;
+
+		int mask = keys.length - 1;
+		for( int j = 0; j < oldKeys.length; j++ ) {
+			int key = oldKeys[j];
+			if( key > 0 ) {
+				int i = hash( key );
+				while( keys[i] != FREE ) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return slot( key ) >= 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		int i = slot( key );
+		return i < 0
+			? null
+			: (V) values[i];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(ATermAppl term, V value) {
+		if( keys.length == 0 ) {
+			allocate( MIN_CAPACITY );
+		}
+
+		int key = dictionary.intern( term ) + 1;
+		int mask = keys.length - 1;
+
+		int removed = -1;
+		int i = hash( key );
+		for( int k = keys[i]; k != FREE; k = keys[i] ) {
+			if( k == key ) {
+				V old = (V) values[i];
+				values[i] = value;
+				return old;
+			}
+			else if( k == REMOVED && removed < 0 ) {
+				removed = i;
+			}
+			i = (i + 1) & mask;
+		}
+
+		if( removed >= 0 ) {
+			i = removed;
+		}
+		else if( (used + 1) * 4 > keys.length * 3 ) {
+			rehash();
+			mask = keys.length - 1;
+			i = hash( key );
+			while( keys[i] != FREE ) {
+				i = (i + 1) & mask;
+			}
+			used++;
+		}
+		else {
+			used++;
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		modCount++;
+
+		return null;
+	}
+
+	private void removeSlot(int i) {
+		keys[i] = REMOVED;
+		values[i] = null;
+		size--;
+		modCount++;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		int i = slot( key );
+		if( i < 0 ) {
+			return null;
+		}
+
+		V old = (V) values[i];
+		removeSlot( i );
+		if( size == 0 && used > 0 ) {
+			Arrays.fill( keys, FREE );
+			used = 0;
+		}
+
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		if( used > 0 ) {
+			Arrays.fill( keys, FREE );
+			Arrays.fill( values, null );
+			size = 0;
+			used = 0;
+			modCount++;
+		}
+	}
+
+	/**
+	 * Returns the first slot at or after the given slot that holds an entry or
+	 * <code>-1</code> if there is no such slot. Together with
+	 * {@link #getKeyAt(int)}, {@link #getValueAt(int)} and
+	 * {@link #removeAt(int)} this iterates over the map without allocating
+	 * iterators or entries:
+	 * <code>for( int i = map.nextSlot( 0 ); i >= 0; i = map.nextSlot( i + 1 ) )</code>.
+	 * Entries can be removed while iterating but not added.
+	 */
+	public int nextSlot(int slot) {
+		for( ; slot < keys.length; slot++ ) {
+			if( keys[slot] > 0 ) {
+				return slot;
+			}
+		}
+
+		return -1;
+	}
+
+	public ATermAppl getKeyAt(int slot) {
+		return dictionary.get( keys[slot] - 1 );
+	}
+
+	@SuppressWarnings("unchecked")
+	public V getValueAt(int slot) {
+		return (V) values[slot];
+	}
+
+	public void removeAt(int slot) {
+		if( keys[slot] <= 0 ) {
+			throw new IllegalStateException();
+		}
+
+		removeSlot( slot );
+	}
+
+	private abstract class SlotIterator<T> implements Iterator<T> {
+		private int	next			= -1;
+		private int	last			= -1;
+		private int	expectedModCount	= modCount;
+
+		SlotIterator() {
+			advance();
+		}
+
+		private void advance() {
+			do {
+				next++;
+			} while( next < keys.length && keys[next] <= 0 );
+		}
+
+		public boolean hasNext() {
+			return next < keys.length;
+		}
+
+		public T next() {
+			if( modCount != expectedModCount ) {
+				throw new ConcurrentModificationException();
+			}
+			if( !hasNext() ) {
+				throw new NoSuchElementException();
+			}
+
+			last = next;
+			advance();
+
+			return get( last );
+		}
+
+		public void remove() {
+			if( last < 0 ) {
+				throw new IllegalStateException();
+			}
+			if( modCount != expectedModCount ) {
+				throw new ConcurrentModificationException();
+			}
+
+			removeSlot( last );
+			expectedModCount = modCount;
+			last = -1;
+		}
+
+		protected abstract T get(int slot);
+	}
+
+	private class SlotEntry implements Entry<ATermAppl, V> {
+		private final int	slot;
+
+		SlotEntry(int slot) {
+			this.slot = slot;
+		}
+
+		public ATermAppl getKey() {
+			return dictionary.get( keys[slot] - 1 );
+		}
+
+		@SuppressWarnings("unchecked")
+		public V getValue() {
+			return (V) values[slot];
+		}
+
+		public V setValue(V value) {
+			V old = getValue();
+			values[slot] = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if( !(o instanceof Entry) ) {
+				return false;
+			}
+
+			Entry<?, ?> e = (Entry<?, ?>) o;
+			Object value = getValue();
+			return getKey().equals( e.getKey() ) && (value == null
+				? e.getValue() == null
+				: value.equals( e.getValue() ));
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return getKey().hashCode() ^ (value == null
+				? 0
+				: value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	@Override
+	public Set<Entry<ATermAppl, V>> entrySet() {
+		return new AbstractSet<Entry<ATermAppl, V>>() {
+			@Override
+			public Iterator<Entry<ATermAppl, V>> iterator() {
+				return new SlotIterator<Entry<ATermAppl, V>>() {
+					@Override
+					protected Entry<ATermAppl, V> get(int slot) {
+						return new SlotEntry( slot );
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Set<ATermAppl> keySet() {
+		return new AbstractSet<ATermAppl>() {
+			@Override
+			public Iterator<ATermAppl> iterator() {
+				return new SlotIterator<ATermAppl>() {
+					@Override
+					protected ATermAppl get(int slot) {
+						return dictionary.get( keys[slot] - 1 );
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey( o );
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				if( containsKey( o ) ) {
+					TermMap.this.remove( o );
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new SlotIterator<V>() {
+					@Override
+					@SuppressWarnings("unchecked")
+					protected V get(int slot) {
+						return (V) values[slot];
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
@@ -51,6 +51,20 @@ import org.mindswap.pellet.exceptions.TimerInterruptedException;
  * is the programmer's responsibility to make sure each start() is
  * stopped by a stop() call.</p> 
  * 
+ * <p>Timers can be shared by multiple threads. The start() calls are counted separately
+ * for each thread so the time spent by each thread is added to the total and the timer
+ * is considered to be running as long as one of the threads is running it. A timer that
+ * is stopped by a thread that did not start it stops the time period started first, 
+ * which is the behavior expected from a timer that is only used by one thread at a 
+ * time. The thread that starts a timer first owns the timer and counts its start() calls
+ * in plain fields without any locking, the other threads pay for a thread local lookup
+ * and synchronization.</p>
+ * 
+ * <p>If profiling is turned on with {@link Timers#setProfiling(boolean)} every
+ * start()-stop() period is also recorded in a {@link Histogram} so the percentiles of the
+ * time spent can be computed, and span timers record the span tree. All threads take the
+ * synchronized path while profiling is on.</p>
+ * 
  * <p>Each timer may be associated with a timeout limit. This means that time spent between 
  * start() and stop() calls should be less than the 
  * timeout specified. Timeouts will only be checked when check() function
@@ -66,7 +80,8 @@ import org.mindswap.pellet.exceptions.TimerInterruptedException;
  * each time is expensive) each timer is allowed to have only one parent. </p> 
  *  
  * <p>{@link Timers Timers} class stores a set of timers and provides functions to start, stop and
- * check timers.  </p> 
+ * check timers. Timers created as spans by {@link Timers#createSpan(String)} also record
+ * which other spans were running in the same thread when they were started.</p> 
  * 
  * @see Timers
  * @author Evren Sirin
@@ -81,18 +96,55 @@ public class Timer {
 	public final static long NOT_STARTED = -1;
 	public final static long NO_TIMEOUT  = 0;
 	
+	/**
+	 * Nesting of start() calls in one thread
+	 */
+	private static class Frame {
+		private int			depth;
+		private long		generation;
+		private long		startNanos;
+		private Timers.Span	span;
+	}
+	
 	private String name; 		// name to identify what we are timing 
-	private long totalTime;		// total time that has elapsed when the timer was running		
-	private long startTime;		// last time timer was started
+	private long totalNanos;	// total time that has elapsed when the timer was running		
+	private volatile long startTime;	// time the timer was started by the first running thread
 	private long count;			// number of times the timer was started and stopped
-	private long startCount;	// if we are timing recursive functions timer may be started 
-								// multiple times. we only want to measure time spent in the 
-								// upper most function call so we need to discard other starts
+	private volatile int running;	// number of threads other than the owner the timer is started by
 	private long timeout;		// Point at which a call to check throws an exception
-	private long lastTime;		// time that has elapsed between last start()-stop() period
-	private boolean interrupted; // Tells whether this timer has been interrupted
+	private volatile long lastTime;	// time that has elapsed between last start()-stop() period
+	private volatile boolean interrupted; // Tells whether this timer has been interrupted
+	private Histogram histogram; // time elapsed in each start()-stop() period in nanoseconds
 	
 	private Timer parent;		// the parent timer
+	
+	private Timers spans;		// the timers that record the span of this timer if any
+	
+	private volatile boolean profiling;	// record histograms and spans
+	
+	// incremented by reset() to discard the start() calls of all threads
+	private volatile long generation;
+	
+	// the thread that started the timer first and the state of its start() calls
+	// which is only modified by the owner (except when the timer is reset or 
+	// stopped by another thread)
+	private volatile Thread owner;
+	private volatile boolean shared;	// started by a thread other than the owner
+	private int ownerDepth;
+	private long ownerGeneration;
+	private long ownerStartNanos;
+	private long ownerNanos;
+	private long ownerCount;
+	
+	// if we are timing recursive functions timer may be started 
+	// multiple times. we only want to measure time spent in the 
+	// upper most function call so we need to discard other starts
+	private final ThreadLocal<Frame> frames = new ThreadLocal<Frame>() {
+		@Override
+		protected Frame initialValue() {
+			return new Frame();
+		}
+	};
 
 	/**
 	 * Create a timer with no name and no parent.
@@ -121,17 +173,88 @@ public class Timer {
 		this.parent = parent;
 
 		timeout = NO_TIMEOUT;
+		histogram = new Histogram();
 		reset();
 	}
 	
+	/**
+	 * Record the spans of this timer in the given timers.
+	 */
+	void setSpans(Timers spans) {
+		this.spans = spans;
+	}
+	
+	/**
+	 * Return true if the nesting of this timer in other span timers is recorded.
+	 */
+	public boolean isSpan() {
+		return spans != null;
+	}
+	
+	/**
+	 * Record the histogram (and the spans) of this timer.
+	 */
+	void setProfiling(boolean profiling) {
+		this.profiling = profiling;
+	}
+	
+	/**
+	 * Return true if the current thread can use the unsynchronized fields of the owner. A
+	 * period started that way is completed that way even if the timer is shared in the
+	 * meantime. 
+	 */
+	private boolean isOwner(Thread current) {
+		if( owner != current ) {
+			if( owner == null ) {
+				synchronized( this ) {
+					if( owner == null ) {
+						owner = current;
+					}
+				}
+			}
+			if( owner != current ) {
+				shared = true;
+				return false;
+			}
+		}
+		
+		if( ownerGeneration != generation ) {
+			ownerDepth = 0;
+			ownerGeneration = generation;
+		}
+		
+		return ownerDepth > 0 || (!shared && !profiling);
+	}
+	
+	private Frame frame() {
+		Frame frame = frames.get();
+		if( frame.generation != generation ) {
+			frame.depth = 0;
+			frame.span = null;
+			frame.generation = generation;
+		}
+		return frame;
+	}
+	
 	/**
 	 * Update the total time elapsed and number of counts by by adding the values from another
 	 * timer. This is especially useful if we are running
 	 * @param timer
 	 */
 	public void add( Timer timer ) {
-	    totalTime += timer.totalTime;
-	    count += timer.count;
+		long otherNanos, otherCount;
+		Histogram otherHistogram;
+		synchronized( timer ) {
+			otherNanos = timer.totalNanos + timer.ownerNanos;
+			otherCount = timer.count + timer.ownerCount;
+			otherHistogram = new Histogram( timer.histogram );
+		}
+		
+		synchronized( this ) {
+			totalNanos += otherNanos;
+			count += otherCount;
+			histogram.add( otherHistogram );
+		}
 	}
 	
 	/**
@@ -141,11 +264,25 @@ public class Timer {
 	 *
 	 */
 	public void start() {
-		if(startCount == 0) { 
-			startTime = System.currentTimeMillis();
+		if( isOwner( Thread.currentThread() ) ) {
+			if( ownerDepth++ == 0 ) {
+				ownerStartNanos = System.nanoTime();
+			}
+			return;
 		}
 		
-		startCount++;
+		Frame frame = frame();
+		if( frame.depth++ == 0 ) {
+			synchronized( this ) {
+				if( running++ == 0 ) {
+					startTime = System.currentTimeMillis();
+				}
+			}
+			if( spans != null && profiling ) {
+				frame.span = spans.enterSpan( name );
+			}
+			frame.startNanos = System.nanoTime();
+		}
 	}
 
     
@@ -157,27 +294,75 @@ public class Timer {
      * @return Return the total time spent after last start(), -1 if timer is still running, -Long.MAX_VALUE on error
 	 */
 	public long stop() {
-		if( !isStarted() ) {
-			if( log.isLoggable( Level.FINE ) )
-				log
-						.fine( String.format(
-								"Ignoring attempt to stop a timer (\"%s\") that is not running. Timer results are incorrect for multi-threaded code.",
-								name ) );
-			return -Long.MAX_VALUE;
+		Thread current = Thread.currentThread();
+		if( owner == current && isOwner( current ) && ownerDepth > 0 ) {
+			if( --ownerDepth > 0 ) {
+				return -1;
+			}
+			
+			long elapsed = System.nanoTime() - ownerStartNanos;
+			ownerNanos += elapsed;
+			ownerCount++;
+			if( profiling ) {
+				synchronized( this ) {
+					histogram.record( elapsed );
+				}
+			}
+			
+			return lastTime = elapsed / 1000000;
 		}
 		
-		// Decrement start counter.
-		startCount--;
+		Frame frame = frame();
 		
-		if ( !isStarted() ) {			
-		    lastTime = System.currentTimeMillis() - startTime;
-			totalTime += lastTime;
-			startTime = NOT_STARTED;						
-			count++;
-            return lastTime;
+		long elapsed;
+		if( frame.depth > 0 ) {
+			// Decrement start counter.
+			if( --frame.depth > 0 ) {
+				return -1;
+			}
+			
+			elapsed = System.nanoTime() - frame.startNanos;
+			if( frame.span != null ) {
+				spans.exitSpan( frame.span, elapsed );
+				frame.span = null;
+			}
+		}
+		else {
+			synchronized( this ) {
+				if( ownerDepth > 0 && ownerGeneration == generation ) {
+					// stopped by a different thread than the owner that started it
+					ownerDepth = 0;
+					return record( System.nanoTime() - ownerStartNanos );
+				}
+			}
+			
+			long start = startTime;
+			if( start == NOT_STARTED ) {
+				if( log.isLoggable( Level.FINE ) )
+					log.fine( String.format( "Ignoring attempt to stop a timer (\"%s\") that is not running.", name ) );
+				return -Long.MAX_VALUE;
+			}
+
+			// stopped by a different thread than the one that started it
+			elapsed = (System.currentTimeMillis() - start) * 1000000;
+		}
+		
+		synchronized( this ) {
+			if( running > 0 && --running == 0 ) {
+				startTime = NOT_STARTED;
+			}
+			return record( elapsed );
 		}
-        
-        return -1;
+	}
+	
+	private synchronized long record(long elapsed) {
+		totalNanos += elapsed;
+		count++;
+		if( profiling ) {
+			histogram.record( elapsed );
+		}
+		
+		return lastTime = elapsed / 1000000;
 	}
 		
 	/**
@@ -185,12 +370,16 @@ public class Timer {
 	 * timer has never been used. 
 	 *
 	 */
-	public void reset() {
-		totalTime = 0;
+	public synchronized void reset() {
+		totalNanos = 0;
 		startTime = NOT_STARTED;
-		startCount = 0; 
+		running = 0;
 		count = 0;
+		ownerNanos = 0;
+		ownerCount = 0;
 		interrupted = false;
+		histogram.reset();
+		generation++;
 	}
 	
 	/**
@@ -239,7 +428,7 @@ public class Timer {
 	 * @return
 	 */
 	public boolean isStarted() {
-		return (startCount > 0);
+		return (running > 0) || (ownerDepth > 0 && ownerGeneration == generation);
 	}
 	
 	/**
@@ -258,7 +447,15 @@ public class Timer {
 	 * @return
 	 */
 	public long getElapsed() {
-	    return isStarted() ? (System.currentTimeMillis() - startTime) : 0;
+		long elapsed = 0;
+		if( ownerDepth > 0 && ownerGeneration == generation ) {
+			elapsed = (System.nanoTime() - ownerStartNanos) / 1000000;
+		}
+		long start = startTime;
+		if( start != NOT_STARTED ) {
+			elapsed = Math.max( elapsed, System.currentTimeMillis() - start );
+		}
+	    return elapsed;
 	}
 	
 	/**
@@ -268,8 +465,8 @@ public class Timer {
 	 * 
 	 * @return
 	 */
-	public long getTotal() {
-		return totalTime;
+	public synchronized long getTotal() {
+		return (totalNanos + ownerNanos) / 1000000;
 	}
 
 	/**
@@ -279,8 +476,8 @@ public class Timer {
 	 * 
 	 * @return
 	 */
-	public long getCount() {
-		return count;
+	public synchronized long getCount() {
+		return count + ownerCount;
 	}
 	
 	/**
@@ -299,8 +496,10 @@ public class Timer {
 	 * 
 	 * @return
 	 */
-	public double getAverage() {
-		return totalTime / (count == 0 ? 1.0 : count);
+	public synchronized double getAverage() {
+		long total = totalNanos + ownerNanos;
+		long n = count + ownerCount;
+		return total / 1000000.0 / (n == 0 ? 1.0 : n);
 	}
 	
 	/**
@@ -312,6 +511,16 @@ public class Timer {
 		return lastTime;
 	}
 	
+	/**
+	 * Return a copy of the histogram of the time spent (in nanoseconds) in each
+	 * start()-stop() period. The histogram is only recorded while profiling is on.
+	 * 
+	 * @return
+	 */
+	public synchronized Histogram getHistogram() {
+		return new Histogram( histogram );
+	}
+	
 	/**
 	 * Set a timeout limit for this timer. Set the timeout to 0 to disable timeout checking
 	 * 
@@ -325,10 +534,10 @@ public class Timer {
 	}
 	
 	public String toString() {		
-	    if(startCount > 0)
-	        return "Timer " + name + " Avg: " + getAverage() + " Count: " + count + " Total: " + getTotal() + " Still running: "+ startCount;
+	    if(isStarted())
+	        return "Timer " + name + " Avg: " + getAverage() + " Count: " + getCount() + " Total: " + getTotal() + " Still running: "+ running;
 	    
-		return "Timer " + name + " Avg: " + getAverage() + " Count: " + count + " Total: " + getTotal();
+		return "Timer " + name + " Avg: " + getAverage() + " Count: " + getCount() + " Total: " + getTotal();
 	}
 
 	/**
@@ -41,15 +41,27 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.mindswap.pellet.output.TableData;
 
 /**
  * <p>Title: </p>
  *
- * <p>Description: </p>
+ * <p>Description: A set of timers identified by their names. Timers can be looked up and
+ * created concurrently by multiple threads and the timer returned by {@link #createTimer(String)}
+ * can be kept as a handle to avoid looking it up by name every time it is used.</p>
+ * 
+ * <p>Timers created with {@link #createSpan(String)} are also recorded in a tree of spans
+ * that shows how the spans are nested, e.g. how much of the classification time was
+ * spent in consistency checks. A span is identified by its path from the root span so 
+ * the same timer may appear in multiple places in the tree. The timers and the spans can
+ * be exported in JSON format with {@link #printJSON(Writer)}. The span tree and the 
+ * histograms used for percentiles are only recorded while profiling is turned on with
+ * {@link #setProfiling(boolean)}.</p>
  *
  * <p>Copyright: Copyright (c) 2008</p>
  *
@@ -58,7 +70,94 @@ import org.mindswap.pellet.output.TableData;
  * @author Evren Sirin
  */
 public class Timers  {
-	private Map<String, Timer> timers = new LinkedHashMap<String, Timer>();
+	/**
+	 * Time spent in one path of the span tree.
+	 */
+	public static class Span {
+		private final String			name;
+
+		private final Span				parent;
+
+		private final Map<String, Span>	children	= new LinkedHashMap<String, Span>();
+
+		private final Histogram			histogram	= new Histogram();
+
+		private Span(String name, Span parent) {
+			this.name = name;
+			this.parent = parent;
+		}
+
+		private synchronized Span addChild(String name) {
+			Span child = children.get( name );
+			if( child == null ) {
+				child = new Span( name, this );
+				children.put( name, child );
+			}
+			return child;
+		}
+
+		private synchronized void record(long nanos) {
+			histogram.record( nanos );
+		}
+
+		private synchronized void reset() {
+			children.clear();
+			histogram.reset();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Span getParent() {
+			return parent;
+		}
+
+		/**
+		 * Returns the spans that were started while this span was running.
+		 */
+		public synchronized List<Span> getChildren() {
+			return new ArrayList<Span>( children.values() );
+		}
+
+		/**
+		 * Returns the span with the given name that was started while this span
+		 * was running, or <code>null</code> if there is no such span.
+		 */
+		public synchronized Span getChild(String name) {
+			return children.get( name );
+		}
+
+		/**
+		 * Returns a copy of the histogram of the time spent (in nanoseconds) in
+		 * this span.
+		 */
+		public synchronized Histogram getHistogram() {
+			return new Histogram( histogram );
+		}
+
+		public String toString() {
+			return parent == null
+				? name
+				: parent + "/" + name;
+		}
+	}
+	
+	private Map<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	
+	// the timers in the order they were created 
+	private List<Timer> timerList = new CopyOnWriteArrayList<Timer>();
+	
+	private final Span rootSpan = new Span( "main", null );
+	
+	private final ThreadLocal<Span> currentSpan = new ThreadLocal<Span>() {
+		@Override
+		protected Span initialValue() {
+			return rootSpan;
+		}
+	};
+	
+	private volatile boolean profiling = false;
 	
 	final public Timer mainTimer;
 	
@@ -68,26 +167,72 @@ public class Timers  {
 	}
 	
 	public void addAll( Timers other ) {
-	    for( Entry<String, Timer> entry : other.timers.entrySet() ) {
-            String name = entry.getKey();
-            Timer otherTimer = entry.getValue();
-            Timer thisTimer = getTimer( name );
-            if( thisTimer == null )
-                timers.put( name, otherTimer );
-            else 
-                thisTimer.add( otherTimer );            
+	    for( Timer otherTimer : other.timerList ) {
+            String name = otherTimer.getName();
+            synchronized( this ) {
+	            Timer thisTimer = getTimer( name );
+	            if( thisTimer == null )
+	                putTimer( otherTimer );
+	            else 
+	                thisTimer.add( otherTimer );
+            }
         }	    
 	}
 
+	private synchronized void putTimer(Timer t) {
+		Timer prev = timers.put(t.getName(), t);
+		if( prev == null )
+			timerList.add(t);
+		else
+			timerList.set(timerList.indexOf(prev), t);
+	}
+
 	public Timer createTimer(String name) {
 		Timer t = new Timer(name, mainTimer);
-		timers.put(name, t);
+		t.setProfiling(profiling);
+		putTimer(t);
+		return t;
+	}
+	
+	/**
+	 * Turn on or off recording the histograms of all the timers and the span tree. Without
+	 * profiling only the counts and the total time of the timers are recorded, which is 
+	 * cheaper for timers started very often.
+	 */
+	public void setProfiling(boolean profiling) {
+		this.profiling = profiling;
+		for( Timer timer : timerList ) {
+			timer.setProfiling( profiling );
+		}
+	}
+	
+	public boolean isProfiling() {
+		return profiling;
+	}
+
+	/**
+	 * Create a timer whose start()-stop() periods are also recorded in the span
+	 * tree. 
+	 */
+	public Timer createSpan(String name) {
+		Timer t = createTimer(name);
+		t.setSpans(this);
+		return t;
+	}
+	
+	private Timer getOrCreateTimer(String name) {
+		Timer t = getTimer(name);
+		if(t == null) {
+			synchronized( this ) {
+				t = getTimer(name);
+				if(t == null) t = createTimer(name);
+			}
+		}
 		return t;
 	}
 
 	public Timer startTimer(String name) {
-		Timer t = getTimer(name);
-		if(t == null) t = createTimer(name);
+		Timer t = getOrCreateTimer(name);
 		t.start();
 		return t;
 	}
@@ -113,9 +258,7 @@ public class Timers  {
 	}
 	
 	public void setTimeout(String name, long timeout) {
-		Timer t = getTimer(name);
-		if (t == null)
-			t = createTimer(name);
+		Timer t = getOrCreateTimer(name);
 		
 		t.setTimeout(timeout);
 	}
@@ -129,9 +272,10 @@ public class Timers  {
 	}
 
 	public void resetAll() {
-	    for( Timer timer : timers.values() ) {
+	    for( Timer timer : timerList ) {
 	        timer.reset();
 	    }
+	    rootSpan.reset();
         mainTimer.start();
 	}
 
@@ -150,7 +294,31 @@ public class Timers  {
 	}
 	
 	public Collection<Timer> getTimers() {
-		return timers.values();
+		return Collections.unmodifiableList( timerList );
+	}
+	
+	/**
+	 * Returns the root of the span tree, which represents the main timer.
+	 */
+	public Span getRootSpan() {
+		return rootSpan;
+	}
+	
+	/**
+	 * Record that the span with the given name is started by the current thread.
+	 */
+	Span enterSpan(String name) {
+		Span span = currentSpan.get().addChild( name );
+		currentSpan.set( span );
+		return span;
+	}
+	
+	/**
+	 * Record that the given span is stopped by the current thread.
+	 */
+	void exitSpan(Span span, long nanos) {
+		span.record( nanos );
+		currentSpan.set( span.parent != null ? span.parent : rootSpan );
 	}
 
 	public void print() {
@@ -179,7 +347,7 @@ public class Timers  {
             ? new boolean[] { false, true }
             : new boolean[] { false, true, true, true };
 			
-		List<Timer> list = new ArrayList<Timer>( timers.values() );
+		List<Timer> list = new ArrayList<Timer>( timerList );
         if( sortBy != null ) {
     		Collections.sort(list, new Comparator<Timer>() {
 
@@ -226,7 +394,84 @@ public class Timers  {
 		table.print( pw );
 	}
 	
+	/**
+	 * Print the timers and the span tree in JSON format. All the times are in
+	 * milliseconds. The percentiles are computed from the histograms of the
+	 * timers so they are accurate up to a few percent.
+	 */
+	public void printJSON( final Writer writer ) {
+		PrintWriter pw = new PrintWriter( writer );
+		pw.println( "{" );
+		pw.println( "  \"timers\": [" );
+		for( int i = 0, n = timerList.size(); i < n; i++ ) {
+			Timer timer = timerList.get( i );
+			pw.print( "    { " );
+			printJSON( pw, timer.getName(), timer.getHistogram() );
+			pw.print( ", \"running\": " + timer.isStarted() );
+			pw.println( i < n - 1 ? " }," : " }" );
+		}
+		pw.println( "  ]," );
+		pw.print( "  \"spans\": " );
+		printJSON( pw, rootSpan, "  " );
+		pw.println();
+		pw.println( "}" );
+		pw.flush();
+	}
+	
+	private void printJSON( PrintWriter pw, Span span, String indent ) {
+		pw.print( "{ " );
+		if( span == rootSpan ) {
+			pw.print( "\"name\": " + quote( span.name ) );
+		}
+		else {
+			printJSON( pw, span.name, span.getHistogram() );
+		}
+		
+		List<Span> children = span.getChildren();
+		if( !children.isEmpty() ) {
+			String childIndent = indent + "    ";
+			pw.println( ", \"children\": [" );
+			for( int i = 0, n = children.size(); i < n; i++ ) {
+				pw.print( childIndent );
+				printJSON( pw, children.get( i ), childIndent );
+				pw.println( i < n - 1 ? "," : "" );
+			}
+			pw.print( indent + "  ]" );
+		}
+		pw.print( " }" );
+	}
+	
+	private static void printJSON( PrintWriter pw, String name, Histogram histogram ) {
+		pw.print( "\"name\": " + quote( name ) );
+		pw.print( ", \"count\": " + histogram.getCount() );
+		pw.print( ", \"total\": " + millis( histogram.getTotal() ) );
+		pw.print( ", \"avg\": " + millis( (long) histogram.getMean() ) );
+		pw.print( ", \"p50\": " + millis( histogram.getPercentile( 50 ) ) );
+		pw.print( ", \"p99\": " + millis( histogram.getPercentile( 99 ) ) );
+		pw.print( ", \"max\": " + millis( histogram.getMax() ) );
+	}
+	
+	private static String millis( long nanos ) {
+		return String.format( Locale.US, "%.3f", nanos / 1000000.0 );
+	}
+	
+	private static String quote( String str ) {
+		StringBuilder sb = new StringBuilder( str.length() + 2 );
+		sb.append( '"' );
+		for( int i = 0; i < str.length(); i++ ) {
+			char c = str.charAt( i );
+			if( c == '"' || c == '\\' )
+				sb.append( '\\' ).append( c );
+			else if( c < ' ' )
+				sb.append( String.format( "\\u%04x", (int) c ) );
+			else
+				sb.append( c );
+		}
+		sb.append( '"' );
+		return sb.toString();
+	}
+	
 	public String toString() {
-		return timers.values().toString();
+		return timerList.toString();
 	}
 }
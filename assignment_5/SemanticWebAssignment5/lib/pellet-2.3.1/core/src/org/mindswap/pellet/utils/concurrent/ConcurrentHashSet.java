@@ -0,0 +1,75 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.utils.concurrent;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Title: Concurrent Hash Set
+ * </p>
+ * <p>
+ * Description: A set backed by a {@link ConcurrentHashMap}. All the operations
+ * can be used concurrently without locking and iterators never throw
+ * {@link java.util.ConcurrentModificationException}; they reflect the state of
+ * the set at some point at or since the creation of the iterator.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ConcurrentHashSet<E> extends AbstractSet<E> {
+	private final ConcurrentHashMap<E, Boolean>	map;
+
+	public ConcurrentHashSet() {
+		map = new ConcurrentHashMap<E, Boolean>();
+	}
+
+	public ConcurrentHashSet(int initialCapacity) {
+		map = new ConcurrentHashMap<E, Boolean>( initialCapacity );
+	}
+
+	@Override
+	public boolean add(E e) {
+		return map.putIfAbsent( e, Boolean.TRUE ) == null;
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return map.containsKey( o );
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return map.keySet().iterator();
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return map.remove( o ) != null;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+}
@@ -0,0 +1,561 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.exceptions.TimerInterruptedException;
+import org.mindswap.pellet.exceptions.UndefinedEntityException;
+import org.mindswap.pellet.taxonomy.Taxonomy;
+import org.mindswap.pellet.taxonomy.TaxonomyNode;
+import org.mindswap.pellet.utils.ATermUtils;
+import org.mindswap.pellet.utils.Bool;
+import org.mindswap.pellet.utils.TaxonomyUtils;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Concurrent Reasoner
+ * </p>
+ * <p>
+ * Description: A thread-safe, read-only view of a realized
+ * {@link KnowledgeBase}. Questions about named classes and individuals are
+ * answered from a snapshot of the taxonomy which is never modified after this
+ * object is created. Questions that require a tableau test (e.g. about class
+ * expressions) are answered by a copy of the KB that is leased to the calling
+ * thread for the duration of the question, so queries from different threads
+ * never share any mutable reasoner state. At most a fixed number of copies is
+ * created; when all of them are in use other threads wait for one to be
+ * returned.
+ * </p>
+ * <p>
+ * The KB must not be modified while this view is in use. The view does not see
+ * any changes made to the KB after it was created. Each copy holds a complete
+ * ABox so {@link #dispose()} should be called when the view is no longer
+ * needed to release them.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ConcurrentReasoner {
+	private final KnowledgeBase					kb;
+
+	private final Taxonomy<ATermAppl>			taxonomy;
+
+	private final Set<ATermAppl>				individuals;
+
+	/**
+	 * Copies of the KB that are not leased to any thread
+	 */
+	private final LinkedBlockingQueue<KnowledgeBase>	idleReasoners;
+
+	private final int							maxReasoners;
+
+	private int									createdReasoners;
+
+	private volatile boolean					disposed;
+
+	/**
+	 * Create a concurrent view for the given KB that creates at most one copy
+	 * of the KB per available processor. The KB will be realized if it is not
+	 * realized already.
+	 */
+	public ConcurrentReasoner(KnowledgeBase kb) {
+		this( kb, Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * Create a concurrent view for the given KB that creates at most
+	 * <code>maxReasoners</code> copies of the KB. The KB will be realized if
+	 * it is not realized already.
+	 */
+	public ConcurrentReasoner(KnowledgeBase kb, int maxReasoners) {
+		if( maxReasoners < 1 ) {
+			throw new IllegalArgumentException( "Invalid number of reasoners: " + maxReasoners );
+		}
+
+		this.kb = kb;
+		this.maxReasoners = maxReasoners;
+
+		kb.realize();
+
+		taxonomy = kb.getTaxonomy();
+		individuals = Collections.unmodifiableSet( new HashSet<ATermAppl>( kb.getIndividuals() ) );
+
+		idleReasoners = new LinkedBlockingQueue<KnowledgeBase>();
+	}
+
+	private KnowledgeBase createReasoner() {
+		// copying reads (and updates the timers of) the original KB so copies
+		// are created one at a time
+		synchronized( kb ) {
+			return WorkerPool.createWorker( kb, /* emptyABox = */false );
+		}
+	}
+
+	/**
+	 * Leases a KB copy to the current thread. The copy has to be returned with
+	 * {@link #releaseReasoner(KnowledgeBase)}. A new copy is created if there
+	 * is no idle one and the maximum number of copies has not been reached,
+	 * otherwise the current thread waits until another thread returns its
+	 * copy.
+	 */
+	protected KnowledgeBase acquireReasoner() {
+		checkDisposed();
+
+		KnowledgeBase reasoner = idleReasoners.poll();
+		if( reasoner != null ) {
+			return reasoner;
+		}
+
+		boolean create = false;
+		synchronized( idleReasoners ) {
+			if( createdReasoners < maxReasoners ) {
+				createdReasoners++;
+				create = true;
+			}
+		}
+
+		if( create ) {
+			checkDisposed();
+			try {
+				return createReasoner();
+			} catch( RuntimeException e ) {
+				synchronized( idleReasoners ) {
+					createdReasoners--;
+				}
+				throw e;
+			}
+		}
+
+		try {
+			// poll so that waiting threads notice when the view is disposed
+			while( reasoner == null ) {
+				checkDisposed();
+				reasoner = idleReasoners.poll( 100, TimeUnit.MILLISECONDS );
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new TimerInterruptedException( e );
+		}
+
+		return reasoner;
+	}
+
+	/**
+	 * Returns a KB copy leased with {@link #acquireReasoner()} so it can be
+	 * used by other threads. Copies returned after the view is disposed are
+	 * dropped.
+	 */
+	protected void releaseReasoner(KnowledgeBase reasoner) {
+		synchronized( idleReasoners ) {
+			if( !disposed ) {
+				idleReasoners.offer( reasoner );
+			}
+			else {
+				createdReasoners--;
+			}
+		}
+	}
+
+	private void checkDisposed() {
+		if( disposed ) {
+			throw new IllegalStateException( "The concurrent reasoner has been disposed" );
+		}
+	}
+
+	/**
+	 * Releases the KB copies used by this view. Copies that are leased to
+	 * other threads are released when the threads return them. The view
+	 * cannot be used after it is disposed but the original KB is not
+	 * affected.
+	 */
+	public void dispose() {
+		synchronized( idleReasoners ) {
+			disposed = true;
+			createdReasoners -= idleReasoners.size();
+			idleReasoners.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of KB copies that currently exist, either idle or
+	 * leased to a thread.
+	 */
+	public int getReasonerCount() {
+		synchronized( idleReasoners ) {
+			return createdReasoners;
+		}
+	}
+
+	public KnowledgeBase getKB() {
+		return kb;
+	}
+
+	public Set<ATermAppl> getIndividuals() {
+		return individuals;
+	}
+
+	public boolean isSatisfiable(ATermAppl c) {
+		c = ATermUtils.normalize( c );
+
+		if( taxonomy.contains( c ) ) {
+			return !taxonomy.isEquivalent( c, ATermUtils.BOTTOM ).isTrue();
+		}
+
+		KnowledgeBase reasoner = acquireReasoner();
+		try {
+			return reasoner.isSatisfiable( c );
+		} finally {
+			releaseReasoner( reasoner );
+		}
+	}
+
+	public boolean isSubClassOf(ATermAppl c1, ATermAppl c2) {
+		if( c1.equals( c2 ) ) {
+			return true;
+		}
+
+		Bool isSubNode = taxonomy.isSubNodeOf( ATermUtils.normalize( c1 ), ATermUtils
+				.normalize( c2 ) );
+		if( isSubNode.isKnown() ) {
+			return isSubNode.isTrue();
+		}
+
+		KnowledgeBase reasoner = acquireReasoner();
+		try {
+			return reasoner.isSubClassOf( c1, c2 );
+		} finally {
+			releaseReasoner( reasoner );
+		}
+	}
+
+	public boolean isEquivalentClass(ATermAppl c1, ATermAppl c2) {
+		if( c1.equals( c2 ) ) {
+			return true;
+		}
+
+		Bool isEquivalent = taxonomy.isEquivalent( ATermUtils.normalize( c1 ), ATermUtils
+				.normalize( c2 ) );
+		if( isEquivalent.isKnown() ) {
+			return isEquivalent.isTrue();
+		}
+
+		KnowledgeBase reasoner = acquireReasoner();
+		try {
+			return reasoner.isEquivalentClass( c1, c2 );
+		} finally {
+			releaseReasoner( reasoner );
+		}
+	}
+
+	public boolean isType(ATermAppl x, ATermAppl c) {
+		if( !individuals.contains( x ) ) {
+			handleUndefinedEntity( x + " is not an individual!" );
+			return false;
+		}
+
+		if( taxonomy.contains( c ) ) {
+			return TaxonomyUtils.isType( taxonomy, x, c );
+		}
+
+		KnowledgeBase reasoner = acquireReasoner();
+		try {
+			return reasoner.isType( x, c );
+		} finally {
+			releaseReasoner( reasoner );
+		}
+	}
+
+	/**
+	 * Returns all the instances of the given class.
+	 */
+	public Set<ATermAppl> getInstances(ATermAppl c) {
+		if( taxonomy.contains( c ) ) {
+			return TaxonomyUtils.getAllInstances( taxonomy, c );
+		}
+
+		KnowledgeBase reasoner = acquireReasoner();
+		try {
+			if( !reasoner.isClass( c ) ) {
+				handleUndefinedEntity( c + " is not a class!" );
+				return Collections.emptySet();
+			}
+
+			return reasoner.retrieve( c, individuals, taxonomy );
+		} finally {
+			releaseReasoner( reasoner );
+		}
+	}
+
+	/**
+	 * Returns the instances of the given class. If <code>direct</code> is
+	 * <code>true</code> only the individuals whose most specific type is
+	 * <code>c</code> are returned.
+	 */
+	public Set<ATermAppl> getInstances(ATermAppl c, boolean direct) {
+		if( !direct ) {
+			return getInstances( c );
+		}
+
+		if( taxonomy.contains( c ) ) {
+			return TaxonomyUtils.getDirectInstances( taxonomy, c );
+		}
+
+		KnowledgeBase reasoner = acquireReasoner();
+		try {
+			return getDirectInstances( reasoner, c );
+		} finally {
+			releaseReasoner( reasoner );
+		}
+	}
+
+	private Set<ATermAppl> getDirectInstances(KnowledgeBase reasoner, ATermAppl c) {
+		if( !reasoner.isClass( c ) ) {
+			handleUndefinedEntity( c + " is not a class!" );
+			return Collections.emptySet();
+		}
+
+		TaxonomyNode<ATermAppl> node = findEquivalentNode( reasoner, c );
+		if( node != null ) {
+			return TaxonomyUtils.getDirectInstances( taxonomy, node.getName() );
+		}
+
+		// the direct instances of a class expression are the instances that
+		// are direct instances of all its direct super classes
+		Set<ATermAppl> candidates = null;
+		for( Set<ATermAppl> sup : getSubOrSuperClasses( reasoner, ATermUtils.normalize( c ), true,
+				/* supers = */true ) ) {
+			Set<ATermAppl> instances = TaxonomyUtils.getDirectInstances( taxonomy, sup.iterator()
+					.next() );
+			if( candidates == null ) {
+				candidates = new HashSet<ATermAppl>( instances );
+			}
+			else {
+				candidates.retainAll( instances );
+			}
+
+			if( candidates.isEmpty() ) {
+				return candidates;
+			}
+		}
+
+		if( candidates == null ) {
+			return Collections.emptySet();
+		}
+
+		return reasoner.retrieve( c, candidates, taxonomy );
+	}
+
+	/**
+	 * Returns the named classes the individual belongs to as a set of sets
+	 * where each inner set is a collection of equivalent classes.
+	 */
+	public Set<Set<ATermAppl>> getTypes(ATermAppl x, boolean direct) {
+		if( !individuals.contains( x ) ) {
+			handleUndefinedEntity( x + " is not an individual!" );
+			return Collections.emptySet();
+		}
+
+		return primitiveOrBottom( TaxonomyUtils.getTypes( taxonomy, x, direct ) );
+	}
+
+	public Set<ATermAppl> getAllEquivalentClasses(ATermAppl c) {
+		c = ATermUtils.normalize( c );
+
+		TaxonomyNode<ATermAppl> node = taxonomy.getNode( c );
+		if( node == null ) {
+			KnowledgeBase reasoner = acquireReasoner();
+			try {
+				if( !reasoner.isClass( c ) ) {
+					handleUndefinedEntity( c + " is not a class!" );
+					return Collections.emptySet();
+				}
+
+				node = findEquivalentNode( reasoner, c );
+			} finally {
+				releaseReasoner( reasoner );
+			}
+
+			if( node == null ) {
+				return Collections.emptySet();
+			}
+		}
+
+		return ATermUtils.primitiveOrBottom( taxonomy.getAllEquivalents( node.getName() ) );
+	}
+
+	public Set<ATermAppl> getEquivalentClasses(ATermAppl c) {
+		Set<ATermAppl> result = new HashSet<ATermAppl>( getAllEquivalentClasses( c ) );
+		result.remove( c );
+
+		return result;
+	}
+
+	public Set<Set<ATermAppl>> getSuperClasses(ATermAppl c, boolean direct) {
+		return getSubOrSuperClasses( c, direct, /* supers = */true );
+	}
+
+	public Set<Set<ATermAppl>> getSubClasses(ATermAppl c, boolean direct) {
+		return getSubOrSuperClasses( c, direct, /* supers = */false );
+	}
+
+	private Set<Set<ATermAppl>> getSubOrSuperClasses(ATermAppl c, boolean direct, boolean supers) {
+		c = ATermUtils.normalize( c );
+
+		if( taxonomy.contains( c ) ) {
+			return getSubOrSuperClasses( null, c, direct, supers );
+		}
+
+		KnowledgeBase reasoner = acquireReasoner();
+		try {
+			return getSubOrSuperClasses( reasoner, c, direct, supers );
+		} finally {
+			releaseReasoner( reasoner );
+		}
+	}
+
+	/**
+	 * Returns the sub or super classes of a normalized class expression. The
+	 * reasoner is only used if the class expression is not in the taxonomy.
+	 */
+	private Set<Set<ATermAppl>> getSubOrSuperClasses(KnowledgeBase reasoner, ATermAppl c,
+			boolean direct, boolean supers) {
+		if( !taxonomy.contains( c ) ) {
+			if( !reasoner.isClass( c ) ) {
+				handleUndefinedEntity( c + " is not a class!" );
+				return Collections.emptySet();
+			}
+
+			TaxonomyNode<ATermAppl> node = findEquivalentNode( reasoner, c );
+			if( node == null ) {
+				// the class expression is not equivalent to any class in the
+				// taxonomy, so we find the classes it would be related to
+				// without adding it to the taxonomy
+				Collection<TaxonomyNode<ATermAppl>> related = search( reasoner, c, supers );
+				Set<Set<ATermAppl>> result = new HashSet<Set<ATermAppl>>();
+				for( TaxonomyNode<ATermAppl> n : related ) {
+					if( direct && !Collections.disjoint( related, supers
+						? n.getSubs()
+						: n.getSupers() ) ) {
+						continue;
+					}
+
+					Set<ATermAppl> eqSet = ATermUtils.primitiveOrBottom( n.getEquivalents() );
+					if( !eqSet.isEmpty() ) {
+						result.add( eqSet );
+					}
+				}
+
+				return result;
+			}
+
+			c = node.getName();
+		}
+
+		return primitiveOrBottom( supers
+			? taxonomy.getSupers( c, direct )
+			: taxonomy.getSubs( c, direct ) );
+	}
+
+	/**
+	 * Finds the taxonomy node equivalent to the given class expression that is
+	 * not in the taxonomy or returns <code>null</code> if there is no such
+	 * node.
+	 */
+	private TaxonomyNode<ATermAppl> findEquivalentNode(KnowledgeBase reasoner, ATermAppl c) {
+		if( !reasoner.isSatisfiable( c ) ) {
+			return taxonomy.getBottom();
+		}
+		if( !reasoner.isSatisfiable( ATermUtils.negate( c ) ) ) {
+			return taxonomy.getTop();
+		}
+
+		for( TaxonomyNode<ATermAppl> node : search( reasoner, c, /* supers = */true ) ) {
+			if( reasoner.getABox().isSubClassOf( node.getName(), c ) ) {
+				return node;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Traverses the taxonomy top-down (if <code>supers</code> is
+	 * <code>true</code>) or bottom-up (otherwise) and returns all the nodes
+	 * that subsume (or are subsumed by) the given satisfiable class expression.
+	 * The nodes are returned in the order they are visited.
+	 */
+	private Collection<TaxonomyNode<ATermAppl>> search(KnowledgeBase reasoner, ATermAppl c,
+			boolean supers) {
+		Set<TaxonomyNode<ATermAppl>> visited = new HashSet<TaxonomyNode<ATermAppl>>();
+		Set<TaxonomyNode<ATermAppl>> result = new LinkedHashSet<TaxonomyNode<ATermAppl>>();
+
+		List<TaxonomyNode<ATermAppl>> toVisit = new ArrayList<TaxonomyNode<ATermAppl>>();
+		TaxonomyNode<ATermAppl> start = supers
+			? taxonomy.getTop()
+			: taxonomy.getBottom();
+		toVisit.add( start );
+		visited.add( start );
+		result.add( start );
+
+		for( int i = 0; i < toVisit.size(); i++ ) {
+			Collection<TaxonomyNode<ATermAppl>> next = supers
+				? toVisit.get( i ).getSubs()
+				: toVisit.get( i ).getSupers();
+			for( TaxonomyNode<ATermAppl> node : next ) {
+				if( !visited.add( node ) || node == taxonomy.getTop()
+						|| node == taxonomy.getBottom() ) {
+					continue;
+				}
+
+				boolean related = supers
+					? reasoner.getABox().isSubClassOf( c, node.getName() )
+					: reasoner.getABox().isSubClassOf( node.getName(), c );
+				if( related ) {
+					result.add( node );
+					toVisit.add( node );
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static Set<Set<ATermAppl>> primitiveOrBottom(Set<Set<ATermAppl>> sets) {
+		Set<Set<ATermAppl>> result = new HashSet<Set<ATermAppl>>();
+		for( Set<ATermAppl> set : sets ) {
+			Set<ATermAppl> eqSet = ATermUtils.primitiveOrBottom( set );
+			if( !eqSet.isEmpty() ) {
+				result.add( eqSet );
+			}
+		}
+
+		return result;
+	}
+
+	private static void handleUndefinedEntity(String s) {
+		if( !PelletOptions.SILENT_UNDEFINED_ENTITY_HANDLING ) {
+			throw new UndefinedEntityException( s );
+		}
+	}
+}
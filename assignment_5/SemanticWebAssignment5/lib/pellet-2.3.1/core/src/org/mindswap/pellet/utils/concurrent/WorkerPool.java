@@ -0,0 +1,317 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.exceptions.InternalReasonerException;
+import org.mindswap.pellet.exceptions.TimerInterruptedException;
+import org.mindswap.pellet.tableau.cache.CachedNode;
+import org.mindswap.pellet.tableau.cache.ConceptCache;
+import org.mindswap.pellet.utils.Timer;
+import org.mindswap.pellet.utils.Timers;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Worker Pool
+ * </p>
+ * <p>
+ * Description: A fixed number of threads each owning a private copy of a
+ * knowledge base. Reasoning tasks are executed against the worker copies so
+ * that the original KB (and the data structures built from it, e.g. the
+ * taxonomy) is only ever modified by the calling thread. TBox, RBox and the
+ * ATerm factory are shared between the copies, the ABox, the concept cache and
+ * the timers are private to each worker.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class WorkerPool {
+	public final static Logger	log	= Logger.getLogger( WorkerPool.class.getName() );
+
+	/**
+	 * A unit of work that is executed by one of the workers.
+	 */
+	public interface Task<T> {
+		/**
+		 * Execute the task using the given KB copy. The copy is used by the
+		 * current thread exclusively until this function returns.
+		 */
+		public T call(KnowledgeBase worker);
+	}
+
+	private static final AtomicInteger		poolCount	= new AtomicInteger();
+
+	private KnowledgeBase					kb;
+
+	private int								threadCount;
+
+	private boolean							emptyABox;
+
+	private boolean							shareTaxonomy;
+
+	private List<KnowledgeBase>				workers;
+
+	private BlockingQueue<KnowledgeBase>	idleWorkers;
+
+	private ExecutorService					executor;
+
+	private ThreadFactory					threadFactory;
+
+	/**
+	 * Create a pool for the given KB. Workers are not created until the first
+	 * batch of tasks is submitted.
+	 *
+	 * @param kb
+	 *            KB that will be copied for each worker
+	 * @param threadCount
+	 *            number of worker threads
+	 * @param emptyABox
+	 *            if <code>true</code> the individuals of the KB are not copied
+	 *            to the workers, which is only safe if the tasks do not depend
+	 *            on the ABox (e.g. concept satisfiability without nominals)
+	 */
+	public WorkerPool(KnowledgeBase kb, int threadCount, boolean emptyABox) {
+		if( threadCount < 1 ) {
+			throw new IllegalArgumentException( "Invalid number of threads: " + threadCount );
+		}
+
+		this.kb = kb;
+		this.threadCount = threadCount;
+		this.emptyABox = emptyABox;
+	}
+
+	/**
+	 * Create a pool for the given classified KB whose workers use the taxonomy
+	 * of the KB instead of classifying their copies (see
+	 * {@link KnowledgeBase#shareTaxonomy(KnowledgeBase)}). The tasks must only
+	 * ask questions that are answered without modifying the taxonomy.
+	 */
+	public WorkerPool(KnowledgeBase kb, int threadCount, boolean emptyABox, boolean shareTaxonomy) {
+		this( kb, threadCount, emptyABox );
+
+		this.shareTaxonomy = shareTaxonomy;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	private void init() {
+		if( executor != null ) {
+			return;
+		}
+
+		if( workers != null ) {
+			// the threads were stopped but the copies were kept
+			executor = Executors.newFixedThreadPool( threadCount, threadFactory );
+			return;
+		}
+
+		Timer t = kb.timers.startTimer( "createWorkers" );
+
+		final String prefix = "pellet-worker-" + poolCount.incrementAndGet() + "-";
+		threadFactory = new ThreadFactory() {
+			private int	threadNumber	= 0;
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread( r, prefix + (++threadNumber) );
+				thread.setDaemon( true );
+				return thread;
+			}
+		};
+
+		workers = new ArrayList<KnowledgeBase>( threadCount );
+		idleWorkers = new ArrayBlockingQueue<KnowledgeBase>( threadCount );
+		for( int i = 0; i < threadCount; i++ ) {
+			KnowledgeBase worker = createWorker( kb, emptyABox );
+			if( shareTaxonomy ) {
+				worker.shareTaxonomy( kb );
+			}
+			workers.add( worker );
+			idleWorkers.add( worker );
+		}
+
+		executor = Executors.newFixedThreadPool( threadCount, threadFactory );
+
+		t.stop();
+
+		if( log.isLoggable( Level.FINE ) ) {
+			log.fine( "Created " + threadCount + " workers in " + t.getLast() + "ms" );
+		}
+	}
+
+	/**
+	 * Create a copy of the KB that can be used by a different thread than the
+	 * original KB. The copy has its own timers and its own concept cache
+	 * initialized with the contents of the cache of the original KB. The
+	 * original KB should not be modified or used by other threads while the
+	 * copy is created.
+	 */
+	static KnowledgeBase createWorker(KnowledgeBase kb, boolean emptyABox) {
+		KnowledgeBase worker = kb.copy( emptyABox );
+
+		worker.timers = new Timers();
+		KnowledgeBase.createTimers( worker.timers );
+
+		ConceptCache cache = kb.getABox().getCache();
+
+		worker.getABox().clearCaches( true );
+		worker.getABox().getCache().setMaxSize( PelletOptions.MAX_ANONYMOUS_CACHE );
+		if( cache != null ) {
+			worker.getABox().getCache().putAll( cache );
+		}
+
+		return worker;
+	}
+
+	/**
+	 * Add the given entries to the concept caches of all the workers. Should
+	 * only be called when no tasks are running.
+	 */
+	public void updateCaches(Map<ATermAppl, CachedNode> entries) {
+		if( workers == null || entries.isEmpty() ) {
+			return;
+		}
+
+		for( KnowledgeBase worker : workers ) {
+			worker.getABox().getCache().putAll( entries );
+		}
+	}
+
+	/**
+	 * Execute all the tasks using the workers and wait until all of them are
+	 * finished. The wall-clock time for the whole batch is recorded in the
+	 * timer with the given name and the total time spent by the workers is
+	 * recorded in the timer with the suffix <code>Workers</code> so the ratio
+	 * of two timers shows how well the tasks scale.
+	 *
+	 * @return the results of the tasks in the same order the tasks were given
+	 */
+	public <T> List<T> invokeAll(final String timerName, List<? extends Task<T>> tasks) {
+		init();
+
+		Timer timer = kb.timers.startTimer( timerName );
+
+		List<Future<T>> futures = new ArrayList<Future<T>>( tasks.size() );
+		for( final Task<T> task : tasks ) {
+			futures.add( executor.submit( new Callable<T>() {
+				public T call() throws Exception {
+					KnowledgeBase worker = idleWorkers.take();
+					Timer t = worker.timers.startTimer( timerName );
+					try {
+						return task.call( worker );
+					}
+					finally {
+						t.stop();
+						idleWorkers.put( worker );
+					}
+				}
+			} ) );
+		}
+
+		List<T> results = new ArrayList<T>( tasks.size() );
+		try {
+			for( Future<T> future : futures ) {
+				results.add( future.get() );
+			}
+		} catch( InterruptedException e ) {
+			cancel( futures );
+			throw new TimerInterruptedException( e );
+		} catch( ExecutionException e ) {
+			cancel( futures );
+
+			Throwable cause = e.getCause();
+			if( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			if( cause instanceof Error ) {
+				throw (Error) cause;
+			}
+			throw new InternalReasonerException( cause );
+		} finally {
+			timer.stop();
+
+			Timer total = kb.timers.getTimer( timerName + "Workers" );
+			if( total == null ) {
+				total = kb.timers.createTimer( timerName + "Workers" );
+			}
+			for( KnowledgeBase worker : workers ) {
+				Timer t = worker.timers.getTimer( timerName );
+				if( t != null ) {
+					total.add( t );
+					t.reset();
+				}
+			}
+		}
+
+		return results;
+	}
+
+	private void cancel(List<? extends Future<?>> futures) {
+		for( Future<?> future : futures ) {
+			future.cancel( false );
+		}
+	}
+
+	/**
+	 * Stop the worker threads but keep the KB copies so the pool can be used
+	 * again without copying the KB. The threads are created again when the
+	 * next batch of tasks is submitted. Tasks that are still running are
+	 * allowed to finish.
+	 */
+	public void stopThreads() {
+		if( executor == null ) {
+			return;
+		}
+
+		executor.shutdown();
+		executor = null;
+	}
+
+	/**
+	 * Stop the worker threads and release the KB copies. Tasks that are still
+	 * running are interrupted.
+	 */
+	public void shutdown() {
+		if( workers == null ) {
+			return;
+		}
+
+		for( KnowledgeBase worker : workers ) {
+			worker.timers.interrupt();
+		}
+		if( executor != null ) {
+			executor.shutdownNow();
+		}
+
+		executor = null;
+		workers = null;
+		idleWorkers = null;
+	}
+}
@@ -266,6 +266,12 @@ public class ArrayIntSet implements IntSet {
 	}
 
 	public IntSet union(IntSet values) {
-		return new ArrayIntSet( this, (ArrayIntSet) values );
+		if( values instanceof ArrayIntSet )
+			return new ArrayIntSet( this, (ArrayIntSet) values );
+
+		IntSet newSet = copy();
+		newSet.addAll( values );
+
+		return newSet;
 	}
 }
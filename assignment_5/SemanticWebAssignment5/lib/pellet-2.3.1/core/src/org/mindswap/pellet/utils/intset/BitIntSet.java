@@ -45,7 +45,8 @@ public class BitIntSet implements IntSet {
 	}
 
 	public void addAll(IntSet values) {
-		if( values instanceof BitIntSet ) {
+		// shifted sets store values with an offset so bits cannot be copied
+		if( values instanceof BitIntSet && !(values instanceof ShiftedBitIntSet) ) {
 			bits.or( ((BitIntSet) values).bits );
 		}
 		else {
@@ -57,7 +58,7 @@ public class BitIntSet implements IntSet {
 	}
 
 	public boolean contains(int value) {
-		return bits.get( value );
+		return value >= 0 && bits.get( value );
 	}
 
 	public IntSet copy() {
@@ -80,7 +81,7 @@ public class BitIntSet implements IntSet {
 				int curr = next;
 				if( curr == -1 )
 					throw new NoSuchElementException();
-				next = bits.nextSetBit( 0 );
+				next = bits.nextSetBit( curr + 1 );
 				return curr;
 			}
 		};
@@ -113,4 +114,17 @@ public class BitIntSet implements IntSet {
 		return newSet;
 	}
 
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append( '[' );
+		IntIterator i = iterator();
+		while( i.hasNext() ) {
+			if( buf.length() > 1 )
+				buf.append( ", " );
+			buf.append( i.next() );
+		}
+		buf.append( ']' );
+		return buf.toString();
+	}
+
 }
@@ -18,6 +18,13 @@ package org.mindswap.pellet.utils.intset;
  * @author Evren Sirin
  */
 public class IntSetFactory {
+	/**
+	 * Sets with at most this many elements are always represented as sorted
+	 * arrays since binary search on a small array is as fast as a bit lookup
+	 * and needs less memory.
+	 */
+	public static int	MAX_ARRAY_SIZE	= 16;
+
 	public static IntSet create() {
 		return new ArrayIntSet();
 //		return new BitIntSet();
@@ -29,4 +36,94 @@ public class IntSetFactory {
 //		return new PrimitiveIntSet( bak.pcj.set.IntRangeSet.class );
 //		return new PrimitiveIntSet( bak.pcj.set.IntBitSet.class );
 	}
+
+	/**
+	 * Creates an empty set suitable for storing (approximately) the given
+	 * number of non-negative integers from the range <code>[min, max]</code>.
+	 * Small or sparse sets are stored in arrays and dense sets are stored as
+	 * bit sets that are shifted if the range does not start close to zero.
+	 */
+	public static IntSet create(int min, int max, int size) {
+		if( size <= MAX_ARRAY_SIZE || min < 0 ) {
+			return new ArrayIntSet();
+		}
+
+		// a bit set needs one int for every 32 values in the range whereas an
+		// array needs one int for every element
+		if( min < 64 ) {
+			return (max >>> 5) < size
+				? new BitIntSet()
+				: new ArrayIntSet();
+		}
+		else {
+			return ((max - min) >>> 5) < size
+				? new ShiftedBitIntSet()
+				: new ArrayIntSet();
+		}
+	}
+
+	/**
+	 * Returns the union of two sets. Neither set is modified but, unlike
+	 * {@link IntSet#union(IntSet)}, the result is one of the given sets if the
+	 * other set is a subset of it so the result should be treated as
+	 * read-only. Otherwise a new set with a representation suitable for the
+	 * density of the result is created.
+	 */
+	public static IntSet union(IntSet set1, IntSet set2) {
+		if( containsAll( set1, set2 ) ) {
+			return set1;
+		}
+		if( containsAll( set2, set1 ) ) {
+			return set2;
+		}
+
+		int min = Math.min( set1.min(), set2.min() );
+		int max = Math.max( set1.max(), set2.max() );
+		IntSet result = create( min, max, set1.size() + set2.size() );
+
+		if( result instanceof ArrayIntSet && set1 instanceof ArrayIntSet
+				&& set2 instanceof ArrayIntSet ) {
+			return set1.union( set2 );
+		}
+
+		// shifted bit sets are cheaper to fill starting from the minimum
+		if( set1.min() <= set2.min() ) {
+			result.addAll( set1 );
+			result.addAll( set2 );
+		}
+		else {
+			result.addAll( set2 );
+			result.addAll( set1 );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks if every element of <code>subset</code> is also in
+	 * <code>set</code> without creating any objects for the common cases.
+	 */
+	public static boolean containsAll(IntSet set, IntSet subset) {
+		if( subset == set || subset.isEmpty() ) {
+			return true;
+		}
+		if( set.isEmpty() || subset.size() > set.size() ) {
+			return false;
+		}
+		if( subset.max() > set.max() || subset.min() < set.min() ) {
+			return false;
+		}
+		if( subset.size() == 1 ) {
+			return set.contains( subset.min() );
+		}
+
+		IntIterator i = subset.iterator();
+		while( i.hasNext() ) {
+			if( !set.contains( i.next() ) ) {
+				return false;
+			}
+		}
+
+		return true;
+	}
 }
@@ -26,6 +26,9 @@ import java.util.NoSuchElementException;
  * @author Evren Sirin
  */
 public class ShiftedBitIntSet extends BitIntSet {
+	/**
+	 * Offset of the values stored in the bit set
+	 */
 	private int	min	= Integer.MAX_VALUE;
 
 	public ShiftedBitIntSet() {
@@ -47,7 +50,30 @@ public class ShiftedBitIntSet extends BitIntSet {
 			super.add( value - min );
 		}
 		else {
-			throw new UnsupportedOperationException( "Not implemented" );
+			// shift the existing values so that the new value is at offset 0
+			int[] values = new int[size()];
+			int size = 0;
+			IntIterator i = iterator();
+			while( i.hasNext() ) {
+				values[size++] = i.next();
+			}
+			for( int j = 0; j < size; j++ ) {
+				super.remove( values[j] - min );
+			}
+
+			min = value;
+			super.add( 0 );
+			for( int j = 0; j < size; j++ ) {
+				super.add( values[j] - min );
+			}
+		}
+	}
+
+	public void addAll(IntSet values) {
+		// values are stored with an offset so bits cannot be copied directly
+		IntIterator i = values.iterator();
+		while( i.hasNext() ) {
+			add( i.next() );
 		}
 	}
 
@@ -87,14 +113,13 @@ public class ShiftedBitIntSet extends BitIntSet {
 		if( isEmpty() )
 			throw new NoSuchElementException();
 		else
-			return min;
+			return min + super.min();
 	}
 
 	public void remove(int value) {
-		if( value >= min ) {
+		// the offset is kept so the remaining bits do not need to be shifted
+		if( value >= min )
 			super.remove( value - min );
-			min = super.min();
-		}
 	}
 
 }
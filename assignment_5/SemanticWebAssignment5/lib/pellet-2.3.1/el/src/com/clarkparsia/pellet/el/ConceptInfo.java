@@ -7,11 +7,18 @@
 package com.clarkparsia.pellet.el;
 
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import org.mindswap.pellet.utils.ATermUtils;
 import org.mindswap.pellet.utils.MultiValueMap;
+import org.mindswap.pellet.utils.concurrent.ConcurrentHashSet;
 
 import aterm.ATermAppl;
 
@@ -22,7 +29,11 @@ import com.clarkparsia.pellet.utils.CollectionUtils;
  * Title:
  * </p>
  * <p>
- * Description:
+ * Description: A concept with its subsumers and existential successors and
+ * predecessors found so far during EL saturation. A concurrent concept info
+ * uses thread-safe collections so that it can be updated by multiple
+ * saturation threads, and keeps its own queue of subsumers that still need
+ * to be processed.
  * </p>
  * <p>
  * Copyright: Copyright (c) 2007
@@ -39,30 +50,81 @@ class ConceptInfo {
 	private final ATermAppl								concept;
 	private final Set<Trigger>							triggers;
 	
-	private final MultiValueMap<ATermAppl, ConceptInfo>	successors;
-	private final MultiValueMap<ATermAppl, ConceptInfo>	predecessors;
+	private final Map<ATermAppl, Set<ConceptInfo>>		successors;
+	private final Map<ATermAppl, Set<ConceptInfo>>		predecessors;
 	
 	private final Set<ConceptInfo>						superClasses;
 
+	private final boolean								concurrent;
+
+	/**
+	 * Subsumers that have been added but not processed yet (only used by
+	 * concurrent saturation)
+	 */
+	private final Queue<ConceptInfo>					todo;
+
+	/**
+	 * True if this concept is scheduled or being processed by a saturation
+	 * thread (only used by concurrent saturation)
+	 */
+	private final AtomicBoolean							active;
+
 	public ConceptInfo(ATermAppl c, boolean storeSuccessors, boolean noTriggers) {
+		this( c, storeSuccessors, noTriggers, false );
+	}
+
+	public ConceptInfo(ATermAppl c, boolean storeSuccessors, boolean noTriggers, boolean concurrent) {
 		concept = c;
+		this.concurrent = concurrent;
 		
-		superClasses = CollectionUtils.makeSet();
-
-		successors = storeSuccessors
-			 ? new MultiValueMap<ATermAppl, ConceptInfo>()
-			 : null;
-		predecessors = new MultiValueMap<ATermAppl, ConceptInfo>();
+		if( concurrent ) {
+			superClasses = new ConcurrentHashSet<ConceptInfo>();
+			successors = storeSuccessors
+				? new ConcurrentHashMap<ATermAppl, Set<ConceptInfo>>()
+				: null;
+			predecessors = new ConcurrentHashMap<ATermAppl, Set<ConceptInfo>>();
+			todo = new ConcurrentLinkedQueue<ConceptInfo>();
+			active = new AtomicBoolean();
+		}
+		else {
+			superClasses = CollectionUtils.makeSet();
+			successors = storeSuccessors
+				 ? new MultiValueMap<ATermAppl, ConceptInfo>()
+				 : null;
+			predecessors = new MultiValueMap<ATermAppl, ConceptInfo>();
+			todo = null;
+			active = null;
+		}
 		
 		triggers = noTriggers
 			? null
 			: new HashSet<Trigger>();
 	}
 
+	private boolean add(Map<ATermAppl, Set<ConceptInfo>> map, ATermAppl p, ConceptInfo ci) {
+		Set<ConceptInfo> values = map.get( p );
+		if( values == null ) {
+			if( concurrent ) {
+				values = new ConcurrentHashSet<ConceptInfo>();
+				Set<ConceptInfo> prev = ((ConcurrentMap<ATermAppl, Set<ConceptInfo>>) map)
+						.putIfAbsent( p, values );
+				if( prev != null ) {
+					values = prev;
+				}
+			}
+			else {
+				values = new HashSet<ConceptInfo>();
+				map.put( p, values );
+			}
+		}
+
+		return values.add( ci );
+	}
+
 	public boolean addSuccessor(ATermAppl p, ConceptInfo ci) {
-		if( ci.predecessors.add( p, this ) ) {
+		if( add( ci.predecessors, p, this ) ) {
 			if( successors != null ) {
-				successors.add( p, ci );
+				add( successors, p, ci );
 			}
 		
 			return true;
@@ -79,6 +141,37 @@ class ConceptInfo {
 		return triggers.add(trigger);
 	}
 
+	/**
+	 * Add a subsumer to the queue of this concept.
+	 * 
+	 * @return <code>true</code> if this concept was not active and the caller
+	 *         is responsible for scheduling it
+	 */
+	boolean schedule(ConceptInfo sup) {
+		todo.add( sup );
+		return active.compareAndSet( false, true );
+	}
+
+	/**
+	 * Returns the next subsumer in the queue or <code>null</code> if the
+	 * queue is empty.
+	 */
+	ConceptInfo nextScheduled() {
+		return todo.poll();
+	}
+
+	/**
+	 * Mark this concept as inactive after its queue was emptied.
+	 * 
+	 * @return <code>true</code> if new subsumers were added to the queue in
+	 *         the meantime and the caller is responsible for scheduling this
+	 *         concept again
+	 */
+	boolean deactivate() {
+		active.set( false );
+		return !todo.isEmpty() && active.compareAndSet( false, true );
+	}
+
 	@Override
     public boolean equals(Object obj) {
 		return (obj instanceof ConceptInfo) && ((ConceptInfo) obj).concept == concept;
@@ -88,11 +181,11 @@ class ConceptInfo {
 		return concept;
 	}
 
-	public MultiValueMap<ATermAppl, ConceptInfo> getSuccessors() {
+	public Map<ATermAppl, Set<ConceptInfo>> getSuccessors() {
 		return successors;
 	}
 
-	public MultiValueMap<ATermAppl, ConceptInfo> getPredecessors() {
+	public Map<ATermAppl, Set<ConceptInfo>> getPredecessors() {
 		return predecessors;
 	}
 
@@ -105,7 +198,8 @@ class ConceptInfo {
 	}
 
 	public boolean hasSuccessor(ATermAppl p, ConceptInfo ci) {
-		return ci.predecessors.contains(p, this);
+		Set<ConceptInfo> preds = ci.predecessors.get( p );
+		return preds != null && preds.contains( this );
 	}
 
 	@Override
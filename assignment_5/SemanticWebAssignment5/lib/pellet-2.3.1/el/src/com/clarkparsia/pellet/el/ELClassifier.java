@@ -25,6 +25,7 @@ import org.mindswap.pellet.utils.PartialOrderComparator;
 import org.mindswap.pellet.utils.PartialOrderRelation;
 import org.mindswap.pellet.utils.Timer;
 import org.mindswap.pellet.utils.Timers;
+import org.mindswap.pellet.utils.iterator.IteratorUtils;
 
 import aterm.AFun;
 import aterm.ATermAppl;
@@ -211,7 +212,7 @@ public class ELClassifier extends CDOptimizedTaxonomyBuilder implements Taxonomy
 				if (supInfo.equals(BOTTOM)) {
 					addSubsumer(ci, BOTTOM);
 					
-					Iterator<ConceptInfo> preds = ci.getPredecessors().flattenedValues();
+					Iterator<ConceptInfo> preds = IteratorUtils.flatten( ci.getPredecessors().values().iterator() );
 					while( preds.hasNext() ) {
 						addSubsumer(preds.next(), BOTTOM);
 					}
@@ -282,7 +283,7 @@ public class ELClassifier extends CDOptimizedTaxonomyBuilder implements Taxonomy
 		ci.addSuperClass(supInfo);
 		
 		if (ATermUtils.isBottom(supInfo.getConcept())) {			
-			Iterator<ConceptInfo> preds = ci.getPredecessors().flattenedValues();
+			Iterator<ConceptInfo> preds = IteratorUtils.flatten( ci.getPredecessors().values().iterator() );
 			while( preds.hasNext() ) {
 				addSubsumer( preds.next(), supInfo );
 			}
@@ -6,8 +6,11 @@
 
 package com.clarkparsia.pellet.el;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -62,6 +65,89 @@ class ELTaxonomyBuilder {
 		return taxonomy;
 	}
 
+	/**
+	 * Updates a taxonomy that was built from the given concepts after the
+	 * subsumers of some named concepts changed. The nodes of the changed
+	 * concepts and all the nodes below them are removed and classified again,
+	 * the rest of the taxonomy is not modified. If the subsumers of a concept
+	 * equivalent to TOP changed the whole taxonomy is rebuilt.
+	 * 
+	 * @param taxonomy
+	 *            taxonomy built from the concepts before the change
+	 * @param concepts
+	 *            all the concepts
+	 * @param changed
+	 *            named concepts whose subsumers changed, including new
+	 *            concepts that are not in the taxonomy yet
+	 * @return the updated taxonomy
+	 */
+	public Taxonomy<ATermAppl> update(Taxonomy<ATermAppl> taxonomy,
+			Map<ATermAppl, ConceptInfo> concepts, Collection<ConceptInfo> changed) {
+		this.taxonomy = taxonomy;
+
+		final TaxonomyNode<ATermAppl> top = taxonomy.getTop();
+		final TaxonomyNode<ATermAppl> bottom = taxonomy.getBottom();
+
+		List<ConceptInfo> reclassify = new ArrayList<ConceptInfo>();
+		List<TaxonomyNode<ATermAppl>> removed = new ArrayList<TaxonomyNode<ATermAppl>>();
+		Set<TaxonomyNode<ATermAppl>> visited = new HashSet<TaxonomyNode<ATermAppl>>();
+		for( ConceptInfo ci : changed ) {
+			TaxonomyNode<ATermAppl> node = taxonomy.getNode( ci.getConcept() );
+			if( node == null ) {
+				reclassify.add( ci );
+			}
+			else if( node == top ) {
+				return build( concepts );
+			}
+			else if( node != bottom && visited.add( node ) ) {
+				removed.add( node );
+			}
+		}
+
+		// the position of the nodes below a changed node might change too
+		for( int i = 0; i < removed.size(); i++ ) {
+			for( TaxonomyNode<ATermAppl> sub : removed.get( i ).getSubs() ) {
+				if( sub != bottom && visited.add( sub ) ) {
+					removed.add( sub );
+				}
+			}
+		}
+
+		Set<TaxonomyNode<ATermAppl>> parents = new HashSet<TaxonomyNode<ATermAppl>>();
+		for( TaxonomyNode<ATermAppl> node : removed ) {
+			parents.addAll( node.getSupers() );
+			node.disconnect();
+		}
+		parents.removeAll( removed );
+
+		for( TaxonomyNode<ATermAppl> node : removed ) {
+			for( ATermAppl c : new ArrayList<ATermAppl>( node.getEquivalents() ) ) {
+				taxonomy.remove( c );
+				reclassify.add( concepts.get( c ) );
+			}
+		}
+
+		final ConceptInfo BOTTOM = concepts.get( ATermUtils.BOTTOM );
+		for( ConceptInfo ci : reclassify ) {
+			if( taxonomy.contains( ci.getConcept() ) ) continue;
+			
+			if( ci.getSuperClasses().contains( BOTTOM ) ) {
+				taxonomy.addEquivalentNode( ci.getConcept(), bottom );
+			} else {
+				classify( ci );
+			}
+		}
+
+		// nodes whose subs have all been moved become leaves
+		for( TaxonomyNode<ATermAppl> parent : parents ) {
+			if( parent.getSubs().isEmpty() ) {
+				parent.addSub( bottom );
+			}
+		}
+
+		return taxonomy;
+	}
+
 	private TaxonomyNode<ATermAppl> classify(ConceptInfo ci) {
 		ATermAppl c = ci.getConcept();
 		TaxonomyNode<ATermAppl> node = taxonomy.getNode( c );
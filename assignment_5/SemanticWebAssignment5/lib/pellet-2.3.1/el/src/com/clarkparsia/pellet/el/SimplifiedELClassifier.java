@@ -6,26 +6,43 @@
 
 package com.clarkparsia.pellet.el;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.Role;
+import org.mindswap.pellet.exceptions.InternalReasonerException;
+import org.mindswap.pellet.exceptions.TimerInterruptedException;
 import org.mindswap.pellet.taxonomy.CDOptimizedTaxonomyBuilder;
 import org.mindswap.pellet.taxonomy.Taxonomy;
 import org.mindswap.pellet.taxonomy.TaxonomyBuilder;
 import org.mindswap.pellet.utils.ATermUtils;
 import org.mindswap.pellet.utils.MultiValueMap;
+import org.mindswap.pellet.utils.TaxonomyUtils;
 import org.mindswap.pellet.utils.Timer;
 import org.mindswap.pellet.utils.Timers;
+import org.mindswap.pellet.utils.concurrent.ConcurrentHashSet;
+import org.mindswap.pellet.utils.iterator.IteratorUtils;
 
 import aterm.AFun;
 import aterm.ATermAppl;
@@ -39,7 +56,31 @@ import com.clarkparsia.pellet.utils.TermFactory;
  * Title:
  * </p>
  * <p>
- * Description:
+ * Description: Classifier for EL ontologies that saturates the subsumers of
+ * all the concepts with completion rules. If
+ * {@link PelletOptions#EL_CLASSIFICATION_THREADS} is greater than one the
+ * saturation is done by multiple threads. Each concept then has its own queue
+ * of subsumers to process and only one thread processes the queue of a
+ * concept at a time. Concepts with a non-empty queue are put in a shared
+ * queue of active concepts that the threads take from. A thread that finds no
+ * active concept waits until a concept is activated. The saturation is
+ * finished when there are no unprocessed subsumers left in any queue. The
+ * calling thread takes part in the saturation and the other threads are taken
+ * from a pool shared by all the classifiers so they are reused by subsequent
+ * (e.g. incremental) classifications. The
+ * saturation computes the same closure regardless of the order rules are
+ * applied so the resulting taxonomy is identical to the one computed by a
+ * single thread.
+ * </p>
+ * <p>
+ * If {@link PelletOptions#USE_INCREMENTAL_EL_CLASSIFICATION} is enabled, the
+ * saturation is kept after classification and calling {@link #classify()}
+ * again only processes the axioms added to the KB since then. The subsumers
+ * of a concept are added to its subsumees when they are processed so the
+ * subsumees of a concept that gets a new told subsumer, conjunction or
+ * existential are processed again. The nodes of the concepts whose subsumers
+ * changed are then updated in the existing taxonomy. The KB should not call
+ * the classifier incrementally if axioms were removed or the RBox changed.
  * </p>
  * <p>
  * Copyright: Copyright (c) 2007
@@ -63,6 +104,12 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
         }
 	}
 
+	/**
+	 * Daemon threads shared by all the classifiers for concurrent saturation.
+	 * The pool grows to the largest number of threads requested.
+	 */
+	private static ThreadPoolExecutor				saturationThreads;
+
 	public final Timers								timers	= new Timers();
 	
 	private static final boolean					PREPROCESS_DOMAINS				= false;
@@ -76,6 +123,39 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 
 	private Queue<QueueElement>						primaryQueue;
 
+	/**
+	 * Number of threads used for saturation
+	 */
+	private int										threadCount;
+
+	/**
+	 * Concepts that have unprocessed subsumers in their queue (only used by
+	 * concurrent saturation)
+	 */
+	private Queue<ConceptInfo>						activeConcepts;
+
+	/**
+	 * Number of subsumers added to the concept queues but not processed yet
+	 * (only used by concurrent saturation)
+	 */
+	private AtomicInteger							pending;
+
+	/**
+	 * The first error thrown by a saturation thread
+	 */
+	private AtomicReference<Throwable>				error;
+
+	/**
+	 * Lock the threads that find no active concepts wait on (only used by
+	 * concurrent saturation)
+	 */
+	private final Object							idle	= new Object();
+
+	/**
+	 * Number of threads waiting on {@link #idle}
+	 */
+	private volatile int							idleThreads;
+
 	private Map<ATermAppl, ConceptInfo>				concepts;
 
 	private MultiValueMap<ATermAppl, ConceptInfo>	existentials;
@@ -84,6 +164,23 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 	private RoleChainCache							roleChains;
 	private RoleRestrictionCache					roleRestrictions;
 
+	/**
+	 * Asserted axioms processed by the previous classifications
+	 */
+	private Set<ATermAppl>							processedAxioms;
+
+	/**
+	 * Concepts whose subsumers need to be processed again for their subsumees
+	 * (only used during incremental classification)
+	 */
+	private Set<ConceptInfo>						affectedConcepts;
+
+	/**
+	 * Named concepts whose named subsumers changed (only used during
+	 * incremental classification)
+	 */
+	private Set<ConceptInfo>						changedConcepts;
+
 	public SimplifiedELClassifier() {
 	}
 	
@@ -94,7 +191,19 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 		hasComplexRoles = kb.getExpressivity().hasTransitivity()
 				|| kb.getExpressivity().hasComplexSubRoles();
 		
-		primaryQueue = new LinkedList<QueueElement>();
+		threadCount = PelletOptions.EL_CLASSIFICATION_THREADS;
+		if( threadCount > 1 ) {
+			primaryQueue = null;
+			activeConcepts = new ConcurrentLinkedQueue<ConceptInfo>();
+			pending = new AtomicInteger();
+			error = new AtomicReference<Throwable>();
+		}
+		else {
+			primaryQueue = new LinkedList<QueueElement>();
+			activeConcepts = null;
+			pending = null;
+			error = null;
+		}
 		
 		concepts = CollectionUtils.makeMap();
 		
@@ -103,6 +212,10 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 		
 		roleChains = new RoleChainCache(kb);
 		roleRestrictions = new RoleRestrictionCache( kb.getRBox() );
+		
+		processedAxioms = CollectionUtils.makeSet();
+		affectedConcepts = null;
+		changedConcepts = null;
 	}
 
 	/**
@@ -110,23 +223,42 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 	 */
 	@Override
     public boolean classify() {
-		logger.fine( "Reset" );
-		reset();
+		boolean update = concepts != null && PelletOptions.USE_INCREMENTAL_EL_CLASSIFICATION;
 		
-		Timer t = timers.startTimer( "createConcepts" );
-		logger.fine( "Creating structures" );
-		createConcepts();
-		logger.fine( "Created structures" );
-		t.stop();
+		Timer t;
+		if( update ) {
+			t = timers.startTimer( "updateConcepts" );
+			logger.fine( "Updating structures" );
+			updateConcepts();
+			logger.fine( "Updated structures" );
+			t.stop();
+		}
+		else {
+			logger.fine( "Reset" );
+			reset();
+			
+			t = timers.startTimer( "createConcepts" );
+			logger.fine( "Creating structures" );
+			createConcepts();
+			logger.fine( "Created structures" );
+			t.stop();
+		}
 		
-		int queueSize =  primaryQueue.size();
+		int queueSize = activeConcepts != null
+			? pending.get()
+			: primaryQueue.size();
 		monitor.setProgressTitle( "Classifiying" );
 		monitor.setProgressLength( queueSize );
 		monitor.taskStarted();
 		
 		logger.fine( "Processing queue" );
 		t = timers.startTimer( "processQueue" );
-		processQueue();
+		if( activeConcepts != null ) {
+			processQueueConcurrently();
+		}
+		else {
+			processQueue();
+		}
 		t.stop();
 		logger.fine( "Processed queue" );
 
@@ -139,7 +271,14 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 		logger.fine( "Building hierarchy" );
 		t = timers.startTimer( "buildHierarchy" );
 		
-		taxonomy = new ELTaxonomyBuilder().build( concepts );
+		if( update ) {
+			TaxonomyUtils.clearAllInstances( taxonomy );
+			taxonomy = new ELTaxonomyBuilder().update( taxonomy, concepts, changedConcepts );
+			changedConcepts = null;
+		}
+		else {
+			taxonomy = new ELTaxonomyBuilder().build( concepts );
+		}
 		
 		t.stop();
 		logger.fine( "Builded hierarchy" );
@@ -163,7 +302,14 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 			return;
 		}
 		
-		for( ConceptInfo supOfSucc : succ.getSuperClasses() ) {
+		// the recursive calls add subsumers to pred and, with role chains, to
+		// its predecessors so iterate over a copy if succ might be one of them
+		// unless the set is concurrent
+		Collection<ConceptInfo> supsOfSucc = succ.getSuperClasses();
+		if( activeConcepts == null && (pred == succ || hasComplexRoles) ) {
+			supsOfSucc = CollectionUtils.makeList( supsOfSucc );
+		}
+		for( ConceptInfo supOfSucc : supsOfSucc ) {
 			addSuccessor( pred, p, supOfSucc );
 		}
 
@@ -221,10 +367,29 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 	
 	private void addToQueue(ConceptInfo sub, ConceptInfo sup) {
 		if( sub.addSuperClass( sup ) ) {
-			primaryQueue.add( new QueueElement(sub, sup) );
-			if( logger.isLoggable( Level.FINER ) ) {
-				logger.finer( "Queue " + sub + " " + sup );
+			if( changedConcepts != null && ATermUtils.isPrimitive( sub.getConcept() )
+					&& (sup == BOTTOM || ATermUtils.isPrimitive( sup.getConcept() )) ) {
+				changedConcepts.add( sub );
 			}
+			queue( sub, sup );
+		}
+	}
+
+	private void queue(ConceptInfo sub, ConceptInfo sup) {
+		if( activeConcepts != null ) {
+			pending.incrementAndGet();
+			if( sub.schedule( sup ) ) {
+				activeConcepts.add( sub );
+				if( idleThreads > 0 ) {
+					wakeUp();
+				}
+			}
+		}
+		else {
+			primaryQueue.add( new QueueElement(sub, sup) );
+		}
+		if( logger.isLoggable( Level.FINER ) ) {
+			logger.finer( "Queue " + sub + " " + sup );
 		}
 	}
 
@@ -234,7 +399,7 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 		}
 		
 		if( sup == BOTTOM ) {
-			Iterator<ConceptInfo> preds = sub.getPredecessors().flattenedValues();
+			Iterator<ConceptInfo> preds = IteratorUtils.flatten( sub.getPredecessors().values().iterator() );
 			while( preds.hasNext() ) {
 				addToQueue( preds.next(), sup );
 			}
@@ -317,7 +482,7 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 	private ConceptInfo createConcept(ATermAppl c) {
 		ConceptInfo concept = concepts.get( c );
 		if( concept == null ) {
-			concept = new ConceptInfo( c, hasComplexRoles, false );
+			concept = new ConceptInfo( c, hasComplexRoles, false, activeConcepts != null );
 			
 			if( ATermUtils.isAnd( c ) ) {
 				ATermList list = (ATermList) c.getArgument(0);
@@ -328,6 +493,9 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 					addToQueue( concept, conjConcept );
 					
 					conjunctions.add( conjConcept, concept );	
+					if( affectedConcepts != null ) {
+						affectedConcepts.add( conjConcept );
+					}
 				}
 			} 
 			else if( ATermUtils.isSomeValues( c ) ) {
@@ -352,6 +520,9 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 				ConceptInfo succ = createConcept(q);
 				
 				existentials.add( p, succ );
+				if( affectedConcepts != null ) {
+					affectedConcepts.add( succ );
+				}
 				
 				// Add this to the queue so that successor relation some(p,q) -> p -> q will be established. Due to
 				// sub property interactions adding successor relation here directly causes missing inferences.
@@ -373,7 +544,11 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 	}
 
 	private void createConceptsFromAxiom(ATermAppl sub, ATermAppl sup) {
-		addToQueue( createConcept( sub ), createConcept( sup ) );
+		ConceptInfo subInfo = createConcept( sub );
+		addToQueue( subInfo, createConcept( sup ) );
+		if( affectedConcepts != null ) {
+			affectedConcepts.add( subInfo );
+		}
 	}	
 	
 	private void createDisjointAxiom(ATermAppl c1, ATermAppl c2) {
@@ -431,6 +606,7 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 		for (ATermAppl assertedAxiom : assertedAxioms ) {
 			processAxiom(assertedAxiom);
 		}
+		processedAxioms.addAll( assertedAxioms );
 
 		if( PREPROCESS_DOMAINS ) {
 			//Convert ATermAppl Domains to axioms
@@ -474,6 +650,45 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 		}
 	}
 
+	/**
+	 * Create the concepts and process the axioms added to the KB since the
+	 * previous classification. The subsumees of the concepts that got new
+	 * subsumers, conjunctions or existentials are queued again with these
+	 * concepts so the rules are applied with the new axioms.
+	 */
+	private void updateConcepts() {
+		kb.prepare();
+		
+		classes = new ArrayList<ATermAppl>( kb.getClasses() );
+		
+		affectedConcepts = CollectionUtils.makeSet();
+		changedConcepts = activeConcepts != null
+			? new ConcurrentHashSet<ConceptInfo>()
+			: CollectionUtils.<ConceptInfo>makeSet();
+		
+		for( ATermAppl c : classes ) {
+			createConcept( c );
+		}
+		
+		for( ATermAppl axiom : kb.getTBox().getAssertedAxioms() ) {
+			if( processedAxioms.add( axiom ) ) {
+				processAxiom( axiom );
+			}
+		}
+		
+		if( !affectedConcepts.isEmpty() ) {
+			for( ConceptInfo ci : CollectionUtils.makeSet( concepts.values() ) ) {
+				for( ConceptInfo affected : affectedConcepts ) {
+					if( ci.hasSuperClass( affected ) ) {
+						queue( ci, affected );
+					}
+				}
+			}
+		}
+		
+		affectedConcepts = null;
+	}
+
 	public void print() {
 		for( ATermAppl c : concepts.keySet() ) {
 			log.finer( c + " " + concepts.get( c ).getSuperClasses() );
@@ -495,6 +710,136 @@ public class SimplifiedELClassifier extends CDOptimizedTaxonomyBuilder implement
 		}
 	}
 	
+	private static synchronized ThreadPoolExecutor getSaturationThreads(int count) {
+		if( saturationThreads == null ) {
+			ThreadFactory threadFactory = new ThreadFactory() {
+				private int	threadNumber	= 0;
+
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread( r, "EL-saturation-" + (++threadNumber) );
+					thread.setDaemon( true );
+					return thread;
+				}
+			};
+			saturationThreads = new ThreadPoolExecutor( count, count, 0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), threadFactory );
+		}
+		else if( saturationThreads.getMaximumPoolSize() < count ) {
+			saturationThreads.setMaximumPoolSize( count );
+			saturationThreads.setCorePoolSize( count );
+		}
+
+		return saturationThreads;
+	}
+
+	/**
+	 * Saturate the concepts using all the threads. The current thread is used
+	 * as one of the saturation threads. The threads from the pool that did not
+	 * start before the saturation is finished (e.g. because they are busy with
+	 * another classifier) are not waited for.
+	 */
+	private void processQueueConcurrently() {
+		Runnable worker = new Runnable() {
+			public void run() {
+				try {
+					saturate();
+				} catch( Throwable e ) {
+					error.compareAndSet( null, e );
+					wakeUp();
+				}
+			}
+		};
+
+		ThreadPoolExecutor executor = getSaturationThreads( threadCount - 1 );
+		List<Future<?>> futures = new ArrayList<Future<?>>( threadCount - 1 );
+		for( int i = 0; i < threadCount - 1; i++ ) {
+			futures.add( executor.submit( worker ) );
+		}
+
+		worker.run();
+
+		try {
+			for( Future<?> future : futures ) {
+				if( !future.cancel( false ) ) {
+					future.get();
+				}
+			}
+		} catch( InterruptedException e ) {
+			error.compareAndSet( null, e );
+			wakeUp();
+			throw new TimerInterruptedException( e );
+		} catch( ExecutionException e ) {
+			// the worker records its errors
+			error.compareAndSet( null, e.getCause() );
+		}
+
+		Throwable e = error.get();
+		if( e instanceof RuntimeException ) {
+			throw (RuntimeException) e;
+		}
+		if( e instanceof Error ) {
+			throw (Error) e;
+		}
+		if( e != null ) {
+			throw new InternalReasonerException( e );
+		}
+	}
+
+	/**
+	 * Process the queues of active concepts until all the queues are empty.
+	 * When the shared queue is empty but other threads are still processing
+	 * concepts this thread waits since new subsumers might still be added.
+	 */
+	private void saturate() {
+		while( error.get() == null ) {
+			ConceptInfo ci = activeConcepts.poll();
+			if( ci == null ) {
+				if( !awaitActiveConcepts() ) {
+					return;
+				}
+				continue;
+			}
+
+			do {
+				for( ConceptInfo sup = ci.nextScheduled(); sup != null; sup = ci.nextScheduled() ) {
+					addSuperClass( ci, sup );
+					if( pending.decrementAndGet() == 0 && idleThreads > 0 ) {
+						wakeUp();
+					}
+				}
+			} while( ci.deactivate() );
+		}
+	}
+
+	/**
+	 * Wait until a concept is activated or the saturation is finished.
+	 * 
+	 * @return <code>false</code> if the saturation is finished
+	 */
+	private boolean awaitActiveConcepts() {
+		synchronized( idle ) {
+			idleThreads++;
+			try {
+				while( activeConcepts.isEmpty() && pending.get() > 0 && error.get() == null ) {
+					idle.wait();
+				}
+			} catch( InterruptedException e ) {
+				error.compareAndSet( null, new TimerInterruptedException( e ) );
+				idle.notifyAll();
+			} finally {
+				idleThreads--;
+			}
+
+			return pending.get() > 0 && error.get() == null;
+		}
+	}
+
+	private void wakeUp() {
+		synchronized( idle ) {
+			idle.notifyAll();
+		}
+	}
+	
 	@Override
 	public Map<ATermAppl, Set<ATermAppl>> getToldDisjoints() {
 		return Collections.emptyMap();
@@ -0,0 +1,246 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.jena;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.Role;
+
+import aterm.ATermAppl;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.Filter;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+import com.hp.hpl.jena.util.iterator.WrappedIterator;
+
+/**
+ * <p>
+ * Title:
+ * </p>
+ * <p>
+ * Description: A read-only graph of the statements a {@link ModelExtractor}
+ * would extract that computes the statements on demand instead of
+ * materializing them. A find with a concrete subject only computes the
+ * statements about that entity. Other finds go through the classes,
+ * properties and individuals of the KB one at a time so the memory used does
+ * not depend on the size of the inferred model. Individuals are realized only
+ * when the extractor selects type statements and a find reaches them.
+ * </p>
+ * <p>
+ * The statements computed for a subject, and all the statements once a find
+ * without a concrete subject has been iterated to the end, are cached so
+ * repeated finds and <code>contains</code> checks do not compute them again.
+ * The cache is softly referenced so it is discarded when memory is low and
+ * {@link #clearCache()} should be called when the KB changes.
+ * {@link PelletInfGraph} does this for the graph it returns. Until the cache
+ * is filled a find without a concrete subject computes the statements of every
+ * entity in the KB.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class DeductionsGraph extends GraphBase {
+	private static class Cache {
+		private final Map<Node, Set<Triple>>	subjects	= new HashMap<Node, Set<Triple>>();
+
+		/**
+		 * All the statements or <code>null</code> if no find without a
+		 * concrete subject has been completed yet
+		 */
+		private List<Triple>					all;
+	}
+
+	private final ModelExtractor	extractor;
+
+	private SoftReference<Cache>	cache;
+
+	public DeductionsGraph(ModelExtractor extractor) {
+		this.extractor = extractor;
+
+		clearCache();
+	}
+
+	/**
+	 * Discards the statements computed so far so they will be computed again
+	 * from the current state of the KB.
+	 */
+	public void clearCache() {
+		cache = new SoftReference<Cache>( null );
+	}
+
+	private Cache getCache() {
+		Cache c = cache.get();
+		if( c == null ) {
+			c = new Cache();
+			cache = new SoftReference<Cache>( c );
+		}
+		return c;
+	}
+
+	@Override
+	protected ExtendedIterator<Triple> graphBaseFind(TripleMatch m) {
+		final Triple pattern = m.asTriple();
+
+		Cache c = getCache();
+
+		ExtendedIterator<Triple> triples;
+		if( pattern.getSubject().isConcrete() ) {
+			triples = WrappedIterator.createNoRemove( getSubjectTriples( c, pattern.getSubject() )
+					.iterator() );
+		}
+		else if( c.all != null ) {
+			triples = WrappedIterator.createNoRemove( c.all.iterator() );
+		}
+		else {
+			triples = new DeductionsIterator( c );
+		}
+
+		return triples.filterKeep( new Filter<Triple>() {
+			@Override
+			public boolean accept(Triple t) {
+				return pattern.matches( t );
+			}
+		} );
+	}
+
+	private Set<Triple> getSubjectTriples(Cache c, Node subject) {
+		Set<Triple> triples = c.subjects.get( subject );
+		if( triples != null )
+			return triples;
+
+		triples = new LinkedHashSet<Triple>();
+		c.subjects.put( subject, triples );
+
+		if( subject.isLiteral() )
+			return triples;
+
+		KnowledgeBase kb = extractor.getKB();
+		ATermAppl term = JenaUtils.makeATerm( subject );
+
+		if( kb.isClass( term ) ) {
+			extractor.prepareClasses();
+			extractor.extractClassTriples( term, triples );
+		}
+
+		if( kb.isProperty( term ) ) {
+			extractor.prepareProperties();
+			extractor.extractPropertyTriples( kb.getRole( term ), triples );
+		}
+
+		if( kb.isIndividual( term ) ) {
+			extractor.prepareIndividuals();
+			extractor.extractIndividualTriples( term, triples );
+		}
+
+		return triples;
+	}
+
+	/**
+	 * Iterates over the statements about classes, properties and individuals
+	 * computing the statements of one entity at a time. The extractor might
+	 * generate the same statement more than once so the statements of an
+	 * entity are collected in a set. The statements are also collected in a
+	 * list that is put in the cache if the iteration reaches the end.
+	 */
+	private class DeductionsIterator extends NiceIterator<Triple> {
+		private final KnowledgeBase		kb			= extractor.getKB();
+
+		private final Cache				cache;
+
+		private final List<Triple>		all			= new ArrayList<Triple>();
+
+		private Iterator<ATermAppl>		classes;
+
+		private Iterator<Role>			roles;
+
+		private Iterator<ATermAppl>		individuals;
+
+		private final Set<Triple>		triples		= new LinkedHashSet<Triple>();
+
+		private Iterator<Triple>		current		= triples.iterator();
+
+		private DeductionsIterator(Cache cache) {
+			this.cache = cache;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while( !current.hasNext() ) {
+				triples.clear();
+
+				if( !computeNext() ) {
+					if( cache.all == null ) {
+						cache.all = all;
+					}
+					return false;
+				}
+
+				all.addAll( triples );
+				current = triples.iterator();
+			}
+
+			return true;
+		}
+
+		private boolean computeNext() {
+			if( classes == null ) {
+				extractor.prepareClasses();
+				classes = kb.getAllClasses().iterator();
+			}
+
+			if( classes.hasNext() ) {
+				extractor.extractClassTriples( classes.next(), triples );
+				return true;
+			}
+
+			if( roles == null ) {
+				extractor.prepareProperties();
+				roles = kb.getRBox().getRoles().iterator();
+			}
+
+			if( roles.hasNext() ) {
+				extractor.extractPropertyTriples( roles.next(), triples );
+				return true;
+			}
+
+			if( individuals == null ) {
+				extractor.prepareIndividuals();
+				individuals = kb.getIndividuals().iterator();
+			}
+
+			if( individuals.hasNext() ) {
+				extractor.extractIndividualTriples( individuals.next(), triples );
+				return true;
+			}
+
+			return false;
+		}
+
+		@Override
+		public Triple next() {
+			ensureHasNext();
+
+			return current.next();
+		}
+	}
+}
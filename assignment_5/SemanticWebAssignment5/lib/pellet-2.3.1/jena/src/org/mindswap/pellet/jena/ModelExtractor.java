@@ -9,11 +9,14 @@ package org.mindswap.pellet.jena;
 import static org.mindswap.pellet.jena.JenaUtils.makeGraphNode;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.jena.riot.system.StreamRDF;
 import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.Role;
 import org.mindswap.pellet.jena.vocabulary.OWL2;
@@ -266,12 +269,12 @@ public class ModelExtractor {
 	 * Creates and adds the triple to the given list if the triple passes
 	 * the filter.
 	 * 
-	 * @param triples List to be added
+	 * @param triples collection to be added
 	 * @param s subject of the triple
 	 * @param p predicate of the triple
 	 * @param o object of the triple
 	 */
-	private void addTriple(List<Triple> triples, Node s, Node p, Node o) {
+	private void addTriple(Collection<Triple> triples, Node s, Node p, Node o) {
 		Triple triple = Triple.create( s, p, o );
 		if( !filter.accept( triple ) )
 			triples.add( triple );
@@ -282,6 +285,38 @@ public class ModelExtractor {
 	}
 
 	public Model extractClassModel(Model model) {
+		prepareClasses();
+
+		List<Triple> triples = new ArrayList<Triple>();
+
+		for( ATermAppl c : kb.getAllClasses() ) {
+			triples.clear();
+
+			extractClassTriples( c, triples );
+
+			model.getGraph().getBulkUpdateHandler().add( triples );
+		}
+
+		return model;
+	}
+
+	/**
+	 * Make sure the KB is ready to answer the selected class statements.
+	 */
+	void prepareClasses() {
+		if( selector.contains( StatementType.ALL_SUBCLASS )
+				|| selector.contains( StatementType.JENA_DIRECT_SUBCLASS )
+				|| selector.contains( StatementType.DIRECT_SUBCLASS )
+				|| selector.contains( StatementType.EQUIVALENT_CLASS )
+				|| selector.contains( StatementType.DISJOINT_CLASS )
+				|| selector.contains( StatementType.COMPLEMENT_CLASS ) )
+			kb.classify();
+	}
+
+	/**
+	 * Adds the selected statements about the given class to the list.
+	 */
+	void extractClassTriples(ATermAppl c, Collection<Triple> triples) {
 		final boolean allSubs = selector.contains( StatementType.ALL_SUBCLASS );
 		final boolean jenaDirectSubs = selector.contains( StatementType.JENA_DIRECT_SUBCLASS );
 		final boolean subs = allSubs || jenaDirectSubs
@@ -290,101 +325,88 @@ public class ModelExtractor {
 		final boolean disjs = selector.contains( StatementType.DISJOINT_CLASS );
 		final boolean comps = selector.contains( StatementType.COMPLEMENT_CLASS );
 
-		if( subs || equivs || disjs || comps )
-			kb.classify();
+		Set<ATermAppl> classes = kb.getAllClasses();
 
-		List<Triple> triples = new ArrayList<Triple>();
+		Node s, p;
 
-		Set<ATermAppl> classes = kb.getAllClasses();
+		s = makeGraphNode( c );
 
-		for( ATermAppl c : classes ) {
+		addTriple( triples, s, RDF.type.asNode(), OWL.Class.asNode() );
 
-			triples.clear();
+		if( subs ) {
+			p = RDFS.subClassOf.asNode();
+			
+			if( allSubs ) {
+				Set<ATermAppl> eqs = kb.getAllEquivalentClasses( c );
+				for( ATermAppl eq : eqs ) {
+					Node o = makeGraphNode( eq );
+					addTriple( triples, s, p, o );
+				}
+			}
 
-			Node s, p;
+			Set<Set<ATermAppl>> supers = allSubs
+				? kb.getSuperClasses( c, false )
+				: kb.getSuperClasses( c, true );
 
-			s = makeGraphNode( c );
+			Iterator<ATermAppl> i = IteratorUtils.flatten( supers.iterator() ); 
+			while( i.hasNext() ) {
+				Node o = makeGraphNode( i.next() );
+				addTriple( triples, s, p, o );
+			}
 
-			addTriple( triples, s, RDF.type.asNode(), OWL.Class.asNode() );
+			if( jenaDirectSubs ) {
 
-			if( subs ) {
-				p = RDFS.subClassOf.asNode();
-				
-				if( allSubs ) {
-					Set<ATermAppl> eqs = kb.getAllEquivalentClasses( c );
-					for( ATermAppl eq : eqs ) {
-						Node o = makeGraphNode( eq );
-						addTriple( triples, s, p, o );
-					}
-				}
+				p = ReasonerVocabulary.directSubClassOf.asNode();
 
-				Set<Set<ATermAppl>> supers = allSubs
-					? kb.getSuperClasses( c, false )
-					: kb.getSuperClasses( c, true );
+				Set<Set<ATermAppl>> direct = allSubs
+					? kb.getSuperClasses( c, true )
+					: supers;
 
-				Iterator<ATermAppl> i = IteratorUtils.flatten( supers.iterator() ); 
+				i = IteratorUtils.flatten( direct.iterator() ); 
 				while( i.hasNext() ) {
 					Node o = makeGraphNode( i.next() );
 					addTriple( triples, s, p, o );
 				}
-
-				if( jenaDirectSubs ) {
-
-					p = ReasonerVocabulary.directSubClassOf.asNode();
-
-					Set<Set<ATermAppl>> direct = allSubs
-						? kb.getSuperClasses( c, true )
-						: supers;
-
-					i = IteratorUtils.flatten( direct.iterator() ); 
-					while( i.hasNext() ) {
-						Node o = makeGraphNode( i.next() );
-						addTriple( triples, s, p, o );
-					}
-				}
 			}
+		}
 
-			if( equivs ) {
+		if( equivs ) {
 
-				p = OWL.equivalentClass.asNode();
+			p = OWL.equivalentClass.asNode();
 
-				Set<ATermAppl> eqs = kb.getAllEquivalentClasses( c );
-				for( ATermAppl a : eqs ) {
-					Node o = makeGraphNode( a );
-					addTriple( triples, s, p, o );
-				}
+			Set<ATermAppl> eqs = kb.getAllEquivalentClasses( c );
+			for( ATermAppl a : eqs ) {
+				Node o = makeGraphNode( a );
+				addTriple( triples, s, p, o );
 			}
+		}
 
-			if( disjs ) {
-				Set<Set<ATermAppl>> disj = kb.getDisjointClasses( c );
+		if( disjs ) {
+			Set<Set<ATermAppl>> disj = kb.getDisjointClasses( c );
 
-				if( !disj.isEmpty() ) {
-					p = OWL.disjointWith.asNode();
-					
-					Iterator<ATermAppl> i = IteratorUtils.flatten( disj.iterator() ); 
-					while( i.hasNext() ) {
-						ATermAppl a = i.next();
-						if( classes.contains( a ) )
-							addTriple( triples, s, p, makeGraphNode( a ) );
-					}
+			if( !disj.isEmpty() ) {
+				p = OWL.disjointWith.asNode();
+				
+				Iterator<ATermAppl> i = IteratorUtils.flatten( disj.iterator() ); 
+				while( i.hasNext() ) {
+					ATermAppl a = i.next();
+					if( classes.contains( a ) )
+						addTriple( triples, s, p, makeGraphNode( a ) );
 				}
 			}
+		}
 
-			if( comps ) {
-				Set<ATermAppl> comp = kb.getComplements( c );
+		if( comps ) {
+			Set<ATermAppl> comp = kb.getComplements( c );
 
-				if( !comp.isEmpty() ) {
-					p = OWL.complementOf.asNode();
-					for( ATermAppl a : comp ) {
-						if( classes.contains( a ) )
-							addTriple( triples, s, p, makeGraphNode( a ) );
-					}
+			if( !comp.isEmpty() ) {
+				p = OWL.complementOf.asNode();
+				for( ATermAppl a : comp ) {
+					if( classes.contains( a ) )
+						addTriple( triples, s, p, makeGraphNode( a ) );
 				}
 			}
-			model.getGraph().getBulkUpdateHandler().add( triples );
 		}
-
-		return model;
 	}
 
 	/**
@@ -398,7 +420,35 @@ public class ModelExtractor {
 	 * Extract statements about individuals
 	 */
 	public Model extractIndividualModel(Model model) {
+		prepareIndividuals();
+
+		List<Triple> triples = new ArrayList<Triple>();
+
+		for( ATermAppl ind : kb.getIndividuals() ) {
+			triples.clear();
+
+			extractIndividualTriples( ind, triples );
+
+			model.getGraph().getBulkUpdateHandler().add( triples );
+		}
+
+		return model;
+	}
+
+	/**
+	 * Make sure the KB is ready to answer the selected individual statements.
+	 */
+	void prepareIndividuals() {
+		if( selector.contains( StatementType.ALL_INSTANCE )
+				|| selector.contains( StatementType.JENA_DIRECT_INSTANCE )
+				|| selector.contains( StatementType.DIRECT_INSTANCE ) )
+			kb.realize();
+	}
 
+	/**
+	 * Adds the selected statements about the given individual to the list.
+	 */
+	void extractIndividualTriples(ATermAppl ind, Collection<Triple> triples) {
 		/*
 		 * Initialize booleans that reflect the selector parameter - this avoids
 		 * doing set contains evaluations for each pass of the loop.
@@ -412,101 +462,87 @@ public class ModelExtractor {
 		final boolean objValues = selector.contains( StatementType.OBJECT_PROPERTY_VALUE );
 		final boolean dataValues = selector.contains( StatementType.DATA_PROPERTY_VALUE );
 
-		if( classes )
-			kb.realize();
+		Node s, p;
+		
+		s = makeGraphNode( ind );
 
-		List<Triple> triples = new ArrayList<Triple>();
+		if( classes ) {
 
-		for( ATermAppl ind : kb.getIndividuals() ) {
+			p = RDF.type.asNode();
 
-			triples.clear();
+			Set<Set<ATermAppl>> types = kb.getTypes( ind, !allClasses );
 
-			Node s, p;
-			
-			s = makeGraphNode( ind );
+			Iterator<ATermAppl> i = IteratorUtils.flatten( types.iterator() ); 
+			while( i.hasNext() ) {
+				Node o = makeGraphNode( i.next() );
+				addTriple( triples, s, p, o );
+			}
 
-			if( classes ) {
+			if( jenaDirectClasses ) {
 
-				p = RDF.type.asNode();
+				p = ReasonerVocabulary.directRDFType.asNode();
 
-				Set<Set<ATermAppl>> types = kb.getTypes( ind, !allClasses );
+				Set<Set<ATermAppl>> directTypes = allClasses
+					? kb.getTypes( ind, true )
+					: types;
 
-				Iterator<ATermAppl> i = IteratorUtils.flatten( types.iterator() ); 
+				i = IteratorUtils.flatten( directTypes.iterator() ); 
 				while( i.hasNext() ) {
 					Node o = makeGraphNode( i.next() );
 					addTriple( triples, s, p, o );
 				}
-
-				if( jenaDirectClasses ) {
-
-					p = ReasonerVocabulary.directRDFType.asNode();
-
-					Set<Set<ATermAppl>> directTypes = allClasses
-						? kb.getTypes( ind, true )
-						: types;
-
-					i = IteratorUtils.flatten( directTypes.iterator() ); 
-					while( i.hasNext() ) {
-						Node o = makeGraphNode( i.next() );
-						addTriple( triples, s, p, o );
-					}
-				}
 			}
+		}
 
-			if( sames ) {
-				p = OWL.sameAs.asNode();
-				addTriple( triples, s, p, s );
-				for( ATermAppl a : kb.getSames( ind ) ) {
-					addTriple( triples, s, p, makeGraphNode( a ) );
-				}
+		if( sames ) {
+			p = OWL.sameAs.asNode();
+			addTriple( triples, s, p, s );
+			for( ATermAppl a : kb.getSames( ind ) ) {
+				addTriple( triples, s, p, makeGraphNode( a ) );
 			}
+		}
 
-			if( diffs ) {
-				p = OWL.differentFrom.asNode();
-				for( ATermAppl a : kb.getDifferents( ind ) ) {
-					addTriple( triples, s, p, makeGraphNode( a ) );
-				}
+		if( diffs ) {
+			p = OWL.differentFrom.asNode();
+			for( ATermAppl a : kb.getDifferents( ind ) ) {
+				addTriple( triples, s, p, makeGraphNode( a ) );
 			}
+		}
 
-			if( dataValues || objValues ) {
+		if( dataValues || objValues ) {
 
-				for( Role role : kb.getRBox().getRoles() ) {
+			for( Role role : kb.getRBox().getRoles() ) {
 
-					if( role.isAnon() )
-						continue;
+				if( role.isAnon() )
+					continue;
 
-					List<ATermAppl> values;
-					ATermAppl name = role.getName();
-					if( role.isDatatypeRole() ) {
-						if( dataValues )
-							values = kb.getDataPropertyValues( name, ind );
-						else
-							continue;
-					}
-					else if( role.isObjectRole() ) {
-						if( objValues )
-							values = kb.getObjectPropertyValues( name, ind );
-						else
-							continue;
-					}
+				List<ATermAppl> values;
+				ATermAppl name = role.getName();
+				if( role.isDatatypeRole() ) {
+					if( dataValues )
+						values = kb.getDataPropertyValues( name, ind );
 					else
 						continue;
-
-					if( values.isEmpty() )
+				}
+				else if( role.isObjectRole() ) {
+					if( objValues )
+						values = kb.getObjectPropertyValues( name, ind );
+					else
 						continue;
+				}
+				else
+					continue;
 
-					p = makeGraphNode( name );
+				if( values.isEmpty() )
+					continue;
 
-					for( ATermAppl value : values ) {
-						addTriple( triples, s, p, makeGraphNode( value ) );
-					}
+				p = makeGraphNode( name );
+
+				for( ATermAppl value : values ) {
+					addTriple( triples, s, p, makeGraphNode( value ) );
 				}
 			}
-
-			model.getGraph().getBulkUpdateHandler().add( triples );
 		}
-
-		return model;
 	}
 
 	public Model extractModel() {
@@ -522,130 +558,187 @@ public class ModelExtractor {
 
 	}
 
+	/**
+	 * Writes the same statements {@link #extractModel()} would return to the
+	 * given stream. The statements are generated and written one entity at a
+	 * time so the whole inferred model is never held in memory. Unlike the
+	 * model, the stream does not remove duplicates so the statements of each
+	 * entity are written only once.
+	 * 
+	 * @param output
+	 *            the stream the statements will be written to
+	 */
+	public void extractModel(StreamRDF output) {
+		Set<Triple> triples = new LinkedHashSet<Triple>();
+
+		output.start();
+
+		prepareClasses();
+		for( ATermAppl c : kb.getAllClasses() ) {
+			triples.clear();
+			extractClassTriples( c, triples );
+			write( output, triples );
+		}
+
+		prepareProperties();
+		for( Role role : kb.getRBox().getRoles() ) {
+			triples.clear();
+			extractPropertyTriples( role, triples );
+			write( output, triples );
+		}
+
+		prepareIndividuals();
+		for( ATermAppl ind : kb.getIndividuals() ) {
+			triples.clear();
+			extractIndividualTriples( ind, triples );
+			write( output, triples );
+		}
+
+		output.finish();
+	}
+
+	private static void write(StreamRDF output, Collection<Triple> triples) {
+		for( Triple triple : triples ) {
+			output.triple( triple );
+		}
+	}
+
 	public Model extractPropertyModel() {
 		return extractPropertyModel( ModelFactory.createDefaultModel() );
 	}
 
 	public Model extractPropertyModel(Model model) {
-
-		final boolean allSubs = selector.contains( StatementType.ALL_SUBPROPERTY );
-		final boolean jenaDirectSubs = selector.contains( StatementType.JENA_DIRECT_SUBPROPERTY );
-		final boolean subs = allSubs || jenaDirectSubs
-				|| selector.contains( StatementType.DIRECT_SUBPROPERTY );
-		final boolean equivs = selector.contains( StatementType.EQUIVALENT_PROPERTY );
-		final boolean invs = selector.contains( StatementType.INVERSE_PROPERTY );
-		final boolean disjs = selector.contains( StatementType.DISJOINT_PROPERTY );
-
-		kb.prepare();
+		prepareProperties();
 
 		List<Triple> triples = new ArrayList<Triple>();
 
 		for( Role role : kb.getRBox().getRoles() ) {
-
 			triples.clear();
 
-			if( role.isAnon() )
-				continue;
+			extractPropertyTriples( role, triples );
 
-			ATermAppl name = role.getName();
+			model.getGraph().getBulkUpdateHandler().add( triples );
+		}
 
-			Node s, p;
+		return model;
+	}
 
-			s = makeGraphNode( name );
-			p = RDF.type.asNode();
+	/**
+	 * Make sure the KB is ready to answer the selected property statements.
+	 */
+	void prepareProperties() {
+		kb.prepare();
+	}
 
-			if( role.isDatatypeRole() )
-				addTriple( triples, s, p, OWL.DatatypeProperty.asNode() );
-			else if( role.isObjectRole() )
-				addTriple( triples, s, p, OWL.ObjectProperty.asNode() );
-			else
-				continue;
-
-			if( role.isFunctional() )
-				addTriple( triples, s, p, OWL.FunctionalProperty.asNode() );
-			if( role.isInverseFunctional() )
-				addTriple( triples, s, p, OWL.InverseFunctionalProperty.asNode() );
-			if( role.isTransitive() )
-				addTriple( triples, s, p, OWL.TransitiveProperty.asNode() );
-			if( role.isSymmetric() )
-				addTriple( triples, s, p, OWL.SymmetricProperty.asNode() );
-
-			if( equivs ) {
-				p = OWL.equivalentProperty.asNode();
-				for( ATermAppl eq : kb.getAllEquivalentProperties( name ) ) {
-					Node o = makeGraphNode( eq );
-					addTriple( triples, s, p, o );
-					if( allSubs )
-						addTriple( triples, s, RDFS.subPropertyOf.asNode(), o );
-				}
+	/**
+	 * Adds the selected statements about the given property to the list.
+	 */
+	void extractPropertyTriples(Role role, Collection<Triple> triples) {
+		final boolean allSubs = selector.contains( StatementType.ALL_SUBPROPERTY );
+		final boolean jenaDirectSubs = selector.contains( StatementType.JENA_DIRECT_SUBPROPERTY );
+		final boolean subs = allSubs || jenaDirectSubs
+				|| selector.contains( StatementType.DIRECT_SUBPROPERTY );
+		final boolean equivs = selector.contains( StatementType.EQUIVALENT_PROPERTY );
+		final boolean invs = selector.contains( StatementType.INVERSE_PROPERTY );
+		final boolean disjs = selector.contains( StatementType.DISJOINT_PROPERTY );
+
+		if( role.isAnon() )
+			return;
+
+		ATermAppl name = role.getName();
+
+		Node s, p;
+
+		s = makeGraphNode( name );
+		p = RDF.type.asNode();
+
+		if( role.isDatatypeRole() )
+			addTriple( triples, s, p, OWL.DatatypeProperty.asNode() );
+		else if( role.isObjectRole() )
+			addTriple( triples, s, p, OWL.ObjectProperty.asNode() );
+		else
+			return;
+
+		if( role.isFunctional() )
+			addTriple( triples, s, p, OWL.FunctionalProperty.asNode() );
+		if( role.isInverseFunctional() )
+			addTriple( triples, s, p, OWL.InverseFunctionalProperty.asNode() );
+		if( role.isTransitive() )
+			addTriple( triples, s, p, OWL.TransitiveProperty.asNode() );
+		if( role.isSymmetric() )
+			addTriple( triples, s, p, OWL.SymmetricProperty.asNode() );
+
+		if( equivs ) {
+			p = OWL.equivalentProperty.asNode();
+			for( ATermAppl eq : kb.getAllEquivalentProperties( name ) ) {
+				Node o = makeGraphNode( eq );
+				addTriple( triples, s, p, o );
+				if( allSubs )
+					addTriple( triples, s, RDFS.subPropertyOf.asNode(), o );
 			}
+		}
 
-			if( invs ) {
-				Set<ATermAppl> inverses = kb.getInverses( name );
-				if( !inverses.isEmpty() ) {
-					p = OWL.inverseOf.asNode();
-					for( ATermAppl inverse : inverses ) {
-						addTriple( triples, s, p, makeGraphNode( inverse ) );
-					}
+		if( invs ) {
+			Set<ATermAppl> inverses = kb.getInverses( name );
+			if( !inverses.isEmpty() ) {
+				p = OWL.inverseOf.asNode();
+				for( ATermAppl inverse : inverses ) {
+					addTriple( triples, s, p, makeGraphNode( inverse ) );
 				}
 			}
-			
-			if( disjs ) {
-				Set<Set<ATermAppl>> disjoints = kb.getDisjointProperties( name );
-				if( !disjoints.isEmpty() ) {
-					p = OWL2.propertyDisjointWith.asNode();
-					
-					Iterator<ATermAppl> i = IteratorUtils.flatten( disjoints.iterator() ); 
-					while( i.hasNext() ) {
-						Node o = makeGraphNode( i.next() );						
-						addTriple( triples, s, p, o );						
-					}
+		}
+		
+		if( disjs ) {
+			Set<Set<ATermAppl>> disjoints = kb.getDisjointProperties( name );
+			if( !disjoints.isEmpty() ) {
+				p = OWL2.propertyDisjointWith.asNode();
+				
+				Iterator<ATermAppl> i = IteratorUtils.flatten( disjoints.iterator() ); 
+				while( i.hasNext() ) {
+					Node o = makeGraphNode( i.next() );						
+					addTriple( triples, s, p, o );						
 				}
 			}
+		}
 
-			if( subs ) {
-				p = RDFS.subPropertyOf.asNode();
+		if( subs ) {
+			p = RDFS.subPropertyOf.asNode();
 
-				if( allSubs ) {
-					Set<ATermAppl> eqs = kb.getAllEquivalentProperties( name );
-					for( ATermAppl eq : eqs ) {
-						Node o = makeGraphNode( eq );
-						addTriple( triples, s, p, o );
-					}
+			if( allSubs ) {
+				Set<ATermAppl> eqs = kb.getAllEquivalentProperties( name );
+				for( ATermAppl eq : eqs ) {
+					Node o = makeGraphNode( eq );
+					addTriple( triples, s, p, o );
+				}
+			}
+			
+			Set<Set<ATermAppl>> supers = kb.getSuperProperties( name, !allSubs );
+
+			if( !supers.isEmpty() ) {
+				Iterator<ATermAppl> i = IteratorUtils.flatten( supers.iterator() ); 
+				while( i.hasNext() ) {
+					Node o = makeGraphNode( i.next() );
+					addTriple( triples, s, p, o );
 				}
-				
-				Set<Set<ATermAppl>> supers = kb.getSuperProperties( name, !allSubs );
 
-				if( !supers.isEmpty() ) {
-					Iterator<ATermAppl> i = IteratorUtils.flatten( supers.iterator() ); 
+				if( jenaDirectSubs ) {
+					p = ReasonerVocabulary.directSubPropertyOf.asNode();
+					
+					Set<Set<ATermAppl>> direct = allSubs
+						? kb.getSuperProperties( name, true )
+						: supers;
+					i = IteratorUtils.flatten( direct.iterator() ); 
 					while( i.hasNext() ) {
 						Node o = makeGraphNode( i.next() );
 						addTriple( triples, s, p, o );
 					}
-
-					if( jenaDirectSubs ) {
-						p = ReasonerVocabulary.directSubPropertyOf.asNode();
-						
-						Set<Set<ATermAppl>> direct = allSubs
-							? kb.getSuperProperties( name, true )
-							: supers;
-						i = IteratorUtils.flatten( direct.iterator() ); 
-						while( i.hasNext() ) {
-							Node o = makeGraphNode( i.next() );
-							addTriple( triples, s, p, o );
-						}
-					}
 				}
 			}
-
-			// FIXME: Add domain statements
-
-			// FIXME: Add range statements
-
-			model.getGraph().getBulkUpdateHandler().add( triples );
 		}
 
-		return model;
+		// FIXME: Add domain statements
+
+		// FIXME: Add range statements
 	}
 
 	/**
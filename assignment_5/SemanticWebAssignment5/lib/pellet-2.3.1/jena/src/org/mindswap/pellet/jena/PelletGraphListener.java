@@ -13,6 +13,7 @@ import java.util.Set;
 
 import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.vocabulary.OWL2;
 import org.mindswap.pellet.utils.iterator.IteratorUtils;
 
 import aterm.ATermAppl;
@@ -24,6 +25,7 @@ import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.graph.compose.MultiUnion;
 import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.vocabulary.OWL;
 import com.hp.hpl.jena.vocabulary.RDF;
 
 /**
@@ -31,7 +33,9 @@ import com.hp.hpl.jena.vocabulary.RDF;
  * processes the change event. The listener is passed a possibly union
  * graph but the listener is attached only to leaf (non-union) graphs.
  * The listener keeps track which graph is changed and also checks
- * if subgraphs are added or removed from the root graph. 
+ * if subgraphs are added or removed from the root graph. ABox triples added to
+ * or deleted from a graph are buffered and applied to the KB with
+ * {@link #applyABoxChanges()} so the graph does not need to be reloaded.
  * 
  * @author Evren Sirin
  */
@@ -47,6 +51,11 @@ public class PelletGraphListener implements GraphListener {
 	
 	private boolean			statementDeleted;
 
+	// ABox triples added or deleted since the KB was last updated
+	private Set<Triple>		addedTriples;
+
+	private Set<Triple>		deletedTriples;
+
 	public PelletGraphListener(Graph rootGraph, KnowledgeBase kb) {
 		this.rootGraph = rootGraph;
 		this.kb = kb;
@@ -56,6 +65,9 @@ public class PelletGraphListener implements GraphListener {
 		
 		statementDeleted = false;
 		
+		addedTriples = CollectionUtils.makeSet();
+		deletedTriples = CollectionUtils.makeSet();
+		
 		collectLeafGraphs( rootGraph, Collections.<Graph>emptySet() );
 	}
 	
@@ -70,8 +82,21 @@ public class PelletGraphListener implements GraphListener {
 			if( !kb.getIndividuals().contains( s ) )
 				kb.addIndividual( s );
 
-			// add the type
-			kb.addType( s, o );
+			// add the type unless this is only a declaration
+			if( !t.getObject().equals( OWL2.NamedIndividual.asNode() ) )
+				kb.addType( s, o );
+		}
+		else if( t.getPredicate().equals( OWL.sameAs.asNode() )
+				|| t.getPredicate().equals( OWL.differentFrom.asNode() ) ) {
+			if( !kb.getIndividuals().contains( s ) )
+				kb.addIndividual( s );
+			if( !kb.getIndividuals().contains( o ) )
+				kb.addIndividual( o );
+
+			if( t.getPredicate().equals( OWL.sameAs.asNode() ) )
+				kb.addSame( s, o );
+			else
+				kb.addDifferent( s, o );
 		}
 		else {
 			// check if the subject is a new individual
@@ -98,10 +123,10 @@ public class PelletGraphListener implements GraphListener {
 				kb.removeType( s, o );
 		}
 		else {
-			// check if the subject is a new individual
-			if( kb.isIndividual( s ) && kb.isIndividual( o ) ) {
+			// check if the subject and the object are individuals
+			if( kb.isIndividual( s ) && (t.getObject().isLiteral() || kb.isIndividual( o )) ) {
 				ATermAppl p = JenaUtils.makeATerm( t.getPredicate() );
-				// add the property value
+				// remove the property value
 				kb.removePropertyValue( p, s, o );
 			}
 		}
@@ -135,6 +160,50 @@ public class PelletGraphListener implements GraphListener {
 		return PelletOptions.PROCESS_JENA_UPDATES_INCREMENTALLY && !statementDeleted && !changedGraphs.contains( g );
 	}
 
+	private void bufferAdd(Triple t) {
+		// an addition cancels a deletion that has not been applied yet
+		if( !deletedTriples.remove( t ) )
+			addedTriples.add( t );
+	}
+
+	private void bufferDelete(Triple t) {
+		// a deletion cancels an addition that has not been applied yet
+		if( !addedTriples.remove( t ) )
+			deletedTriples.add( t );
+	}
+
+	/**
+	 * Checks if the triple is still asserted in one of the leaf graphs, e.g.
+	 * it was deleted from only one of the graphs it was asserted in.
+	 */
+	private boolean isAsserted(Triple t) {
+		for( Graph graph : leafGraphs ) {
+			if( graph.contains( t ) )
+				return true;
+		}
+		
+		return false;
+	}
+
+	/**
+	 * Applies the buffered ABox triple additions and deletions to the KB. A
+	 * deleted triple that is still asserted in another leaf graph is not
+	 * removed from the KB.
+	 */
+	public void applyABoxChanges() {
+		for( Triple t : deletedTriples ) {
+			if( !isAsserted( t ) )
+				deleteABoxTriple( t );
+		}
+		
+		for( Triple t : addedTriples ) {
+			addABoxTriple( t );
+		}
+		
+		addedTriples.clear();
+		deletedTriples.clear();
+	}
+
 	public void dispose() {
 		for( Graph graph : leafGraphs ) {
 			graph.getEventManager().unregister( this );
@@ -142,12 +211,22 @@ public class PelletGraphListener implements GraphListener {
 		
 		leafGraphs.clear();
 		changedGraphs.clear();
+		addedTriples.clear();
+		deletedTriples.clear();
 
 		statementDeleted = false;
 	}
 	
+	/**
+	 * Returns true if there are ABox changes that have not been applied to the
+	 * KB yet.
+	 */
+	public boolean hasABoxChanges() {
+		return !addedTriples.isEmpty() || !deletedTriples.isEmpty();
+	}
+	
 	public boolean isChanged() {
-		if( statementDeleted || !changedGraphs.isEmpty() ) {
+		if( statementDeleted || !changedGraphs.isEmpty() || hasABoxChanges() ) {
 			return true;
 		}
 		
@@ -187,12 +266,17 @@ public class PelletGraphListener implements GraphListener {
 
 	/**
 	 * Checks if the given triple is an ABox assertion. Currently, only type
-	 * assertions with atomic concepts are detected and property assertions
+	 * assertions with atomic concepts, property assertions and additions of
+	 * individual declarations, sameAs and differentFrom assertions are
+	 * detected
 	 * 
 	 * @param t
+	 * @param addition
+	 *            <code>true</code> if the triple is added, <code>false</code>
+	 *            if it is deleted
 	 * @return
 	 */
-	private boolean isABoxChange(Triple t) {
+	private boolean isABoxChange(Triple t, boolean addition) {
 		Node o = t.getObject();
 		Node p = t.getPredicate();
 
@@ -203,6 +287,12 @@ public class PelletGraphListener implements GraphListener {
 				return false;
 			}
 
+			// deleting a declaration might remove the individual from the KB
+			// which can only be done by reloading
+			if( o.equals( OWL2.NamedIndividual.asNode() ) ) {
+				return addition;
+			}
+
 			// check that the object is an atomic concept that exists in the KB
 			ATermAppl object = JenaUtils.makeATerm( o );
 			if( !kb.isClass( object ) ) {
@@ -213,6 +303,20 @@ public class PelletGraphListener implements GraphListener {
 			// as it could be a newly added individual
 
 		}
+		else if( p.equals( OWL.sameAs.asNode() ) || p.equals( OWL.differentFrom.asNode() ) ) {
+			// these assertions cannot be removed from the KB incrementally and
+			// they should not be about classes or properties
+			if( !addition || o.isLiteral() ) {
+				return false;
+			}
+
+			ATermAppl subject = JenaUtils.makeATerm( t.getSubject() );
+			ATermAppl object = JenaUtils.makeATerm( o );
+			if( kb.isClass( subject ) || kb.isProperty( subject ) || kb.isClass( object )
+					|| kb.isProperty( object ) ) {
+				return false;
+			}
+		}
 		else {
 			// detect ABox property assertions
 			ATermAppl prop = JenaUtils.makeATerm( p );
@@ -244,11 +348,11 @@ public class PelletGraphListener implements GraphListener {
 		if( canUpdateIncrementally ) {
 			while( it.hasNext() ) {
 				Triple t = it.next();
-				if( !isABoxChange( t ) ) {
+				if( !isABoxChange( t, true ) ) {
 					canUpdateIncrementally = false;
 					break;
 				}
-				addABoxTriple( t );
+				bufferAdd( t );
 			}
 		}
 		
@@ -262,8 +366,8 @@ public class PelletGraphListener implements GraphListener {
 	}
 
 	public void notifyAddTriple(Graph g, Triple t) {
-		if( canUpdateIncrementally( g ) && isABoxChange( t ) ) {
-			addABoxTriple( t );
+		if( canUpdateIncrementally( g ) && isABoxChange( t, true ) ) {
+			bufferAdd( t );
 		}
 		else {
 			changedGraphs.add( g );
@@ -284,11 +388,11 @@ public class PelletGraphListener implements GraphListener {
 		if( canUpdateIncrementally ) {
 			while( it.hasNext() ) {
 				Triple t = it.next();
-				if( !isABoxChange( t ) ) {
+				if( !isABoxChange( t, false ) ) {
 					canUpdateIncrementally = false;
 					break;
 				}
-				deleteABoxTriple( t );
+				bufferDelete( t );
 			}
 		}
 		
@@ -303,8 +407,8 @@ public class PelletGraphListener implements GraphListener {
 	}
 
 	public void notifyDeleteTriple(Graph g, Triple t) {
-		if( canUpdateIncrementally( g ) && isABoxChange( t ) ) {
-			deleteABoxTriple( t );
+		if( canUpdateIncrementally( g ) && isABoxChange( t, false ) ) {
+			bufferDelete( t );
 		}
 		else {
 			statementDeleted = true;
@@ -319,6 +423,8 @@ public class PelletGraphListener implements GraphListener {
 	public void reset() {
 		changedGraphs.clear();
 		//leafGraphs.clear();
+		addedTriples.clear();
+		deletedTriples.clear();
 		statementDeleted = false;
 	}
 }
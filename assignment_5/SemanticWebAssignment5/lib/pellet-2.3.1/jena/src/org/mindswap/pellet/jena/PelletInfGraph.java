@@ -35,6 +35,7 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.jena.riot.system.StreamRDF;
 import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.jena.ModelExtractor.StatementType;
@@ -87,7 +88,7 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 	
 	private PelletGraphListener graphListener;
 	
-	private Graph				deductionsGraph;
+	private DeductionsGraph		deductionsGraph;
 	
 	private boolean				autoDetectChanges;
 	
@@ -175,7 +176,8 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 
 	@Override
     public boolean isPrepared() {
-		return isPrepared && (!autoDetectChanges || !graphListener.isChanged());
+		return isPrepared && !graphListener.hasABoxChanges()
+				&& (!autoDetectChanges || !graphListener.isChanged());
 	}
 	
 	private void load() {
@@ -189,7 +191,19 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 			reload();		
 		}
 		else {
-			load(changedGraphs);
+			// ABox changes are applied to the KB directly so the KB can check
+			// the consistency incrementally and the graphs are parsed again
+			// only if some other kind of triple changed
+			graphListener.applyABoxChanges();
+			
+			if( changedGraphs.isEmpty() ) {
+				graphListener.reset();
+				
+				clearDeductionsGraph();
+			}
+			else {
+				load(changedGraphs);
+			}
 		}		
 	}
 	
@@ -222,7 +236,18 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 		
 		graphListener.reset();
 
-		deductionsGraph = null;
+		clearDeductionsGraph();
+	}
+	
+	/**
+	 * Clears the statements cached by the deductions graph returned before the
+	 * KB changed, in case it is still used, and drops the graph.
+	 */
+	private void clearDeductionsGraph() {
+		if( deductionsGraph != null ) {
+			deductionsGraph.clearCache();
+			deductionsGraph = null;
+		}
 	}
 	
 	@Override
@@ -280,6 +305,19 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 		kb.realize();
 	}
 	
+	/**
+	 * Returns a graph of the inferred statements. The statements are computed
+	 * on demand from the KB when the graph is queried so the whole inferred
+	 * model is not materialized in memory. A find without a concrete subject
+	 * (which includes <code>contains</code> checks with a variable subject)
+	 * computes the statements of every class, property and individual, and
+	 * realizes the KB if type statements are extracted. The statements are
+	 * cached until the KB changes so only the first such find pays this cost.
+	 * Use {@link #writeDeductions(StreamRDF)} to export the inferences without
+	 * caching them.
+	 * 
+	 * @see DeductionsGraph
+	 */
 	@Override
     @SuppressWarnings("deprecation")
 	public Graph getDeductionsGraph() {
@@ -290,26 +328,25 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 		classify();
 
 		if( deductionsGraph == null ) {
-			if( log.isLoggable( Level.FINE ) ) {
-	            log.fine( "Realizing PelletInfGraph..." );
-            }
-			kb.realize();
-
-			if( log.isLoggable( Level.FINE ) ) {
-	            log.fine( "Extract model..." );
-            }
-
-			Model extractedModel = extractor.extractModel();
-			deductionsGraph = extractedModel.getGraph();
-
-			if( log.isLoggable( Level.FINE ) ) {
-	            log.fine( "done." );
-            }
+			deductionsGraph = new DeductionsGraph( extractor );
 		}
 
 		return deductionsGraph;
 	}
 
+	/**
+	 * Writes the statements in the deductions graph to the given stream one
+	 * entity at a time.
+	 * 
+	 * @param output
+	 *            the stream the statements will be written to
+	 */
+	public void writeDeductions(StreamRDF output) {
+		classify();
+
+		extractor.extractModel( output );
+	}
+
 	@Override
     protected boolean graphBaseContains(Triple pattern) {
 		if( getRawGraph().contains( pattern ) ) {
@@ -522,7 +559,8 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 	/**
 	 * <p>
 	 * Add one triple to the data graph, mark the graph not-prepared, but don't
-	 * run prepare() just yet.
+	 * run prepare() just yet. ABox triples are buffered by the graph listener
+	 * and added to the KB by the next prepare() without reloading.
 	 * </p>
 	 * 
 	 * @param t
@@ -537,7 +575,9 @@ public class PelletInfGraph extends BaseInfGraph implements InfGraph {
 	/**
 	 * <p>
 	 * Delete one triple from the data graph, mark the graph not-prepared, but
-	 * don't run prepare() just yet.
+	 * don't run prepare() just yet. ABox triples are buffered by the graph
+	 * listener and removed from the KB by the next prepare() without
+	 * reloading.
 	 * </p>
 	 * 
 	 * @param t
@@ -0,0 +1,196 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.jena.graph.loader;
+
+import java.util.EnumSet;
+
+import org.apache.jena.atlas.lib.Tuple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PropertyType;
+import org.mindswap.pellet.jena.BuiltinTerm;
+import org.mindswap.pellet.utils.Timer;
+
+import com.hp.hpl.jena.graph.Factory;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.core.Quad;
+
+/**
+ * <p>
+ * Title: Streaming Graph Loader
+ * </p>
+ * <p>
+ * Description: A graph loader that loads triples into the KB while they are
+ * being parsed so that the data does not need to be materialized in a Jena
+ * graph first, e.g. <code>RDFDataMgr.parse( loader, uri )</code>. Triples
+ * that can be translated in isolation are loaded as soon as they are
+ * received. These are the declarations of named classes, properties and
+ * individuals, the types of named individuals and the property values of
+ * named individuals for properties whose type is already known. All the other
+ * triples, i.e. the axioms that need the triples of bnodes (lists,
+ * restrictions, class expressions) and the property values for properties
+ * not yet declared, are buffered and loaded with the
+ * {@link DefaultGraphLoader} passes when the stream is finished. If the
+ * loader is set not to load the ABox, instance triples are discarded without
+ * being buffered.
+ * </p>
+ * <p>
+ * Since annotations of the ontology are recognized by the
+ * <code>owl:Ontology</code> type of their subject, they are only skipped if
+ * the ontology header is received before them (as is the case for the usual
+ * serializations).
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class StreamingGraphLoader extends DefaultGraphLoader implements StreamRDF {
+	/**
+	 * The types whose <code>rdf:type</code> triples only declare a named
+	 * entity and can be loaded immediately
+	 */
+	private static final EnumSet<BuiltinTerm>	DECLARATION_TYPES	= EnumSet.of(
+																			BuiltinTerm.RDF_Property,
+																			BuiltinTerm.RDFS_Class,
+																			BuiltinTerm.RDFS_Datatype,
+																			BuiltinTerm.OWL_Class,
+																			BuiltinTerm.OWL_Thing,
+																			BuiltinTerm.OWL2_NamedIndividual,
+																			BuiltinTerm.OWL_ObjectProperty,
+																			BuiltinTerm.OWL_DatatypeProperty,
+																			BuiltinTerm.OWL_AnnotationProperty );
+
+	private Timer								timer;
+
+	private long								streamedTriples;
+
+	public StreamingGraphLoader(KnowledgeBase kb) {
+		setKB( kb );
+	}
+
+	/**
+	 * Returns the number of triples loaded without being buffered.
+	 */
+	public long getStreamedTriples() {
+		return streamedTriples;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void start() {
+		timer = kb.timers.startTimer( "load" );
+
+		monitor.setProgressTitle( "Loading" );
+		monitor.taskStarted();
+
+		graph = Factory.createGraphMem();
+		streamedTriples = 0;
+
+		preprocess();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void triple(Triple triple) {
+		Node s = triple.getSubject();
+		Node p = triple.getPredicate();
+		Node o = triple.getObject();
+
+		if( !s.isURI() || o.isBlank() ) {
+			graph.add( triple );
+			return;
+		}
+
+		BuiltinTerm builtinTerm = BuiltinTerm.find( p );
+		if( builtinTerm == null ) {
+			// only TBox predicates are processed if ABox is not loaded
+			if( !isLoadABox() ) {
+				return;
+			}
+
+			PropertyType type = kb.getPropertyType( node2term( p ) );
+			if( type == PropertyType.UNTYPED ) {
+				graph.add( triple );
+			}
+			else {
+				streamedTriples++;
+				processTriple( triple );
+			}
+		}
+		else if( builtinTerm.equals( BuiltinTerm.RDF_type ) && o.isURI() ) {
+			BuiltinTerm type = BuiltinTerm.find( o );
+			if( type == null ) {
+				if( !isLoadABox() ) {
+					return;
+				}
+
+				streamedTriples++;
+				if( isPreprocessTypeTriples() ) {
+					processType( triple );
+				}
+				processTriple( triple );
+			}
+			else if( DECLARATION_TYPES.contains( type ) ) {
+				streamedTriples++;
+				processType( triple );
+			}
+			else {
+				graph.add( triple );
+			}
+		}
+		else {
+			graph.add( triple );
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void quad(Quad quad) {
+		triple( quad.asTriple() );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void tuple(Tuple<Node> tuple) {
+		addUnsupportedFeature( "Ignoring tuple: " + tuple );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void base(String base) {
+		// base IRIs are resolved by the parser
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void prefix(String prefix, String iri) {
+		// prefixes are not used by the KB
+	}
+
+	/**
+	 * Loads the buffered triples. {@inheritDoc}
+	 */
+	public void finish() {
+		processTypes();
+		processTriples();
+		processUntypedResources();
+
+		monitor.taskFinished();
+
+		timer.stop();
+	}
+}
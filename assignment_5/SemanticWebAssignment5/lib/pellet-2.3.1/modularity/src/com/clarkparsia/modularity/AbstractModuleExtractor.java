@@ -750,4 +750,21 @@ public abstract class AbstractModuleExtractor implements ModuleExtractor {
 		
 		modules = ModuleExtractorPersistence.loadModules( inputStream ); 
 	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public void restore(Collection<OWLAxiom> axioms, MultiValueMap<OWLEntity, OWLEntity> modules) {
+		additions.clear();
+		deletions.clear();
+		axiomEntities.clear();
+		entityAxioms.clear();
+		allClasses.clear();
+		axiomOntology = null;
+
+		additions.addAll( axioms );
+		resetModules();
+
+		this.modules = modules;
+	}
 }
@@ -181,6 +181,21 @@ public class IncrementalClassifier implements OWLReasoner, OWLOntologyChangeList
 	}
 	
 	public IncrementalClassifier(PersistedState persistedState, OWLOntology ontology) {
+		this( persistedState, ontology, OntologyDiff.diffAxiomsWithOntologies( persistedState
+				.getModuleExtractor().getAxioms(), Collections.singleton( ontology ) ) );
+	}
+	
+	/**
+	 * Creates a classifier for the given ontology from a persisted state whose
+	 * axioms are all contained in the ontology. Only the given axioms, which
+	 * were added to the ontology after the state was persisted, are applied so
+	 * the ontology is not compared with the axioms of the state again.
+	 */
+	public IncrementalClassifier(PersistedState persistedState, OWLOntology ontology, Collection<OWLAxiom> additions) {
+		this( persistedState, ontology, OntologyDiff.diffAxioms( Collections.<OWLAxiom>emptySet(), additions ) );
+	}
+	
+	private IncrementalClassifier(PersistedState persistedState, OWLOntology ontology, OntologyDiff diff) {
 		reasoner = PelletReasonerFactory.getInstance().createReasoner( ontology );
 		extractor = persistedState.getModuleExtractor();
 		taxonomy = persistedState.getTaxonomy();
@@ -188,8 +203,6 @@ public class IncrementalClassifier implements OWLReasoner, OWLOntologyChangeList
 		
 		modules = extractor.getModules();
 		
-		OntologyDiff diff = OntologyDiff.diffAxiomsWithOntologies( extractor.getAxioms(), Collections.singleton( ontology ) );
-		
 		if( !diff.areSame() ) {
 			for( OWLAxiom addition : diff.getAdditions() ) {
 				extractor.addAxiom( addition );
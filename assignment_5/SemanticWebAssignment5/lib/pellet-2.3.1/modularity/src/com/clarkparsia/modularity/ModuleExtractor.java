@@ -7,6 +7,7 @@
 package com.clarkparsia.modularity;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Set;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -187,4 +188,14 @@ public interface ModuleExtractor {
 	 * ModuleExtractor
 	 */
 	public void load(ZipInputStream inputStream) throws IOException, IllegalArgumentException;
+
+	/**
+	 * Restores the state of the ModuleExtractor from a set of axioms and the
+	 * modules previously computed for exactly these axioms. Any axioms or
+	 * modules already in the extractor are discarded.
+	 * 
+	 * @param axioms the axioms of the extractor
+	 * @param modules the modules computed for the axioms
+	 */
+	public void restore(Collection<OWLAxiom> axioms, MultiValueMap<OWLEntity, OWLEntity> modules);
 }
\ No newline at end of file
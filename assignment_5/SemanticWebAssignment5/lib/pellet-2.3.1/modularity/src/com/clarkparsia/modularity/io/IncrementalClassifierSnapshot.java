@@ -0,0 +1,597 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.modularity.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mindswap.pellet.taxonomy.Taxonomy;
+import org.mindswap.pellet.taxonomy.TaxonomyNode;
+import org.mindswap.pellet.utils.MultiValueMap;
+import org.mindswap.pellet.utils.TaxonomyUtils;
+import org.semanticweb.owlapi.model.EntityType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnonymousIndividual;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLCardinalityRestriction;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLFacetRestriction;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.SWRLBuiltInAtom;
+import org.semanticweb.owlapi.util.OWLObjectVisitorExAdapter;
+import org.semanticweb.owlapi.util.OWLObjectWalker;
+
+import com.clarkparsia.modularity.IncrementalClassifier;
+import com.clarkparsia.modularity.ModuleExtractor;
+import com.clarkparsia.modularity.ModuleExtractorFactory;
+import com.clarkparsia.owlapiv3.OWL;
+
+/**
+ * <p>
+ * Title: Incremental Classifier Snapshot
+ * </p>
+ * <p>
+ * Description: Provides a compact binary format for the internal state of
+ * IncrementalClassifier objects. Unlike {@link IncrementalClassifierPersistence}
+ * no OWL/XML ontologies are written or parsed. The snapshot consists of a
+ * header (magic number, format version and the realized flag), digests of the
+ * axioms the classifier was built from, a table of all the entities used in
+ * the snapshot, the taxonomy as an array of nodes referring to their super
+ * nodes by position and the module signatures as arrays of entity ids. All
+ * the values are written in big-endian order so a snapshot file can be
+ * memory-mapped and read directly (see {@link #load(File, OWLOntology)}).
+ * </p>
+ * <p>
+ * Axioms are not stored in the snapshot, instead a snapshot is always loaded
+ * for an ontology whose axioms are matched with the stored digests. Axioms
+ * added to the ontology since the snapshot was saved are applied
+ * incrementally by the loaded classifier. If any axiom was removed from the
+ * ontology, or the snapshot was written with a different format version, the
+ * snapshot is rejected with an IOException and the ontology should be
+ * classified again.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2009
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class IncrementalClassifierSnapshot {
+	/**
+	 * The magic number at the beginning of every snapshot
+	 */
+	private static final int					MAGIC			= 0x504c534e;
+
+	/**
+	 * The version of the snapshot format. Snapshots saved with a different
+	 * version cannot be loaded.
+	 */
+	public static final int						VERSION			= 2;
+
+	/**
+	 * The entity types in the order used to encode them in the entity table
+	 */
+	private static final List<EntityType<?>>	ENTITY_TYPES	= EntityType.values();
+
+	/**
+	 * Saves the internal state of an incremental classifier to an output
+	 * stream.
+	 *
+	 * @param classifier the classifier to be saved
+	 * @param outputStream the output stream where the snapshot should be saved
+	 * @throws IOException if an error should occur during the save operation
+	 * @throws IllegalStateException if there are changes that have not yet
+	 *             been applied to the classifier
+	 */
+	public static void save(IncrementalClassifier classifier, OutputStream outputStream)
+			throws IOException, IllegalStateException {
+		IncrementalClassifier.PersistedState persistedState = new IncrementalClassifier.PersistedState( classifier );
+
+		ModuleExtractor extractor = persistedState.getModuleExtractor();
+		if( extractor.isChanged() ) {
+			throw new IllegalStateException( "The module extractor contains unapplied changes to the modules, and therefore cannot be saved." );
+		}
+
+		Taxonomy<OWLClass> taxonomy = persistedState.getTaxonomy();
+		MultiValueMap<OWLEntity, OWLEntity> modules = extractor.getModules();
+
+		// number the taxonomy nodes, top and bottom first
+		Map<TaxonomyNode<OWLClass>, Integer> nodes = new LinkedHashMap<TaxonomyNode<OWLClass>, Integer>();
+		nodes.put( taxonomy.getTop(), 0 );
+		nodes.put( taxonomy.getBottom(), 1 );
+		for( TaxonomyNode<OWLClass> node : taxonomy.getNodes() ) {
+			if( !nodes.containsKey( node ) ) {
+				nodes.put( node, nodes.size() );
+			}
+		}
+
+		// collect the entities used in the taxonomy and the modules
+		Map<OWLEntity, Integer> entities = new LinkedHashMap<OWLEntity, Integer>();
+		for( TaxonomyNode<OWLClass> node : nodes.keySet() ) {
+			addEntities( entities, getEquivalents( node ) );
+			Collection<OWLNamedIndividual> instances = getInstances( node );
+			if( instances != null ) {
+				addEntities( entities, instances );
+			}
+		}
+		for( Map.Entry<OWLEntity, Set<OWLEntity>> module : modules.entrySet() ) {
+			addEntities( entities, module.getValue() );
+			addEntities( entities, Collections.singleton( module.getKey() ) );
+		}
+
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( outputStream ) );
+
+		out.writeInt( MAGIC );
+		out.writeInt( VERSION );
+		out.writeBoolean( persistedState.isRealized() );
+
+		long[] digests = getDigests( extractor.getAxioms() );
+		out.writeInt( digests.length );
+		for( long digest : digests ) {
+			out.writeLong( digest );
+		}
+
+		out.writeInt( entities.size() );
+		for( OWLEntity entity : entities.keySet() ) {
+			out.writeByte( ENTITY_TYPES.indexOf( entity.getEntityType() ) );
+			writeString( out, entity.getIRI().toString() );
+		}
+
+		out.writeInt( nodes.size() );
+		for( TaxonomyNode<OWLClass> node : nodes.keySet() ) {
+			writeIds( out, entities, getEquivalents( node ) );
+
+			out.writeInt( node.getSupers().size() );
+			for( TaxonomyNode<OWLClass> superNode : node.getSupers() ) {
+				out.writeInt( nodes.get( superNode ) );
+			}
+
+			Collection<OWLNamedIndividual> instances = getInstances( node );
+			if( instances == null ) {
+				out.writeInt( -1 );
+			}
+			else {
+				writeIds( out, entities, instances );
+			}
+		}
+
+		out.writeInt( modules.size() );
+		for( Map.Entry<OWLEntity, Set<OWLEntity>> module : modules.entrySet() ) {
+			out.writeInt( entities.get( module.getKey() ) );
+			writeIds( out, entities, module.getValue() );
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Loads an incremental classifier for the given ontology from a snapshot
+	 * file. The file is memory-mapped.
+	 *
+	 * @param file the file containing the snapshot
+	 * @param ontology the ontology the snapshot was saved for
+	 * @return the newly created incremental classifier
+	 * @throws IOException if an error should occur during the reading or the
+	 *             snapshot does not match the ontology
+	 */
+	public static IncrementalClassifier load(File file, OWLOntology ontology) throws IOException {
+		FileInputStream inputStream = new FileInputStream( file );
+		try {
+			FileChannel channel = inputStream.getChannel();
+
+			return load( channel.map( MapMode.READ_ONLY, 0, channel.size() ), ontology );
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Loads an incremental classifier for the given ontology from a snapshot
+	 * read from a stream.
+	 *
+	 * @param inputStream the input stream containing the snapshot
+	 * @param ontology the ontology the snapshot was saved for
+	 * @return the newly created incremental classifier
+	 * @throws IOException if an error should occur during the reading or the
+	 *             snapshot does not match the ontology
+	 */
+	public static IncrementalClassifier load(InputStream inputStream, OWLOntology ontology)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while( (read = inputStream.read( buffer )) != -1 ) {
+			bytes.write( buffer, 0, read );
+		}
+
+		return load( ByteBuffer.wrap( bytes.toByteArray() ), ontology );
+	}
+
+	/**
+	 * Loads an incremental classifier for the given ontology from a snapshot
+	 * stored in a buffer.
+	 *
+	 * @param buffer the buffer containing the snapshot starting at its current
+	 *            position
+	 * @param ontology the ontology the snapshot was saved for
+	 * @return the newly created incremental classifier
+	 * @throws IOException if the snapshot is not valid or does not match the
+	 *             ontology
+	 */
+	public static IncrementalClassifier load(ByteBuffer buffer, OWLOntology ontology) throws IOException {
+		try {
+			return read( buffer, ontology );
+		} catch( BufferUnderflowException e ) {
+			throw new IOException( "Unexpected end of the snapshot" );
+		} catch( IndexOutOfBoundsException e ) {
+			throw new IOException( "Invalid entity or node reference in the snapshot" );
+		}
+	}
+
+	private static IncrementalClassifier read(ByteBuffer buffer, OWLOntology ontology) throws IOException {
+		if( buffer.remaining() < 8 || buffer.getInt() != MAGIC ) {
+			throw new IOException( "The input is not an incremental classifier snapshot" );
+		}
+
+		int version = buffer.getInt();
+		if( version != VERSION ) {
+			throw new IOException( String.format( "Unsupported snapshot version %d. Expected %d", version, VERSION ) );
+		}
+
+		boolean realized = buffer.get() != 0;
+
+		// match the axioms of the ontology with the digests, the axioms saved
+		// in the snapshot are used by the module extractor while the remaining
+		// ones are added by the classifier without comparing the ontology with
+		// the axioms of the extractor again
+		int digestCount = buffer.getInt();
+		LongBuffer digests = buffer.slice().asLongBuffer();
+		digests.limit( digestCount );
+		buffer.position( buffer.position() + digestCount * 8 );
+
+		boolean[] matched = new boolean[digestCount];
+		int matchCount = 0;
+		List<OWLAxiom> axioms = new ArrayList<OWLAxiom>( digestCount );
+		List<OWLAxiom> additions = new ArrayList<OWLAxiom>();
+		for( OWLAxiom axiom : ontology.getAxioms() ) {
+			int index = binarySearch( digests, getDigest( axiom ) );
+			if( index >= 0 ) {
+				axioms.add( axiom );
+				if( !matched[index] ) {
+					matched[index] = true;
+					matchCount++;
+				}
+			}
+			else {
+				additions.add( axiom );
+			}
+		}
+
+		if( matchCount < digestCount ) {
+			throw new IOException( String.format( "The snapshot does not match the ontology, %d axioms were removed since it was saved", digestCount - matchCount ) );
+		}
+
+		OWLEntity[] entities = new OWLEntity[buffer.getInt()];
+		for( int i = 0; i < entities.length; i++ ) {
+			EntityType<?> type = ENTITY_TYPES.get( buffer.get() );
+			entities[i] = OWL.factory.getOWLEntity( type, IRI.create( readString( buffer ) ) );
+		}
+
+		Taxonomy<OWLClass> taxonomy = new Taxonomy<OWLClass>( null, OWL.Thing, OWL.Nothing );
+
+		int nodeCount = buffer.getInt();
+		List<TaxonomyNode<OWLClass>> nodes = new ArrayList<TaxonomyNode<OWLClass>>( nodeCount );
+		int[][] supers = new int[nodeCount][];
+		for( int i = 0; i < nodeCount; i++ ) {
+			List<OWLClass> equivalents = readEntities( buffer, buffer.getInt(), entities, OWLClass.class );
+
+			TaxonomyNode<OWLClass> node;
+			if( i == 0 ) {
+				node = taxonomy.getTop();
+			}
+			else if( i == 1 ) {
+				node = taxonomy.getBottom();
+			}
+			else {
+				node = taxonomy.addNode( equivalents.get( 0 ), false );
+			}
+			taxonomy.addEquivalents( node.getName(), equivalents.subList( 1, equivalents.size() ) );
+			nodes.add( node );
+
+			supers[i] = new int[buffer.getInt()];
+			for( int j = 0; j < supers[i].length; j++ ) {
+				supers[i][j] = buffer.getInt();
+			}
+
+			int instanceCount = buffer.getInt();
+			if( instanceCount >= 0 ) {
+				Set<OWLNamedIndividual> instances = new HashSet<OWLNamedIndividual>( readEntities(
+						buffer, instanceCount, entities, OWLNamedIndividual.class ) );
+				node.putDatum( TaxonomyUtils.INSTANCES_KEY, instances );
+			}
+		}
+
+		// replace the edges created when the nodes were added with the saved ones
+		TaxonomyNode<OWLClass> top = taxonomy.getTop();
+		TaxonomyNode<OWLClass> bottom = taxonomy.getBottom();
+		top.removeSub( bottom );
+		for( int i = 2; i < nodeCount; i++ ) {
+			top.removeSub( nodes.get( i ) );
+			nodes.get( i ).removeSub( bottom );
+		}
+		for( int i = 0; i < nodeCount; i++ ) {
+			for( int superNode : supers[i] ) {
+				nodes.get( superNode ).addSub( nodes.get( i ) );
+			}
+		}
+
+		MultiValueMap<OWLEntity, OWLEntity> modules = new MultiValueMap<OWLEntity, OWLEntity>();
+		int moduleCount = buffer.getInt();
+		for( int i = 0; i < moduleCount; i++ ) {
+			OWLEntity entity = entities[buffer.getInt()];
+			modules.put( entity, new HashSet<OWLEntity>( readEntities( buffer, buffer.getInt(), entities,
+					OWLEntity.class ) ) );
+		}
+
+		ModuleExtractor extractor = ModuleExtractorFactory.createModuleExtractor();
+		extractor.restore( axioms, modules );
+
+		IncrementalClassifier.PersistedState persistedState = new IncrementalClassifier.PersistedState( extractor, taxonomy, realized );
+
+		return new IncrementalClassifier( persistedState, ontology, additions );
+	}
+
+	/**
+	 * Returns the equivalents of a node with the name of the node first.
+	 */
+	private static List<OWLClass> getEquivalents(TaxonomyNode<OWLClass> node) {
+		List<OWLClass> equivalents = new ArrayList<OWLClass>( node.getEquivalents().size() );
+		equivalents.add( node.getName() );
+		for( OWLClass equivalent : node.getEquivalents() ) {
+			if( !equivalent.equals( node.getName() ) ) {
+				equivalents.add( equivalent );
+			}
+		}
+		return equivalents;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Collection<OWLNamedIndividual> getInstances(TaxonomyNode<OWLClass> node) {
+		return (Collection<OWLNamedIndividual>) node.getDatum( TaxonomyUtils.INSTANCES_KEY );
+	}
+
+	private static void addEntities(Map<OWLEntity, Integer> entities,
+			Collection<? extends OWLEntity> values) {
+		for( OWLEntity entity : values ) {
+			if( !entities.containsKey( entity ) ) {
+				entities.put( entity, entities.size() );
+			}
+		}
+	}
+
+	/**
+	 * Computes the sorted digests of the axioms. Duplicate digests are stored
+	 * only once.
+	 */
+	private static long[] getDigests(Collection<OWLAxiom> axioms) {
+		long[] digests = new long[axioms.size()];
+		int i = 0;
+		for( OWLAxiom axiom : axioms ) {
+			digests[i++] = getDigest( axiom );
+		}
+		Arrays.sort( digests );
+
+		int count = 0;
+		for( i = 0; i < digests.length; i++ ) {
+			if( count == 0 || digests[count - 1] != digests[i] ) {
+				digests[count++] = digests[i];
+			}
+		}
+
+		if( count == digests.length ) {
+			return digests;
+		}
+
+		long[] result = new long[count];
+		System.arraycopy( digests, 0, result, 0, count );
+		return result;
+	}
+
+	private static long getDigest(OWLAxiom axiom) {
+		return new DigestWalker( axiom ).getDigest();
+	}
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of the structure of an axiom: the types of
+	 * the axiom, class expressions, data ranges and entities, the IRIs,
+	 * literals and cardinalities in the order they are walked, each with the
+	 * depth of the expression it occurs in. The types are added with the hash
+	 * codes of their names, which are defined by the Java specification, while
+	 * IRIs and literals are hashed character by character. Unlike the hash code
+	 * of the axiom, the digest does not depend on the JVM and, unlike a hash of
+	 * the string representation, it does not render the axiom.
+	 */
+	private static class DigestWalker extends OWLObjectWalker<OWLAxiom> {
+		private long	hash	= 0xcbf29ce484222325L;
+
+		private int		depth;
+
+		public DigestWalker(OWLAxiom axiom) {
+			super( Collections.singleton( axiom ), true );
+		}
+
+		public long getDigest() {
+			walkStructure( new OWLObjectVisitorExAdapter<Object>() {
+				@Override
+				protected Object getDefaultReturnValue(OWLObject object) {
+					add( object );
+					return null;
+				}
+			} );
+
+			return hash;
+		}
+
+		private void add(OWLObject object) {
+			add( depth );
+
+			if( object instanceof OWLAxiom ) {
+				addType( ((OWLAxiom) object).getAxiomType().getName() );
+			}
+			else if( object instanceof OWLEntity ) {
+				addType( ((OWLEntity) object).getEntityType().getName() );
+			}
+			else if( object instanceof OWLClassExpression ) {
+				addType( ((OWLClassExpression) object).getClassExpressionType().getName() );
+				if( object instanceof OWLCardinalityRestriction<?, ?, ?> ) {
+					add( ((OWLCardinalityRestriction<?, ?, ?>) object).getCardinality() );
+				}
+			}
+			else if( object instanceof OWLDataRange ) {
+				addType( ((OWLDataRange) object).getDataRangeType().getName() );
+			}
+			else if( object instanceof IRI ) {
+				add( object.toString() );
+			}
+			else if( object instanceof OWLLiteral ) {
+				add( ((OWLLiteral) object).getLiteral() );
+				add( ((OWLLiteral) object).getLang() );
+			}
+			else if( object instanceof OWLAnonymousIndividual ) {
+				add( ((OWLAnonymousIndividual) object).getID().getID() );
+			}
+			else if( object instanceof OWLFacetRestriction ) {
+				add( ((OWLFacetRestriction) object).getFacet().getIRI().toString() );
+			}
+			else if( object instanceof SWRLBuiltInAtom ) {
+				add( ((SWRLBuiltInAtom) object).getPredicate().toString() );
+			}
+			else {
+				addType( object.getClass().getName() );
+			}
+		}
+
+		private void addType(String name) {
+			add( name.hashCode() );
+		}
+
+		private void add(String str) {
+			for( int i = 0; i < str.length(); i++ ) {
+				add( str.charAt( i ) );
+			}
+			add( str.length() );
+		}
+
+		private void add(int value) {
+			hash ^= value;
+			hash *= 0x100000001b3L;
+		}
+
+		@Override
+		protected void pushClassExpression(OWLClassExpression ce) {
+			super.pushClassExpression( ce );
+			depth++;
+		}
+
+		@Override
+		protected void popClassExpression() {
+			super.popClassExpression();
+			depth--;
+		}
+
+		@Override
+		protected void pushDataRange(OWLDataRange dr) {
+			super.pushDataRange( dr );
+			depth++;
+		}
+
+		@Override
+		protected void popDataRange() {
+			super.popDataRange();
+			depth--;
+		}
+	}
+
+	private static int binarySearch(LongBuffer digests, long digest) {
+		int low = 0;
+		int high = digests.limit() - 1;
+		while( low <= high ) {
+			int mid = (low + high) >>> 1;
+			long value = digests.get( mid );
+			if( value < digest ) {
+				low = mid + 1;
+			}
+			else if( value > digest ) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private static void writeIds(DataOutputStream out, Map<OWLEntity, Integer> entities,
+			Collection<? extends OWLEntity> values) throws IOException {
+		out.writeInt( values.size() );
+		for( OWLEntity entity : values ) {
+			out.writeInt( entities.get( entity ) );
+		}
+	}
+
+	private static <T extends OWLEntity> List<T> readEntities(ByteBuffer buffer, int count,
+			OWLEntity[] entities, Class<T> type) throws IOException {
+		List<T> result = new ArrayList<T>( count );
+		for( int i = 0; i < count; i++ ) {
+			OWLEntity entity = entities[buffer.getInt()];
+			if( !type.isInstance( entity ) ) {
+				throw new IOException( String.format( "Unexpected entity %s in the snapshot", entity ) );
+			}
+			result.add( type.cast( entity ) );
+		}
+		return result;
+	}
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes( "UTF-8" );
+		out.writeInt( bytes.length );
+		out.write( bytes );
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get( bytes );
+		return new String( bytes, "UTF-8" );
+	}
+}
@@ -61,7 +61,8 @@ public class EntailmentQueryVisitor extends OWLAxiomVisitorAdapter {
 	}
 	
 	public boolean isEntailed() {
-		QueryResult results = QueryEngine.exec( query );
+		// a single binding is enough to decide entailment
+		QueryResult results = QueryEngine.exec( query, 1, null );
 		return !results.isEmpty();
 		
 	}
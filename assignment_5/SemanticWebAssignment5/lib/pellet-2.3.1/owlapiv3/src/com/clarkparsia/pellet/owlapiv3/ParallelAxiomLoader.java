@@ -0,0 +1,310 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.owlapiv3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.exceptions.InternalReasonerException;
+import org.mindswap.pellet.exceptions.TimerInterruptedException;
+import org.mindswap.pellet.utils.Timer;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLNaryClassAxiom;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLObjectPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLPropertyExpression;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Parallel Axiom Loader
+ * </p>
+ * <p>
+ * Description: Loads ontologies into a KB with a pipeline of two stages. The
+ * entity declarations and axioms of the ontologies are split into batches and
+ * a pool of threads converts the entities and the class expressions of class
+ * axioms, and the individuals, properties and values of assertions in each
+ * batch to terms. A single thread (the caller) then visits the batches in
+ * order with the {@link PelletVisitor} of the loader, which uses the converted
+ * terms and adds the axioms to the KB exactly as sequential loading would.
+ * Class expressions that change the KB when they are visited, e.g.
+ * cardinality restrictions which mark their properties as simple, are
+ * converted by the KB thread. While a batch is added to the KB the following
+ * batches are being converted.
+ * </p>
+ * <p>
+ * The time spent in each stage is recorded in the timers of the KB:
+ * <code>loadConvert</code> is the total time spent by the converter threads,
+ * <code>loadApply</code> is the time spent updating the KB and
+ * <code>loadWait</code> is the time the KB thread waited for the converters.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ParallelAxiomLoader {
+	public final static Logger			log			= Logger.getLogger( ParallelAxiomLoader.class
+															.getName() );
+
+	/**
+	 * Number of entities and axioms converted by one task
+	 */
+	public static int					BATCH_SIZE	= 1000;
+
+	private static final AtomicInteger	poolCount	= new AtomicInteger();
+
+	private KnowledgeBase				kb;
+
+	private PelletVisitor				visitor;
+
+	private int							threadCount;
+
+	/**
+	 * A batch of entities and axioms together with the terms converted for
+	 * them
+	 */
+	private static class Batch implements Callable<Batch> {
+		private List<OWLObject>				items;
+
+		private Map<OWLObject, ATermAppl>	terms;
+
+		private Timer						timer;
+
+		private PelletVisitor				converter;
+
+		public Batch(List<OWLObject> items) {
+			this.items = items;
+		}
+
+		public Batch call() {
+			timer = new Timer( "loadConvert" );
+			timer.start();
+
+			converter = PelletVisitor.createConverter();
+			terms = new HashMap<OWLObject, ATermAppl>();
+
+			for( OWLObject item : items ) {
+				if( item instanceof OWLAxiom ) {
+					convertAxiom( (OWLAxiom) item );
+				}
+				else {
+					convert( item );
+				}
+			}
+
+			converter = null;
+
+			timer.stop();
+
+			return this;
+		}
+
+		/**
+		 * Converts the class expressions of class axioms, class assertions and
+		 * domain and range axioms, and the individuals, properties and values
+		 * of assertions. The entities used in other axioms are converted when
+		 * the axioms are added to the KB.
+		 */
+		private void convertAxiom(OWLAxiom axiom) {
+			if( axiom instanceof OWLSubClassOfAxiom ) {
+				convertExpression( ((OWLSubClassOfAxiom) axiom).getSubClass() );
+				convertExpression( ((OWLSubClassOfAxiom) axiom).getSuperClass() );
+			}
+			else if( axiom instanceof OWLNaryClassAxiom ) {
+				for( OWLClassExpression expression : ((OWLNaryClassAxiom) axiom)
+						.getClassExpressions() ) {
+					convertExpression( expression );
+				}
+			}
+			else if( axiom instanceof OWLClassAssertionAxiom ) {
+				convert( ((OWLClassAssertionAxiom) axiom).getIndividual() );
+				convertExpression( ((OWLClassAssertionAxiom) axiom).getClassExpression() );
+			}
+			else if( axiom instanceof OWLPropertyAssertionAxiom<?, ?> ) {
+				OWLPropertyAssertionAxiom<?, ?> assertion = (OWLPropertyAssertionAxiom<?, ?>) axiom;
+				OWLPropertyExpression<?, ?> property = assertion.getProperty();
+				convert( assertion.getSubject() );
+				if( !property.isAnonymous() ) {
+					convert( property );
+				}
+				convert( assertion.getObject() );
+			}
+			else if( axiom instanceof OWLPropertyDomainAxiom<?> ) {
+				convertExpression( ((OWLPropertyDomainAxiom<?>) axiom).getDomain() );
+			}
+			else if( axiom instanceof OWLObjectPropertyRangeAxiom ) {
+				convertExpression( ((OWLObjectPropertyRangeAxiom) axiom).getRange() );
+			}
+		}
+
+		/**
+		 * Converts a class expression unless its conversion has side effects
+		 * in which case it is left to the visitor adding the axiom.
+		 */
+		private void convertExpression(OWLClassExpression expression) {
+			if( !expression.isAnonymous() ) {
+				convert( expression );
+				return;
+			}
+
+			if( terms.containsKey( expression ) ) {
+				return;
+			}
+
+			converter.reset();
+			expression.accept( converter );
+			if( !converter.hasSideEffects() ) {
+				terms.put( expression, converter.result() );
+			}
+		}
+
+		private void convert(OWLObject obj) {
+			if( terms.containsKey( obj ) ) {
+				return;
+			}
+
+			if( obj instanceof OWLLiteral && !((OWLLiteral) obj).isRDFPlainLiteral() ) {
+				convert( ((OWLLiteral) obj).getDatatype() );
+			}
+
+			converter.reset();
+			obj.accept( converter );
+			terms.put( obj, converter.result() );
+		}
+	}
+
+	/**
+	 * Create a loader that adds the axioms to the KB using the given visitor.
+	 * The visitor should already be set to add axioms.
+	 */
+	public ParallelAxiomLoader(KnowledgeBase kb, PelletVisitor visitor, int threadCount) {
+		if( threadCount < 1 ) {
+			throw new IllegalArgumentException( "Invalid number of threads: " + threadCount );
+		}
+
+		this.kb = kb;
+		this.visitor = visitor;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Load the given ontologies. For each ontology the entities in its
+	 * signature are added before its axioms, as is done by
+	 * {@link PelletVisitor#visit(OWLOntology)}.
+	 */
+	public void load(Collection<OWLOntology> ontologies) {
+		List<OWLObject> items = new ArrayList<OWLObject>();
+		for( OWLOntology ontology : ontologies ) {
+			items.addAll( ontology.getSignature() );
+			items.addAll( ontology.getAxioms() );
+		}
+
+		final String prefix = "pellet-loader-" + poolCount.incrementAndGet() + "-";
+		ExecutorService executor = Executors.newFixedThreadPool( threadCount,
+				new ThreadFactory() {
+					private int	threadNumber	= 0;
+
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread( r, prefix + (++threadNumber) );
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+
+		// keep the converters busy while a batch is added without converting
+		// all the batches in advance
+		int maxPending = 2 * threadCount;
+		LinkedList<Future<Batch>> pending = new LinkedList<Future<Batch>>();
+		int next = 0;
+
+		try {
+			while( next < items.size() || !pending.isEmpty() ) {
+				while( next < items.size() && pending.size() < maxPending ) {
+					int end = Math.min( next + BATCH_SIZE, items.size() );
+					pending.add( executor.submit( new Batch( items.subList( next, end ) ) ) );
+					next = end;
+				}
+
+				Timer waitTimer = kb.timers.startTimer( "loadWait" );
+				Batch batch = pending.removeFirst().get();
+				waitTimer.stop();
+
+				apply( batch );
+			}
+		} catch( InterruptedException e ) {
+			cancel( pending );
+			throw new TimerInterruptedException( e );
+		} catch( ExecutionException e ) {
+			cancel( pending );
+
+			Throwable cause = e.getCause();
+			if( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			if( cause instanceof Error ) {
+				throw (Error) cause;
+			}
+			throw new InternalReasonerException( cause );
+		} finally {
+			executor.shutdownNow();
+			visitor.setTerms( null );
+		}
+	}
+
+	private void apply(Batch batch) {
+		Timer convertTimer = kb.timers.getTimer( "loadConvert" );
+		if( convertTimer == null ) {
+			convertTimer = kb.timers.createTimer( "loadConvert" );
+		}
+		convertTimer.add( batch.timer );
+
+		Timer timer = kb.timers.startTimer( "loadApply" );
+
+		visitor.setTerms( batch.terms );
+		for( OWLObject item : batch.items ) {
+			if( item instanceof OWLAxiom && log.isLoggable( Level.FINE ) ) {
+				log.fine( "Load " + item );
+			}
+
+			item.accept( visitor );
+		}
+		visitor.setTerms( null );
+
+		timer.stop();
+	}
+
+	private void cancel(List<? extends Future<?>> futures) {
+		for( Future<?> future : futures ) {
+			future.cancel( false );
+		}
+	}
+}
@@ -42,6 +42,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.exceptions.InternalReasonerException;
 import org.mindswap.pellet.utils.Timer;
 import org.semanticweb.owlapi.model.AddAxiom;
@@ -259,8 +260,15 @@ public class PelletLoader {
 		visitor.reset();
 		visitor.setAddAxiom( true );
 
-		for( OWLOntology ontology : toBeLoaded )
-			ontology.accept( visitor );
+		if( PelletOptions.LOADER_THREADS > 1 ) {
+			ParallelAxiomLoader loader = new ParallelAxiomLoader( kb, visitor,
+					PelletOptions.LOADER_THREADS );
+			loader.load( toBeLoaded );
+		}
+		else {
+			for( OWLOntology ontology : toBeLoaded )
+				ontology.accept( visitor );
+		}
 		
 		visitor.verify();
 
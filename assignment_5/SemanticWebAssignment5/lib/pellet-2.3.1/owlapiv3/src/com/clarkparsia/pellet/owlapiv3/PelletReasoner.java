@@ -11,6 +11,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.exceptions.InternalReasonerException;
 import org.mindswap.pellet.exceptions.PelletRuntimeException;
 import org.mindswap.pellet.utils.ATermUtils;
@@ -963,8 +964,15 @@ public class PelletReasoner implements OWLReasoner, OWLOntologyChangeListener  {
 		importsClosure = ontology.getImportsClosure();
 		
 		visitor.setAddAxiom( true );
-		for ( OWLOntology ont : importsClosure ) {
-			ont.accept( visitor );
+		if( PelletOptions.LOADER_THREADS > 1 ) {
+			ParallelAxiomLoader loader = new ParallelAxiomLoader( kb, visitor,
+					PelletOptions.LOADER_THREADS );
+			loader.load( importsClosure );
+		}
+		else {
+			for ( OWLOntology ont : importsClosure ) {
+				ont.accept( visitor );
+			}
 		}
 		visitor.verify();
 		
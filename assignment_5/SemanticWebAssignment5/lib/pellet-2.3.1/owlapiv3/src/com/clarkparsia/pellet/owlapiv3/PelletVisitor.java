@@ -86,6 +86,12 @@ public class PelletVisitor implements OWLObjectVisitor {
 	private boolean														addAxioms;
 
 	private boolean														reloadRequired;
+
+	/**
+	 * Set when an object is visited whose conversion changes the KB other
+	 * than by adding the entities it uses, see {@link #hasSideEffects()}
+	 */
+	private boolean														sideEffects;
 	
 	private Set<OWLAxiom>												unsupportedAxioms;
 
@@ -98,12 +104,29 @@ public class PelletVisitor implements OWLObjectVisitor {
 	private MultiValueMap<OWLObjectProperty, OWLObjectPropertyAxiom>	compositePropertyAxioms;
 	private Set<OWLObjectProperty>										simpleProperties;
 
+	/**
+	 * Terms computed in advance for entities and literals, see
+	 * {@link #setTerms(Map)}
+	 */
+	private Map<OWLObject, ATermAppl>									terms;
+
 	public PelletVisitor(KnowledgeBase kb) {
 		this.kb = kb;
 
 		clear();
 	}
 
+	/**
+	 * Create a visitor that only converts OWL objects to terms without
+	 * accessing any KB. Since the ATerm factory is shared by all threads,
+	 * converters can be used by different threads than the one loading the
+	 * KB. Only entities, individuals, literals, class expressions and data
+	 * ranges should be converted.
+	 */
+	static PelletVisitor createConverter() {
+		return new PelletVisitor( null );
+	}
+
 	/**
 	 * Clear the visitor cache about simple properties. Should be called before
 	 * a reload.
@@ -134,6 +157,8 @@ public class PelletVisitor implements OWLObjectVisitor {
 	}
 
 	private void addSimpleProperty(OWLObjectPropertyExpression ope) {
+		sideEffects = true;
+
 		if( !addAxioms ) {
 			// no need to mark simple properties during removal 
 			return;
@@ -177,6 +202,55 @@ public class PelletVisitor implements OWLObjectVisitor {
 		return term;
 	}
 
+	/**
+	 * Returns <code>true</code> if the objects visited since the last
+	 * {@link #reset()} change the KB when they are visited by a visitor that
+	 * adds axioms, other than by adding the entities they use, e.g. a
+	 * cardinality restriction marks its property as simple.
+	 */
+	boolean hasSideEffects() {
+		return sideEffects;
+	}
+
+	/**
+	 * Set the terms that have already been computed (e.g. by a converter
+	 * running in a different thread) for entities, individuals, literals and
+	 * class expressions. The terms are used instead of creating new terms for
+	 * these objects. Entities, individuals and literals are still added to the
+	 * KB as usual but a class expression with a precomputed term is not
+	 * visited at all. So only class expressions without side effects (see
+	 * {@link #hasSideEffects()}) whose entities have already been added to the
+	 * KB should be given.
+	 * 
+	 * @param terms
+	 *            the precomputed terms or <code>null</code> to create all
+	 *            terms while visiting
+	 */
+	void setTerms(Map<OWLObject, ATermAppl> terms) {
+		this.terms = terms;
+	}
+
+	private ATermAppl getTerm(OWLObject obj) {
+		return terms == null
+			? null
+			: terms.get( obj );
+	}
+
+	/**
+	 * Use the precomputed term of a class expression, if there is one.
+	 * 
+	 * @return <code>true</code> if the expression does not need to be
+	 *         visited
+	 */
+	private boolean usePrecomputedTerm(OWLClassExpression expression) {
+		ATermAppl precomputed = getTerm( expression );
+		if( precomputed == null )
+			return false;
+
+		term = precomputed;
+		return true;
+	}
+
 	/**
 	 * Reset the visitor state about created terms. Should be called before
 	 * every visit so terms created earlier will not affect the future results.
@@ -184,6 +258,7 @@ public class PelletVisitor implements OWLObjectVisitor {
 	public void reset() {
 		term = null;
 		reloadRequired = false;
+		sideEffects = false;
 	}
 
 	
@@ -192,8 +267,11 @@ public class PelletVisitor implements OWLObjectVisitor {
 			term = ATermUtils.TOP;
 		else if( c.isOWLNothing() )
 			term = ATermUtils.BOTTOM;
-		else
-			term = ATermUtils.makeTermAppl( c.getIRI().toString() );
+		else {
+			term = getTerm( c );
+			if( term == null )
+				term = ATermUtils.makeTermAppl( c.getIRI().toString() );
+		}
 
 		if( addAxioms ) {
 			kb.addClass( term );
@@ -202,7 +280,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLAnnotationProperty prop) {
-		term = ATermUtils.makeTermAppl( prop.getIRI().toString() );
+		term = getTerm( prop );
+		if( term == null )
+			term = ATermUtils.makeTermAppl( prop.getIRI().toString() );
 
 		if( addAxioms ) {
 			kb.addAnnotationProperty( term );
@@ -211,7 +291,11 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLAnonymousIndividual ind) {
-		term = ATermUtils.makeBnode( ind.toStringID() );
+		sideEffects = true;
+
+		term = getTerm( ind );
+		if( term == null )
+			term = ATermUtils.makeBnode( ind.toStringID() );
 
 		if( addAxioms ) {
 			kb.addIndividual( term );
@@ -220,8 +304,11 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLNamedIndividual ind) {
-		term = ATermUtils.makeTermAppl( ind.getIRI().toString() );
-		
+		term = getTerm( ind );
+		if( term == null )
+			term = ATermUtils.makeTermAppl( ind.getIRI().toString() );
+
+
 		if( addAxioms ) {
 			kb.addIndividual( term );
 		}
@@ -236,7 +323,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 			term = ATermUtils.BOTTOM_OBJECT_PROPERTY;
 		}
 		else {
-			term = ATermUtils.makeTermAppl( prop.getIRI().toString() );
+			term = getTerm( prop );
+			if( term == null )
+				term = ATermUtils.makeTermAppl( prop.getIRI().toString() );
 
 			if( addAxioms ) {
 				kb.addObjectProperty( term );
@@ -262,7 +351,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 			term = ATermUtils.BOTTOM_DATA_PROPERTY;
 		}
 		else {
-			term = ATermUtils.makeTermAppl( prop.getIRI().toString() );
+			term = getTerm( prop );
+			if( term == null )
+				term = ATermUtils.makeTermAppl( prop.getIRI().toString() );
 
 			if( addAxioms ) {
 				kb.addDatatypeProperty( term );
@@ -272,7 +363,15 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLLiteral constant) {
-		if( constant.isRDFPlainLiteral() ) {
+		ATermAppl literal = getTerm( constant );
+		if( literal != null ) {
+			// the datatype is still visited so that it is added to the KB
+			if( !constant.isRDFPlainLiteral() )
+				constant.getDatatype().accept( this );
+
+			term = literal;
+		}
+		else if( constant.isRDFPlainLiteral() ) {
 			String lexicalValue = constant.getLiteral();
 			String lang = constant.getLang();
 
@@ -292,13 +391,21 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLDatatype ocdt) {
-		term = ATermUtils.makeTermAppl( ocdt.getIRI().toString() );
+		sideEffects = true;
+
+		term = getTerm( ocdt );
+		if( term == null )
+			term = ATermUtils.makeTermAppl( ocdt.getIRI().toString() );
 
-		kb.addDatatype( term );
+		if( kb != null )
+			kb.addDatatype( term );
 	}
 
 	
 	public void visit(OWLObjectIntersectionOf and) {
+		if( usePrecomputedTerm( and ) )
+			return;
+
 		Set<OWLClassExpression> operands = and.getOperands();
 		ATerm[] terms = new ATerm[operands.size()];
 		int size = 0;
@@ -316,6 +423,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLObjectUnionOf or) {
+		if( usePrecomputedTerm( or ) )
+			return;
+
 		Set<OWLClassExpression> operands = or.getOperands();
 		ATerm[] terms = new ATerm[operands.size()];
 		int size = 0;
@@ -333,6 +443,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLObjectComplementOf not) {
+		if( usePrecomputedTerm( not ) )
+			return;
+
 		OWLClassExpression desc = not.getOperand();
 		desc.accept( this );
 
@@ -341,6 +454,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLObjectOneOf enumeration) {
+		if( usePrecomputedTerm( enumeration ) )
+			return;
+
 		Set<OWLIndividual> operands = enumeration.getIndividuals();
 		ATerm[] terms = new ATerm[operands.size()];
 		int size = 0;
@@ -358,6 +474,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLObjectSomeValuesFrom restriction) {
+		if( usePrecomputedTerm( restriction ) )
+			return;
+
 		restriction.getProperty().accept( this );
 		ATerm p = term;
 		restriction.getFiller().accept( this );
@@ -368,6 +487,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLObjectAllValuesFrom restriction) {
+		if( usePrecomputedTerm( restriction ) )
+			return;
+
 		restriction.getProperty().accept( this );
 		ATerm p = term;
 		restriction.getFiller().accept( this );
@@ -378,6 +500,9 @@ public class PelletVisitor implements OWLObjectVisitor {
 
 	
 	public void visit(OWLObjectHasValue restriction) {
+		if( usePrecomputedTerm( restriction ) )
+			return;
+
 		restriction.getProperty().accept( this );
 		ATerm p = term;
 		restriction.getValue().accept( this );
@@ -0,0 +1,51 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.jena.JenaLoader;
+
+/**
+ * <p>
+ * Title: Abstract Benchmark
+ * </p>
+ * <p>
+ * Description: Base class for benchmarks that optionally work on a KB loaded
+ * from a file.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public abstract class AbstractBenchmark implements Benchmark {
+	private String	name;
+
+	protected AbstractBenchmark(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getOperations() {
+		return 1;
+	}
+
+	public void tearDown() {
+	}
+
+	protected static KnowledgeBase load(String file) {
+		JenaLoader loader = new JenaLoader();
+		loader.setIgnoreImports( true );
+
+		return loader.createKB( file );
+	}
+}
@@ -0,0 +1,54 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+/**
+ * <p>
+ * Title: Benchmark
+ * </p>
+ * <p>
+ * Description: A single operation that is executed repeatedly by the
+ * {@link BenchmarkRunner}. Any preparation that should not be measured (e.g.
+ * loading an ontology) is done in {@link #setUp()}.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public interface Benchmark {
+	/**
+	 * Name of the benchmark used in the reports
+	 */
+	public String getName();
+
+	/**
+	 * Prepare the data used by the benchmark. Called once before the warmup
+	 * iterations.
+	 */
+	public void setUp() throws Exception;
+
+	/**
+	 * Number of operations performed by a single call to {@link #run()}. Very
+	 * cheap operations are executed in batches so that the cost of reading the
+	 * clock does not dominate the measurement.
+	 */
+	public int getOperations();
+
+	/**
+	 * Execute the operation(s). The returned value should depend on the
+	 * results of the operations so the JIT compiler cannot eliminate them.
+	 */
+	public int run();
+
+	/**
+	 * Release the data used by the benchmark.
+	 */
+	public void tearDown();
+}
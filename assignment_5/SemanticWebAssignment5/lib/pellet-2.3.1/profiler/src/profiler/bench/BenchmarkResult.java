@@ -0,0 +1,118 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
+
+/**
+ * <p>
+ * Title: Benchmark Result
+ * </p>
+ * <p>
+ * Description: Per operation measurements of the iterations of a benchmark.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class BenchmarkResult {
+	private String					name;
+
+	// time per operation in nanoseconds
+	private DescriptiveStatistics	time		= new DescriptiveStatistics();
+
+	// allocated bytes per operation (empty if allocation is not measured)
+	private DescriptiveStatistics	allocation	= new DescriptiveStatistics();
+
+	private long					operations;
+
+	private long					gcCount;
+
+	private long					gcTime;
+
+	public BenchmarkResult(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Add the measurements of one iteration.
+	 * 
+	 * @param operations
+	 *            number of operations performed
+	 * @param time
+	 *            total time in nanoseconds
+	 * @param allocated
+	 *            total allocated bytes or negative if unknown
+	 * @param gcCount
+	 *            number of garbage collections
+	 * @param gcTime
+	 *            time spent in garbage collection in milliseconds
+	 */
+	public void addIteration(long operations, long time, long allocated, long gcCount, long gcTime) {
+		this.operations += operations;
+		this.time.addValue( (double) time / operations );
+		if( allocated >= 0 ) {
+			this.allocation.addValue( (double) allocated / operations );
+		}
+		this.gcCount += gcCount;
+		this.gcTime += gcTime;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getIterations() {
+		return (int) time.getN();
+	}
+
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Average time per operation in nanoseconds
+	 */
+	public double getAvgTime() {
+		return time.getMean();
+	}
+
+	/**
+	 * Standard deviation of the time per operation in nanoseconds
+	 */
+	public double getTimeDeviation() {
+		return time.getStandardDeviation();
+	}
+
+	/**
+	 * Average number of bytes allocated per operation or <code>NaN</code> if
+	 * the JVM does not support measuring allocations.
+	 */
+	public double getAvgAllocation() {
+		return allocation.getN() == 0
+			? Double.NaN
+			: allocation.getMean();
+	}
+
+	/**
+	 * Total number of garbage collections during the measured iterations
+	 */
+	public long getGCCount() {
+		return gcCount;
+	}
+
+	/**
+	 * Total time spent in garbage collection during the measured iterations in
+	 * milliseconds
+	 */
+	public long getGCTime() {
+		return gcTime;
+	}
+}
@@ -0,0 +1,311 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static profiler.ProfileUtils.error;
+import gnu.getopt.Getopt;
+import gnu.getopt.LongOpt;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mindswap.pellet.utils.intset.ArrayIntSet;
+import org.mindswap.pellet.utils.intset.BitIntSet;
+import org.mindswap.pellet.utils.intset.HashIntSet;
+import org.mindswap.pellet.utils.intset.IntSet;
+import org.mindswap.pellet.utils.intset.ShiftedBitIntSet;
+
+import profiler.bench.IntSetBenchmark.Operation;
+
+/**
+ * <p>
+ * Title: Benchmark Runner
+ * </p>
+ * <p>
+ * Description: Runs micro and macro benchmarks for the core reasoner
+ * operations. Each benchmark is run for a number of warmup iterations whose
+ * results are discarded followed by a number of measured iterations. Every
+ * iteration executes the benchmark repeatedly for a fixed amount of time and
+ * reports the time per operation, the bytes allocated per operation (if the
+ * JVM supports measuring thread allocations) and the garbage collections that
+ * happened during the iteration.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		List<Benchmark> benchmarks = runner.parseArgs( args );
+
+		runner.printHeader();
+		for( Benchmark benchmark : benchmarks ) {
+			runner.printResult( runner.run( benchmark ) );
+		}
+	}
+
+	private static final Method	ALLOCATED_BYTES	= getAllocatedBytesMethod();
+
+	private static Method getAllocatedBytesMethod() {
+		// com.sun.management.ThreadMXBean is not available on all JVMs
+		try {
+			Class<?> beanClass = Class.forName( "com.sun.management.ThreadMXBean" );
+			if( beanClass.isInstance( ManagementFactory.getThreadMXBean() ) ) {
+				return beanClass.getMethod( "getThreadAllocatedBytes", long.class );
+			}
+		} catch( Exception e ) {
+			// allocations will not be reported
+		}
+
+		return null;
+	}
+
+	/**
+	 * Creates the default benchmarks using the ontologies in the given
+	 * directory.
+	 */
+	public static List<Benchmark> createBenchmarks(String dataDir) {
+		String family = "file:" + dataDir + "misc/family.owl";
+		String agencies = "file:" + dataDir + "misc/agencies.owl";
+		String food = "file:" + dataDir + "misc/food.owl";
+		String pizza = "file:" + dataDir + "misc/pizza.owl";
+
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		benchmarks.add( new ConsistencyBenchmark( agencies ) );
+		benchmarks.add( new ConsistencyBenchmark( family ) );
+
+		benchmarks.add( new SatisfiabilityBenchmark( food ) );
+		benchmarks.add( new SatisfiabilityBenchmark( pizza ) );
+
+		List<Class<? extends IntSet>> types = new ArrayList<Class<? extends IntSet>>();
+		types.add( ArrayIntSet.class );
+		types.add( BitIntSet.class );
+		types.add( ShiftedBitIntSet.class );
+		types.add( HashIntSet.class );
+		for( Class<? extends IntSet> type : types ) {
+			for( Operation operation : Operation.values() ) {
+				benchmarks.add( new IntSetBenchmark( type, operation, 4 ) );
+				benchmarks.add( new IntSetBenchmark( type, operation, 64 ) );
+			}
+		}
+
+		benchmarks.add( new EdgeListBenchmark( agencies ) );
+		benchmarks.add( new EdgeListBenchmark( family ) );
+		for( int size : new int[] { 8, 16, 32, 64, 256, 4096 } ) {
+			benchmarks.add( new HubEdgeListBenchmark( size, false ) );
+			benchmarks.add( new HubEdgeListBenchmark( size, true ) );
+		}
+
+		benchmarks.add( new ConceptCacheBenchmark( pizza, true ) );
+		benchmarks.add( new ConceptCacheBenchmark( pizza, false ) );
+
+		benchmarks.add( new NormalizeBenchmark( food ) );
+		benchmarks.add( new NormalizeBenchmark( pizza ) );
+
+		return benchmarks;
+	}
+
+	private int				warmupIterations	= 3;
+
+	private int				iterations			= 5;
+
+	private long			iterationTime		= 1000;
+
+	/**
+	 * Written after every iteration so that the results of the benchmarks are
+	 * not optimized away
+	 */
+	private volatile int	sink;
+
+	public void setWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+	}
+
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Set the duration of a single iteration in milliseconds
+	 */
+	public void setIterationTime(long iterationTime) {
+		this.iterationTime = iterationTime;
+	}
+
+	public List<Benchmark> parseArgs(String[] args) throws Exception {
+		String dataDir = "test/data/";
+		String filter = null;
+
+		LongOpt[] longopts = new LongOpt[6];
+		longopts[0] = new LongOpt( "help", LongOpt.NO_ARGUMENT, null, 'h' );
+		longopts[1] = new LongOpt( "warmup", LongOpt.REQUIRED_ARGUMENT, null, 'w' );
+		longopts[2] = new LongOpt( "iterations", LongOpt.REQUIRED_ARGUMENT, null, 'i' );
+		longopts[3] = new LongOpt( "time", LongOpt.REQUIRED_ARGUMENT, null, 't' );
+		longopts[4] = new LongOpt( "data", LongOpt.REQUIRED_ARGUMENT, null, 'd' );
+		longopts[5] = new LongOpt( "benchmark", LongOpt.REQUIRED_ARGUMENT, null, 'b' );
+
+		Getopt g = new Getopt( BenchmarkRunner.class.toString(), args, "hw:i:t:d:b:", longopts );
+
+		try {
+			int c;
+			while( (c = g.getopt()) != -1 ) {
+				switch ( c ) {
+				case 'h':
+					System.out.println( "BenchmarkRunner [-w warmup iterations] [-i iterations]"
+							+ " [-t iteration time (ms)] [-d data directory]"
+							+ " [-b benchmark name prefix]" );
+					System.exit( 0 );
+
+				case 'w':
+					warmupIterations = Integer.parseInt( g.getOptarg() );
+					break;
+
+				case 'i':
+					iterations = Integer.parseInt( g.getOptarg() );
+					break;
+
+				case 't':
+					iterationTime = Long.parseLong( g.getOptarg() );
+					break;
+
+				case 'd':
+					dataDir = g.getOptarg();
+					if( !dataDir.endsWith( "/" ) ) {
+						dataDir += "/";
+					}
+					break;
+
+				case 'b':
+					filter = g.getOptarg();
+					break;
+
+				case '?':
+					error( "The option '" + (char) g.getOptopt() + "' is not valid" );
+
+				default:
+					error( "Unrecognized option: " + (char) c );
+				}
+			}
+		} catch( NumberFormatException e ) {
+			error( "Invalid number: " + e );
+		}
+
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		for( Benchmark benchmark : createBenchmarks( dataDir ) ) {
+			if( filter == null || benchmark.getName().startsWith( filter ) ) {
+				benchmarks.add( benchmark );
+			}
+		}
+
+		if( benchmarks.isEmpty() ) {
+			error( "No benchmark matches " + filter );
+		}
+
+		return benchmarks;
+	}
+
+	public BenchmarkResult run(Benchmark benchmark) throws Exception {
+		BenchmarkResult result = new BenchmarkResult( benchmark.getName() );
+
+		benchmark.setUp();
+		try {
+			for( int i = 0; i < warmupIterations; i++ ) {
+				runIteration( benchmark, null );
+			}
+			for( int i = 0; i < iterations; i++ ) {
+				runIteration( benchmark, result );
+			}
+		} finally {
+			benchmark.tearDown();
+		}
+
+		return result;
+	}
+
+	private void runIteration(Benchmark benchmark, BenchmarkResult result) {
+		// start every iteration with a clean heap so the garbage left by the
+		// previous iteration is not counted
+		System.gc();
+
+		long gcCount = getGCCount();
+		long gcTime = getGCTime();
+		long allocated = getAllocatedBytes();
+
+		int value = 0;
+		long operations = 0;
+		long start = System.nanoTime();
+		long end = start + iterationTime * 1000000;
+		long time;
+		do {
+			value += benchmark.run();
+			operations += benchmark.getOperations();
+			time = System.nanoTime();
+		} while( time < end );
+		time -= start;
+
+		if( allocated >= 0 ) {
+			allocated = getAllocatedBytes() - allocated;
+		}
+		gcCount = getGCCount() - gcCount;
+		gcTime = getGCTime() - gcTime;
+
+		sink = value;
+
+		if( result != null ) {
+			result.addIteration( operations, time, allocated, gcCount, gcTime );
+		}
+	}
+
+	private static long getAllocatedBytes() {
+		if( ALLOCATED_BYTES == null ) {
+			return -1;
+		}
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			return (Long) ALLOCATED_BYTES.invoke( bean, Thread.currentThread().getId() );
+		} catch( Exception e ) {
+			return -1;
+		}
+	}
+
+	private static long getGCCount() {
+		long count = 0;
+		for( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() ) {
+			count += Math.max( 0, bean.getCollectionCount() );
+		}
+		return count;
+	}
+
+	private static long getGCTime() {
+		long time = 0;
+		for( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() ) {
+			time += Math.max( 0, bean.getCollectionTime() );
+		}
+		return time;
+	}
+
+	public void printHeader() {
+		System.out.println( String.format( "%-40s | %12s | %10s | %10s | %5s | %7s |", "Benchmark",
+				"ns/op", "+-", "B/op", "GCs", "GC (ms)" ) );
+	}
+
+	public void printResult(BenchmarkResult result) {
+		System.out.println( String.format( "%-40s | %12.1f | %10.1f | %10.1f | %5d | %7d |", result
+				.getName(), result.getAvgTime(), result.getTimeDeviation(), result
+				.getAvgAllocation(), result.getGCCount(), result.getGCTime() ) );
+	}
+}
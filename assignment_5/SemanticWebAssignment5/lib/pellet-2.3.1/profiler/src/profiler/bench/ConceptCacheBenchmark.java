@@ -0,0 +1,102 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static profiler.ProfileUtils.formatFileName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.tableau.cache.CachedNode;
+import org.mindswap.pellet.tableau.cache.CachedNodeFactory;
+import org.mindswap.pellet.tableau.cache.ConceptCache;
+import org.mindswap.pellet.tableau.cache.ConceptCacheLRU;
+import org.mindswap.pellet.utils.ATermUtils;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Concept Cache Benchmark
+ * </p>
+ * <p>
+ * Description: Measures lookups in {@link ConceptCacheLRU} for keys that are
+ * in the cache (hit) or not (miss). The keys are the named classes of an
+ * ontology, their negations and some conjunctions so both the primitive and
+ * non-primitive parts of the cache are used.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ConceptCacheBenchmark extends AbstractBenchmark {
+	private String			file;
+
+	private boolean			hit;
+
+	private ConceptCache	cache;
+
+	private ATermAppl[]		keys;
+
+	private int				next;
+
+	public ConceptCacheBenchmark(String file, boolean hit) {
+		super( "conceptcache." + (hit
+			? "hit."
+			: "miss.") + formatFileName( file, 20 ) );
+
+		this.file = file;
+		this.hit = hit;
+	}
+
+	public void setUp() {
+		KnowledgeBase kb = load( file );
+
+		List<ATermAppl> cached = new ArrayList<ATermAppl>();
+		List<ATermAppl> notCached = new ArrayList<ATermAppl>();
+		ATermAppl prev = ATermUtils.TOP;
+		for( ATermAppl c : kb.getClasses() ) {
+			List<ATermAppl> list = (cached.size() <= notCached.size())
+				? cached
+				: notCached;
+			list.add( c );
+			list.add( ATermUtils.negate( c ) );
+			list.add( ATermUtils.makeAnd( prev, c ) );
+			prev = c;
+		}
+
+		CachedNode node = CachedNodeFactory.createSatisfiableNode();
+		cache = new ConceptCacheLRU( kb, cached.size() );
+		for( ATermAppl c : cached ) {
+			cache.put( c, node );
+		}
+
+		List<ATermAppl> list = hit
+			? cached
+			: notCached;
+		keys = list.toArray( new ATermAppl[list.size()] );
+		next = 0;
+	}
+
+	public int run() {
+		ATermAppl key = keys[next];
+		next = (next + 1) % keys.length;
+
+		return cache.get( key ) == null
+			? 0
+			: 1;
+	}
+
+	public void tearDown() {
+		cache = null;
+		keys = null;
+	}
+}
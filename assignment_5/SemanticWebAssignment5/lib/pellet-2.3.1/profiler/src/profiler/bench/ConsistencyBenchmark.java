@@ -0,0 +1,59 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static profiler.ProfileUtils.formatFileName;
+
+import org.mindswap.pellet.ABox;
+import org.mindswap.pellet.KnowledgeBase;
+
+/**
+ * <p>
+ * Title: Consistency Benchmark
+ * </p>
+ * <p>
+ * Description: Measures {@link ABox#isConsistent()} for the ABox of an
+ * ontology. The KB is preprocessed once and every operation checks the
+ * consistency of a fresh copy of the original ABox so the cost of copying the
+ * ABox is included in the results.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ConsistencyBenchmark extends AbstractBenchmark {
+	private String			file;
+
+	private KnowledgeBase	kb;
+
+	public ConsistencyBenchmark(String file) {
+		super( "consistency." + formatFileName( file, 20 ) );
+
+		this.file = file;
+	}
+
+	public void setUp() {
+		kb = load( file );
+		kb.prepare();
+	}
+
+	public int run() {
+		ABox abox = kb.copy( false ).getABox();
+		abox.setInitialized( false );
+
+		return abox.isConsistent()
+			? 1
+			: 0;
+	}
+
+	public void tearDown() {
+		kb = null;
+	}
+}
@@ -0,0 +1,98 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static profiler.ProfileUtils.formatFileName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mindswap.pellet.ABox;
+import org.mindswap.pellet.Edge;
+import org.mindswap.pellet.EdgeList;
+import org.mindswap.pellet.Individual;
+import org.mindswap.pellet.IndividualIterator;
+import org.mindswap.pellet.KnowledgeBase;
+
+/**
+ * <p>
+ * Title: EdgeList Benchmark
+ * </p>
+ * <p>
+ * Description: Measures {@link EdgeList} lookups by role and by neighbor on
+ * the completed ABox of an ontology. Every outgoing edge of every individual
+ * is looked up once per pass.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class EdgeListBenchmark extends AbstractBenchmark {
+	private String		file;
+
+	private EdgeList[]	lists;
+
+	private Edge[]		edges;
+
+	private int			next;
+
+	public EdgeListBenchmark(String file) {
+		super( "edgelist." + formatFileName( file, 20 ) );
+
+		this.file = file;
+	}
+
+	public void setUp() {
+		KnowledgeBase kb = load( file );
+		kb.isConsistent();
+
+		ABox abox = kb.getABox();
+		List<EdgeList> listOfLists = new ArrayList<EdgeList>();
+		List<Edge> listOfEdges = new ArrayList<Edge>();
+		for( IndividualIterator i = abox.getIndIterator(); i.hasNext(); ) {
+			Individual ind = i.next();
+			EdgeList outEdges = ind.getOutEdges();
+			for( Edge edge : outEdges ) {
+				listOfLists.add( outEdges );
+				listOfEdges.add( edge );
+			}
+		}
+
+		if( listOfEdges.isEmpty() ) {
+			throw new IllegalArgumentException( "No edges found in " + file );
+		}
+
+		lists = listOfLists.toArray( new EdgeList[listOfLists.size()] );
+		edges = listOfEdges.toArray( new Edge[listOfEdges.size()] );
+		next = 0;
+	}
+
+	public int getOperations() {
+		return 2;
+	}
+
+	public int run() {
+		EdgeList list = lists[next];
+		Edge edge = edges[next];
+		next = (next + 1) % edges.length;
+
+		int result = list.getEdges( edge.getRole() ).size();
+		if( list.hasEdge( edge.getFrom(), edge.getRole(), edge.getTo() ) ) {
+			result++;
+		}
+
+		return result;
+	}
+
+	public void tearDown() {
+		lists = null;
+		edges = null;
+	}
+}
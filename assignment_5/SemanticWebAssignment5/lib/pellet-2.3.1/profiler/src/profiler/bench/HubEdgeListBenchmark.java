@@ -0,0 +1,122 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+
+import org.mindswap.pellet.Edge;
+import org.mindswap.pellet.EdgeList;
+import org.mindswap.pellet.Individual;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Hub EdgeList Benchmark
+ * </p>
+ * <p>
+ * Description: Measures {@link EdgeList} lookups for a single individual with
+ * a given number of edges spread over a few roles, with and without the edge
+ * index. Running the indexed and linear variants for increasing sizes shows
+ * the size where the index starts to pay off, which is what
+ * {@link PelletOptions#EDGE_LIST_INDEX_THRESHOLD} should be set to.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class HubEdgeListBenchmark extends AbstractBenchmark {
+	private static final int	ROLES	= 4;
+
+	private int					size;
+
+	private boolean				indexed;
+
+	private int					oldThreshold;
+
+	private EdgeList			list;
+
+	private Edge[]				edges;
+
+	private int					next;
+
+	/**
+	 * @param size
+	 *            number of edges of the hub individual
+	 * @param indexed
+	 *            if the edges of the hub should be indexed
+	 */
+	public HubEdgeListBenchmark(int size, boolean indexed) {
+		super( "edgelist.hub." + (indexed
+			? "indexed."
+			: "linear.") + size );
+
+		this.size = size;
+		this.indexed = indexed;
+	}
+
+	public void setUp() {
+		oldThreshold = PelletOptions.EDGE_LIST_INDEX_THRESHOLD;
+		PelletOptions.EDGE_LIST_INDEX_THRESHOLD = indexed
+			? 0
+			: Integer.MAX_VALUE;
+
+		KnowledgeBase kb = new KnowledgeBase();
+		ATermAppl hub = term( "hub" );
+		kb.addIndividual( hub );
+		ATermAppl[] roles = new ATermAppl[ROLES];
+		for( int r = 0; r < ROLES; r++ ) {
+			roles[r] = term( "p" + r );
+			kb.addObjectProperty( roles[r] );
+		}
+		for( int i = 0; i < size; i++ ) {
+			ATermAppl ind = term( "ind" + i );
+			kb.addIndividual( ind );
+			kb.addPropertyValue( roles[i % ROLES], hub, ind );
+		}
+		kb.isConsistent();
+
+		Individual ind = kb.getABox().getIndividual( hub );
+		list = ind.getOutEdges();
+		edges = new Edge[list.size()];
+		for( int i = 0; i < edges.length; i++ ) {
+			edges[i] = list.edgeAt( i );
+		}
+		next = 0;
+	}
+
+	public int getOperations() {
+		return 2;
+	}
+
+	public int run() {
+		Edge edge = edges[next];
+		next = (next + 1) % edges.length;
+
+		int result = 0;
+		if( list.hasEdge( edge.getFrom(), edge.getRole(), edge.getTo() ) ) {
+			result++;
+		}
+		if( list.getExactEdge( edge.getFrom(), edge.getRole(), edge.getTo() ) != null ) {
+			result++;
+		}
+
+		return result;
+	}
+
+	public void tearDown() {
+		PelletOptions.EDGE_LIST_INDEX_THRESHOLD = oldThreshold;
+
+		list = null;
+		edges = null;
+	}
+}
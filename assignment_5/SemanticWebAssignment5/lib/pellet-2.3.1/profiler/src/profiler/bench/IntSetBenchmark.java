@@ -0,0 +1,127 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.mindswap.pellet.utils.intset.IntSet;
+
+/**
+ * <p>
+ * Title: IntSet Benchmark
+ * </p>
+ * <p>
+ * Description: Measures the basic operations of an {@link IntSet}
+ * implementation on sets of random integers. The integers are generated with a
+ * fixed seed so the results are reproducible.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class IntSetBenchmark extends AbstractBenchmark {
+	public enum Operation {
+		ADD, CONTAINS, UNION
+	}
+
+	private Class<? extends IntSet>	type;
+
+	private Operation				operation;
+
+	private int						size;
+
+	private int[]					values;
+
+	private int[]					probes;
+
+	private IntSet					set1;
+
+	private IntSet					set2;
+
+	/**
+	 * @param type
+	 *            IntSet implementation
+	 * @param operation
+	 *            operation to measure
+	 * @param size
+	 *            number of elements in the sets
+	 */
+	public IntSetBenchmark(Class<? extends IntSet> type, Operation operation, int size) {
+		super( "intset." + type.getSimpleName() + "." + operation.toString().toLowerCase() + "."
+				+ size );
+
+		this.type = type;
+		this.operation = operation;
+		this.size = size;
+	}
+
+	public void setUp() throws Exception {
+		Random random = new Random( 42 );
+
+		// dependency sets contain branch numbers which are added in increasing
+		// order and are usually not far from each other
+		values = new int[size];
+		probes = new int[size];
+		for( int i = 0; i < size; i++ ) {
+			values[i] = random.nextInt( 4 * size );
+			probes[i] = random.nextInt( 4 * size );
+		}
+		Arrays.sort( values );
+
+		set1 = type.newInstance();
+		set2 = type.newInstance();
+		for( int i = 0; i < size; i++ ) {
+			set1.add( values[i] );
+			set2.add( probes[i] );
+		}
+	}
+
+	public int getOperations() {
+		return operation == Operation.UNION
+			? 1
+			: size;
+	}
+
+	public int run() {
+		switch ( operation ) {
+		case ADD:
+			IntSet set = newSet();
+			for( int i = 0; i < size; i++ ) {
+				set.add( values[i] );
+			}
+			return set.size();
+		case CONTAINS:
+			int count = 0;
+			for( int i = 0; i < size; i++ ) {
+				if( set1.contains( probes[i] ) ) {
+					count++;
+				}
+			}
+			return count;
+		case UNION:
+			return set1.union( set2 ).size();
+		default:
+			throw new AssertionError( operation );
+		}
+	}
+
+	private IntSet newSet() {
+		try {
+			return type.newInstance();
+		} catch( Exception e ) {
+			throw new RuntimeException( e );
+		}
+	}
+
+	public void tearDown() {
+		set1 = set2 = null;
+	}
+}
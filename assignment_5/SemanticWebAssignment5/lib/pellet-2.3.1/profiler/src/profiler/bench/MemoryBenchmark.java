@@ -0,0 +1,182 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static profiler.ProfileUtils.error;
+import gnu.getopt.Getopt;
+import gnu.getopt.LongOpt;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.utils.MemUtils;
+
+import aterm.ATermAppl;
+
+import com.clarkparsia.pellet.utils.TermFactory;
+
+/**
+ * <p>
+ * Title: Memory Benchmark
+ * </p>
+ * <p>
+ * Description: Measures the heap used by the ABox per individual. The KB is
+ * either loaded from a file or generated with the given number of individuals
+ * that have a few types and property values each. The used memory is measured
+ * before the KB is created, after the assertions are added and after the
+ * consistency check when the ABox has been completed and the bytes per
+ * individual are reported for the last two. The benchmark does not fit the
+ * time based {@link BenchmarkRunner} so it is run on its own.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class MemoryBenchmark {
+	public static void main(String[] args) throws Exception {
+		MemoryBenchmark benchmark = new MemoryBenchmark();
+		benchmark.parseArgs( args );
+		benchmark.run();
+	}
+
+	private String	file		= null;
+
+	private int		individuals	= 100000;
+
+	private int		types		= 3;
+
+	/**
+	 * The KB is kept in a field so it cannot be collected before the memory is
+	 * measured
+	 */
+	private KnowledgeBase	kb;
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public void setIndividuals(int individuals) {
+		this.individuals = individuals;
+	}
+
+	public void parseArgs(String[] args) {
+		LongOpt[] longopts = new LongOpt[4];
+		longopts[0] = new LongOpt( "help", LongOpt.NO_ARGUMENT, null, 'h' );
+		longopts[1] = new LongOpt( "file", LongOpt.REQUIRED_ARGUMENT, null, 'f' );
+		longopts[2] = new LongOpt( "individuals", LongOpt.REQUIRED_ARGUMENT, null, 'n' );
+		longopts[3] = new LongOpt( "types", LongOpt.REQUIRED_ARGUMENT, null, 't' );
+
+		Getopt g = new Getopt( MemoryBenchmark.class.toString(), args, "hf:n:t:", longopts );
+
+		try {
+			int c;
+			while( (c = g.getopt()) != -1 ) {
+				switch ( c ) {
+				case 'h':
+					System.out.println( "MemoryBenchmark [-f ontology file] [-n individuals]"
+							+ " [-t types per individual]" );
+					System.exit( 0 );
+
+				case 'f':
+					file = g.getOptarg();
+					break;
+
+				case 'n':
+					individuals = Integer.parseInt( g.getOptarg() );
+					break;
+
+				case 't':
+					types = Integer.parseInt( g.getOptarg() );
+					break;
+
+				case '?':
+					error( "The option '" + (char) g.getOptopt() + "' is not valid" );
+
+				default:
+					error( "Unrecognized option: " + (char) c );
+				}
+			}
+		} catch( NumberFormatException e ) {
+			error( "Invalid number: " + e );
+		}
+	}
+
+	public void run() {
+		MemUtils.runGC();
+		long base = MemUtils.usedMemory();
+
+		kb = (file == null)
+			? generate()
+			: AbstractBenchmark.load( file );
+
+		MemUtils.runGC();
+		long loaded = MemUtils.usedMemory() - base;
+		int count = kb.getIndividuals().size();
+
+		long start = System.currentTimeMillis();
+		boolean consistent = kb.isConsistent();
+		long time = System.currentTimeMillis() - start;
+
+		MemUtils.runGC();
+		long completed = MemUtils.usedMemory() - base;
+
+		System.out.println( "Individuals     : " + count );
+		System.out.println( "Nodes           : " + kb.getABox().getNodes().size() );
+		System.out.println( "Consistent      : " + consistent + " (" + time + " ms)" );
+		print( "Loaded          : ", loaded, count );
+		print( "Completed       : ", completed, count );
+	}
+
+	private static void print(String label, long bytes, int count) {
+		System.out.println( String.format( "%s%10.2f MB %10.1f B/individual", label, MemUtils
+				.mb( bytes ), count == 0
+			? 0.0
+			: (double) bytes / count ) );
+	}
+
+	/**
+	 * Creates a KB where every individual has the given number of atomic types
+	 * and a property value to the next individual. The TBox adds an
+	 * existential for some of the types so the completion creates anonymous
+	 * nodes as well.
+	 */
+	private KnowledgeBase generate() {
+		KnowledgeBase kb = new KnowledgeBase();
+
+		int classCount = Math.max( types, 1 ) * 4;
+		ATermAppl[] classes = new ATermAppl[classCount];
+		for( int i = 0; i < classCount; i++ ) {
+			classes[i] = TermFactory.term( "C" + i );
+			kb.addClass( classes[i] );
+		}
+
+		ATermAppl p = TermFactory.term( "p" );
+		ATermAppl q = TermFactory.term( "q" );
+		kb.addObjectProperty( p );
+		kb.addObjectProperty( q );
+
+		for( int i = 0; i < classCount; i += 4 ) {
+			kb.addSubClass( classes[i], TermFactory.some( q, classes[i + 1] ) );
+		}
+
+		ATermAppl prev = null;
+		for( int i = 0; i < individuals; i++ ) {
+			ATermAppl ind = TermFactory.term( "i" + i );
+			kb.addIndividual( ind );
+			for( int j = 0; j < types; j++ ) {
+				kb.addType( ind, classes[(i + j) % classCount] );
+			}
+			if( prev != null ) {
+				kb.addPropertyValue( p, prev, ind );
+			}
+			prev = ind;
+		}
+
+		return kb;
+	}
+}
@@ -0,0 +1,79 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static profiler.ProfileUtils.formatFileName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.utils.ATermUtils;
+
+import aterm.ATerm;
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Normalize Benchmark
+ * </p>
+ * <p>
+ * Description: Measures {@link ATermUtils#normalize(ATermAppl)} on the class
+ * expressions that appear in the TBox axioms of an ontology.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class NormalizeBenchmark extends AbstractBenchmark {
+	private String		file;
+
+	private ATermAppl[]	terms;
+
+	private int			next;
+
+	public NormalizeBenchmark(String file) {
+		super( "normalize." + formatFileName( file, 20 ) );
+
+		this.file = file;
+	}
+
+	public void setUp() {
+		KnowledgeBase kb = load( file );
+
+		List<ATermAppl> list = new ArrayList<ATermAppl>();
+		for( ATermAppl axiom : kb.getTBox().getAxioms() ) {
+			for( int i = 0; i < axiom.getArity(); i++ ) {
+				ATerm arg = axiom.getArgument( i );
+				if( arg instanceof ATermAppl && ATermUtils.isComplexClass( arg ) ) {
+					list.add( (ATermAppl) arg );
+				}
+			}
+		}
+
+		if( list.isEmpty() ) {
+			throw new IllegalArgumentException( "No class expressions found in " + file );
+		}
+
+		terms = list.toArray( new ATermAppl[list.size()] );
+		next = 0;
+	}
+
+	public int run() {
+		ATermAppl term = terms[next];
+		next = (next + 1) % terms.length;
+
+		return ATermUtils.normalize( term ).getArity();
+	}
+
+	public void tearDown() {
+		terms = null;
+	}
+}
@@ -0,0 +1,80 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package profiler.bench;
+
+import static profiler.ProfileUtils.formatFileName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mindswap.pellet.ABox;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.utils.ATermUtils;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Satisfiability Benchmark
+ * </p>
+ * <p>
+ * Description: Measures {@link ABox#isSatisfiable(ATermAppl, boolean)} for
+ * the named classes of an ontology and their negations. Models are not cached
+ * so every operation builds a completion graph, but the satisfiability results
+ * cached during the consistency check are used as usual.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class SatisfiabilityBenchmark extends AbstractBenchmark {
+	private String			file;
+
+	private ABox			abox;
+
+	private ATermAppl[]		concepts;
+
+	private int				next;
+
+	public SatisfiabilityBenchmark(String file) {
+		super( "satisfiability." + formatFileName( file, 20 ) );
+
+		this.file = file;
+	}
+
+	public void setUp() {
+		KnowledgeBase kb = load( file );
+		kb.isConsistent();
+
+		List<ATermAppl> list = new ArrayList<ATermAppl>();
+		for( ATermAppl c : kb.getAllClasses() ) {
+			list.add( c );
+			list.add( ATermUtils.negate( c ) );
+		}
+
+		abox = kb.getABox();
+		concepts = list.toArray( new ATermAppl[list.size()] );
+		next = 0;
+	}
+
+	public int run() {
+		ATermAppl c = concepts[next];
+		next = (next + 1) % concepts.length;
+
+		return abox.isSatisfiable( c, false )
+			? 1
+			: 0;
+	}
+
+	public void tearDown() {
+		abox = null;
+		concepts = null;
+	}
+}
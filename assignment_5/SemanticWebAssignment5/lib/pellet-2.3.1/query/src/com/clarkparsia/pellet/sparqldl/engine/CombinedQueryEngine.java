@@ -28,6 +28,7 @@ import java.util.logging.Logger;
 import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.exceptions.InternalReasonerException;
+import org.mindswap.pellet.exceptions.TimerInterruptedException;
 import org.mindswap.pellet.exceptions.UnsupportedQueryException;
 import org.mindswap.pellet.taxonomy.Taxonomy;
 import org.mindswap.pellet.taxonomy.TaxonomyNode;
@@ -86,6 +87,30 @@ public class CombinedQueryEngine implements QueryExec {
 
 	private Set<ATermAppl>				downMonotonic;
 
+	/**
+	 * Maximum number of bindings to compute
+	 */
+	private long						limit;
+
+	/**
+	 * Timer checked for every branch of the search so the execution can be
+	 * interrupted, may be <code>null</code>
+	 */
+	private Timer						monitor;
+
+	/**
+	 * Thrown to unwind the search once the limit is reached. Carries no stack
+	 * trace since it is thrown on a normal path.
+	 */
+	private static class LimitReachedException extends RuntimeException {
+		private static final long	serialVersionUID	= 1L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
 	private void prepare(Query query) {
 		if( log.isLoggable( Level.FINE ) ) {
 			log.fine( "Preparing plan ..." );
@@ -241,15 +266,46 @@ public class CombinedQueryEngine implements QueryExec {
 	 * {@inheritDoc}
 	 */
 	public QueryResult exec(Query query) {
+		return exec( query, Long.MAX_VALUE, null );
+	}
+
+	/**
+	 * Executes the query and stops the search as soon as the given number of
+	 * bindings are found. The given timer is checked for every branch of the
+	 * search so an execution can be cancelled from another thread by
+	 * interrupting the timer, or bounded by setting a timeout on it.
+	 * 
+	 * @param query
+	 *            query to execute
+	 * @param limit
+	 *            maximum number of bindings to compute
+	 * @param monitor
+	 *            timer to check during the execution, may be <code>null</code>
+	 * @return at most <code>limit</code> bindings
+	 * @throws TimerInterruptedException
+	 *             if the timer is interrupted during the execution
+	 */
+	public QueryResult exec(Query query, long limit, Timer monitor) {
 		if( log.isLoggable( Level.FINE ) ) {
 			log.fine( "Executing query " + query );
 		}
 
+		this.limit = limit;
+		this.monitor = monitor;
+
 		Timer timer = new Timer( "CombinedQueryEngine" );
 		timer.start();
 		prepare( query );
 		branches = 0;
-		exec( new ResultBindingImpl() );
+		try {
+			if( limit > 0 ) {
+				exec( new ResultBindingImpl() );
+			}
+		} catch( LimitReachedException e ) {
+			if( log.isLoggable( Level.FINE ) ) {
+				log.fine( "Stopped after finding " + result.size() + " bindings" );
+			}
+		}
 		timer.stop();
 
 		if( log.isLoggable( Level.FINE ) ) {
@@ -266,6 +322,10 @@ public class CombinedQueryEngine implements QueryExec {
 			branches++;
 		}
 
+		if( monitor != null ) {
+			monitor.check();
+		}
+
 		if( !plan.hasNext() ) {
 			// TODO if result vars are not same as dist vars.
 			if( !binding.isEmpty() || result.isEmpty() ) {
@@ -286,6 +346,10 @@ public class CombinedQueryEngine implements QueryExec {
 				}
 
 				result.add( binding );
+
+				if( result.size() >= limit ) {
+					throw new LimitReachedException();
+				}
 			}
 			
 			if( log.isLoggable( Level.FINER ) ) {
@@ -1175,9 +1239,10 @@ public class CombinedQueryEngine implements QueryExec {
 				newQuery.addDistVar( var, VarType.INDIVIDUAL );
 			}
 			
-			QueryExec newEngine = new CombinedQueryEngine();
+			CombinedQueryEngine newEngine = new CombinedQueryEngine();
 			
-			boolean isNegationTrue = newEngine.exec( newQuery ).isEmpty();
+			// a single binding is enough to decide the negation
+			boolean isNegationTrue = newEngine.exec( newQuery, 1, monitor ).isEmpty();
 			
 			if( isNegationTrue ) {
 	            exec( binding );
@@ -1197,9 +1262,9 @@ public class CombinedQueryEngine implements QueryExec {
 					newQuery.addResultVar( var );
 				}
 				
-				QueryExec newEngine = new CombinedQueryEngine();
+				CombinedQueryEngine newEngine = new CombinedQueryEngine();
 				
-				QueryResult newResult = newEngine.exec( newQuery );	
+				QueryResult newResult = newEngine.exec( newQuery, Long.MAX_VALUE, monitor );	
 				for( ResultBinding newBinding : newResult ) {
 					newBinding.setValues( binding );
 					exec( newBinding );
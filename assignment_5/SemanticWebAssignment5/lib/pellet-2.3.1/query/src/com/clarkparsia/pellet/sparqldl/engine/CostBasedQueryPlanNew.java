@@ -83,6 +83,25 @@ public class CostBasedQueryPlanNew extends QueryPlan {
 		}
 	}
 
+	/**
+	 * Creates a plan that evaluates the atoms of the query in the given order
+	 * which was previously chosen for a query of the same shape.
+	 */
+	CostBasedQueryPlanNew(Query query, List<QueryAtom> sortedAtoms) {
+		super( query );
+
+		this.index = 0;
+		this.size = sortedAtoms.size();
+		this.sortedAtoms = sortedAtoms;
+	}
+
+	/**
+	 * Returns the atoms of the query in the order they are evaluated.
+	 */
+	public List<QueryAtom> getOrdering() {
+		return sortedAtoms;
+	}
+
 	/**
 	 * Recursive function that will inspect all possible orderings for a list of
 	 * query atoms and returns the cost for the best ordering (min cost) found.
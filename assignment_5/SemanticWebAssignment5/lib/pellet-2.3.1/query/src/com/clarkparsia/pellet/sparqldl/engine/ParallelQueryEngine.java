@@ -0,0 +1,348 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public
+// License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of
+// proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.sparqldl.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.utils.ATermUtils;
+import org.mindswap.pellet.utils.Timer;
+import org.mindswap.pellet.utils.concurrent.WorkerPool;
+
+import aterm.ATermAppl;
+
+import com.clarkparsia.pellet.sparqldl.model.Query;
+import com.clarkparsia.pellet.sparqldl.model.QueryAtom;
+import com.clarkparsia.pellet.sparqldl.model.QueryPredicate;
+import com.clarkparsia.pellet.sparqldl.model.QueryResult;
+import com.clarkparsia.pellet.sparqldl.model.QueryResultImpl;
+import com.clarkparsia.pellet.sparqldl.model.ResultBinding;
+import com.clarkparsia.pellet.sparqldl.model.ResultBindingImpl;
+import com.clarkparsia.pellet.sparqldl.model.Query.VarType;
+
+/**
+ * <p>
+ * Title: Parallel Query Engine
+ * </p>
+ * <p>
+ * Description: Answers the independent components of a query concurrently.
+ * For each component one distinguished individual variable is chosen and its
+ * candidate bindings (the instances of a class it is typed with, or all the
+ * individuals if it is only used in property value atoms) are split into
+ * groups that are evaluated by different workers. Each worker answers the
+ * component with the variable bound to each of its candidates using a
+ * {@link CombinedQueryEngine} and its own copy of the KB. The copies share the
+ * taxonomy of the KB so only queries that do not modify the taxonomy are
+ * supported, see {@link #supports(List)}. The copies are kept by the KB and
+ * reused by the following queries until the KB changes, see
+ * {@link KnowledgeBase#getTaxonomyWorkers(int)}.
+ * </p>
+ * <p>
+ * The workers of a component stop as soon as the component has enough
+ * bindings for the limit. Queries with a limit smaller than the number of
+ * tasks, e.g. ASK queries, are answered faster by the sequential engine which
+ * stops at the first bindings so they are not answered in parallel, see
+ * {@link #supports(List, long)}.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class ParallelQueryEngine {
+	public static final Logger	log					= Logger.getLogger( ParallelQueryEngine.class
+															.getName() );
+
+	/**
+	 * Number of tasks created for each thread so that the workers are kept
+	 * busy when some candidates take much longer than others
+	 */
+	private static final int	TASKS_PER_THREAD	= 4;
+
+	private final int			threadCount;
+
+	/**
+	 * The candidate bindings of a component evaluated by one worker. The
+	 * queries are created by the calling thread and only their KB is changed
+	 * by the worker. The number of bindings found for the component is shared
+	 * by its tasks. Each task checks its own timer, whose parent is the timer
+	 * given to the engine, so that all the tasks can be stopped when one of
+	 * them fails (checking an interrupted timer clears its interrupted flag
+	 * so a shared timer would stop only one task).
+	 */
+	private static class QueryTask implements WorkerPool.Task<List<ResultBinding>> {
+		private final List<Query>			queries		= new ArrayList<Query>();
+
+		private final List<ResultBinding>	bindings	= new ArrayList<ResultBinding>();
+
+		private final long					limit;
+
+		private final AtomicLong			found;
+
+		private final Timer					monitor;
+
+		public QueryTask(long limit, AtomicLong found, Timer monitor) {
+			this.limit = limit;
+			this.found = found;
+			this.monitor = new Timer( "parallelQueryTask", monitor );
+		}
+
+		public void add(Query query, ResultBinding binding) {
+			queries.add( query );
+			bindings.add( binding );
+		}
+
+		public List<ResultBinding> call(KnowledgeBase worker) {
+			List<ResultBinding> results = new ArrayList<ResultBinding>();
+
+			for( int i = 0; i < queries.size(); i++ ) {
+				long remaining = limit - found.get();
+				if( remaining <= 0 ) {
+					break;
+				}
+
+				Query query = queries.get( i );
+				query.setKB( worker );
+
+				QueryResult result = new CombinedQueryEngine().exec( query, remaining, monitor );
+				for( ResultBinding binding : result ) {
+					ResultBinding newBinding = binding.duplicate();
+					newBinding.setValues( bindings.get( i ) );
+					results.add( newBinding );
+				}
+				found.addAndGet( result.size() );
+			}
+
+			return results;
+		}
+
+		public void interrupt() {
+			monitor.interrupt();
+		}
+	}
+
+	public ParallelQueryEngine(int threadCount) {
+		if( threadCount < 1 ) {
+			throw new IllegalArgumentException( "Invalid number of threads: " + threadCount );
+		}
+
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Checks if the given query components can be answered in parallel. The KB
+	 * should be classified and the components should only contain atoms about
+	 * individuals that are answered without updating the taxonomy of the KB
+	 * (direct types and class variables are not supported).
+	 */
+	public static boolean supports(List<Query> queries) {
+		for( Query query : queries ) {
+			if( !query.getKB().isClassified() || QueryEngine.hasUndefinedTerm( query ) ) {
+				return false;
+			}
+
+			for( QueryAtom atom : query.getAtoms() ) {
+				switch ( atom.getPredicate() ) {
+				case Type:
+					if( ATermUtils.isVar( atom.getArguments().get( 1 ) ) ) {
+						return false;
+					}
+					break;
+				case PropertyValue:
+				case NegativePropertyValue:
+				case SameAs:
+				case DifferentFrom:
+					break;
+				default:
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if the given query components should be answered in parallel
+	 * when at most <code>limit</code> bindings are needed. Besides the
+	 * conditions of {@link #supports(List)}, the limit should not be smaller
+	 * than the number of tasks the candidates would be split into with
+	 * {@link PelletOptions#QUERY_THREADS} threads.
+	 */
+	public static boolean supports(List<Query> queries, long limit) {
+		return limit >= (long) PelletOptions.QUERY_THREADS * TASKS_PER_THREAD && supports( queries );
+	}
+
+	/**
+	 * Answers the given query components which should all be about the same
+	 * KB. The KB should not be modified or used by other threads until the
+	 * results are returned.
+	 *
+	 * @param queries
+	 *            independent query components supported by this engine
+	 * @param limit
+	 *            maximum number of bindings to compute for each component
+	 * @param monitor
+	 *            timer checked during the execution, may be <code>null</code>
+	 * @return results of the components in the same order as the components
+	 */
+	public List<QueryResult> exec(List<Query> queries, long limit, Timer monitor) {
+		List<List<QueryTask>> componentTasks = new ArrayList<List<QueryTask>>( queries.size() );
+		List<QueryTask> tasks = new ArrayList<QueryTask>();
+		for( Query query : queries ) {
+			List<QueryTask> queryTasks = createTasks( query, limit, new AtomicLong(), monitor );
+			componentTasks.add( queryTasks );
+			tasks.addAll( queryTasks );
+		}
+
+		if( tasks.size() < 2 ) {
+			// nothing to do in parallel
+			List<QueryResult> results = new ArrayList<QueryResult>( queries.size() );
+			for( Query query : queries ) {
+				results.add( new CombinedQueryEngine().exec( query, limit, monitor ) );
+			}
+			return results;
+		}
+
+		KnowledgeBase kb = queries.get( 0 ).getKB();
+		WorkerPool pool = kb.getTaxonomyWorkers( threadCount );
+		List<List<ResultBinding>> taskResults;
+		try {
+			taskResults = pool.invokeAll( "parallelQuery", tasks );
+		} catch( RuntimeException e ) {
+			// stop the tasks that are still running
+			for( QueryTask task : tasks ) {
+				task.interrupt();
+			}
+			throw e;
+		} finally {
+			pool.stopThreads();
+		}
+
+		List<QueryResult> results = new ArrayList<QueryResult>( queries.size() );
+		int taskIndex = 0;
+		for( int i = 0; i < queries.size(); i++ ) {
+			QueryResult result = new QueryResultImpl( queries.get( i ) );
+			for( int j = 0; j < componentTasks.get( i ).size(); j++ ) {
+				for( ResultBinding binding : taskResults.get( taskIndex++ ) ) {
+					if( result.size() < limit ) {
+						result.add( binding );
+					}
+				}
+			}
+			results.add( result );
+		}
+
+		return results;
+	}
+
+	/**
+	 * Splits the candidate bindings of the query into groups or creates a
+	 * single task for the whole query if no variable can be bound.
+	 */
+	private List<QueryTask> createTasks(Query query, long limit, AtomicLong found, Timer monitor) {
+		List<QueryTask> tasks = new ArrayList<QueryTask>();
+
+		ATermAppl var = getFanOutVar( query );
+		Collection<ATermAppl> candidates = (var == null)
+			? null
+			: getCandidates( query, var );
+
+		if( candidates == null || candidates.size() < 2 ) {
+			QueryTask task = new QueryTask( limit, found, monitor );
+			task.add( query.apply( new ResultBindingImpl() ), new ResultBindingImpl() );
+			tasks.add( task );
+
+			return tasks;
+		}
+
+		int taskCount = Math.min( candidates.size(), threadCount * TASKS_PER_THREAD );
+		for( int i = 0; i < taskCount; i++ ) {
+			tasks.add( new QueryTask( limit, found, monitor ) );
+		}
+
+		boolean projected = query.getResultVars().contains( var );
+		int i = 0;
+		for( ATermAppl candidate : candidates ) {
+			ResultBinding binding = new ResultBindingImpl();
+			binding.setValue( var, candidate );
+
+			ResultBinding resultBinding = new ResultBindingImpl();
+			if( projected ) {
+				resultBinding.setValue( var, candidate );
+			}
+
+			tasks.get( i++ % taskCount ).add( query.apply( binding ), resultBinding );
+		}
+
+		if( log.isLoggable( Level.FINE ) ) {
+			log.fine( "Split " + candidates.size() + " candidates for " + var + " into " + taskCount
+					+ " tasks" );
+		}
+
+		return tasks;
+	}
+
+	/**
+	 * Returns the distinguished individual variable whose candidates are
+	 * distributed to the workers, preferring variables used in type atoms over
+	 * the subjects of property value atoms.
+	 */
+	private ATermAppl getFanOutVar(Query query) {
+		for( QueryAtom atom : query.findAtoms( QueryPredicate.Type, null, null ) ) {
+			ATermAppl arg = atom.getArguments().get( 0 );
+			if( isIndividualVar( query, arg ) ) {
+				return arg;
+			}
+		}
+
+		for( QueryAtom atom : query.findAtoms( QueryPredicate.PropertyValue, null, null, null ) ) {
+			ATermAppl arg = atom.getArguments().get( 0 );
+			if( isIndividualVar( query, arg ) ) {
+				return arg;
+			}
+		}
+
+		return null;
+	}
+
+	private static boolean isIndividualVar(Query query, ATermAppl arg) {
+		return query.getDistVarsForType( VarType.INDIVIDUAL ).contains( arg )
+				&& !query.getDistVarsForType( VarType.LITERAL ).contains( arg );
+	}
+
+	/**
+	 * Returns the individuals the variable can be bound to. If the KB is
+	 * realized the instances of a class the variable is typed with are found in
+	 * the taxonomy, otherwise all individuals are tried so that the instance
+	 * checks are done by the workers.
+	 */
+	private Collection<ATermAppl> getCandidates(Query query, ATermAppl var) {
+		KnowledgeBase kb = query.getKB();
+
+		if( kb.isRealized() ) {
+			for( QueryAtom atom : query.findAtoms( QueryPredicate.Type, var, null ) ) {
+				ATermAppl c = atom.getArguments().get( 1 );
+				if( ATermUtils.isPrimitive( c ) ) {
+					return kb.getInstances( c );
+				}
+			}
+		}
+
+		return kb.getIndividuals();
+	}
+}
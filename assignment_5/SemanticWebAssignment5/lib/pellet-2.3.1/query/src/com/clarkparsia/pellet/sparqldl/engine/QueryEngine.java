@@ -30,10 +30,12 @@ import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.Role;
 import org.mindswap.pellet.exceptions.InternalReasonerException;
+import org.mindswap.pellet.exceptions.TimerInterruptedException;
 import org.mindswap.pellet.utils.ATermUtils;
 import org.mindswap.pellet.utils.Bool;
 import org.mindswap.pellet.utils.DisjointSet;
 import org.mindswap.pellet.utils.SetUtils;
+import org.mindswap.pellet.utils.Timer;
 
 import aterm.ATermAppl;
 
@@ -98,6 +100,25 @@ public class QueryEngine {
 	}
 
 	public static QueryResult exec(final Query query) {
+		return exec( query, Long.MAX_VALUE, null );
+	}
+
+	/**
+	 * Executes the query computing at most the given number of bindings. The
+	 * search stops as soon as enough bindings are found so a small limit, e.g.
+	 * 1 for boolean queries, avoids computing the whole answer. The given timer
+	 * is checked while the query is being answered and interrupting it cancels
+	 * the execution with a {@link TimerInterruptedException}.
+	 * 
+	 * @param query
+	 *            query to execute
+	 * @param limit
+	 *            maximum number of bindings to compute
+	 * @param monitor
+	 *            timer checked during the execution, may be <code>null</code>
+	 * @return at most <code>limit</code> bindings
+	 */
+	public static QueryResult exec(final Query query, final long limit, final Timer monitor) {
 		if( query.getAtoms().isEmpty() ) {
 			final QueryResultImpl results = new QueryResultImpl( query );
 			results.add( new ResultBindingImpl() );
@@ -105,6 +126,15 @@ public class QueryEngine {
 		}
 		query.getKB().ensureConsistency();
 
+		Timer timer = query.getKB().timers.startTimer( "query" );
+		try {
+			return execQuery( query, limit, monitor );
+		} finally {
+			timer.stop();
+		}
+	}
+
+	private static QueryResult execQuery(final Query query, final long limit, final Timer monitor) {
 		// PREPROCESSING
 		if( log.isLoggable( Level.FINE ) ) {
 			log.fine( "Preprocessing:\n" + query );
@@ -131,13 +161,24 @@ public class QueryEngine {
 		if( queries.isEmpty() ) {
 			throw new InternalReasonerException( "Splitting query returned no results!" );
 		}
+		else if( PelletOptions.QUERY_THREADS > 1 && ParallelQueryEngine.supports( queries, limit ) ) {
+			final List<QueryResult> results = new ParallelQueryEngine( PelletOptions.QUERY_THREADS )
+					.exec( queries, limit, monitor );
+
+			r = (results.size() == 1)
+				? results.get( 0 )
+				: new MultiQueryResults( query.getResultVars(), results );
+		}
 		else if( queries.size() == 1 ) {
-			r = execSingleQuery( queries.get( 0 ) );
+			r = execSingleQuery( queries.get( 0 ), limit, monitor );
 		}
 		else {
+			// limiting each component to the limit still leaves enough
+			// combinations, unless one of them has fewer bindings in which
+			// case it is not affected by the limit
 			final List<QueryResult> results = new ArrayList<QueryResult>( queries.size() );
 			for( final Query q : queries ) {
-				results.add( execSingleQuery( q ) );
+				results.add( execSingleQuery( q, limit, monitor ) );
 			}
 
 			r = new MultiQueryResults( query.getResultVars(), results );
@@ -311,11 +352,11 @@ public class QueryEngine {
 		return false;
 	}
 
-	private static boolean hasUndefinedTerm(Query query) {
+	static boolean hasUndefinedTerm(Query query) {
 		return hasUndefinedTerm( query.getAtoms(), query.getKB() );
 	}
 
-	private static QueryResult execSingleQuery(Query query) {
+	private static QueryResult execSingleQuery(Query query, long limit, Timer monitor) {
 		if( hasUndefinedTerm( query ) ) {
 			return new QueryResultImpl( query );
 		}
@@ -326,7 +367,12 @@ public class QueryEngine {
 		//
 		// query = reorder(query);
 
-		return getQueryExec().exec( query );
+		QueryExec queryExec = getQueryExec();
+		if( queryExec instanceof CombinedQueryEngine ) {
+			return ((CombinedQueryEngine) queryExec).exec( query, limit, monitor );
+		}
+
+		return queryExec.exec( query );
 	}
 
 	/**
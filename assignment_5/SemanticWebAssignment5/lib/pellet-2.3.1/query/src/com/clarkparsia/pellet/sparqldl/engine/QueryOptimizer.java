@@ -6,11 +6,13 @@
 
 package com.clarkparsia.pellet.sparqldl.engine;
 
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.mindswap.pellet.PelletOptions;
 
 import com.clarkparsia.pellet.sparqldl.model.Query;
+import com.clarkparsia.pellet.sparqldl.model.QueryAtom;
 
 /**
  * <p>
@@ -47,7 +49,21 @@ public class QueryOptimizer {
 			if (LOG.isLoggable( Level.FINE )) {
 				LOG.fine("Using full query plan.");
 			}
-			return new CostBasedQueryPlanNew(query);
+
+			// there is nothing to reorder for a single atom
+			QueryPlanCache cache = QueryPlanCache.getCache(query.getKB());
+			if (cache == null || query.getAtoms().size() < 2) {
+				return new CostBasedQueryPlanNew(query);
+			}
+
+			List<QueryAtom> ordering = cache.getOrdering(query);
+			if (ordering != null) {
+				return new CostBasedQueryPlanNew(query, ordering);
+			}
+
+			CostBasedQueryPlanNew plan = new CostBasedQueryPlanNew(query);
+			cache.putOrdering(query, plan.getOrdering());
+			return plan;
 		}
 
 	}
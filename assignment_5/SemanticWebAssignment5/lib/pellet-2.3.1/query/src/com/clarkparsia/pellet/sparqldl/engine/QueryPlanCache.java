@@ -0,0 +1,324 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public
+// License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of
+// proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.sparqldl.engine;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.utils.ATermUtils;
+import org.mindswap.pellet.utils.SizeEstimate;
+
+import aterm.ATermAppl;
+
+import com.clarkparsia.pellet.sparqldl.model.Query;
+import com.clarkparsia.pellet.sparqldl.model.QueryAtom;
+import com.clarkparsia.pellet.sparqldl.model.ResultBindingImpl;
+
+/**
+ * <p>
+ * Title: Query Plan Cache
+ * </p>
+ * <p>
+ * Description: Caches the parsed queries and the atom orderings chosen by
+ * {@link CostBasedQueryPlanNew} for a KB so that the same queries executed
+ * many times are not parsed and planned every time. Orderings are stored for
+ * the shape of a query where variables are renamed in the order they appear
+ * and individuals and literals are abstracted away, so queries that only
+ * differ in the values of their parameters share the same plan. The cached
+ * entries are discarded whenever the KB is changed, i.e. when the KB computes
+ * a new size estimate the costs were based on. Both caches keep at most
+ * {@link PelletOptions#QUERY_PLAN_CACHE_SIZE} entries evicting the least
+ * recently used ones.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2008
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class QueryPlanCache {
+	public static final Logger								log			= Logger
+																				.getLogger( QueryPlanCache.class
+																						.getName() );
+
+	private static final Map<KnowledgeBase, QueryPlanCache>	caches		= new WeakHashMap<KnowledgeBase, QueryPlanCache>();
+
+	/**
+	 * Size estimate of the KB when the cached entries were computed. Only a
+	 * weak reference is kept since the estimate refers to the KB.
+	 */
+	private WeakReference<SizeEstimate>						estimate	= new WeakReference<SizeEstimate>(
+																				null );
+
+	private final Map<String, List<Integer>>				orderings	= new LRUMap<String, List<Integer>>();
+
+	/**
+	 * Parsed queries are stored without a KB so that the cache does not keep
+	 * the KB from being garbage collected
+	 */
+	private final Map<Object, Query>						queries		= new LRUMap<Object, Query>();
+
+	private long											planHits;
+
+	private long											planMisses;
+
+	private long											parseHits;
+
+	private long											parseMisses;
+
+	private long											invalidations;
+
+	private static class LRUMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long	serialVersionUID	= 1L;
+
+		public LRUMap() {
+			super( 16, 0.75f, true );
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > PelletOptions.QUERY_PLAN_CACHE_SIZE;
+		}
+	}
+
+	/**
+	 * Returns the cache for the given KB or <code>null</code> if caching is
+	 * disabled.
+	 */
+	public static QueryPlanCache getCache(KnowledgeBase kb) {
+		if( PelletOptions.QUERY_PLAN_CACHE_SIZE <= 0 ) {
+			return null;
+		}
+
+		synchronized( caches ) {
+			QueryPlanCache cache = caches.get( kb );
+			if( cache == null ) {
+				cache = new QueryPlanCache();
+				caches.put( kb, cache );
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Discards all the entries if the KB has changed since they were cached.
+	 */
+	private void validate(KnowledgeBase kb) {
+		SizeEstimate current = kb.getSizeEstimate();
+		if( estimate.get() != current ) {
+			if( !orderings.isEmpty() || !queries.isEmpty() ) {
+				invalidations++;
+
+				if( log.isLoggable( Level.FINE ) ) {
+					log.fine( "KB changed, discarding " + orderings.size() + " plans and "
+							+ queries.size() + " queries" );
+				}
+			}
+
+			orderings.clear();
+			queries.clear();
+			estimate = new WeakReference<SizeEstimate>( current );
+		}
+	}
+
+	/**
+	 * Returns a copy of the query previously parsed for the given key or
+	 * <code>null</code> if there is no such query. The key should identify the
+	 * query text and everything else the parser depends on.
+	 */
+	public synchronized Query getParsedQuery(Object key, KnowledgeBase kb) {
+		validate( kb );
+
+		Query query = queries.get( key );
+		if( query == null ) {
+			parseMisses++;
+			return null;
+		}
+
+		parseHits++;
+
+		// the cached query might be modified during query answering so a copy
+		// is returned
+		query.setKB( kb );
+		try {
+			return query.apply( new ResultBindingImpl() );
+		} finally {
+			query.setKB( null );
+		}
+	}
+
+	/**
+	 * Caches a copy of the query parsed for the given key.
+	 */
+	public synchronized void putParsedQuery(Object key, Query query) {
+		KnowledgeBase kb = query.getKB();
+		validate( kb );
+
+		Query copy = query.apply( new ResultBindingImpl() );
+		copy.setKB( null );
+		queries.put( key, copy );
+	}
+
+	/**
+	 * Returns the atoms of the query in the order previously chosen for a query
+	 * with the same shape or <code>null</code> if there is no such ordering.
+	 */
+	public synchronized List<QueryAtom> getOrdering(Query query) {
+		validate( query.getKB() );
+
+		List<Integer> indexes = orderings.get( getShape( query ) );
+		if( indexes == null ) {
+			planMisses++;
+			return null;
+		}
+
+		planHits++;
+
+		List<QueryAtom> atoms = query.getAtoms();
+		List<QueryAtom> ordering = new ArrayList<QueryAtom>( indexes.size() );
+		for( Integer index : indexes ) {
+			ordering.add( atoms.get( index ) );
+		}
+
+		return ordering;
+	}
+
+	/**
+	 * Caches the order of the atoms chosen for the query.
+	 */
+	public synchronized void putOrdering(Query query, List<QueryAtom> ordering) {
+		validate( query.getKB() );
+
+		List<QueryAtom> atoms = query.getAtoms();
+		List<Integer> indexes = new ArrayList<Integer>( ordering.size() );
+		for( QueryAtom atom : ordering ) {
+			indexes.add( atoms.indexOf( atom ) );
+		}
+
+		orderings.put( getShape( query ), indexes );
+	}
+
+	/**
+	 * Returns a string describing the atoms of the query where variables are
+	 * numbered in the order they appear and individuals and literals are
+	 * replaced by a placeholder.
+	 */
+	private static String getShape(Query query) {
+		KnowledgeBase kb = query.getKB();
+		Map<ATermAppl, Integer> vars = new HashMap<ATermAppl, Integer>();
+
+		StringBuilder sb = new StringBuilder();
+		for( QueryAtom atom : query.getAtoms() ) {
+			switch ( atom.getPredicate() ) {
+			case UndistVarCore:
+			case NotKnown:
+			case Union:
+				// nested atoms are compared as they are
+				sb.append( atom );
+				break;
+			default:
+				sb.append( atom.getPredicate() ).append( '(' );
+				for( ATermAppl arg : atom.getArguments() ) {
+					if( ATermUtils.isVar( arg ) ) {
+						Integer index = vars.get( arg );
+						if( index == null ) {
+							index = vars.size();
+							vars.put( arg, index );
+						}
+						sb.append( '?' ).append( index );
+					}
+					else if( ATermUtils.isLiteral( arg ) || kb.isIndividual( arg )
+							&& !kb.isClass( arg ) && !kb.isProperty( arg ) ) {
+						sb.append( '_' );
+					}
+					else {
+						sb.append( arg );
+					}
+					sb.append( ' ' );
+				}
+				sb.append( ')' );
+			}
+			sb.append( ", " );
+		}
+
+		return sb.toString();
+	}
+
+	public synchronized long getPlanHits() {
+		return planHits;
+	}
+
+	public synchronized long getPlanMisses() {
+		return planMisses;
+	}
+
+	public synchronized long getParseHits() {
+		return parseHits;
+	}
+
+	public synchronized long getParseMisses() {
+		return parseMisses;
+	}
+
+	/**
+	 * Returns the number of times the cached entries were discarded because
+	 * the KB changed.
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Returns the ratio of plans found in the cache or 0 if no plan was
+	 * requested yet.
+	 */
+	public synchronized double getPlanHitRate() {
+		long total = planHits + planMisses;
+		return total == 0
+			? 0
+			: (double) planHits / total;
+	}
+
+	/**
+	 * Returns the ratio of parsed queries found in the cache or 0 if no query
+	 * was requested yet.
+	 */
+	public synchronized double getParseHitRate() {
+		long total = parseHits + parseMisses;
+		return total == 0
+			? 0
+			: (double) parseHits / total;
+	}
+
+	/**
+	 * Removes all the cached entries and resets the statistics.
+	 */
+	public synchronized void clear() {
+		orderings.clear();
+		queries.clear();
+		planHits = planMisses = parseHits = parseMisses = invalidations = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "QueryPlanCache[plans=" + orderings.size() + " hits=" + planHits + " misses="
+				+ planMisses + ", queries=" + queries.size() + " hits=" + parseHits + " misses="
+				+ parseMisses + ", invalidations=" + invalidations + "]";
+	}
+}
@@ -8,9 +8,11 @@
 
 package com.clarkparsia.pellet.sparqldl.jena;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,9 +22,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.exceptions.TimerInterruptedException;
 import org.mindswap.pellet.exceptions.UnsupportedQueryException;
 import org.mindswap.pellet.jena.PelletInfGraph;
+import org.mindswap.pellet.utils.Timer;
 
+import com.clarkparsia.pellet.sparqldl.engine.QueryPlanCache;
 import com.clarkparsia.pellet.sparqldl.model.QueryParameters;
 import com.clarkparsia.pellet.sparqldl.parser.ARQParser;
 import com.hp.hpl.jena.graph.Graph;
@@ -30,6 +35,7 @@ import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.query.DatasetFactory;
 import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryCancelledException;
 import com.hp.hpl.jena.query.QueryException;
 import com.hp.hpl.jena.query.QueryExecException;
 import com.hp.hpl.jena.query.QueryExecution;
@@ -38,6 +44,7 @@ import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.query.SortCondition;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Statement;
@@ -80,6 +87,10 @@ class SparqlDLExecution implements QueryExecution {
 
 	private boolean handleVariableSPO = true;
 
+	private final Timer monitor = new Timer("SparqlDLExecution");
+
+	private volatile boolean aborted = false;
+
 	public SparqlDLExecution(String query, Model source) {
 		this(QueryFactory.create(query), source);
 	}
@@ -206,6 +217,9 @@ class SparqlDLExecution implements QueryExecution {
 	 * @return the query results or <code>null</code> for unsupported queried
 	 */
 	private ResultSet exec() {
+		if (aborted)
+			throw new QueryCancelledException();
+
 		try {
 			if (source.listNames().hasNext())
 				throw new UnsupportedQueryException("Named graphs is not supported by Pellet");
@@ -217,22 +231,46 @@ class SparqlDLExecution implements QueryExecution {
 
 			QueryParameters queryParameters = new QueryParameters(initialBinding);
 
-			ARQParser parser = new ARQParser(handleVariableSPO);
-			// The parser uses the query parameterization to resolve parameters
-			// (i.e. variables) in the query
-			parser.setInitialBinding(initialBinding);
+			// Reuse the query parsed for a previous execution of the same query
+			// with the same parameters if the KB has not changed since then
+			QueryPlanCache cache = QueryPlanCache.getCache(kb);
+			com.clarkparsia.pellet.sparqldl.model.Query q = (cache == null) ? null : cache.getParsedQuery(
+			                getParseKey(query), kb);
 
-			com.clarkparsia.pellet.sparqldl.model.Query q = parser.parse(query, kb);
+			if (q == null) {
+				ARQParser parser = new ARQParser(handleVariableSPO);
+				// The parser uses the query parameterization to resolve parameters
+				// (i.e. variables) in the query
+				parser.setInitialBinding(initialBinding);
+
+				q = parser.parse(query, kb);
+
+				if (cache != null)
+					cache.putParsedQuery(getParseKey(query.cloneQuery()), q);
+			}
 			// The query uses the query parameterization to resolve bindings
 			// (i.e. for instance if the parameter variable is in query
 			// projection, we need to add the initial binding to the resulting
 			// bindings manually)
 			q.setQueryParameters(queryParameters);
 
-			ResultSet results = new SparqlDLResultSet(com.clarkparsia.pellet.sparqldl.engine.QueryEngine.exec(q),
-			                source.getDefaultModel(), queryParameters);
-
 			List<SortCondition> sortConditions = query.getOrderBy();
+
+			// stop the search as soon as the bindings that will be returned are
+			// found, unless all of them are needed for sorting
+			long bindingLimit = Long.MAX_VALUE;
+			if (query.isAskType()) {
+				bindingLimit = 1;
+			}
+			else if (query.hasLimit() && (sortConditions == null || sortConditions.isEmpty())) {
+				long offset = query.hasOffset() ? query.getOffset() : 0;
+				if (query.getLimit() < Long.MAX_VALUE - offset)
+					bindingLimit = offset + query.getLimit();
+			}
+
+			ResultSet results = new SparqlDLResultSet(com.clarkparsia.pellet.sparqldl.engine.QueryEngine.exec(q,
+			                bindingLimit, monitor), source.getDefaultModel(), queryParameters);
+
 			if (sortConditions != null && !sortConditions.isEmpty()) {
 				results = new SortedResultSet(results, sortConditions);
 			}
@@ -245,6 +283,9 @@ class SparqlDLExecution implements QueryExecution {
 
 			return results;
 		}
+		catch (TimerInterruptedException e) {
+			throw new QueryCancelledException();
+		}
 		catch (UnsupportedQueryException e) {
 			log.log(purePelletQueryExec ? Level.INFO : Level.FINE, "This is not a SPARQL-DL query: " + e.getMessage());
 
@@ -258,9 +299,15 @@ class SparqlDLExecution implements QueryExecution {
 		}
 	}
 
+	/**
+	 * Cancels the execution. A query being answered in another thread stops
+	 * and throws a {@link QueryCancelledException} and this execution cannot
+	 * be used anymore.
+	 */
 	@Override
 	public void abort() {
-		throw new UnsupportedOperationException("Not supported yet!");
+		aborted = true;
+		monitor.interrupt();
 	}
 
 	/**
@@ -314,6 +361,23 @@ class SparqlDLExecution implements QueryExecution {
 		return null;
 	}
 
+	/**
+	 * Returns the key identifying the result of parsing the given query, i.e.
+	 * the query itself, the initial binding and the way variable predicates are
+	 * handled.
+	 */
+	private Object getParseKey(Query query) {
+		Map<String, RDFNode> binding = new LinkedHashMap<String, RDFNode>();
+		if (initialBinding != null) {
+			for (Iterator<String> vars = initialBinding.varNames(); vars.hasNext();) {
+				String var = vars.next();
+				binding.put(var, initialBinding.get(var));
+			}
+		}
+
+		return Arrays.asList(query, binding, handleVariableSPO);
+	}
+
 	public boolean isPurePelletQueryExec() {
 		return purePelletQueryExec;
 	}
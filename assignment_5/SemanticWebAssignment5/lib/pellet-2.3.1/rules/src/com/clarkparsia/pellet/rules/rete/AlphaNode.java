@@ -6,10 +6,7 @@
 
 package com.clarkparsia.pellet.rules.rete;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.mindswap.pellet.utils.ATermUtils;
 
@@ -33,76 +30,102 @@ public class AlphaNode extends Node {
 
 	protected TermTuple			pattern;
 
+	/**
+	 * For each position of the pattern the first position of the same
+	 * variable or -1 for constants
+	 */
+	private int[]				varPositions;
+
+	/**
+	 * Positions of the key variables in the pattern, computed on the first
+	 * match once the shared variables are known
+	 */
+	private int[]				keyPositions;
+
 	public AlphaNode(TermTuple t) {
 		this.pattern = t;
 		this.vars = pattern.getVars();
 		
 		//Collections.sort(vars);
-	}
-	
-	public boolean add(Fact fact) {
-		List<ATermAppl> key = match( fact );
 
-		if( key != null ) {
-			markDirty();
-			return index.add( key, new Fact( fact.getDependencySet(), key ) );
+		List<ATermAppl> pList = pattern.getElements();
+		varPositions = new int[pList.size()];
+		for( int i = 0; i < varPositions.length; i++ ) {
+			ATermAppl p = pList.get( i );
+			varPositions[i] = ATermUtils.isVar( p )
+				? pList.indexOf( p )
+				: -1;
 		}
-		return false;
 	}
-
+	
 	/**
-	 * Mark any dependent beta nodes as 'dirty' (needing to be reprocessed)
+	 * Add the fact to this node if it matches the pattern.
+	 * 
+	 * @return the token added to the index of this node or <code>null</code>
+	 *         if the fact does not match or was already added
 	 */
-	public void markDirty() {
-		for ( BetaNode beta : getBetas() ) {
-			beta.markDirty();
+	public Fact add(Fact fact) {
+		ATermAppl[] key = match( fact );
+
+		if( key != null ) {
+			Fact token = new Fact( fact.getDependencySet(), key );
+			if( index.add( token ) )
+				return token;
 		}
+		return null;
 	}
 	
 	/**
 	 * Determine whether the fact matches the node's pattern
 	 * 
-	 * @return a list of constants in key order.
+	 * @return an array of constants in key order.
 	 */
-	private List<ATermAppl> match(Fact fact) {
+	private ATermAppl[] match(Fact fact) {
+		List<ATermAppl> pList = this.pattern.getElements();
+		List<ATermAppl> fList = fact.getElements();
 
-		if( fact.getElements().size() != pattern.getElements().size() )
+		if( fList.size() != pList.size() )
 			return null;
 
-		Map<ATermAppl, ATermAppl> bindings = new HashMap<ATermAppl, ATermAppl>();
-		List<ATermAppl> pList = this.pattern.getElements();
-		List<ATermAppl> fList = fact.getElements();
-		ATermAppl p = null;
-		ATermAppl f = null;
-		for( int i = 0; i < pattern.getElements().size(); i++ ) {
-			p = pList.get( i );
-			f = fList.get( i );
-
-			if( !ATermUtils.isVar(p) ) {
-				if( !p.equals( f ) )
+		for( int i = 0; i < varPositions.length; i++ ) {
+			int first = varPositions[i];
+			if( first < 0 ) {
+				if( !pList.get( i ).equals( fList.get( i ) ) )
 					return null;
 			}
-			else if( !bindings.containsKey( p ) )
-				bindings.put( p, f );
-			else if( !bindings.get( p ).equals( f ) )
+			else if( first != i && !fList.get( first ).equals( fList.get( i ) ) )
 				return null;
 		}
 
-		List<ATermAppl> bindingList = new ArrayList<ATermAppl>();
-		for( ATermAppl var : getKey() ) {
-			bindingList.add( bindings.get( var ) );
+		if( keyPositions == null ) {
+			List<ATermAppl> key = getKey();
+			keyPositions = new int[key.size()];
+			for( int i = 0; i < keyPositions.length; i++ )
+				keyPositions[i] = pList.indexOf( key.get( i ) );
 		}
-		return bindingList;
+
+		ATermAppl[] bindings = new ATermAppl[keyPositions.length];
+		for( int i = 0; i < keyPositions.length; i++ )
+			bindings[i] = fList.get( keyPositions[i] );
+
+		return bindings;
 	}
 	
-	public boolean remove( Fact fact ) {
-		List<ATermAppl> key = match( fact );
+	/**
+	 * Remove the fact from this node.
+	 * 
+	 * @return the token removed from the index of this node or
+	 *         <code>null</code> if the fact was not found
+	 */
+	public Fact remove( Fact fact ) {
+		ATermAppl[] key = match( fact );
 
 		if( key != null ) {
-			markDirty();
-			return index.remove( key, new Fact( fact.getDependencySet(), key ) );
+			Fact token = new Fact( fact.getDependencySet(), key );
+			if( index.remove( token ) )
+				return token;
 		}
-		return false;
+		return null;
 	}
 	
 	public void reset() {
@@ -7,7 +7,6 @@
 package com.clarkparsia.pellet.rules.rete;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -16,7 +15,6 @@ import java.util.Set;
 import org.mindswap.pellet.ABox;
 import org.mindswap.pellet.DependencySet;
 import org.mindswap.pellet.utils.ATermUtils;
-import org.mindswap.pellet.utils.Pair;
 
 import aterm.ATermAppl;
 
@@ -25,7 +23,10 @@ import aterm.ATermAppl;
  * Title: Beta Node
  * </p>
  * <p>
- * Description:
+ * Description: Joins the tokens of two nodes on their shared variables. The
+ * join is computed incrementally, i.e. each token added to one of the parents
+ * is only joined with the tokens of the other parent, see
+ * {@link #join(Node, Fact)}.
  * </p>
  * <p>
  * Copyright: Copyright (c) 2007
@@ -37,7 +38,6 @@ import aterm.ATermAppl;
 public class BetaNode extends Node {
 
 	private boolean			doExplanation;
-	private boolean 		dirty;
 	public Node				lnode;
 
 	public List<BetaNode>	parents;
@@ -45,18 +45,32 @@ public class BetaNode extends Node {
 
 	public RuleNode			rule;
 
+	/**
+	 * Positions of the variables of the joined tokens (the variables of the
+	 * left token followed by the unshared variables of the right token) in the
+	 * key of this node, computed on the first join
+	 */
+	private int[]			permutation;
+
+	/**
+	 * The key of this node used to find the values of the variables in the
+	 * rule head, computed on the first inference
+	 */
+	private List<ATermAppl>	key;
+
 	public BetaNode(Node lnode, Node rnode, boolean doExplanation) {
 		super();
 		this.doExplanation = doExplanation;
 		this.lnode = lnode;
 		this.rnode = rnode;
-		dirty = true;
 
 		List<ATermAppl> shared = Utils.getSharedVars( lnode, rnode );
 		//Collections.sort( shared );
 
 		lnode.svars = shared;
 		rnode.svars = shared;
+		lnode.index.setKeySize( shared.size() );
+		rnode.index.setKeySize( shared.size() );
 
 		vars = Utils.concat( shared, lnode.vars );
 		vars = Utils.concat( vars, rnode.vars );
@@ -81,7 +95,9 @@ public class BetaNode extends Node {
 
 	private ATermAppl getVar(ATermAppl var, List<ATermAppl> fact) {
 		if( vars.contains( var ) ) {
-			int index = getKey().indexOf( var );
+			if( key == null )
+				key = getKey();
+			int index = key.indexOf( var );
 			
 			return fact.get( index );
 		}
@@ -104,44 +120,59 @@ public class BetaNode extends Node {
 		return perm;
 	}
 	
-	public boolean isDirty() { return dirty; }
+	/**
+	 * Join a token of one of the parent nodes with the matching tokens of the
+	 * other parent. The returned tokens are not added to the index of this
+	 * node.
+	 * 
+	 * @param source
+	 *            the parent node the token belongs to
+	 * @param token
+	 *            a token of the parent node
+	 * @return the tokens of this node the given token participates in
+	 */
+	public List<Fact> join(Node source, Fact token) {
+		if( permutation == null )
+			permutation = getVarPermutation();
 
-	public List<Fact> join() {
-		dirty = false;
-		
-		int[] permutation = getVarPermutation();
 		List<Fact> facts = new ArrayList<Fact>();
-		
-		for( Pair<Fact, Fact> match : lnode.index.join( rnode.index, lnode.svars.size() ) ) {
-			List<ATermAppl> constants = new ArrayList<ATermAppl>( permutation.length );
-			constants.addAll( match.first.getElements() );
-			if( rnode.vars.size() <= match.second.getElements().size() )
-				constants.addAll( match.second.getElements().subList( lnode.svars.size(), rnode.vars.size() ) );
-
-			ATermAppl[] factParts = new ATermAppl[permutation.length];
-			for( int i = 0; i < permutation.length; i++ )
-				factParts[permutation[i]] = constants.get( i );
-
-			DependencySet ds = match.first.getDependencySet();
-			ds = ds.union( match.second.getDependencySet(), doExplanation );
-
-			List<ATermAppl> orderedConstants = Arrays.asList( factParts );
-			Fact fact = new Fact( ds, orderedConstants );
-			facts.add( fact );
-			index.add( orderedConstants, fact );
+
+		if( lnode == rnode ) {
+			// all the variables are shared so the only match is the token itself
+			facts.add( join( token, token ) );
 		}
-			
+		else if( source == lnode ) {
+			for( Fact right : rnode.index.getMatches( token ) )
+				facts.add( join( token, right ) );
+		}
+		else {
+			for( Fact left : lnode.index.getMatches( token ) )
+				facts.add( join( left, token ) );
+		}
+
 		return facts;
 	}
 
-	public void markDirty() {
-		dirty = true;
-		index.clear();
-		for ( BetaNode child : getBetas() ) {
-			child.markDirty();
+	private Fact join(Fact left, Fact right) {
+		List<ATermAppl> leftElements = left.getElements();
+		List<ATermAppl> rightElements = right.getElements();
+
+		ATermAppl[] factParts = new ATermAppl[permutation.length];
+		int n = leftElements.size();
+		for( int i = 0; i < n; i++ )
+			factParts[permutation[i]] = leftElements.get( i );
+
+		if( rnode.vars.size() <= rightElements.size() ) {
+			for( int i = lnode.svars.size(); i < rnode.vars.size(); i++ )
+				factParts[permutation[n++]] = rightElements.get( i );
 		}
+
+		DependencySet ds = left.getDependencySet();
+		ds = ds.union( right.getDependencySet(), doExplanation );
+
+		return new Fact( ds, factParts );
 	}
-	
+
 	public Set<Fact> matchingFacts(TermTuple rhs, List<Fact> facts) {
 		Set<Fact> results = new HashSet<Fact>();
 		for( Fact f : facts ) {
@@ -165,8 +196,8 @@ public class BetaNode extends Node {
 	@Override
 	public void reset() {
 		super.reset();
-		for ( BetaNode parent : parents ) {
-			parent.reset();
+		for ( BetaNode child : getBetas() ) {
+			child.reset();
 		}
 		
 	}
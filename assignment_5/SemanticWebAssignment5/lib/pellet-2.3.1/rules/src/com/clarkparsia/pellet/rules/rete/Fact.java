@@ -41,7 +41,8 @@ public class Fact extends Tuple<ATermAppl> {
 	public boolean equals(Object other) {
 		if( other instanceof Fact ) {
 			Fact otherFact = (Fact) other;
-			return getElements().equals( otherFact.getElements() );
+			return hashCode() == otherFact.hashCode()
+					&& getElements().equals( otherFact.getElements() );
 		}
 		return false;
 	}
@@ -7,10 +7,10 @@
 package com.clarkparsia.pellet.rules.rete;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -18,7 +18,6 @@ import org.mindswap.pellet.ABox;
 import org.mindswap.pellet.DependencySet;
 import org.mindswap.pellet.exceptions.InternalReasonerException;
 import org.mindswap.pellet.utils.Pair;
-import org.mindswap.pellet.utils.SetUtils;
 
 import aterm.ATermAppl;
 
@@ -27,7 +26,12 @@ import aterm.ATermAppl;
  * Title: Interpreter
  * </p>
  * <p>
- * Description:
+ * Description: Propagates the facts added to the rete network incrementally.
+ * Each token added to a node is queued and, when the interpreter is run, only
+ * joined with the tokens of the nodes it shares a beta node with so the cost
+ * of adding a fact depends on the joins it participates in rather than the
+ * number of facts. Removed facts retract the tokens derived from them the
+ * same way.
  * </p>
  * <p>
  * Copyright: Copyright (c) 2007
@@ -38,20 +42,35 @@ import aterm.ATermAppl;
  */
 public class Interpreter {
 
-	private Set<AlphaNode>								dirtyAlphas;
-	private List<Pair<Integer, Collection<AlphaNode>>>	dirtyHistory;
+	/**
+	 * Tokens added to a node that have not been propagated to its children yet
+	 */
+	private LinkedList<Pair<Node, Fact>>				agenda;
+	/**
+	 * Rule activations with the branch they were fired on, in the order they
+	 * were fired
+	 */
+	private List<Pair<Integer, Pair<BetaNode, Fact>>>	firingHistory;
+	/**
+	 * Rule activations whose inferences were removed by a restore and need to
+	 * be fired again
+	 */
+	private List<Pair<BetaNode, Fact>>					pendingFirings;
 	private Set<Fact>									inferredFacts;
 	private Set<Fact>									matchingFacts;
+	private Set<Fact>									newInferences;
 	public Compiler										rete;
 
 	public Interpreter(ABox abox) {
 		super();
 
 		rete = new Compiler( this, abox );
-		dirtyAlphas = new HashSet<AlphaNode>();
-		dirtyHistory = new ArrayList<Pair<Integer, Collection<AlphaNode>>>();
+		agenda = new LinkedList<Pair<Node, Fact>>();
+		firingHistory = new ArrayList<Pair<Integer, Pair<BetaNode, Fact>>>();
+		pendingFirings = new ArrayList<Pair<BetaNode, Fact>>();
 		inferredFacts = new HashSet<Fact>();
 		matchingFacts = new HashSet<Fact>();
+		newInferences = new HashSet<Fact>();
 	}
 
 	public boolean addFact(Fact f) {
@@ -66,13 +85,16 @@ public class Interpreter {
 			// Need to change the branch number so we know when it was inferred
 			f = new Fact( copyDS( f.getDependencySet() ), f.getElements() );
 			inferredFacts.add( f );
+			newInferences.add( f );
 		}
 
 		boolean matched = false;
 		for( AlphaNode a : rete.alphaIndex.match( f ) ) {
-			a.add( f );
-			matched = true;
-			dirtyAlphas.add( a );
+			Fact token = a.add( f );
+			if( token != null ) {
+				matched = true;
+				agenda.add( new Pair<Node, Fact>( a, token ) );
+			}
 		}
 
 		if( matched )
@@ -91,7 +113,7 @@ public class Interpreter {
 	}
 
 	public boolean isDirty() {
-		return !dirtyAlphas.isEmpty();
+		return !agenda.isEmpty() || !pendingFirings.isEmpty();
 	}
 
 	private boolean knowFact(Fact f) {
@@ -99,40 +121,84 @@ public class Interpreter {
 				|| (inferredFacts != null && inferredFacts.contains( f ));
 	}
 
-	private void processBetaNodes( List<BetaNode> dirtyBetas ) {
-		while ( !dirtyBetas.isEmpty() ) {
-			BetaNode betaNode = dirtyBetas.remove( 0 );
-			
-			if ( !betaNode.isDirty() )
+	/**
+	 * Add the inferences of a rule for the given token of its beta node.
+	 */
+	private void fire(BetaNode betaNode, Fact token) {
+		int branch = rete.abox.getBranch();
+		if( branch > 0 )
+			firingHistory.add( new Pair<Integer, Pair<BetaNode, Fact>>( branch,
+					new Pair<BetaNode, Fact>( betaNode, token ) ) );
+
+		List<TermTuple> termTuples = betaNode.rule.rhs;
+
+		// Special case for empty head to
+		if( termTuples.isEmpty() )
+			termTuples = Collections.singletonList( new TermTuple( DependencySet.INDEPENDENT ) );
+
+		List<Fact> inferences = Collections.singletonList( token );
+		for( TermTuple triple : termTuples ) {
+			Set<Fact> results = betaNode.matchingFacts( triple, inferences );
+			for( Fact result : results )
+				addFact( result, false );
+		}
+	}
+
+	/**
+	 * Join the queued tokens with the tokens of the other parents of their
+	 * beta nodes until no new token is created.
+	 */
+	private void processAgenda() {
+		while( !agenda.isEmpty() ) {
+			Pair<Node, Fact> activation = agenda.removeFirst();
+			Node source = activation.first;
+			Fact token = activation.second;
+
+			// the token might have been removed since it was queued
+			if( !source.index.contains( token ) )
 				continue;
-			
-			List<Fact> inferences = betaNode.join();
-
-			if( inferences != null && inferences.size() > 0 ) {
-				if( betaNode.rule != null ) {
-					List<TermTuple> termTuples = betaNode.rule.rhs;
-					
-					// Special case for empty head to
-					if( termTuples.isEmpty() )
-						termTuples = Collections.singletonList( new TermTuple(
-								DependencySet.INDEPENDENT ) );
-					
-					for( TermTuple triple : termTuples ) {
-						Set<Fact> results = betaNode.matchingFacts( triple, inferences );
-						for( Fact result : results )
-							addFact( result, false );
-					}
-				}
-				else {
-					for ( BetaNode child : betaNode.getBetas() ) {
-						child.markDirty();
-						dirtyBetas.add( child );
-					}
+
+			for( BetaNode betaNode : source.getBetas() ) {
+				for( Fact joined : betaNode.join( source, token ) ) {
+					if( !betaNode.index.add( joined ) )
+						continue;
+
+					if( betaNode.rule != null )
+						fire( betaNode, joined );
+					else
+						agenda.add( new Pair<Node, Fact>( betaNode, joined ) );
 				}
 			}
 		}
 	}
 
+	/**
+	 * Remove the tokens derived from the given token of a node. The token
+	 * itself should be removed from the node by the caller.
+	 */
+	private void retract(Node source, Fact token) {
+		for( BetaNode betaNode : source.getBetas() ) {
+			for( Fact joined : betaNode.join( source, token ) ) {
+				if( betaNode.index.remove( joined ) && betaNode.rule == null )
+					retract( betaNode, joined );
+			}
+		}
+	}
+
+	/**
+	 * Remove the fact from the alpha nodes it was added to along with the
+	 * tokens derived from it.
+	 */
+	private void removeFact(Fact fact) {
+		for( AlphaNode a : rete.alphaIndex.match( fact ) ) {
+			Fact token = a.remove( fact );
+			if( token == null )
+				throw new InternalReasonerException( "Couldn't remove fact: " + fact );
+
+			retract( a, token );
+		}
+	}
+
 	/**
 	 * Remove all facts that have a term matching 't'
 	 * 
@@ -146,12 +212,7 @@ public class Interpreter {
 				if( element.equals( t ) ) {
 					iter.remove();
 					changed = true;
-					for( AlphaNode a : rete.alphaIndex.match( fact ) ) {
-						if( !a.remove( fact ) )
-							throw new InternalReasonerException( "Could not remove fact" );
-
-						dirtyAlphas.add( a );
-					}
+					removeFact( fact );
 					break;
 				}
 			}
@@ -164,14 +225,18 @@ public class Interpreter {
 	 */
 	public void reset() {
 		rete.alphaIndex.reset();
-		dirtyAlphas.clear();
-		dirtyHistory.clear();
+		agenda.clear();
+		firingHistory.clear();
+		pendingFirings.clear();
 		inferredFacts.clear();
 		matchingFacts.clear();
 	}
 
 	/**
-	 * Restore abox to the given branch
+	 * Restore abox to the given branch. The facts added after the branch are
+	 * retracted from the network and the rules fired after the branch are
+	 * fired again if their tokens still hold since their inferences are
+	 * removed from the abox.
 	 * 
 	 * @return true if a matching fact was removed. False otherwise.
 	 */
@@ -179,33 +244,13 @@ public class Interpreter {
 
 		boolean changed = false;
 
-		for( Iterator<Pair<Integer, Collection<AlphaNode>>> setIter = dirtyHistory.iterator(); setIter
-				.hasNext(); ) {
-			Pair<Integer, Collection<AlphaNode>> pair = setIter.next();
-			if( pair.first > branch ) {
-				for( AlphaNode a : pair.second ) {
-					a.markDirty();
-					dirtyAlphas.add( a );
-					changed = true;
-				}
-				setIter.remove();
-			}
-			else
-				break;
-		}
-
 		for( Iterator<Fact> factIter = matchingFacts.iterator(); factIter.hasNext(); ) {
 			Fact fact = factIter.next();
 
 			if( fact.getDependencySet().getBranch() > branch ) {
 				factIter.remove();
-				for( AlphaNode a : rete.alphaIndex.match( fact ) ) {
-					if( !a.remove( fact ) )
-						throw new InternalReasonerException( "Couldn't remove fact: " + fact );
-
-					dirtyAlphas.add( a );
-					changed = true;
-				}
+				removeFact( fact );
+				changed = true;
 			}
 		}
 
@@ -216,26 +261,43 @@ public class Interpreter {
 				factIter.remove();
 		}
 
+		// firings are recorded in the order of increasing branches
+		while( !firingHistory.isEmpty() ) {
+			int last = firingHistory.size() - 1;
+			Pair<Integer, Pair<BetaNode, Fact>> firing = firingHistory.get( last );
+			if( firing.first <= branch )
+				break;
+
+			firingHistory.remove( last );
+
+			BetaNode betaNode = firing.second.first;
+			Fact token = firing.second.second;
+			if( betaNode.index.contains( token ) ) {
+				pendingFirings.add( firing.second );
+				changed = true;
+			}
+		}
+
 		return changed;
 	}
 
 	public Set<Fact> run() {
-		// Inserts empty fact to fire rules without bodies
-		Collection<AlphaNode> savedDirties = new ArrayList<AlphaNode>( dirtyAlphas );
-		dirtyHistory.add( 0, new Pair<Integer, Collection<AlphaNode>>( rete.abox.getBranch(),
-				savedDirties ) );
+		newInferences = new HashSet<Fact>();
 
-		Collection<Fact> oldInferred = new ArrayList<Fact>( inferredFacts );
 		while( isDirty() ) {
-			List<BetaNode> dirtyBetas = new ArrayList<BetaNode>();
-
-			for( AlphaNode alphaNode : dirtyAlphas )
-				dirtyBetas.addAll( alphaNode.getBetas() );
+			if( !pendingFirings.isEmpty() ) {
+				List<Pair<BetaNode, Fact>> firings = pendingFirings;
+				pendingFirings = new ArrayList<Pair<BetaNode, Fact>>();
+				for( Pair<BetaNode, Fact> firing : firings ) {
+					// the token might have been retracted by another restore
+					if( firing.first.index.contains( firing.second ) )
+						fire( firing.first, firing.second );
+				}
+			}
 
-			dirtyAlphas.clear();
-			processBetaNodes( dirtyBetas );
+			processAgenda();
 		}
 
-		return SetUtils.difference( inferredFacts, oldInferred );
+		return newInferences;
 	}
 }
@@ -0,0 +1,170 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.rules.rete;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import aterm.ATermAppl;
+
+/**
+ * <p>
+ * Title: Join Index
+ * </p>
+ * <p>
+ * Description: The memory of a rete node. Tokens are hashed on their first
+ * <code>keySize</code> elements, i.e. the values of the variables the node
+ * shares with its child beta node, so that the tokens joining with a token of
+ * the other parent are found with a single lookup and can be iterated
+ * without copying. Tokens with a single join variable (the common case) are
+ * hashed directly on that value and tokens without join variables are kept in
+ * a single bucket.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2007
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class JoinIndex implements Iterable<Fact> {
+
+	private int						keySize;
+	private Map<Object, Set<Fact>>	buckets;
+	private int						size;
+
+	public JoinIndex() {
+		keySize = 0;
+		clear();
+	}
+
+	/**
+	 * Return the number of leading elements of the tokens used as the join
+	 * key.
+	 */
+	public int getKeySize() {
+		return keySize;
+	}
+
+	/**
+	 * Set the number of leading elements of the tokens used as the join key.
+	 * The tokens already in the index are rehashed.
+	 */
+	public void setKeySize(int keySize) {
+		if( this.keySize == keySize )
+			return;
+
+		List<Fact> tokens = new ArrayList<Fact>( size );
+		for( Fact token : this )
+			tokens.add( token );
+
+		clear();
+		this.keySize = keySize;
+		for( Fact token : tokens )
+			add( token );
+	}
+
+	private Object getKey(List<ATermAppl> elements) {
+		switch ( keySize ) {
+		case 0:
+			return null;
+		case 1:
+			return elements.get( 0 );
+		default:
+			return elements.subList( 0, keySize );
+		}
+	}
+
+	/**
+	 * Add a token to the index.
+	 *
+	 * @return true if the token was not already in the index
+	 */
+	public boolean add(Fact token) {
+		Object key = getKey( token.getElements() );
+		Set<Fact> bucket = buckets.get( key );
+		if( bucket == null ) {
+			bucket = new HashSet<Fact>();
+			buckets.put( key, bucket );
+		}
+
+		if( bucket.add( token ) ) {
+			size++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Remove a token from the index.
+	 *
+	 * @return true if the token was in the index
+	 */
+	public boolean remove(Fact token) {
+		Object key = getKey( token.getElements() );
+		Set<Fact> bucket = buckets.get( key );
+		if( bucket == null || !bucket.remove( token ) )
+			return false;
+
+		if( bucket.isEmpty() )
+			buckets.remove( key );
+		size--;
+		return true;
+	}
+
+	public boolean contains(Fact token) {
+		Set<Fact> bucket = buckets.get( getKey( token.getElements() ) );
+		return bucket != null && bucket.contains( token );
+	}
+
+	/**
+	 * Return the tokens whose join key is the same as the join key of the
+	 * given token. The key of the given token may be longer than the key of
+	 * this index, only its first <code>getKeySize()</code> elements are used.
+	 * The returned collection is backed by the index and should not be
+	 * modified.
+	 */
+	public Collection<Fact> getMatches(Fact token) {
+		Set<Fact> bucket = buckets.get( getKey( token.getElements() ) );
+		return bucket == null
+			? Collections.<Fact> emptySet()
+			: bucket;
+	}
+
+	/**
+	 * Remove all tokens from the index.
+	 */
+	public void clear() {
+		buckets = new HashMap<Object, Set<Fact>>();
+		size = 0;
+	}
+
+	public Iterator<Fact> iterator() {
+		List<Fact> tokens = new ArrayList<Fact>( size );
+		for( Set<Fact> bucket : buckets.values() )
+			tokens.addAll( bucket );
+		return tokens.iterator();
+	}
+
+	/**
+	 * Return the number of tokens in the index.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public String toString() {
+		return "JoinIndex " + buckets;
+	}
+}
@@ -29,19 +29,20 @@ import aterm.ATermAppl;
 public class Node {
 
 	private List<BetaNode>		betaNodes	= new ArrayList<BetaNode>();
-	public Index<ATermAppl, Fact>	index;
+	public JoinIndex				index;
 	public List<ATermAppl>			svars	= new ArrayList<ATermAppl>();
 	public List<ATermAppl>			vars;
 
 	public Node() {
-		index = new Index<ATermAppl, Fact>();
+		index = new JoinIndex();
 	}
 
 	/**
 	 * Add a directly dependent beta node.
 	 */
 	public void add( BetaNode beta ) {
-		betaNodes.add( beta );
+		if( !betaNodes.contains( beta ) )
+			betaNodes.add( beta );
 	}
 
 	/**
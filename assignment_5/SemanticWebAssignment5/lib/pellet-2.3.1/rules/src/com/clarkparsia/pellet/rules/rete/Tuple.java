@@ -6,10 +6,9 @@
 
 package com.clarkparsia.pellet.rules.rete;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.mindswap.pellet.DependencySet;
 import org.mindswap.pellet.exceptions.InternalReasonerException;
@@ -31,20 +30,46 @@ import org.mindswap.pellet.exceptions.InternalReasonerException;
  * @author Ron Alford
  */
 public class Tuple<T> {
+	/**
+	 * Read-only list view of the element array so that a tuple only needs a
+	 * single wrapper object in addition to the array itself.
+	 */
+	private static class ElementList<T> extends AbstractList<T> implements RandomAccess {
+		private final Object[]	elements;
+
+		public ElementList(Object[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(int index) {
+			return (T) elements[index];
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+	}
+
 	private DependencySet	ds;
 	private List<T>			elements;
+	private int				hashCode;
 
 	public Tuple(DependencySet ds, T... elementArgs) {
 		if ( ds == null ) {
 			throw new InternalReasonerException( "Null dependencyset argument to rete tuple" );
 		}
 		this.ds = ds;
-		this.elements = Collections.unmodifiableList( Arrays.asList( elementArgs ) );
+		this.elements = new ElementList<T>( elementArgs );
+		this.hashCode = elements.hashCode();
 	}
 
 	public Tuple(DependencySet ds, List<T> elements) {
 		this.ds = ds;
-		this.elements = Collections.unmodifiableList( new ArrayList<T>( elements ) );
+		this.elements = new ElementList<T>( elements.toArray() );
+		this.hashCode = this.elements.hashCode();
 	}
 
 	public DependencySet getDependencySet() {
@@ -56,7 +81,7 @@ public class Tuple<T> {
 	}
 
 	public int hashCode() {
-		return elements.hashCode();
+		return hashCode;
 	}
 
 	public String toString() {
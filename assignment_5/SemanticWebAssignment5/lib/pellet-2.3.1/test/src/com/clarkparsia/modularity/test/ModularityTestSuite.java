@@ -42,7 +42,8 @@ import org.junit.runners.Suite.SuiteClasses;
     PersistenceModularityTest.class,
 	PersistenceClassificationTest.class,
 	PersistenceRealizationTest.class,
-	PersistenceUpdatesTest.class
+	PersistenceUpdatesTest.class,
+	PersistenceSnapshotTest.class
 })
 public class ModularityTestSuite {
 	public static junit.framework.Test suite() {
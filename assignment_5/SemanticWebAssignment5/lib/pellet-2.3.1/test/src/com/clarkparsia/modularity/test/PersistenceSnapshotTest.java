@@ -0,0 +1,307 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.modularity.test;
+
+import static com.clarkparsia.modularity.test.TestUtils.assertClassificationEquals;
+import static com.clarkparsia.modularity.test.TestUtils.assertInstancesEquals;
+import static com.clarkparsia.modularity.test.TestUtils.assertTypesEquals;
+import static com.clarkparsia.owlapiv3.OWL.Class;
+import static com.clarkparsia.owlapiv3.OWL.ObjectProperty;
+import static com.clarkparsia.owlapiv3.OWL.min;
+import static com.clarkparsia.owlapiv3.OWL.some;
+import static com.clarkparsia.owlapiv3.OWL.subClassOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.Test;
+import org.mindswap.pellet.test.PelletTestSuite;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.RemoveAxiom;
+
+import com.clarkparsia.modularity.AxiomBasedModuleExtractor;
+import com.clarkparsia.modularity.IncrementalClassifier;
+import com.clarkparsia.modularity.PelletIncremantalReasonerFactory;
+import com.clarkparsia.modularity.io.IncrementalClassifierSnapshot;
+import com.clarkparsia.owlapiv3.OWL;
+import com.clarkparsia.owlapiv3.OntologyUtils;
+import com.clarkparsia.pellet.owlapiv3.PelletReasoner;
+import com.clarkparsia.pellet.owlapiv3.PelletReasonerFactory;
+
+/**
+ * <p>
+ * Title:
+ * </p>
+ * <p>
+ * Description: Tests for the binary snapshots of incremental classifiers.
+ * </p>
+ * <p>
+ * Copyright: Copyright (c) 2009
+ * </p>
+ * <p>
+ * Company: Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ * </p>
+ */
+public class PersistenceSnapshotTest {
+	public static final String	base		= PelletTestSuite.base + "modularity/";
+
+	private static final String	TEST_FILE	= "test-persistence-snapshot.bin";
+
+	private static OWLOntology loadOntology(String fileName) {
+		return OntologyUtils.loadOntology( "file:" + base + fileName + ".owl" );
+	}
+
+	private static IncrementalClassifier createClassifier(OWLOntology ontology) {
+		IncrementalClassifier modular = PelletIncremantalReasonerFactory.getInstance().createReasoner(
+				ontology, new AxiomBasedModuleExtractor() );
+		modular.classify();
+
+		return modular;
+	}
+
+	private static byte[] save(IncrementalClassifier classifier) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		IncrementalClassifierSnapshot.save( classifier, bytes );
+
+		return bytes.toByteArray();
+	}
+
+	private static IncrementalClassifier load(byte[] snapshot, OWLOntology ontology) throws IOException {
+		return IncrementalClassifierSnapshot.load( new ByteArrayInputStream( snapshot ), ontology );
+	}
+
+	public void testClassification(String fileName) throws IOException {
+		File testFile = new File( TEST_FILE );
+		OWLOntology ontology = loadOntology( fileName );
+
+		try {
+			IncrementalClassifier modular = createClassifier( ontology );
+
+			FileOutputStream fos = new FileOutputStream( testFile );
+			IncrementalClassifierSnapshot.save( modular, fos );
+			fos.close();
+
+			IncrementalClassifier modular2 = IncrementalClassifierSnapshot.load( testFile, ontology );
+
+			PelletReasoner unified = PelletReasonerFactory.getInstance().createReasoner( ontology );
+			assertClassificationEquals( unified, modular2 );
+
+			// the loaded classifier should not need to classify the ontology again
+			assertTrue( modular2.isClassified() );
+
+			unified.dispose();
+			modular.dispose();
+			modular2.dispose();
+		} finally {
+			testFile.delete();
+			OWL.manager.removeOntology( ontology );
+		}
+	}
+
+	@Test
+	public void koalaSnapshotTest() throws IOException {
+		testClassification( "koala" );
+	}
+
+	@Test
+	public void miniTambisSnapshotTest() throws IOException {
+		testClassification( "miniTambis" );
+	}
+
+	@Test
+	public void wineSnapshotTest() throws IOException {
+		testClassification( "wine" );
+	}
+
+	@Test
+	public void realizationSnapshotTest() throws IOException {
+		OWLOntology ontology = loadOntology( "koala" );
+
+		try {
+			PelletReasoner unified = PelletReasonerFactory.getInstance().createReasoner( ontology );
+			IncrementalClassifier modular = createClassifier( ontology );
+
+			IncrementalClassifier modular2 = load( save( modular ), ontology );
+			assertFalse( modular2.isRealized() );
+
+			assertInstancesEquals( unified, modular2 );
+			assertTrue( modular2.isRealized() );
+
+			IncrementalClassifier modular3 = load( save( modular2 ), ontology );
+			assertTrue( modular3.isRealized() );
+
+			assertInstancesEquals( unified, modular3 );
+			assertTypesEquals( unified, modular3 );
+
+			unified.dispose();
+			modular.dispose();
+			modular2.dispose();
+			modular3.dispose();
+		} finally {
+			OWL.manager.removeOntology( ontology );
+		}
+	}
+
+	@Test
+	public void additionsSinceSnapshotTest() throws IOException {
+		OWLOntology ontology = loadOntology( "miniTambis" );
+
+		try {
+			Set<OWLAxiom> axioms = TestUtils.selectRandomAxioms( ontology, 5 );
+			for( OWLAxiom axiom : axioms ) {
+				OWL.manager.applyChange( new RemoveAxiom( ontology, axiom ) );
+			}
+
+			IncrementalClassifier modular = createClassifier( ontology );
+			byte[] snapshot = save( modular );
+			modular.dispose();
+
+			for( OWLAxiom axiom : axioms ) {
+				OWL.manager.applyChange( new AddAxiom( ontology, axiom ) );
+			}
+
+			IncrementalClassifier modular2 = load( snapshot, ontology );
+
+			PelletReasoner unified = PelletReasonerFactory.getInstance().createReasoner( ontology );
+			assertClassificationEquals( unified, modular2 );
+
+			unified.dispose();
+			modular2.dispose();
+		} finally {
+			OWL.manager.removeOntology( ontology );
+		}
+	}
+
+	@Test
+	public void updatesAfterSnapshotTest() throws IOException {
+		OWLOntology ontology = loadOntology( "miniTambis" );
+
+		try {
+			IncrementalClassifier modular = createClassifier( ontology );
+			byte[] snapshot = save( modular );
+			modular.dispose();
+
+			IncrementalClassifier modular2 = load( snapshot, ontology );
+
+			for( OWLAxiom axiom : TestUtils.selectRandomAxioms( ontology, 5 ) ) {
+				OWL.manager.applyChange( new RemoveAxiom( ontology, axiom ) );
+			}
+
+			modular2.classify();
+
+			PelletReasoner unified = PelletReasonerFactory.getInstance().createReasoner( ontology );
+			assertClassificationEquals( unified, modular2 );
+
+			unified.dispose();
+			modular2.dispose();
+		} finally {
+			OWL.manager.removeOntology( ontology );
+		}
+	}
+
+	@Test
+	public void deletionsSinceSnapshotTest() throws IOException {
+		OWLOntology ontology = loadOntology( "koala" );
+
+		try {
+			IncrementalClassifier modular = createClassifier( ontology );
+			byte[] snapshot = save( modular );
+			modular.dispose();
+
+			for( OWLAxiom axiom : TestUtils.selectRandomAxioms( ontology, 1 ) ) {
+				OWL.manager.applyChange( new RemoveAxiom( ontology, axiom ) );
+			}
+
+			try {
+				load( snapshot, ontology );
+				fail( "A snapshot must not be loaded for an ontology whose axioms were removed" );
+			} catch( IOException e ) {
+				// correct behavior
+			}
+		} finally {
+			OWL.manager.removeOntology( ontology );
+		}
+	}
+
+	@Test
+	public void similarAxiomsTest() throws IOException {
+		OWLClass A = Class( "urn:test:A" );
+		OWLClass B = Class( "urn:test:B" );
+		OWLClass C = Class( "urn:test:C" );
+		OWLObjectProperty p = ObjectProperty( "urn:test:p" );
+
+		// axioms with the same components are replaced by axioms which differ
+		// only in the order, the nesting or the cardinalities of the components
+		OWLAxiom[][] replacements = {
+				{ subClassOf( A, B ), subClassOf( B, A ) },
+				{ subClassOf( A, min( p, 2, C ) ), subClassOf( A, min( p, 3, C ) ) },
+				{ subClassOf( A, some( p, some( p, B ) ) ), subClassOf( some( p, A ), some( p, B ) ) } };
+
+		for( OWLAxiom[] replacement : replacements ) {
+			OWLOntology ontology = OWL.Ontology( subClassOf( C, A ), replacement[0] );
+
+			try {
+				IncrementalClassifier modular = createClassifier( ontology );
+				byte[] snapshot = save( modular );
+				modular.dispose();
+
+				OWL.manager.applyChange( new RemoveAxiom( ontology, replacement[0] ) );
+				OWL.manager.applyChange( new AddAxiom( ontology, replacement[1] ) );
+
+				try {
+					load( snapshot, ontology );
+					fail( "The snapshot must not match " + replacement[1] );
+				} catch( IOException e ) {
+					// correct behavior
+				}
+			} finally {
+				OWL.manager.removeOntology( ontology );
+			}
+		}
+	}
+
+	@Test
+	public void versionMismatchTest() throws IOException {
+		OWLOntology ontology = loadOntology( "koala" );
+
+		try {
+			IncrementalClassifier modular = createClassifier( ontology );
+			byte[] snapshot = save( modular );
+			modular.dispose();
+
+			// the version follows the magic number
+			snapshot[7]++;
+
+			try {
+				load( snapshot, ontology );
+				fail( "A snapshot with a different version must not be loaded" );
+			} catch( IOException e ) {
+				// correct behavior
+			}
+
+			try {
+				load( new byte[] { 1, 2, 3 }, ontology );
+				fail( "Invalid snapshots must not be loaded" );
+			} catch( IOException e ) {
+				// correct behavior
+			}
+		} finally {
+			OWL.manager.removeOntology( ontology );
+		}
+	}
+}
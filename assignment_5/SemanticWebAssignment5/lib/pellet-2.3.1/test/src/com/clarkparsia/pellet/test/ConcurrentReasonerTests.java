@@ -0,0 +1,212 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.test;
+
+import static com.clarkparsia.pellet.utils.TermFactory.and;
+import static com.clarkparsia.pellet.utils.TermFactory.not;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.jena.JenaLoader;
+import org.mindswap.pellet.test.PelletTestSuite;
+import org.mindswap.pellet.utils.ATermUtils;
+import org.mindswap.pellet.utils.concurrent.ConcurrentReasoner;
+
+import aterm.ATermAppl;
+
+/**
+ * Runs the same queries against a KB and a concurrent view of another copy of
+ * the KB from multiple threads and compares the answers.
+ */
+public class ConcurrentReasonerTests {
+	public static String	base	= "file:" + PelletTestSuite.base + "misc/";
+
+	public static int		THREADS		= 4;
+
+	/**
+	 * Fewer KB copies than threads so that threads have to wait for copies
+	 * used by other threads
+	 */
+	public static int		REASONERS	= 2;
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( ConcurrentReasonerTests.class );
+	}
+
+	private static List<ATermAppl> first(Iterable<ATermAppl> terms, int n) {
+		List<ATermAppl> list = new ArrayList<ATermAppl>();
+		for( ATermAppl term : terms ) {
+			list.add( term );
+		}
+		Collections.sort( list, new Comparator<ATermAppl>() {
+			public int compare(ATermAppl t1, ATermAppl t2) {
+				return t1.toString().compareTo( t2.toString() );
+			}
+		} );
+
+		return list.subList( 0, Math.min( n, list.size() ) );
+	}
+
+	private List<ATermAppl>	classes;
+	private List<ATermAppl>	concepts;
+	private List<ATermAppl>	individuals;
+
+	private void createQueries(KnowledgeBase kb) {
+		classes = first( kb.getClasses(), 6 );
+		individuals = first( kb.getIndividuals(), 10 );
+
+		// the top and bottom properties would otherwise be the first ones
+		Set<ATermAppl> properties = new HashSet<ATermAppl>( kb.getObjectProperties() );
+		properties.remove( ATermUtils.TOP_OBJECT_PROPERTY );
+		properties.remove( ATermUtils.BOTTOM_OBJECT_PROPERTY );
+
+		concepts = new ArrayList<ATermAppl>( classes );
+		for( ATermAppl c : classes ) {
+			concepts.add( not( c ) );
+			for( ATermAppl p : first( properties, 2 ) ) {
+				concepts.add( some( p, c ) );
+			}
+			for( ATermAppl d : classes ) {
+				if( !c.equals( d ) ) {
+					concepts.add( and( c, d ) );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the answers to the queries either from the KB (sequential) or
+	 * from the concurrent reasoner. Class hierarchy queries for class
+	 * expressions insert the expression into the taxonomy of the KB without
+	 * computing its instances so the instance queries are asked first and
+	 * direct instances are only compared for named classes.
+	 */
+	private List<Object> answers(KnowledgeBase kb, ConcurrentReasoner reasoner) {
+		List<Object> answers = new ArrayList<Object>();
+		for( ATermAppl c : concepts ) {
+			boolean sat = reasoner == null
+				? kb.isSatisfiable( c )
+				: reasoner.isSatisfiable( c );
+			answers.add( sat );
+			if( !sat ) {
+				continue;
+			}
+
+			for( ATermAppl x : individuals ) {
+				answers.add( reasoner == null
+					? kb.isType( x, c )
+					: reasoner.isType( x, c ) );
+			}
+			for( ATermAppl d : classes ) {
+				answers.add( reasoner == null
+					? kb.isSubClassOf( c, d )
+					: reasoner.isSubClassOf( c, d ) );
+			}
+
+			if( reasoner == null ) {
+				answers.add( kb.getInstances( c ) );
+				if( ATermUtils.isPrimitive( c ) ) {
+					answers.add( kb.getInstances( c, true ) );
+				}
+				answers.add( kb.getSuperClasses( c, true ) );
+				answers.add( kb.getSubClasses( c, true ) );
+			}
+			else {
+				answers.add( reasoner.getInstances( c ) );
+				if( ATermUtils.isPrimitive( c ) ) {
+					answers.add( reasoner.getInstances( c, true ) );
+				}
+				answers.add( reasoner.getSuperClasses( c, true ) );
+				answers.add( reasoner.getSubClasses( c, true ) );
+			}
+		}
+
+		for( ATermAppl x : individuals ) {
+			answers.add( reasoner == null
+				? kb.getTypes( x, true )
+				: reasoner.getTypes( x, true ) );
+		}
+
+		return answers;
+	}
+
+	private void testFile(String file) throws Exception {
+		KnowledgeBase kb = new JenaLoader().createKB( base + file );
+		kb.realize();
+		createQueries( kb );
+		List<Object> expected = answers( kb, null );
+
+		KnowledgeBase other = new JenaLoader().createKB( base + file );
+		final ConcurrentReasoner reasoner = new ConcurrentReasoner( other, REASONERS );
+
+		List<Callable<List<Object>>> tasks = new ArrayList<Callable<List<Object>>>();
+		for( int i = 0; i < THREADS; i++ ) {
+			tasks.add( new Callable<List<Object>>() {
+				public List<Object> call() {
+					return answers( null, reasoner );
+				}
+			} );
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+		try {
+			for( Future<List<Object>> result : executor.invokeAll( tasks ) ) {
+				List<Object> actual = result.get();
+				assertEquals( expected.size(), actual.size() );
+				for( int i = 0; i < expected.size(); i++ ) {
+					assertEquals( "Answer " + i, expected.get( i ), actual.get( i ) );
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertTrue( other.isRealized() );
+		assertTrue( reasoner.getReasonerCount() <= REASONERS );
+
+		reasoner.dispose();
+		assertEquals( 0, reasoner.getReasonerCount() );
+		try {
+			reasoner.isSatisfiable( concepts.get( concepts.size() - 1 ) );
+			fail( "Disposed reasoner should not create new KB copies" );
+		} catch( IllegalStateException e ) {
+			// expected
+		}
+	}
+
+	@Test
+	public void agencies() throws Exception {
+		testFile( "agencies.owl" );
+	}
+
+	@Test
+	public void nominals() throws Exception {
+		testFile( "nominals.owl" );
+	}
+
+	@Test
+	public void teams() throws Exception {
+		testFile( "teams.owl" );
+	}
+}
@@ -20,7 +20,9 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses( {
 	SimpleClassificationTests.class,
 	JenaClassificationTest.class,
-	OWLAPIClassificationTest.class
+	OWLAPIClassificationTest.class,
+	ParallelClassificationTest.class,
+	ParallelRealizationTest.class
 })
 public class ClassificationTestSuite {
 	public static junit.framework.Test suite() {
@@ -0,0 +1,69 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public
+// License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of
+// proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.test.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.JenaLoader;
+import org.mindswap.pellet.taxonomy.Taxonomy;
+import org.mindswap.pellet.taxonomy.TaxonomyNode;
+
+import aterm.ATermAppl;
+
+/**
+ * Verifies that parallel classification computes exactly the same taxonomy as
+ * sequential classification.
+ */
+public class ParallelClassificationTest extends AbstractClassificationTest {
+	public static int	THREADS	= 4;
+
+	public void testClassification(String inputOnt, String classifiedOnt) {
+		Taxonomy<ATermAppl> expected = classify( inputOnt, 1 );
+		Taxonomy<ATermAppl> actual = classify( inputOnt, THREADS );
+
+		assertEquals( expected.getNodes().size(), actual.getNodes().size() );
+		for( TaxonomyNode<ATermAppl> node : expected.getNodes() ) {
+			ATermAppl c = node.getName();
+			TaxonomyNode<ATermAppl> other = actual.getNode( c );
+			assertNotNull( "Missing node " + c, other );
+
+			assertEquals( "Equivalents of " + c, node.getEquivalents(), other.getEquivalents() );
+			assertEquals( "Supers of " + c, names( node.getSupers() ), names( other.getSupers() ) );
+			assertEquals( "Subs of " + c, names( node.getSubs() ), names( other.getSubs() ) );
+		}
+	}
+
+	private Taxonomy<ATermAppl> classify(String inputOnt, int threads) {
+		int oldThreads = PelletOptions.CLASSIFICATION_THREADS;
+		PelletOptions.CLASSIFICATION_THREADS = threads;
+		try {
+			KnowledgeBase kb = new JenaLoader().createKB( inputOnt );
+			kb.classify();
+
+			return kb.getTaxonomy();
+		} finally {
+			PelletOptions.CLASSIFICATION_THREADS = oldThreads;
+		}
+	}
+
+	private static Set<Set<ATermAppl>> names(Iterable<TaxonomyNode<ATermAppl>> nodes) {
+		Set<Set<ATermAppl>> names = new HashSet<Set<ATermAppl>>();
+		for( TaxonomyNode<ATermAppl> node : nodes ) {
+			names.add( new HashSet<ATermAppl>( node.getEquivalents() ) );
+		}
+
+		return names;
+	}
+}
@@ -0,0 +1,90 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public
+// License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of
+// proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.test.classification;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.JenaLoader;
+import org.mindswap.pellet.test.PelletTestSuite;
+
+import aterm.ATermAppl;
+
+/**
+ * Verifies that parallel realization finds exactly the same direct types as
+ * sequential realization using both realization strategies.
+ */
+public class ParallelRealizationTest {
+	public static final String	base	= "file:" + PelletTestSuite.base;
+
+	public static int			THREADS	= 3;
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( ParallelRealizationTest.class );
+	}
+
+	private void testRealization(String file) {
+		for( boolean individualAtATime : new boolean[] { true, false } ) {
+			Map<ATermAppl, Set<Set<ATermAppl>>> expected = realize( file, individualAtATime, 1 );
+			Map<ATermAppl, Set<Set<ATermAppl>>> actual = realize( file, individualAtATime, THREADS );
+
+			assertEquals( expected, actual );
+		}
+	}
+
+	private Map<ATermAppl, Set<Set<ATermAppl>>> realize(String file, boolean individualAtATime,
+			int threads) {
+		boolean oldIndividualAtATime = PelletOptions.REALIZE_INDIVIDUAL_AT_A_TIME;
+		int oldThreads = PelletOptions.REALIZATION_THREADS;
+		PelletOptions.REALIZE_INDIVIDUAL_AT_A_TIME = individualAtATime;
+		PelletOptions.REALIZATION_THREADS = threads;
+		try {
+			KnowledgeBase kb = new JenaLoader().createKB( base + file );
+			kb.realize();
+
+			Map<ATermAppl, Set<Set<ATermAppl>>> types = new HashMap<ATermAppl, Set<Set<ATermAppl>>>();
+			for( ATermAppl ind : kb.getIndividuals() ) {
+				types.put( ind, kb.getTypes( ind, true ) );
+			}
+
+			return types;
+		} finally {
+			PelletOptions.REALIZE_INDIVIDUAL_AT_A_TIME = oldIndividualAtATime;
+			PelletOptions.REALIZATION_THREADS = oldThreads;
+		}
+	}
+
+	@Test
+	public void agenciesRealizeTest() {
+		testRealization( "misc/agencies.owl" );
+	}
+
+	@Test
+	public void familyRealizeTest() {
+		testRealization( "misc/family.owl" );
+	}
+
+	@Test
+	public void nominalsRealizeTest() {
+		testRealization( "misc/nominals.owl" );
+	}
+
+	@Test
+	public void teamsRealizeTest() {
+		testRealization( "misc/teams.owl" );
+	}
+}
@@ -0,0 +1,316 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.test.el;
+
+import static com.clarkparsia.pellet.test.el.ELTests.singletonSets;
+import static com.clarkparsia.pellet.utils.TermFactory.and;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.taxonomy.Taxonomy;
+import org.mindswap.pellet.taxonomy.TaxonomyBuilder;
+import org.mindswap.pellet.test.AbstractKBTests;
+import org.mindswap.pellet.utils.ATermUtils;
+import org.mindswap.pellet.utils.SetUtils;
+import org.mindswap.pellet.utils.progress.SilentProgressMonitor;
+
+import aterm.ATermAppl;
+
+import com.clarkparsia.pellet.el.SimplifiedELClassifier;
+
+/**
+ * Tests that adding axioms to a classified EL ontology updates the saturation
+ * and the taxonomy of the EL classifier instead of classifying from scratch.
+ */
+public class IncrementalELTests extends AbstractKBTests {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( IncrementalELTests.class );
+	}
+
+	private boolean	oldIncremental;
+
+	private int		oldThreads;
+
+	private boolean	oldTracing;
+
+	@Before
+	public void enableIncremental() {
+		oldIncremental = PelletOptions.USE_INCREMENTAL_EL_CLASSIFICATION;
+		oldThreads = PelletOptions.EL_CLASSIFICATION_THREADS;
+		oldTracing = PelletOptions.USE_TRACING;
+		PelletOptions.USE_INCREMENTAL_EL_CLASSIFICATION = true;
+	}
+
+	@After
+	public void resetIncremental() {
+		PelletOptions.USE_INCREMENTAL_EL_CLASSIFICATION = oldIncremental;
+		PelletOptions.EL_CLASSIFICATION_THREADS = oldThreads;
+		PelletOptions.USE_TRACING = oldTracing;
+	}
+
+	private Taxonomy<ATermAppl> classifyFromScratch() {
+		TaxonomyBuilder builder = new SimplifiedELClassifier();
+		builder.setKB( kb );
+		builder.setProgressMonitor( new SilentProgressMonitor() );
+		builder.classify();
+		return builder.getTaxonomy();
+	}
+
+	/**
+	 * Classify the KB after the changes and check that the previous EL
+	 * classifier was used to update the previous taxonomy.
+	 */
+	private Taxonomy<ATermAppl> update(TaxonomyBuilder builder, Taxonomy<ATermAppl> taxonomy) {
+		kb.classify();
+
+		assertSame( builder, kb.getTaxonomyBuilder() );
+		assertSame( taxonomy, kb.getTaxonomy() );
+		ParallelELTests.assertSameTaxonomy( classifyFromScratch(), taxonomy );
+
+		return taxonomy;
+	}
+
+	@Test
+	public void testNewSuperClass() {
+		classes( A, B, C );
+
+		kb.addSubClass( A, B );
+		kb.addSubClass( C, A );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+		assertTrue( builder instanceof SimplifiedELClassifier );
+
+		classes( D );
+		kb.addSubClass( B, D );
+
+		update( builder, taxonomy );
+
+		assertEquals( singletonSets( D ), taxonomy.getSupers( B, true ) );
+		assertTrue( taxonomy.getFlattenedSupers( C, false ).contains( D ) );
+	}
+
+	@Test
+	public void testRedundantParent() {
+		classes( A, B, C );
+
+		kb.addSubClass( C, A );
+		kb.addSubClass( C, B );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+		assertEquals( singletonSets( A, B ), taxonomy.getSupers( C, true ) );
+
+		kb.addSubClass( A, B );
+
+		update( builder, taxonomy );
+
+		assertEquals( singletonSets( A ), taxonomy.getSupers( C, true ) );
+		assertEquals( singletonSets( A ), taxonomy.getSubs( B, true ) );
+	}
+
+	@Test
+	public void testNewConjunction() {
+		classes( A, B, C, D );
+
+		kb.addSubClass( D, A );
+		kb.addSubClass( D, B );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+
+		kb.addSubClass( and( A, B ), C );
+
+		update( builder, taxonomy );
+
+		assertTrue( taxonomy.getFlattenedSupers( D, true ).contains( C ) );
+	}
+
+	@Test
+	public void testNewExistential() {
+		classes( A, B, C, D );
+		objectProperties( p, q );
+
+		kb.addSubProperty( q, p );
+		kb.addSubClass( A, some( q, B ) );
+		kb.addSubClass( B, C );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+
+		kb.addSubClass( some( p, C ), D );
+
+		update( builder, taxonomy );
+
+		assertEquals( singletonSets( D ), taxonomy.getSupers( A, true ) );
+	}
+
+	@Test
+	public void testNewEquivalence() {
+		classes( A, B, C, D );
+
+		kb.addSubClass( A, B );
+		kb.addSubClass( B, C );
+		kb.addSubClass( D, A );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+
+		kb.addSubClass( C, A );
+
+		update( builder, taxonomy );
+
+		assertEquals( SetUtils.create( A, B, C ), taxonomy.getAllEquivalents( A ) );
+		assertEquals( singletonSets( D ), taxonomy.getSubs( B, true ) );
+	}
+
+	@Test
+	public void testNewUnsatisfiable() {
+		classes( A, B, C, D );
+
+		kb.addSubClass( A, B );
+		kb.addSubClass( C, A );
+		kb.addSubClass( D, B );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+
+		kb.addSubClass( A, ATermUtils.BOTTOM );
+
+		update( builder, taxonomy );
+
+		assertEquals( SetUtils.create( ATermUtils.BOTTOM, A, C ), taxonomy
+				.getAllEquivalents( ATermUtils.BOTTOM ) );
+		assertEquals( singletonSets( D ), taxonomy.getSubs( B, true ) );
+	}
+
+	@Test
+	public void testNewTopSuperClass() {
+		classes( A, B, C );
+
+		kb.addSubClass( A, B );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+
+		kb.addSubClass( ATermUtils.TOP, C );
+		kb.classify();
+
+		assertSame( builder, kb.getTaxonomyBuilder() );
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+		ParallelELTests.assertSameTaxonomy( classifyFromScratch(), taxonomy );
+		assertEquals( SetUtils.create( ATermUtils.TOP, C ), taxonomy
+				.getAllEquivalents( ATermUtils.TOP ) );
+	}
+
+	@Test
+	public void testRealization() {
+		classes( A, B, C );
+		individuals( a );
+
+		kb.addSubClass( A, B );
+		kb.addType( a, A );
+
+		kb.realize();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+		Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+
+		kb.addSubClass( B, C );
+
+		kb.realize();
+		assertSame( builder, kb.getTaxonomyBuilder() );
+		assertSame( taxonomy, kb.getTaxonomy() );
+		assertEquals( Collections.singleton( a ), kb.getInstances( C ) );
+		assertEquals( singletonSets( A ), kb.getTypes( a, true ) );
+	}
+
+	@Test
+	public void testRemovalClassifiesFromScratch() {
+		PelletOptions.USE_TRACING = true;
+
+		classes( A, B, C );
+
+		kb.addSubClass( A, B );
+		kb.addSubClass( B, C );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+
+		kb.removeAxiom( ATermUtils.makeSub( B, C ) );
+		kb.classify();
+
+		assertNotSame( builder, kb.getTaxonomyBuilder() );
+		assertEquals( singletonSets( ATermUtils.TOP ), kb.getTaxonomy().getSupers( B, true ) );
+	}
+
+	@Test
+	public void testRoleChangeClassifiesFromScratch() {
+		classes( A, B, C );
+		objectProperties( p, q );
+
+		kb.addSubClass( A, some( q, B ) );
+		kb.addSubClass( some( p, B ), C );
+
+		kb.classify();
+		TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+
+		kb.addSubProperty( q, p );
+		kb.classify();
+
+		assertNotSame( builder, kb.getTaxonomyBuilder() );
+		assertEquals( singletonSets( C ), kb.getTaxonomy().getSupers( A, true ) );
+	}
+
+	@Test
+	public void randomOntologies() {
+		for( int threads = 1; threads <= 4; threads += 3 ) {
+			PelletOptions.EL_CLASSIFICATION_THREADS = threads;
+			for( long seed = 0; seed < 3; seed++ ) {
+				kb = new KnowledgeBase();
+				Random random = new Random( seed );
+
+				ATermAppl[] classes = ParallelELTests.createClasses( kb, 30 );
+				ATermAppl[] roles = ParallelELTests.createRoles( kb );
+				ParallelELTests.addRandomAxioms( kb, classes, roles, 20, random );
+
+				kb.classify();
+				TaxonomyBuilder builder = kb.getTaxonomyBuilder();
+				Taxonomy<ATermAppl> taxonomy = kb.getTaxonomy();
+
+				for( int i = 0; i < 4; i++ ) {
+					kb.addClass( term( "N" + i ) );
+					kb.addSubClass( term( "N" + i ), classes[random.nextInt( classes.length )] );
+					ParallelELTests.addRandomAxioms( kb, classes, roles, 10, random );
+					taxonomy = kb.getTaxonomy();
+					ParallelELTests.assertSameTaxonomy( classifyFromScratch(), taxonomy );
+				}
+
+				assertSame( builder, kb.getTaxonomyBuilder() );
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.test.el;
+
+import static com.clarkparsia.pellet.utils.TermFactory.and;
+import static com.clarkparsia.pellet.utils.TermFactory.list;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.taxonomy.Taxonomy;
+
+import aterm.ATermAppl;
+
+/**
+ * Runs the EL tests with concurrent saturation and checks that the
+ * concurrent saturation computes the same taxonomy as a single thread.
+ */
+public class ParallelELTests extends ELTests {
+	public static int	THREADS	= 4;
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( ParallelELTests.class );
+	}
+
+	private int	oldThreads;
+
+	@Before
+	public void setThreads() {
+		oldThreads = PelletOptions.EL_CLASSIFICATION_THREADS;
+		PelletOptions.EL_CLASSIFICATION_THREADS = THREADS;
+	}
+
+	@After
+	public void resetThreads() {
+		PelletOptions.EL_CLASSIFICATION_THREADS = oldThreads;
+	}
+
+	/**
+	 * Create a random EL ontology with role hierarchies and role chains.
+	 */
+	private void createRandomOntology(int classCount, int axiomCount, long seed) {
+		ATermAppl[] classes = createClasses( kb, classCount );
+		ATermAppl[] roles = createRoles( kb );
+		addRandomAxioms( kb, classes, roles, axiomCount, new Random( seed ) );
+	}
+
+	static ATermAppl[] createClasses(KnowledgeBase kb, int classCount) {
+		ATermAppl[] classes = new ATermAppl[classCount];
+		for( int i = 0; i < classCount; i++ ) {
+			classes[i] = term( "C" + i );
+			kb.addClass( classes[i] );
+		}
+		return classes;
+	}
+
+	static ATermAppl[] createRoles(KnowledgeBase kb) {
+		ATermAppl[] roles = new ATermAppl[4];
+		for( int i = 0; i < roles.length; i++ ) {
+			roles[i] = term( "r" + i );
+			kb.addObjectProperty( roles[i] );
+		}
+		kb.addSubProperty( roles[1], roles[0] );
+		kb.addSubProperty( list( roles[2], roles[3] ), roles[2] );
+		kb.addTransitiveProperty( roles[3] );
+		return roles;
+	}
+
+	static void addRandomAxioms(KnowledgeBase kb, ATermAppl[] classes, ATermAppl[] roles,
+			int axiomCount, Random random) {
+		int classCount = classes.length;
+		for( int i = 0; i < axiomCount; i++ ) {
+			ATermAppl sub = classes[random.nextInt( classCount )];
+			ATermAppl sup = classes[random.nextInt( classCount )];
+			ATermAppl role = roles[random.nextInt( roles.length )];
+			switch ( random.nextInt( 5 ) ) {
+			case 0:
+				kb.addSubClass( sub, sup );
+				break;
+			case 1:
+				kb.addSubClass( sub, some( role, sup ) );
+				break;
+			case 2:
+				kb.addSubClass( some( role, sup ), sub );
+				break;
+			case 3:
+				kb.addSubClass( and( sub, classes[random.nextInt( classCount )] ), sup );
+				break;
+			default:
+				kb.addEquivalentClass( sub, and( sup, some( role, classes[random
+						.nextInt( classCount )] ) ) );
+			}
+		}
+	}
+
+	static void assertSameTaxonomy(Taxonomy<ATermAppl> expected, Taxonomy<ATermAppl> actual) {
+		assertEquals( expected.getClasses(), actual.getClasses() );
+		for( ATermAppl c : expected.getClasses() ) {
+			assertEquals( expected.getAllEquivalents( c ), actual.getAllEquivalents( c ) );
+			assertEquals( expected.getFlattenedSupers( c, true ), actual
+					.getFlattenedSupers( c, true ) );
+			assertEquals( expected.getFlattenedSubs( c, true ), actual.getFlattenedSubs( c, true ) );
+		}
+	}
+
+	@Test
+	public void randomOntologies() {
+		for( long seed = 0; seed < 5; seed++ ) {
+			kb = new KnowledgeBase();
+			createRandomOntology( 30, 60, seed );
+			assertTrue( kb.getExpressivity().isEL() );
+
+			PelletOptions.EL_CLASSIFICATION_THREADS = 1;
+			Taxonomy<ATermAppl> expected = getHierarchy();
+
+			PelletOptions.EL_CLASSIFICATION_THREADS = THREADS;
+			for( int i = 0; i < 2; i++ ) {
+				assertSameTaxonomy( expected, getHierarchy() );
+			}
+		}
+	}
+
+	@Test
+	public void threadsAreReused() {
+		Set<Thread> threads = null;
+		for( long seed = 0; seed < 3; seed++ ) {
+			kb = new KnowledgeBase();
+			createRandomOntology( 30, 60, seed );
+			getHierarchy();
+
+			Set<Thread> saturationThreads = new HashSet<Thread>();
+			for( Thread thread : Thread.getAllStackTraces().keySet() ) {
+				if( thread.getName().startsWith( "EL-saturation-" ) ) {
+					saturationThreads.add( thread );
+				}
+			}
+			assertFalse( saturationThreads.isEmpty() );
+			if( threads != null ) {
+				assertEquals( threads, saturationThreads );
+			}
+			threads = saturationThreads;
+		}
+	}
+}
@@ -101,6 +101,7 @@ import com.clarkparsia.owlapiv3.OWL;
 import com.clarkparsia.owlapiv3.SWRL;
 import com.clarkparsia.owlapiv3.XSD;
 import com.clarkparsia.pellet.owlapiv3.AxiomConverter;
+import com.clarkparsia.pellet.owlapiv3.ParallelAxiomLoader;
 import com.clarkparsia.pellet.owlapiv3.PelletReasoner;
 import com.clarkparsia.pellet.owlapiv3.PelletReasonerFactory;
 import com.clarkparsia.pellet.utils.PropertiesBuilder;
@@ -1687,6 +1688,60 @@ public class OWLAPIv3Tests extends AbstractOWLAPITests {
 	}
 	
 
+	@Test
+	public void testParallelLoading() throws OWLException {
+		OWLOntology ont = loadOntology( base + "family-ages.owl" );
+
+		int prevThreads = PelletOptions.LOADER_THREADS;
+		int prevBatchSize = ParallelAxiomLoader.BATCH_SIZE;
+		PelletReasoner sequential = null;
+		PelletReasoner parallel = null;
+		try {
+			PelletOptions.LOADER_THREADS = 1;
+			sequential = PelletReasonerFactory.getInstance().createReasoner( ont );
+
+			PelletOptions.LOADER_THREADS = 4;
+			// small batches so that several batches are converted concurrently
+			ParallelAxiomLoader.BATCH_SIZE = 10;
+			parallel = PelletReasonerFactory.getInstance().createReasoner( ont );
+
+			KnowledgeBase expected = sequential.getKB();
+			KnowledgeBase actual = parallel.getKB();
+
+			assertTrue( actual.timers.getTimer( "loadConvert" ).getCount() > 1 );
+
+			assertEquals( expected.getClasses(), actual.getClasses() );
+			assertEquals( expected.getObjectProperties(), actual.getObjectProperties() );
+			assertEquals( expected.getDataProperties(), actual.getDataProperties() );
+			assertEquals( expected.getIndividuals(), actual.getIndividuals() );
+			assertEquals( new HashSet<ATermAppl>( expected.getTBox().getAssertedAxioms() ),
+					new HashSet<ATermAppl>( actual.getTBox().getAssertedAxioms() ) );
+			for( ATermAppl p : expected.getObjectProperties() ) {
+				assertEquals( expected.getRole( p ).isForceSimple(), actual.getRole( p )
+						.isForceSimple() );
+			}
+
+			Set<ATermAppl> properties = SetUtils.union( expected.getObjectProperties(), expected
+					.getDataProperties() );
+			for( ATermAppl ind : expected.getIndividuals() ) {
+				assertEquals( expected.getTypes( ind, true ), actual.getTypes( ind, true ) );
+				for( ATermAppl p : properties ) {
+					assertEquals( new HashSet<ATermAppl>( expected.getPropertyValues( p, ind ) ),
+							new HashSet<ATermAppl>( actual.getPropertyValues( p, ind ) ) );
+				}
+			}
+		}
+		finally {
+			PelletOptions.LOADER_THREADS = prevThreads;
+			ParallelAxiomLoader.BATCH_SIZE = prevBatchSize;
+
+			if( sequential != null )
+				sequential.dispose();
+			if( parallel != null )
+				parallel.dispose();
+		}
+	}
+
 	@Test
 	public void testComplementRemoval() throws OWLException {
 		String ns = "http://test#";
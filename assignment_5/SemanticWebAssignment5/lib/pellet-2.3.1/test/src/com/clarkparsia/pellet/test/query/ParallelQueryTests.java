@@ -0,0 +1,228 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.test.query;
+
+import static com.clarkparsia.pellet.sparqldl.model.QueryAtomFactory.PropertyValueAtom;
+import static com.clarkparsia.pellet.sparqldl.model.QueryAtomFactory.TypeAtom;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.utils.concurrent.WorkerPool;
+
+import aterm.ATermAppl;
+
+import com.clarkparsia.pellet.sparqldl.engine.ParallelQueryEngine;
+import com.clarkparsia.pellet.sparqldl.engine.QueryEngine;
+import com.clarkparsia.pellet.sparqldl.model.Query;
+import com.clarkparsia.pellet.sparqldl.model.QueryResult;
+import com.clarkparsia.pellet.sparqldl.model.ResultBinding;
+
+/**
+ * Tests that answering queries with several threads gives the same answers as
+ * the sequential query engine.
+ */
+public class ParallelQueryTests extends AbstractQueryTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( ParallelQueryTests.class );
+	}
+
+	private static final int	INDIVIDUALS	= 30;
+
+	private int					oldThreads;
+
+	private ATermAppl[]			inds;
+
+	@Before
+	public void saveThreads() {
+		oldThreads = PelletOptions.QUERY_THREADS;
+	}
+
+	@After
+	public void resetThreads() {
+		PelletOptions.QUERY_THREADS = oldThreads;
+	}
+
+	/**
+	 * Create a KB where the types and property values of some individuals are
+	 * inferred.
+	 */
+	private void createKB() {
+		classes( A, B, C, D );
+		objectProperties( p, q );
+
+		kb.addSubClass( B, A );
+		kb.addSubProperty( q, p );
+		kb.addDomain( p, C );
+		kb.addSubClass( some( p, D ), B );
+
+		inds = new ATermAppl[INDIVIDUALS];
+		for( int i = 0; i < INDIVIDUALS; i++ ) {
+			inds[i] = term( "i" + i );
+			kb.addIndividual( inds[i] );
+		}
+
+		for( int i = 0; i < INDIVIDUALS; i++ ) {
+			if( i % 3 == 0 ) {
+				kb.addType( inds[i], D );
+			}
+			if( i % 5 == 0 ) {
+				kb.addType( inds[i], A );
+			}
+			if( i % 2 == 0 ) {
+				kb.addPropertyValue( q, inds[i], inds[(i * 7 + 1) % INDIVIDUALS] );
+			}
+			else if( i % 7 == 0 ) {
+				kb.addPropertyValue( p, inds[i], inds[(i + 3) % INDIVIDUALS] );
+			}
+		}
+	}
+
+	private static Map<List<ATermAppl>, Integer> answers(Query query, QueryResult result) {
+		Map<List<ATermAppl>, Integer> answers = new HashMap<List<ATermAppl>, Integer>();
+		for( ResultBinding binding : result ) {
+			List<ATermAppl> answer = new ArrayList<ATermAppl>();
+			for( ATermAppl var : query.getResultVars() ) {
+				answer.add( binding.getValue( var ) );
+			}
+
+			Integer count = answers.get( answer );
+			answers.put( answer, count == null
+				? 1
+				: count + 1 );
+		}
+
+		return answers;
+	}
+
+	private void testParallel(Query query) {
+		PelletOptions.QUERY_THREADS = 1;
+		Map<List<ATermAppl>, Integer> expected = answers( query, QueryEngine.exec( query ) );
+
+		PelletOptions.QUERY_THREADS = 4;
+		Map<List<ATermAppl>, Integer> actual = answers( query, QueryEngine.exec( query ) );
+
+		assertFalse( expected.isEmpty() );
+		assertEquals( expected, actual );
+	}
+
+	private Query typeAndPropertyQuery() {
+		return query( select( x, y ), where( TypeAtom( x, B ), PropertyValueAtom( x, p, y ) ) );
+	}
+
+	@Test
+	public void testRealized() {
+		createKB();
+		kb.realize();
+
+		testParallel( typeAndPropertyQuery() );
+		testParallel( query( select( x ), where( TypeAtom( x, A ) ) ) );
+
+		assertNotNull( kb.timers.getTimer( "parallelQuery" ) );
+	}
+
+	@Test
+	public void testClassified() {
+		createKB();
+		kb.classify();
+
+		testParallel( typeAndPropertyQuery() );
+		testParallel( query( select( x, y ), where( PropertyValueAtom( x, p, y ), TypeAtom( y, D ) ) ) );
+		assertFalse( kb.isRealized() );
+	}
+
+	@Test
+	public void testComponents() {
+		createKB();
+		kb.realize();
+
+		testParallel( query( select( x, y ), where( TypeAtom( x, D ), TypeAtom( y, C ) ) ) );
+		testParallel( query( select( x, y, z ), where( PropertyValueAtom( x, q, y ), TypeAtom( z,
+				B ) ) ) );
+	}
+
+	@Test
+	public void testProjection() {
+		createKB();
+		kb.realize();
+
+		testParallel( query( select( x ), where( PropertyValueAtom( x, p, y ), TypeAtom( y, D ) ) ) );
+		testParallel( query( select( y ), where( TypeAtom( x, A ), PropertyValueAtom( x, p, y ) ) ) );
+	}
+
+	@Test
+	public void testLimit() {
+		createKB();
+		kb.realize();
+
+		PelletOptions.QUERY_THREADS = 4;
+		assertEquals( 3, QueryEngine.exec( typeAndPropertyQuery(), 3, null ).size() );
+		assertEquals( 1, QueryEngine.exec( query( select( x, y ), where( TypeAtom( x, D ), TypeAtom(
+				y, C ) ) ), 1, null ).size() );
+
+		// small limits are answered by the sequential engine
+		assertNull( kb.timers.getTimer( "parallelQuery" ) );
+
+		Query query = query( select( x, y ), where( PropertyValueAtom( x, p, y ) ) );
+		long all = QueryEngine.exec( query ).size();
+		assertEquals( Math.min( all, 20 ), QueryEngine.exec( query, 20, null ).size() );
+		assertNotNull( kb.timers.getTimer( "parallelQuery" ) );
+	}
+
+	@Test
+	public void testWorkersReused() {
+		createKB();
+		kb.realize();
+
+		PelletOptions.QUERY_THREADS = 4;
+		testParallel( typeAndPropertyQuery() );
+		WorkerPool pool = kb.getTaxonomyWorkers( 4 );
+		testParallel( query( select( x ), where( TypeAtom( x, A ) ) ) );
+		assertSame( pool, kb.getTaxonomyWorkers( 4 ) );
+		assertEquals( 1, kb.timers.getTimer( "createWorkers" ).getCount() );
+
+		// the copies are created again after the KB changes
+		kb.addType( inds[1], D );
+		testParallel( typeAndPropertyQuery() );
+		assertEquals( 2, kb.timers.getTimer( "createWorkers" ).getCount() );
+	}
+
+	@Test
+	public void testSupports() {
+		createKB();
+
+		Query query = typeAndPropertyQuery();
+		assertFalse( ParallelQueryEngine.supports( Collections.singletonList( query ) ) );
+
+		kb.classify();
+		assertTrue( ParallelQueryEngine.supports( Collections.singletonList( query ) ) );
+
+		Query classVar = query( select( x, y ), where( TypeAtom( x, y ) ) );
+		assertFalse( ParallelQueryEngine.supports( Collections.singletonList( classVar ) ) );
+
+		// unsupported queries are still answered sequentially
+		PelletOptions.QUERY_THREADS = 4;
+		assertFalse( QueryEngine.exec( classVar ).isEmpty() );
+	}
+}
@@ -0,0 +1,208 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package com.clarkparsia.pellet.test.query;
+
+import static com.clarkparsia.pellet.sparqldl.model.QueryAtomFactory.PropertyValueAtom;
+import static com.clarkparsia.pellet.sparqldl.model.QueryAtomFactory.TypeAtom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.PelletInfGraph;
+import org.mindswap.pellet.jena.PelletReasonerFactory;
+
+import aterm.ATermAppl;
+
+import com.clarkparsia.pellet.sparqldl.engine.QueryPlanCache;
+import com.clarkparsia.pellet.sparqldl.jena.SparqlDLExecutionFactory;
+import com.clarkparsia.pellet.sparqldl.model.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.InfModel;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * Tests that cached query plans and parsed queries are reused and discarded
+ * when the KB changes.
+ */
+public class QueryPlanCacheTests extends AbstractQueryTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( QueryPlanCacheTests.class );
+	}
+
+	private int	oldCacheSize;
+
+	@Before
+	public void saveCacheSize() {
+		oldCacheSize = PelletOptions.QUERY_PLAN_CACHE_SIZE;
+	}
+
+	@After
+	public void resetCacheSize() {
+		PelletOptions.QUERY_PLAN_CACHE_SIZE = oldCacheSize;
+	}
+
+	private void createKB() {
+		classes( A, B );
+		objectProperties( p );
+		individuals( a, b, c, d );
+
+		kb.addType( a, A );
+		kb.addType( b, A );
+		kb.addType( c, B );
+		kb.addPropertyValue( p, a, c );
+		kb.addPropertyValue( p, b, d );
+	}
+
+	@Test
+	public void testPlanReuse() {
+		createKB();
+
+		QueryPlanCache cache = QueryPlanCache.getCache( kb );
+		assertNotNull( cache );
+
+		testQuery( query( select( x, y ), where( TypeAtom( x, A ), PropertyValueAtom( x, p, y ) ) ),
+				new ATermAppl[][] { { a, c }, { b, d } } );
+		assertEquals( 0, cache.getPlanHits() );
+		assertEquals( 1, cache.getPlanMisses() );
+
+		testQuery( query( select( x, y ), where( TypeAtom( x, A ), PropertyValueAtom( x, p, y ) ) ),
+				new ATermAppl[][] { { a, c }, { b, d } } );
+		assertEquals( 1, cache.getPlanHits() );
+
+		// renamed variables share the same plan
+		testQuery( query( select( z, x ), where( TypeAtom( z, A ), PropertyValueAtom( z, p, x ) ) ),
+				new ATermAppl[][] { { a, c }, { b, d } } );
+		assertEquals( 2, cache.getPlanHits() );
+		assertEquals( 1, cache.getPlanMisses() );
+	}
+
+	@Test
+	public void testIndividualsShareShape() {
+		createKB();
+
+		QueryPlanCache cache = QueryPlanCache.getCache( kb );
+
+		testQuery( query( select( x, y ), where( PropertyValueAtom( x, p, y ), TypeAtom( x, A ),
+				PropertyValueAtom( x, p, c ) ) ), new ATermAppl[][] { { a, c } } );
+		testQuery( query( select( x, y ), where( PropertyValueAtom( x, p, y ), TypeAtom( x, A ),
+				PropertyValueAtom( x, p, d ) ) ), new ATermAppl[][] { { b, d } } );
+
+		assertEquals( 1, cache.getPlanHits() );
+		assertEquals( 1, cache.getPlanMisses() );
+	}
+
+	@Test
+	public void testInvalidation() {
+		createKB();
+
+		QueryPlanCache cache = QueryPlanCache.getCache( kb );
+		Query query = query( select( x, y ), where( TypeAtom( x, A ), PropertyValueAtom( x, p, y ) ) );
+
+		testQuery( query, new ATermAppl[][] { { a, c }, { b, d } } );
+
+		kb.addType( c, A );
+		kb.addPropertyValue( p, c, a );
+
+		testQuery( query( select( x, y ), where( TypeAtom( x, A ), PropertyValueAtom( x, p, y ) ) ),
+				new ATermAppl[][] { { a, c }, { b, d }, { c, a } } );
+		assertEquals( 0, cache.getPlanHits() );
+		assertEquals( 2, cache.getPlanMisses() );
+		assertEquals( 1, cache.getInvalidations() );
+	}
+
+	@Test
+	public void testEviction() {
+		createKB();
+
+		PelletOptions.QUERY_PLAN_CACHE_SIZE = 1;
+		QueryPlanCache cache = QueryPlanCache.getCache( kb );
+
+		Query first = query( select( x, y ), where( TypeAtom( x, A ), PropertyValueAtom( x, p, y ) ) );
+		Query second = query( select( x, y ), where( TypeAtom( y, B ), PropertyValueAtom( x, p, y ) ) );
+
+		testQuery( first, new ATermAppl[][] { { a, c }, { b, d } } );
+		testQuery( second, new ATermAppl[][] { { a, c } } );
+		testQuery( first, new ATermAppl[][] { { a, c }, { b, d } } );
+
+		assertEquals( 0, cache.getPlanHits() );
+		assertEquals( 3, cache.getPlanMisses() );
+	}
+
+	@Test
+	public void testDisabled() {
+		createKB();
+
+		PelletOptions.QUERY_PLAN_CACHE_SIZE = 0;
+		assertNull( QueryPlanCache.getCache( kb ) );
+
+		testQuery( query( select( x, y ), where( TypeAtom( x, A ), PropertyValueAtom( x, p, y ) ) ),
+				new ATermAppl[][] { { a, c }, { b, d } } );
+	}
+
+	private static int count(InfModel model, String query) {
+		QueryExecution qe = SparqlDLExecutionFactory.create( QueryFactory.create( query ), model );
+		ResultSet results = qe.execSelect();
+		while( results.hasNext() ) {
+			results.next();
+		}
+
+		return results.getRowNumber();
+	}
+
+	@Test
+	public void testParsedQueryReuse() {
+		String ns = "http://www.example.org/test#";
+
+		InfModel model = ModelFactory.createInfModel( PelletReasonerFactory.theInstance().create(),
+				ModelFactory.createDefaultModel() );
+
+		Resource C = model.createResource( ns + "C" );
+		Property prop = model.createProperty( ns + "p" );
+		model.add( C, RDF.type, OWL.Class );
+		model.add( prop, RDF.type, OWL.ObjectProperty );
+		for( int i = 0; i < 5; i++ ) {
+			Resource ind = model.createResource( ns + "ind" + i );
+			model.add( ind, RDF.type, C );
+			model.add( ind, prop, model.createResource( ns + "ind" + ((i + 1) % 5) ) );
+		}
+
+		String query = "PREFIX rdf:<http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n"
+				+ "PREFIX : <http://www.example.org/test#>\n"
+				+ "SELECT ?x ?y WHERE { ?x rdf:type :C . ?x :p ?y }";
+
+		assertEquals( 5, count( model, query ) );
+
+		PelletInfGraph graph = (PelletInfGraph) model.getGraph();
+		QueryPlanCache cache = QueryPlanCache.getCache( graph.getKB() );
+		assertEquals( 0, cache.getParseHits() );
+		assertEquals( 1, cache.getParseMisses() );
+
+		assertEquals( 5, count( model, query ) );
+		assertEquals( 1, cache.getParseHits() );
+		assertEquals( 1, cache.getPlanHits() );
+
+		// changes to the model discard the cached query
+		model.add( model.createResource( ns + "ind5" ), RDF.type, C );
+		model.add( model.getResource( ns + "ind5" ), prop, model.getResource( ns + "ind0" ) );
+
+		assertEquals( 6, count( model, query ) );
+		assertEquals( 1, cache.getParseHits() );
+		assertEquals( 2, cache.getParseMisses() );
+	}
+}
@@ -34,7 +34,8 @@ import com.clarkparsia.sparqlowl.parser.test.ParserTest;
 @SuiteClasses( { TestBooleanQueries.class, TestSingleSPARQLDLQueries.class, ParserTest.class,
 	TestParameterizedQuery.class, TestGroundBooleanQueryComponents.class, TestNegatedQueries.class,
 	TestUnionQueries.class, TestMiscQueries.class, TestMiscSPARQL.class, SparqlDawgTestSuite.class,
-	TestQuerySubsumption.class})
+	TestQuerySubsumption.class, ParallelQueryTests.class,
+	QueryPlanCacheTests.class})
 public class QueryTestSuite {
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(QueryTestSuite.class);
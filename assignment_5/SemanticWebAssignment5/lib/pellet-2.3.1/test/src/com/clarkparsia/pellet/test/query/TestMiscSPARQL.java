@@ -9,12 +9,16 @@ import java.util.Iterator;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.PelletInfGraph;
 import org.mindswap.pellet.jena.PelletReasoner;
 import org.mindswap.pellet.jena.PelletReasonerFactory;
 import org.mindswap.pellet.test.PelletTestSuite;
 
+import com.clarkparsia.pellet.sparqldl.engine.CombinedQueryEngine;
 import com.clarkparsia.pellet.sparqldl.jena.SparqlDLExecutionFactory;
+import com.clarkparsia.pellet.sparqldl.parser.ARQParser;
 import com.hp.hpl.jena.query.ARQ;
+import com.hp.hpl.jena.query.QueryCancelledException;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryExecutionFactory;
 import com.hp.hpl.jena.query.QueryFactory;
@@ -22,6 +26,9 @@ import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.InfModel;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.binding.Binding;
 
@@ -360,4 +367,81 @@ public class TestMiscSPARQL {
 		
 		assertTrue( results.getRowNumber() == 4 );
 	}
+
+	private InfModel createInstancesModel() {
+		String ns = "http://www.example.org/test#";
+
+		InfModel aModel = ModelFactory.createInfModel( PelletReasonerFactory.theInstance().create(),
+				ModelFactory.createDefaultModel() );
+
+		Resource C = aModel.createResource( ns + "C" );
+		Resource D = aModel.createResource( ns + "D" );
+		aModel.add( C, RDF.type, OWL.Class );
+		aModel.add( D, RDF.type, OWL.Class );
+		aModel.add( C, RDFS.subClassOf, D );
+		for( int i = 0; i < 10; i++ ) {
+			aModel.add( aModel.createResource( ns + "ind" + i ), RDF.type, C );
+		}
+
+		return aModel;
+	}
+
+	private static final String	INSTANCES_PREFIX	= "PREFIX rdf:<http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n"
+															+ "PREFIX : <http://www.example.org/test#>\n";
+
+	@Test
+	public void testLimitStopsEarly() {
+		InfModel aModel = createInstancesModel();
+
+		String aQuery = INSTANCES_PREFIX + "SELECT ?x WHERE { ?x rdf:type :D } LIMIT 3";
+
+		QueryExecution qe = SparqlDLExecutionFactory.create( QueryFactory.create( aQuery ), aModel );
+		ResultSet results = qe.execSelect();
+		while( results.hasNext() ) {
+			results.next();
+		}
+		assertEquals( 3, results.getRowNumber() );
+
+		aQuery = INSTANCES_PREFIX + "SELECT ?x WHERE { ?x rdf:type :D } OFFSET 8 LIMIT 5";
+
+		qe = SparqlDLExecutionFactory.create( QueryFactory.create( aQuery ), aModel );
+		results = qe.execSelect();
+		while( results.hasNext() ) {
+			results.next();
+		}
+		assertEquals( 2, results.getRowNumber() );
+
+		// the engine itself stops once the requested number of bindings is
+		// found
+		PelletInfGraph graph = (PelletInfGraph) aModel.getGraph();
+		graph.prepare();
+		com.clarkparsia.pellet.sparqldl.model.Query q = new ARQParser().parse(
+				QueryFactory.create( INSTANCES_PREFIX + "SELECT ?x WHERE { ?x rdf:type :D }" ), graph.getKB() );
+		assertEquals( 2, new CombinedQueryEngine().exec( q, 2, null ).size() );
+		assertEquals( 10, new CombinedQueryEngine().exec( q ).size() );
+		assertTrue( new CombinedQueryEngine().exec( q, 0, null ).isEmpty() );
+	}
+
+	@Test
+	public void testAsk() {
+		InfModel aModel = createInstancesModel();
+
+		String aQuery = INSTANCES_PREFIX + "ASK { ?x rdf:type :D }";
+		QueryExecution qe = SparqlDLExecutionFactory.create( QueryFactory.create( aQuery ), aModel );
+		assertTrue( qe.execAsk() );
+
+		aQuery = INSTANCES_PREFIX + "ASK { :ind0 rdf:type ?x . ?x rdf:type :C }";
+		qe = SparqlDLExecutionFactory.create( QueryFactory.create( aQuery ), aModel );
+		assertFalse( qe.execAsk() );
+	}
+
+	@Test(expected = QueryCancelledException.class)
+	public void testAbort() {
+		InfModel aModel = createInstancesModel();
+
+		String aQuery = INSTANCES_PREFIX + "SELECT ?x WHERE { ?x rdf:type :D }";
+		QueryExecution qe = SparqlDLExecutionFactory.create( QueryFactory.create( aQuery ), aModel );
+		qe.abort();
+		qe.execSelect();
+	}
 }
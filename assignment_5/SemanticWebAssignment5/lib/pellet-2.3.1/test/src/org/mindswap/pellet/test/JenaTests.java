@@ -17,24 +17,36 @@ import static org.mindswap.pellet.test.PelletTestCase.assertIteratorContains;
 import static org.mindswap.pellet.test.PelletTestCase.assertIteratorValues;
 import static org.mindswap.pellet.test.PelletTestCase.assertPropertyValues;
 
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 
 import junit.framework.JUnit4TestAdapter;
 
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDFLib;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.DeductionsGraph;
 import org.mindswap.pellet.jena.ModelExtractor;
+import org.mindswap.pellet.jena.ModelExtractor.StatementType;
 import org.mindswap.pellet.jena.PelletInfGraph;
 import org.mindswap.pellet.jena.PelletReasoner;
 import org.mindswap.pellet.jena.PelletReasonerFactory;
+import org.mindswap.pellet.jena.graph.loader.DefaultGraphLoader;
+import org.mindswap.pellet.jena.graph.loader.StreamingGraphLoader;
 import org.mindswap.pellet.jena.vocabulary.OWL2;
 import org.mindswap.pellet.utils.ATermUtils;
 
@@ -44,6 +56,9 @@ import com.clarkparsia.pellet.datatypes.DatatypeReasoner;
 import com.clarkparsia.pellet.datatypes.DatatypeReasonerImpl;
 import com.clarkparsia.pellet.utils.PropertiesBuilder;
 import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Factory;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.compose.Union;
 import com.hp.hpl.jena.ontology.AnnotationProperty;
 import com.hp.hpl.jena.ontology.DatatypeProperty;
@@ -3228,4 +3243,199 @@ public class JenaTests {
 		
 		assertTrue(inferences.contains(a, RDF.type, D));
 	}
+
+	private OntModel createDeductionsModel() {
+		String ns = "urn:test:";
+
+		OntModel model = ModelFactory.createOntologyModel( PelletReasonerFactory.THE_SPEC );
+
+		OntClass C = model.createClass( ns + "C" );
+		OntClass D = model.createClass( ns + "D" );
+		OntClass E = model.createClass( ns + "E" );
+		ObjectProperty p = model.createObjectProperty( ns + "p" );
+		ObjectProperty q = model.createObjectProperty( ns + "q" );
+		ObjectProperty r = model.createObjectProperty( ns + "r" );
+		DatatypeProperty s = model.createDatatypeProperty( ns + "s" );
+
+		C.addSuperClass( D );
+		D.addEquivalentClass( E );
+		p.addSuperProperty( q );
+		p.addInverseOf( r );
+		q.addProperty( RDF.type, OWL.TransitiveProperty );
+
+		Individual a = model.createIndividual( ns + "a", C );
+		Individual b = model.createIndividual( ns + "b", D );
+		a.addProperty( p, b );
+		a.addLiteral( s, 1 );
+
+		return model;
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testLazyDeductionsGraph() {
+		final boolean oldRDG = PelletOptions.RETURN_DEDUCTIONS_GRAPH;
+		try {
+			PelletOptions.RETURN_DEDUCTIONS_GRAPH = true;
+
+			OntModel model = createDeductionsModel();
+
+			PelletInfGraph graph = (PelletInfGraph) model.getGraph();
+			Graph deductions = graph.getDeductionsGraph();
+
+			ModelExtractor extractor = new ModelExtractor( model );
+			extractor.setSelector( StatementType.ALL_PROPERTY_STATEMENTS );
+			Graph expected = extractor.extractModel().getGraph();
+
+			assertTrue( expected.isIsomorphicWith( deductions ) );
+
+			// the default deductions only contain statements about properties
+			assertFalse( graph.getKB().isRealized() );
+
+			Node p = Node.createURI( "urn:test:p" );
+			Node q = Node.createURI( "urn:test:q" );
+			assertIteratorValues( deductions.find( p, RDFS.subPropertyOf.asNode(), Node.ANY ),
+					expected.find( p, RDFS.subPropertyOf.asNode(), Node.ANY ) );
+			assertTrue( deductions.contains( p, RDF.type.asNode(), OWL.ObjectProperty.asNode() ) );
+			assertTrue( deductions.contains( q, RDF.type.asNode(), OWL.TransitiveProperty.asNode() ) );
+			assertFalse( deductions.contains( p, RDF.type.asNode(), OWL.TransitiveProperty.asNode() ) );
+			assertFalse( deductions.find( Node.createLiteral( "p" ), Node.ANY, Node.ANY ).hasNext() );
+			assertEquals( expected.size(), deductions.size() );
+
+			Graph streamed = Factory.createDefaultGraph();
+			graph.writeDeductions( StreamRDFLib.graph( streamed ) );
+			assertTrue( expected.isIsomorphicWith( streamed ) );
+		} finally {
+			PelletOptions.RETURN_DEDUCTIONS_GRAPH = oldRDG;
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeductionsGraphCache() {
+		final boolean oldRDG = PelletOptions.RETURN_DEDUCTIONS_GRAPH;
+		try {
+			PelletOptions.RETURN_DEDUCTIONS_GRAPH = true;
+
+			OntModel model = createDeductionsModel();
+
+			PelletInfGraph graph = (PelletInfGraph) model.getGraph();
+			Graph deductions = graph.getDeductionsGraph();
+
+			Node p = Node.createURI( "urn:test:p" );
+			Node t = Node.createURI( "urn:test:t" );
+			Node subPropertyOf = RDFS.subPropertyOf.asNode();
+
+			int size = deductions.size();
+			assertEquals( size, deductions.size() );
+			assertIteratorValues( deductions.find( Node.ANY, subPropertyOf, Node.ANY ),
+					deductions.find( Node.ANY, subPropertyOf, Node.ANY ) );
+			assertFalse( deductions.contains( Node.ANY, subPropertyOf, t ) );
+
+			model.getObjectProperty( "urn:test:q" ).addSuperProperty( model.createObjectProperty( t.getURI() ) );
+
+			Graph updated = graph.getDeductionsGraph();
+			assertTrue( updated.contains( Node.ANY, subPropertyOf, t ) );
+			assertTrue( updated.contains( p, subPropertyOf, t ) );
+			assertTrue( updated.size() > size );
+
+			// the cache of the graph returned before the change is cleared too
+			assertTrue( deductions.contains( p, subPropertyOf, t ) );
+		} finally {
+			PelletOptions.RETURN_DEDUCTIONS_GRAPH = oldRDG;
+		}
+	}
+
+	@Test
+	public void testLazyDeductionsGraphAllStatements() {
+		OntModel model = createDeductionsModel();
+
+		ModelExtractor extractor = new ModelExtractor( model );
+		extractor.setSelector( StatementType.ALL_STATEMENTS );
+		Graph expected = extractor.extractModel().getGraph();
+		Graph deductions = new DeductionsGraph( extractor );
+
+		assertTrue( expected.isIsomorphicWith( deductions ) );
+
+		Node a = Node.createURI( "urn:test:a" );
+		Node C = Node.createURI( "urn:test:C" );
+		Node E = Node.createURI( "urn:test:E" );
+		assertTrue( deductions.contains( a, RDF.type.asNode(), E ) );
+		assertTrue( deductions.contains( C, RDFS.subClassOf.asNode(), E ) );
+		assertIteratorValues( deductions.find( a, Node.ANY, Node.ANY ),
+				expected.find( a, Node.ANY, Node.ANY ) );
+		assertIteratorValues( deductions.find( Node.ANY, RDF.type.asNode(), C ),
+				expected.find( Node.ANY, RDF.type.asNode(), C ) );
+	}
+
+	@Test
+	public void testStreamingExtractor() {
+		OntModel model = createDeductionsModel();
+
+		for( EnumSet<StatementType> selector : Arrays.asList( StatementType.DEFAULT_STATEMENTS,
+				StatementType.ALL_STATEMENTS_INCLUDING_JENA ) ) {
+			ModelExtractor extractor = new ModelExtractor( model );
+			extractor.setSelector( selector );
+
+			Graph streamed = Factory.createDefaultGraph();
+			extractor.extractModel( StreamRDFLib.graph( streamed ) );
+
+			assertTrue( extractor.extractModel().getGraph().isIsomorphicWith( streamed ) );
+		}
+	}
+
+	@Test
+	public void testStreamingLoader() throws UnsupportedEncodingException {
+		StringBuilder data = new StringBuilder();
+		data.append( "@prefix : <http://example.org/test#> .\n" );
+		data.append( "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n" );
+		data.append( "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n" );
+		data.append( ":ont a owl:Ontology ; rdfs:comment \"Test ontology\" .\n" );
+		data.append( ":p a owl:ObjectProperty .\n" );
+		data.append( ":name a owl:DatatypeProperty .\n" );
+		data.append( ":A a owl:Class .\n" );
+		data.append( ":D a owl:Class .\n" );
+		data.append( ":B a owl:Class ; owl:equivalentClass [ a owl:Restriction ; owl:onProperty :p ; owl:someValuesFrom :A ] .\n" );
+		data.append( ":C a owl:Class ; owl:equivalentClass [ owl:intersectionOf ( :B :D ) ] .\n" );
+		for( int i = 0; i < 20; i++ ) {
+			data.append( ":ind" + i + " a " + (i % 2 == 0 ? ":A" : ":D") + " ; :p :ind" + (i + 1)
+					+ " ; :name \"ind " + i + "\" ; rdfs:label \"Individual " + i + "\" .\n" );
+		}
+		// property used before it is declared
+		data.append( ":ind0 :q :ind1 .\n" );
+		data.append( ":q a owl:ObjectProperty .\n" );
+
+		KnowledgeBase streamed = new KnowledgeBase();
+		StreamingGraphLoader loader = new StreamingGraphLoader( streamed );
+		RDFDataMgr.parse( loader, new ByteArrayInputStream( data.toString().getBytes( "UTF-8" ) ),
+				"http://example.org/test", Lang.TURTLE, null );
+
+		Model model = ModelFactory.createDefaultModel();
+		model.read( new StringReader( data.toString() ), "http://example.org/test", "TTL" );
+
+		KnowledgeBase expected = new KnowledgeBase();
+		DefaultGraphLoader graphLoader = new DefaultGraphLoader();
+		graphLoader.setKB( expected );
+		graphLoader.load( Collections.singleton( model.getGraph() ) );
+
+		// ABox triples are not buffered
+		assertTrue( loader.getStreamedTriples() > 80 );
+		assertTrue( loader.getGraph().size() < 20 );
+
+		assertTrue( streamed.isConsistent() );
+		assertEquals( expected.getIndividuals(), streamed.getIndividuals() );
+		for( String name : new String[] { "A", "B", "C", "D" } ) {
+			ATermAppl c = ATermUtils.makeTermAppl( "http://example.org/test#" + name );
+			assertEquals( expected.getInstances( c ), streamed.getInstances( c ) );
+		}
+		for( String name : new String[] { "p", "q", "name" } ) {
+			ATermAppl p = ATermUtils.makeTermAppl( "http://example.org/test#" + name );
+			assertEquals( expected.getPropertyType( p ), streamed.getPropertyType( p ) );
+			for( ATermAppl ind : expected.getIndividuals() ) {
+				assertEquals( new HashSet<ATermAppl>( expected.getPropertyValues( p, ind ) ),
+						new HashSet<ATermAppl>( streamed.getPropertyValues( p, ind ) ) );
+			}
+		}
+		assertEquals( expected.getAnnotationProperties(), streamed.getAnnotationProperties() );
+	}
 }
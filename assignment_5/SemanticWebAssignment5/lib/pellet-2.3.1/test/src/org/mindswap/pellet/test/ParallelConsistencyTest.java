@@ -0,0 +1,175 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test;
+
+import static com.clarkparsia.pellet.utils.TermFactory.all;
+import static com.clarkparsia.pellet.utils.TermFactory.hasValue;
+import static com.clarkparsia.pellet.utils.TermFactory.not;
+import static com.clarkparsia.pellet.utils.TermFactory.or;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.ParallelConsistencyChecker;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.JenaLoader;
+
+import aterm.ATermAppl;
+
+/**
+ * Verifies that checking the connected components of an ABox in parallel
+ * gives the same results as completing the whole ABox.
+ */
+public class ParallelConsistencyTest extends AbstractKBTests {
+	public static int	THREADS	= 3;
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( ParallelConsistencyTest.class );
+	}
+
+	private int	oldThreads;
+
+	@Before
+	public void setThreads() {
+		oldThreads = PelletOptions.CONSISTENCY_THREADS;
+		PelletOptions.CONSISTENCY_THREADS = THREADS;
+	}
+
+	@After
+	public void resetThreads() {
+		PelletOptions.CONSISTENCY_THREADS = oldThreads;
+	}
+
+	/**
+	 * Components where some individuals need branching and some are
+	 * completed deterministically.
+	 */
+	private void createComponents(int count) {
+		classes( A, B, C, D );
+		objectProperties( p, q );
+
+		kb.addSubClass( A, some( p, B ) );
+		kb.addSubClass( B, all( q, C ) );
+		kb.addSubClass( C, or( D, not( A ) ) );
+
+		for( int i = 0; i < count; i++ ) {
+			ATermAppl x = term( "x" + i );
+			ATermAppl y = term( "y" + i );
+			individuals( x, y );
+			kb.addPropertyValue( q, x, y );
+			kb.addType( x, i % 2 == 0
+				? A
+				: B );
+			if( i % 3 == 0 ) {
+				kb.addType( y, or( A, D ) );
+			}
+		}
+	}
+
+	private Map<ATermAppl, Set<Set<ATermAppl>>> getTypes() {
+		Map<ATermAppl, Set<Set<ATermAppl>>> types = new HashMap<ATermAppl, Set<Set<ATermAppl>>>();
+		for( ATermAppl ind : kb.getIndividuals() ) {
+			types.put( ind, kb.getTypes( ind ) );
+		}
+		return types;
+	}
+
+	@Test
+	public void consistentComponents() {
+		createComponents( 40 );
+
+		assertTrue( kb.isConsistent() );
+		assertNotNull( kb.timers.getTimer( "parallelConsistency" ) );
+		assertNotNull( kb.timers.getTimer( "mergeComponents" ) );
+		assertTrue( kb.isType( term( "x0" ), some( p, B ) ) );
+		assertTrue( kb.isType( term( "x1" ), all( q, C ) ) );
+		assertTrue( kb.isType( term( "y1" ), C ) );
+		Map<ATermAppl, Set<Set<ATermAppl>>> actual = getTypes();
+
+		PelletOptions.CONSISTENCY_THREADS = 1;
+		initializeKB();
+		createComponents( 40 );
+		assertTrue( kb.isConsistent() );
+		Map<ATermAppl, Set<Set<ATermAppl>>> expected = getTypes();
+
+		assertEquals( expected, actual );
+	}
+
+	@Test
+	public void inconsistentComponent() {
+		createComponents( 40 );
+
+		// only inconsistent after the disjunction is expanded
+		kb.addType( term( "y1" ), not( D ) );
+		kb.addType( term( "y1" ), A );
+
+		assertFalse( kb.isConsistent() );
+		assertNotNull( kb.timers.getTimer( "parallelConsistency" ) );
+		assertEquals( term( "y1" ), kb.getABox().getClash().getNode().getName() );
+	}
+
+	@Test
+	public void inconsistentAnonymousNode() {
+		createComponents( 40 );
+
+		// the clash is found on the anonymous p-successor of x4
+		kb.addSubClass( A, all( p, not( B ) ) );
+		kb.addType( term( "x5" ), A );
+		kb.addType( term( "x4" ), A );
+
+		assertFalse( kb.isConsistent() );
+		assertNotNull( kb.getABox().getNode( kb.getABox().getClash().getNode().getName() ) );
+	}
+
+	@Test
+	public void notApplicableWithNominals() {
+		createComponents( 10 );
+		kb.prepare();
+		assertTrue( ParallelConsistencyChecker.isApplicable( kb.getABox(), kb.getExpressivity() ) );
+
+		initializeKB();
+		createComponents( 10 );
+		kb.addSubClass( D, hasValue( p, term( "x1" ) ) );
+		kb.prepare();
+		assertFalse( ParallelConsistencyChecker.isApplicable( kb.getABox(), kb.getExpressivity() ) );
+	}
+
+	private Map<ATermAppl, Set<Set<ATermAppl>>> realize(String file, int threads) {
+		PelletOptions.CONSISTENCY_THREADS = threads;
+
+		KnowledgeBase kb = new JenaLoader().createKB( file );
+		kb.realize();
+
+		Map<ATermAppl, Set<Set<ATermAppl>>> types = new HashMap<ATermAppl, Set<Set<ATermAppl>>>();
+		for( ATermAppl ind : kb.getIndividuals() ) {
+			types.put( ind, kb.getTypes( ind, true ) );
+		}
+
+		return types;
+	}
+
+	@Test
+	public void realization() {
+		for( String name : new String[] { "agencies.owl", "family.owl", "teams.owl" } ) {
+			String file = base + name;
+			assertEquals( realize( file, 1 ), realize( file, THREADS ) );
+		}
+	}
+}
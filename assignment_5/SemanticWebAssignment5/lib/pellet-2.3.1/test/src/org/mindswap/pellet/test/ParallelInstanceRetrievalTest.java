@@ -0,0 +1,203 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test;
+
+import static com.clarkparsia.pellet.utils.TermFactory.all;
+import static com.clarkparsia.pellet.utils.TermFactory.hasValue;
+import static com.clarkparsia.pellet.utils.TermFactory.not;
+import static com.clarkparsia.pellet.utils.TermFactory.or;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.ParallelInstanceRetrieval;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.jena.JenaLoader;
+
+import aterm.ATermAppl;
+
+/**
+ * Verifies that binary instance retrieval with multiple threads finds the same
+ * instances as the sequential retrieval and copies the ABox only once until
+ * the KB changes.
+ */
+public class ParallelInstanceRetrievalTest extends AbstractKBTests {
+	public static int	THREADS	= 3;
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter( ParallelInstanceRetrievalTest.class );
+	}
+
+	private int	oldThreads;
+
+	private int	oldMinCandidates;
+
+	@Before
+	public void setThreads() {
+		oldThreads = PelletOptions.RETRIEVAL_THREADS;
+		oldMinCandidates = ParallelInstanceRetrieval.MIN_CANDIDATES;
+		PelletOptions.RETRIEVAL_THREADS = THREADS;
+		ParallelInstanceRetrieval.MIN_CANDIDATES = 2;
+	}
+
+	@After
+	public void resetThreads() {
+		PelletOptions.RETRIEVAL_THREADS = oldThreads;
+		ParallelInstanceRetrieval.MIN_CANDIDATES = oldMinCandidates;
+	}
+
+	/**
+	 * Individuals that are all instances of A or B but only some of them are
+	 * known to be instances of A after the disjunction has been ruled out, so
+	 * the instances of A are spread thinly over the candidates and are only
+	 * found by tableau tests. The individuals known to be instances of A are
+	 * returned.
+	 */
+	private Set<ATermAppl> createIndividuals(int count) {
+		classes( A, B, C, D );
+		objectProperties( p, q );
+
+		kb.addSubClass( A, some( p, C ) );
+		kb.addSubClass( B, all( q, D ) );
+
+		Set<ATermAppl> instancesOfA = new HashSet<ATermAppl>();
+		for( int i = 0; i < count; i++ ) {
+			ATermAppl x = term( "x" + i );
+			ATermAppl y = term( "y" + i );
+			individuals( x, y );
+			kb.addType( x, or( A, B ) );
+			kb.addPropertyValue( q, x, y );
+			if( i % 5 == 1 ) {
+				kb.addType( x, not( B ) );
+				instancesOfA.add( x );
+			}
+			else if( i % 7 == 2 ) {
+				// x cannot be a B since y is not a D
+				kb.addType( y, not( D ) );
+				instancesOfA.add( x );
+			}
+			else if( i % 11 == 3 ) {
+				kb.addType( x, not( A ) );
+			}
+		}
+
+		return instancesOfA;
+	}
+
+	private List<Set<ATermAppl>> getInstances(ATermAppl... concepts) {
+		List<Set<ATermAppl>> instances = new ArrayList<Set<ATermAppl>>();
+		for( ATermAppl concept : concepts ) {
+			instances.add( kb.getInstances( concept ) );
+		}
+		return instances;
+	}
+
+	@Test
+	public void sameInstances() {
+		ATermAppl[] concepts = { A, some( p, C ), D, not( A ), all( q, D ), some( q, not( D ) ) };
+
+		Set<ATermAppl> instancesOfA = createIndividuals( 60 );
+		List<Set<ATermAppl>> actual = getInstances( concepts );
+		assertNotNull( kb.timers.getTimer( "retrieveParallel" ) );
+		assertEquals( instancesOfA, actual.get( 0 ) );
+
+		PelletOptions.RETRIEVAL_THREADS = 1;
+		initializeKB();
+		createIndividuals( 60 );
+		List<Set<ATermAppl>> expected = getInstances( concepts );
+		assertNull( kb.timers.getTimer( "retrieveParallel" ) );
+
+		assertEquals( expected, actual );
+	}
+
+	@Test
+	public void workersReused() {
+		createIndividuals( 60 );
+
+		getInstances( A, some( p, C ), not( A ) );
+		assertTrue( kb.timers.getTimer( "retrieveParallel" ).getCount() > 1 );
+		assertEquals( 1, kb.timers.getTimer( "createWorkers" ).getCount() );
+
+		// the workers do not have the new assertion
+		kb.addType( term( "x4" ), not( B ) );
+		assertTrue( kb.getInstances( A ).contains( term( "x4" ) ) );
+		assertEquals( 2, kb.timers.getTimer( "createWorkers" ).getCount() );
+	}
+
+	@Test
+	public void propertyValues() {
+		ATermAppl z = term( "z" );
+
+		Set<ATermAppl> instancesOfA = createIndividuals( 40 );
+		objectProperties( r, s );
+		individuals( z );
+		kb.addInverseProperty( r, s );
+		kb.addSubClass( A, hasValue( r, z ) );
+
+		Set<ATermAppl> values = new HashSet<ATermAppl>( kb.getObjectPropertyValues( s, z ) );
+		assertEquals( instancesOfA, values );
+
+		PelletOptions.RETRIEVAL_THREADS = 1;
+		assertEquals( values, new HashSet<ATermAppl>( kb.getObjectPropertyValues( s, z ) ) );
+	}
+
+	@Test
+	public void notApplicableWithFewCandidates() {
+		createIndividuals( 10 );
+		kb.realize();
+
+		List<ATermAppl> candidates = new ArrayList<ATermAppl>( kb.getIndividuals() );
+		assertTrue( ParallelInstanceRetrieval.isApplicable( kb, candidates ) );
+
+		ParallelInstanceRetrieval.MIN_CANDIDATES = candidates.size() + 1;
+		assertFalse( ParallelInstanceRetrieval.isApplicable( kb, candidates ) );
+	}
+
+	/**
+	 * Retrieves the instances of the complement of every class in the given
+	 * ontology, which unlike the instances of the classes are not found in the
+	 * taxonomy after realization.
+	 */
+	private Map<ATermAppl, Set<ATermAppl>> retrieveComplements(String file, int threads) {
+		PelletOptions.RETRIEVAL_THREADS = threads;
+
+		KnowledgeBase kb = new JenaLoader().createKB( file );
+		kb.classify();
+
+		Map<ATermAppl, Set<ATermAppl>> instances = new HashMap<ATermAppl, Set<ATermAppl>>();
+		for( ATermAppl c : kb.getClasses() ) {
+			instances.put( c, kb.getInstances( not( c ) ) );
+		}
+
+		assertEquals( threads > 1, kb.timers.getTimer( "retrieveParallel" ) != null );
+
+		return instances;
+	}
+
+	@Test
+	public void complementsInOntology() {
+		String file = base + "family.owl";
+		assertEquals( retrieveComplements( file, 1 ), retrieveComplements( file, THREADS ) );
+	}
+}
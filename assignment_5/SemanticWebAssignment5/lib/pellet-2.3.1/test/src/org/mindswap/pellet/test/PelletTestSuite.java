@@ -11,6 +11,12 @@ import junit.framework.TestSuite;
 import org.mindswap.pellet.test.inctest.IncConsistencyTests;
 import org.mindswap.pellet.test.inctest.IncJenaConsistencyTests;
 import org.mindswap.pellet.test.rules.RulesTestSuite;
+import org.mindswap.pellet.test.utils.DependencySetTest;
+import org.mindswap.pellet.test.utils.EdgeListTest;
+import org.mindswap.pellet.test.utils.InstanceCacheTest;
+import org.mindswap.pellet.test.utils.PersistentConceptCacheTest;
+import org.mindswap.pellet.test.utils.TermMapTest;
+import org.mindswap.pellet.test.utils.TimersTest;
 
 import com.clarkparsia.TestATermManchesterSyntaxRenderer;
 import com.clarkparsia.explanation.test.ExplanationTestSuite;
@@ -18,10 +24,13 @@ import com.clarkparsia.modularity.test.ModularityTestSuite;
 import com.clarkparsia.pellet.datatypes.test.DatatypesSuite;
 import com.clarkparsia.pellet.test.BlockingTests;
 import com.clarkparsia.pellet.test.CacheSafetyTests;
+import com.clarkparsia.pellet.test.ConcurrentReasonerTests;
 import com.clarkparsia.pellet.test.TestKnowledgeBase;
 import com.clarkparsia.pellet.test.annotations.AnnotationsTestSuite;
 import com.clarkparsia.pellet.test.classification.ClassificationTestSuite;
 import com.clarkparsia.pellet.test.el.ELTests;
+import com.clarkparsia.pellet.test.el.IncrementalELTests;
+import com.clarkparsia.pellet.test.el.ParallelELTests;
 import com.clarkparsia.pellet.test.owlapi.OWLAPIv3Tests;
 import com.clarkparsia.pellet.test.owlapi.OWLPrimerTests;
 import com.clarkparsia.pellet.test.query.QueryTestSuite;
@@ -37,10 +46,18 @@ public class PelletTestSuite extends TestSuite {
 		TestSuite suite = new TestSuite( PelletTestSuite.class.getName() );
 
 		suite.addTest( ATermTests.suite() );
+		suite.addTest( DependencySetTest.suite() );
+		suite.addTest( PersistentConceptCacheTest.suite() );
+		suite.addTest( InstanceCacheTest.suite() );
+		suite.addTest( EdgeListTest.suite() );
+		suite.addTest( TermMapTest.suite() );
+		suite.addTest( TimersTest.suite() );
 		suite.addTest( PellintTestSuite.suite() );
 		suite.addTest( TracingTests.suite() );
 		suite.addTest( MiscTests.suite() );
 		suite.addTest( MergeTests.suite() );
+		suite.addTest( ParallelConsistencyTest.suite() );
+		suite.addTest( ParallelInstanceRetrievalTest.suite() );
 		suite.addTest( RBoxTestSuite.suite() );
 		suite.addTest( BlockingTests.suite() );
 		suite.addTest( CacheSafetyTests.suite() );
@@ -55,9 +72,12 @@ public class PelletTestSuite extends TestSuite {
 		suite.addTest( TBoxTests.suite() );
 		suite.addTest( DatatypesSuite.suite() );
 		suite.addTest( ELTests.suite() );
+		suite.addTest( ParallelELTests.suite() );
+		suite.addTest( IncrementalELTests.suite() );
 		suite.addTest( ExplanationTestSuite.suite() );
 		suite.addTest( TestIsClass.suite() );
 		suite.addTest( TestKnowledgeBase.suite() );
+		suite.addTest( ConcurrentReasonerTests.suite() );
 		suite.addTest( TestATermManchesterSyntaxRenderer.suite() );
 		suite.addTest( AnnotationsTestSuite.suite() );
 		suite.addTest( TransTreeTestSuite.suite() );
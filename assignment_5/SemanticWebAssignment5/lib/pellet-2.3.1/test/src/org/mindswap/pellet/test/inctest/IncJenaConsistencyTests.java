@@ -27,9 +27,14 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
+import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.PelletOptions;
 import org.mindswap.pellet.jena.PelletInfGraph;
 import org.mindswap.pellet.jena.PelletReasonerFactory;
+import org.mindswap.pellet.jena.vocabulary.OWL2;
+import org.mindswap.pellet.utils.ATermUtils;
+
+import aterm.ATermAppl;
 
 import com.clarkparsia.jena.test.AbstractJenaTests;
 import com.clarkparsia.pellet.utils.PropertiesBuilder;
@@ -44,6 +49,7 @@ import com.hp.hpl.jena.ontology.UnionClass;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.RDFList;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
@@ -537,6 +543,115 @@ public class IncJenaConsistencyTests extends AbstractJenaTests {
 		assertFalse( model.contains( a, RDF.type, D ) );	
 	}	
 		
+	@Test
+	public void testABoxUpdatesWithoutReload() {
+		String ns = "urn:test:";
+
+		OntModel model = ModelFactory.createOntologyModel( PelletReasonerFactory.THE_SPEC );
+
+		OntClass C = model.createClass( ns + "C" );
+		OntClass D = model.createClass( ns + "D" );
+		ObjectProperty p = model.createObjectProperty( ns + "p" );
+		DatatypeProperty q = model.createDatatypeProperty( ns + "q" );
+		p.addDomain( D );
+		Individual a = model.createIndividual( ns + "a", C );
+		Individual b = model.createIndividual( ns + "b", C );
+
+		model.prepare();
+
+		PelletInfGraph graph = (PelletInfGraph) model.getGraph();
+		long loadCount = graph.getKB().timers.getTimer( "load" ).getCount();
+
+		// a batch of ABox triples including declarations and equality
+		Resource c = model.createResource( ns + "c" );
+		Resource d = model.createResource( ns + "d" );
+		Literal one = model.createTypedLiteral( "1", TypeMapper.getInstance().getTypeByName(
+				XSD.integer.getURI() ) );
+		model.add( c, RDF.type, OWL2.NamedIndividual );
+		model.add( a, p, c );
+		model.add( c, OWL.sameAs, d );
+		model.add( d, RDF.type, C );
+		model.add( a, OWL.differentFrom, b );
+		model.add( b, q, one );
+
+		model.prepare();
+
+		assertEquals( loadCount, graph.getKB().timers.getTimer( "load" ).getCount() );
+		assertTrue( model.contains( a, RDF.type, D ) );
+		assertTrue( model.contains( c, RDF.type, C ) );
+		assertTrue( model.contains( a, p, d ) );
+		assertIteratorValues( b.listPropertyValues( q ), new Literal[] { one } );
+
+		// an addition and a deletion of the same triple cancel each other
+		model.add( b, p, a );
+		model.remove( b, p, a );
+
+		model.prepare();
+
+		assertEquals( loadCount, graph.getKB().timers.getTimer( "load" ).getCount() );
+		assertFalse( model.contains( b, RDF.type, D ) );
+	}
+
+	@Test
+	public void testABoxDeletionsWithoutReload() {
+		// without tracing incremental deletion cannot undo the edges
+		assumeTrue( !PelletOptions.USE_INCREMENTAL_DELETION );
+
+		String ns = "urn:test:";
+
+		Model base = ModelFactory.createDefaultModel();
+		Model other = ModelFactory.createDefaultModel();
+
+		Resource C = base.createResource( ns + "C" );
+		Property p = base.createProperty( ns + "p" );
+		Resource a = base.createResource( ns + "a" );
+		Resource b = base.createResource( ns + "b" );
+		Property q = base.createProperty( ns + "q" );
+		Literal one = base.createTypedLiteral( "1", TypeMapper.getInstance().getTypeByName(
+				XSD.integer.getURI() ) );
+
+		base.add( C, RDF.type, OWL.Class );
+		base.add( p, RDF.type, OWL.ObjectProperty );
+		base.add( q, RDF.type, OWL.DatatypeProperty );
+		base.add( a, RDF.type, C );
+		base.add( a, p, b );
+		other.add( a, p, b );
+		base.add( b, q, one );
+
+		OntModel model = ModelFactory.createOntologyModel( PelletReasonerFactory.THE_SPEC, base );
+		model.addSubModel( other );
+
+		model.prepare();
+
+		PelletInfGraph graph = (PelletInfGraph) model.getGraph();
+		KnowledgeBase kb = graph.getKB();
+		ATermAppl aTerm = ATermUtils.makeTermAppl( a.getURI() );
+		ATermAppl pTerm = ATermUtils.makeTermAppl( p.getURI() );
+		ATermAppl bTerm = ATermUtils.makeTermAppl( b.getURI() );
+		ATermAppl qTerm = ATermUtils.makeTermAppl( q.getURI() );
+		long loadCount = kb.timers.getTimer( "load" ).getCount();
+
+		assertTrue( kb.hasPropertyValue( aTerm, pTerm, bTerm ) );
+		assertEquals( 1, kb.getDataPropertyValues( qTerm, bTerm ).size() );
+
+		base.remove( b, q, one );
+		model.prepare();
+
+		assertTrue( kb.getDataPropertyValues( qTerm, bTerm ).isEmpty() );
+
+		// the triple is still asserted in the other graph
+		base.remove( a, p, b );
+		model.prepare();
+
+		assertTrue( kb.hasPropertyValue( aTerm, pTerm, bTerm ) );
+
+		other.remove( a, p, b );
+		model.prepare();
+
+		assertFalse( kb.hasPropertyValue( aTerm, pTerm, bTerm ) );
+		assertEquals( loadCount, kb.timers.getTimer( "load" ).getCount() );
+	}
+
 	public static void main(String[] args) {
 		IncJenaConsistencyTests test = new IncJenaConsistencyTests(true,true,false);
 		test.before();
@@ -19,6 +19,7 @@ import static com.clarkparsia.pellet.utils.TermFactory.or;
 import static com.clarkparsia.pellet.utils.TermFactory.some;
 import static com.clarkparsia.pellet.utils.TermFactory.term;
 import static com.clarkparsia.pellet.utils.TermFactory.value;
+import static com.clarkparsia.pellet.utils.TermFactory.var;
 import static java.util.Collections.singleton;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -74,8 +75,9 @@ import com.clarkparsia.pellet.rules.model.IndividualPropertyAtom;
 import com.clarkparsia.pellet.rules.model.Rule;
 import com.clarkparsia.pellet.rules.model.RuleAtom;
 import com.clarkparsia.pellet.rules.model.SameIndividualAtom;
-import com.clarkparsia.pellet.rules.rete.AlphaNode;
-import com.clarkparsia.pellet.rules.rete.BetaNode;
+import com.clarkparsia.pellet.rules.rete.Fact;
+import com.clarkparsia.pellet.rules.rete.Interpreter;
+import com.clarkparsia.pellet.rules.rete.JoinIndex;
 import com.clarkparsia.pellet.rules.rete.TermTuple;
 import com.hp.hpl.jena.ontology.OntModel;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
@@ -128,38 +130,123 @@ public class MiscRuleTests {
 
 	}
 
-	@Test
-	public void betaNodeMarking() {
-		TermTuple t = new TermTuple( DependencySet.INDEPENDENT );
-		AlphaNode a = new AlphaNode( t );
-
-		BetaNode b1 = new BetaNode( a, a, false );
-		BetaNode b2 = new BetaNode( a, a, false );
-		BetaNode b3 = new BetaNode( b1, b2, false );
-		BetaNode b4 = new BetaNode( b3, b3, false );
-
-		assertTrue( b1.isDirty() );
-		assertTrue( b2.isDirty() );
-		assertTrue( b3.isDirty() );
-		assertTrue( b4.isDirty() );
+	private static Fact fact(DependencySet ds, ATermAppl... elements) {
+		return new Fact( ds, elements );
+	}
 
-		b1.join();
-		b2.join();
-		b3.join();
-		b4.join();
+	/**
+	 * Creates an interpreter with the rules p(x,y), q(y,z) -> r(x,z) and
+	 * r(x,y), p(y,z), q(z,w) -> s(x,w) where the second rule uses the
+	 * inferences of the first one.
+	 */
+	private static Interpreter createInterpreter(KnowledgeBase kb) {
+		ATermAppl p = term( "p" ), q = term( "q" ), r = term( "r" ), s = term( "s" );
+		ATermAppl x = var( "x" ), y = var( "y" ), z = var( "z" ), w = var( "w" );
+
+		Interpreter interpreter = new Interpreter( kb.getABox() );
+		interpreter.rete.compile( new com.clarkparsia.pellet.rules.rete.Rule( Arrays.asList(
+				new TermTuple( p, x, y ), new TermTuple( q, y, z ) ), new TermTuple( r, x, z ) ),
+				null );
+		interpreter.rete.compile( new com.clarkparsia.pellet.rules.rete.Rule( Arrays.asList(
+				new TermTuple( r, x, y ), new TermTuple( p, y, z ), new TermTuple( q, z, w ) ),
+				new TermTuple( s, x, w ) ), null );
+
+		return interpreter;
+	}
 
-		assertFalse( b1.isDirty() );
-		assertFalse( b2.isDirty() );
-		assertFalse( b3.isDirty() );
-		assertFalse( b4.isDirty() );
+	@Test
+	public void reteDeltaPropagation() {
+		ATermAppl p = term( "p" ), q = term( "q" ), r = term( "r" ), s = term( "s" );
+		ATermAppl a = term( "a" ), b = term( "b" ), c = term( "c" ), d = term( "d" ), e = term( "e" );
+		DependencySet ds = DependencySet.INDEPENDENT;
+
+		Interpreter interpreter = createInterpreter( new KnowledgeBase() );
+		assertFalse( interpreter.isDirty() );
+
+		interpreter.addFact( fact( ds, p, a, b ) );
+		interpreter.addFact( fact( ds, q, b, c ) );
+		assertTrue( interpreter.isDirty() );
+		assertEquals( singleton( fact( ds, r, a, c ) ), interpreter.run() );
+		assertFalse( interpreter.isDirty() );
+
+		// only the new inferences are returned
+		interpreter.addFact( fact( ds, p, c, d ) );
+		assertTrue( interpreter.run().isEmpty() );
+
+		interpreter.addFact( fact( ds, q, d, e ) );
+		assertEquals( new HashSet<Fact>( Arrays.asList( fact( ds, r, c, e ), fact( ds, s, a, e ) ) ),
+				interpreter.run() );
+
+		assertFalse( interpreter.addFact( fact( ds, q, d, e ) ) );
+		assertFalse( interpreter.isDirty() );
+	}
 
-		a.markDirty();
+	@Test
+	public void reteRestore() {
+		ATermAppl p = term( "p" ), q = term( "q" ), r = term( "r" ), s = term( "s" );
+		ATermAppl a = term( "a" ), b = term( "b" ), c = term( "c" ), d = term( "d" ), e = term( "e" );
+		DependencySet ds = DependencySet.INDEPENDENT;
 
-		assertTrue( b1.isDirty() );
-		assertTrue( b2.isDirty() );
-		assertTrue( b3.isDirty() );
-		assertTrue( b4.isDirty() );
+		KnowledgeBase kb = new KnowledgeBase();
+		Interpreter interpreter = createInterpreter( kb );
+
+		kb.getABox().setBranch( 1 );
+		interpreter.addFact( fact( ds, p, a, b ) );
+		interpreter.addFact( fact( ds, q, b, c ) );
+		assertEquals( singleton( fact( ds, r, a, c ) ), interpreter.run() );
+
+		kb.getABox().setBranch( 2 );
+		interpreter.addFact( fact( ds.copy( 2 ), p, c, d ) );
+		interpreter.addFact( fact( ds.copy( 2 ), q, d, e ) );
+		assertEquals( 2, interpreter.run().size() );
+
+		// the facts added on branch 2 and the tokens joined with them are
+		// retracted so they are inferred again when the facts are added back
+		assertTrue( interpreter.restore( 1 ) );
+		assertFalse( interpreter.isDirty() );
+
+		interpreter.addFact( fact( ds.copy( 2 ), p, c, d ) );
+		interpreter.addFact( fact( ds.copy( 2 ), q, d, e ) );
+		assertEquals( new HashSet<Fact>( Arrays.asList( fact( ds, r, c, e ), fact( ds, s, a, e ) ) ),
+				interpreter.run() );
+
+		// the rule fired on branch 1 still holds after restoring to branch 0
+		// but its inference was removed so it is fired again
+		assertTrue( interpreter.restore( 0 ) );
+		assertTrue( interpreter.isDirty() );
+
+		kb.getABox().setBranch( 0 );
+		assertEquals( singleton( fact( ds, r, a, c ) ), interpreter.run() );
+	}
 
+	@Test
+	public void reteJoinIndex() {
+		ATermAppl a = term( "a" ), b = term( "b" ), c = term( "c" );
+		DependencySet ds = DependencySet.INDEPENDENT;
+
+		JoinIndex index = new JoinIndex();
+		assertTrue( index.add( fact( ds, a, b ) ) );
+		assertTrue( index.add( fact( ds, a, c ) ) );
+		assertTrue( index.add( fact( ds, b, c ) ) );
+		assertFalse( index.add( fact( ds, a, b ) ) );
+		assertEquals( 3, index.size() );
+
+		// without join variables every token matches
+		assertEquals( 3, index.getMatches( fact( ds, c ) ).size() );
+
+		index.setKeySize( 1 );
+		assertEquals( new HashSet<Fact>( Arrays.asList( fact( ds, a, b ), fact( ds, a, c ) ) ),
+				index.getMatches( fact( ds, a, c, c ) ) );
+		assertTrue( index.getMatches( fact( ds, c ) ).isEmpty() );
+
+		index.setKeySize( 2 );
+		assertEquals( singleton( fact( ds, b, c ) ), index.getMatches( fact( ds, b, c ) ) );
+
+		assertTrue( index.remove( fact( ds, a, b ) ) );
+		assertFalse( index.remove( fact( ds, a, b ) ) );
+		assertFalse( index.contains( fact( ds, a, b ) ) );
+		assertTrue( index.contains( fact( ds, a, c ) ) );
+		assertEquals( 2, index.size() );
 	}
 
 	@Test
@@ -0,0 +1,126 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test.utils;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.mindswap.pellet.DependencySet;
+import org.mindswap.pellet.utils.intset.ArrayIntSet;
+import org.mindswap.pellet.utils.intset.BitIntSet;
+import org.mindswap.pellet.utils.intset.IntIterator;
+import org.mindswap.pellet.utils.intset.IntSet;
+import org.mindswap.pellet.utils.intset.IntSetFactory;
+import org.mindswap.pellet.utils.intset.ShiftedBitIntSet;
+
+public class DependencySetTest extends TestCase {
+	public static TestSuite suite() {
+		return new TestSuite( DependencySetTest.class );
+	}
+
+	private static DependencySet create(int... branches) {
+		DependencySet ds = DependencySet.EMPTY.copy( DependencySet.NO_BRANCH );
+		for( int b : branches ) {
+			ds.add( b );
+		}
+		return ds;
+	}
+
+	private static void assertSet(IntSet set, int... values) {
+		assertEquals( values.length, set.size() );
+		for( int value : values ) {
+			assertTrue( set.contains( value ) );
+		}
+	}
+
+	public void testUnionSharesSuperset() {
+		DependencySet ds1 = create( 0, 3, 5 );
+		DependencySet ds2 = create( 0, 5 );
+
+		DependencySet union = ds1.union( ds2, false );
+		assertSame( ds1.getDepends(), union.getDepends() );
+		assertSame( ds1.getDepends(), ds2.union( ds1, false ).getDepends() );
+		assertSame( ds1.getDepends(), ds1.union( DependencySet.INDEPENDENT, false ).getDepends() );
+		assertSet( union.getDepends(), 0, 3, 5 );
+	}
+
+	public void testCopyOnWrite() {
+		DependencySet ds1 = create( 0, 3, 5 );
+		DependencySet union = ds1.union( DependencySet.INDEPENDENT, false );
+		DependencySet copy = ds1.copy( 7 );
+
+		union.remove( 3 );
+		copy.add( 7 );
+		ds1.add( 9 );
+
+		assertSet( ds1.getDepends(), 0, 3, 5, 9 );
+		assertSet( union.getDepends(), 0, 5 );
+		assertSet( copy.getDepends(), 0, 3, 5, 7 );
+	}
+
+	public void testInternedSetsNotModified() {
+		DependencySet ds = new DependencySet( 2 );
+		ds.add( 4 );
+
+		DependencySet independent = DependencySet.INDEPENDENT.copy( 1 );
+		independent.remove( 0 );
+
+		assertSet( new DependencySet( 2 ).getDepends(), 2 );
+		assertSet( DependencySet.INDEPENDENT.getDepends(), 0 );
+		assertSet( DependencySet.ZERO, 0 );
+		assertTrue( DependencySet.EMPTY.getDepends().isEmpty() );
+		assertSet( ds.getDepends(), 2, 4 );
+	}
+
+	public void testAdaptiveUnion() {
+		IntSet even = new ArrayIntSet();
+		IntSet odd = new ArrayIntSet();
+		for( int i = 0; i < 100; i++ ) {
+			(i % 2 == 0
+				? even
+				: odd).add( i );
+		}
+
+		IntSet dense = IntSetFactory.union( even, odd );
+		assertTrue( dense instanceof BitIntSet );
+		assertEquals( 100, dense.size() );
+		assertEquals( 0, dense.min() );
+		assertEquals( 99, dense.max() );
+
+		IntSet sparse = new ArrayIntSet();
+		sparse.add( 1000 );
+		sparse.add( 5000 );
+		IntSet union = IntSetFactory.union( even, sparse );
+		assertTrue( union instanceof ArrayIntSet );
+		assertEquals( 52, union.size() );
+		assertEquals( 5000, union.max() );
+
+		IntSet shifted = IntSetFactory.create( 1000, 1100, 100 );
+		assertTrue( shifted instanceof ShiftedBitIntSet );
+	}
+
+	public void testShiftedBitIntSet() {
+		IntSet set = new ShiftedBitIntSet();
+		set.add( 100 );
+		set.add( 105 );
+		set.add( 90 );
+
+		assertSet( set, 90, 100, 105 );
+		assertEquals( 90, set.min() );
+		assertEquals( 105, set.max() );
+
+		set.remove( 90 );
+		assertEquals( 100, set.min() );
+		assertFalse( set.contains( 90 ) );
+
+		int count = 0;
+		for( IntIterator i = set.iterator(); i.hasNext(); i.next() ) {
+			count++;
+		}
+		assertEquals( 2, count );
+	}
+}
@@ -0,0 +1,180 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test.utils;
+
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.mindswap.pellet.DefaultEdge;
+import org.mindswap.pellet.DependencySet;
+import org.mindswap.pellet.Edge;
+import org.mindswap.pellet.EdgeList;
+import org.mindswap.pellet.Individual;
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.Role;
+import org.mindswap.pellet.jena.JenaLoader;
+import org.mindswap.pellet.test.PelletTestSuite;
+
+import aterm.ATermAppl;
+
+public class EdgeListTest extends TestCase {
+	public static TestSuite suite() {
+		return new TestSuite( EdgeListTest.class );
+	}
+
+	private int	oldThreshold;
+
+	@Override
+	public void setUp() {
+		oldThreshold = PelletOptions.EDGE_LIST_INDEX_THRESHOLD;
+	}
+
+	@Override
+	public void tearDown() {
+		PelletOptions.EDGE_LIST_INDEX_THRESHOLD = oldThreshold;
+	}
+
+	private static Set<Edge> set(EdgeList edges) {
+		Set<Edge> set = new HashSet<Edge>();
+		for( Edge edge : edges ) {
+			set.add( edge );
+		}
+		return set;
+	}
+
+	private void assertSameAnswers(EdgeList expected, EdgeList actual, Individual[] inds,
+			Role[] roles) {
+		assertEquals( expected.size(), actual.size() );
+		assertEquals( expected.getRoles(), actual.getRoles() );
+		for( Role role : roles ) {
+			assertEquals( set( expected.getEdges( role ) ), set( actual.getEdges( role ) ) );
+			assertEquals( expected.hasEdge( role ), actual.hasEdge( role ) );
+			for( Individual ind : inds ) {
+				assertEquals( expected.hasEdge( inds[0], role, ind ), actual.hasEdge( inds[0], role,
+						ind ) );
+				assertEquals( expected.hasExactEdge( inds[0], role, ind ), actual.hasExactEdge(
+						inds[0], role, ind ) );
+				assertEquals( expected.getExactEdge( ind, role, inds[0] ), actual.getExactEdge( ind,
+						role, inds[0] ) );
+				assertEquals( set( expected.getEdgesFrom( ind, role ) ), set( actual.getEdgesFrom(
+						ind, role ) ) );
+				assertEquals( set( expected.getEdgesTo( role, ind ) ), set( actual.getEdgesTo( role,
+						ind ) ) );
+			}
+		}
+		for( Individual ind : inds ) {
+			assertEquals( set( expected.getEdgesTo( ind ) ), set( actual.getEdgesTo( ind ) ) );
+			assertEquals( set( expected.getEdgesFrom( ind ) ), set( actual.getEdgesFrom( ind ) ) );
+			assertEquals( expected.hasEdgeFrom( ind ), actual.hasEdgeFrom( ind ) );
+		}
+	}
+
+	public void testIndexedLookups() {
+		KnowledgeBase kb = new KnowledgeBase();
+		ATermAppl p = term( "p" );
+		ATermAppl q = term( "q" );
+		ATermAppl r = term( "r" );
+		kb.addObjectProperty( p );
+		kb.addObjectProperty( q );
+		kb.addObjectProperty( r );
+		kb.addSubProperty( q, p );
+
+		Individual[] inds = new Individual[20];
+		for( int i = 0; i < inds.length; i++ ) {
+			inds[i] = kb.addIndividual( term( "ind" + i ) );
+		}
+		Role[] roles = { kb.getRole( p ), kb.getRole( q ), kb.getRole( r ) };
+
+		PelletOptions.EDGE_LIST_INDEX_THRESHOLD = 8;
+
+		EdgeList linear = new EdgeList();
+		EdgeList indexed = new EdgeList();
+		EdgeList incoming = new EdgeList();
+		for( int i = 1; i < inds.length; i++ ) {
+			for( int j = 0; j < roles.length; j++ ) {
+				if( (i + j) % 2 == 0 ) {
+					Edge edge = new DefaultEdge( roles[j], inds[0], inds[i], DependencySet.INDEPENDENT );
+					linear.addEdge( edge );
+					indexed.addEdge( edge );
+					incoming.addEdge( new DefaultEdge( roles[j], inds[i], inds[0],
+							DependencySet.INDEPENDENT ) );
+				}
+			}
+		}
+
+		assertTrue( indexed.isIndexed() );
+		assertTrue( incoming.isIndexed() );
+
+		// build the linear list again without the index
+		PelletOptions.EDGE_LIST_INDEX_THRESHOLD = Integer.MAX_VALUE;
+		EdgeList copy = new EdgeList();
+		copy.addEdgeList( linear );
+		linear = copy;
+		assertFalse( linear.isIndexed() );
+
+		assertSameAnswers( linear, indexed, inds, roles );
+
+		// remove some edges and compare again
+		PelletOptions.EDGE_LIST_INDEX_THRESHOLD = 8;
+		for( int i = 0; i < linear.size(); i += 3 ) {
+			Edge edge = linear.edgeAt( i );
+			assertTrue( linear.removeEdge( edge ) );
+			assertTrue( indexed.removeEdge( edge ) );
+		}
+		assertTrue( indexed.isIndexed() );
+		assertSameAnswers( linear, indexed, inds, roles );
+
+		// remove all but a few so the index is discarded
+		while( linear.size() > 2 ) {
+			Edge edge = linear.edgeAt( 0 );
+			linear.removeEdge( edge );
+			indexed.removeEdge( edge );
+		}
+		assertFalse( indexed.isIndexed() );
+		assertSameAnswers( linear, indexed, inds, roles );
+
+		// incoming edges have the same node at the to end
+		for( int i = 1; i < inds.length; i++ ) {
+			assertEquals( incoming.getEdgesFrom( inds[i] ).size(), incoming.getEdgesTo( inds[0] )
+					.getEdgesFrom( inds[i] ).size() );
+			assertTrue( incoming.hasEdge( inds[i], roles[0], inds[0] ) );
+		}
+	}
+
+	private Map<ATermAppl, Set<Set<ATermAppl>>> realize(String file, int threshold) {
+		PelletOptions.EDGE_LIST_INDEX_THRESHOLD = threshold;
+
+		KnowledgeBase kb = new JenaLoader().createKB( file );
+		kb.realize();
+
+		Map<ATermAppl, Set<Set<ATermAppl>>> types = new HashMap<ATermAppl, Set<Set<ATermAppl>>>();
+		for( ATermAppl ind : kb.getIndividuals() ) {
+			types.put( ind, kb.getTypes( ind, true ) );
+		}
+
+		return types;
+	}
+
+	/**
+	 * Reasoning with every edge list indexed (including the branch restore)
+	 * should give the same results as reasoning without any index.
+	 */
+	public void testReasoningWithIndex() {
+		for( String name : new String[] { "agencies.owl", "family.owl", "nominals.owl" } ) {
+			String file = "file:" + PelletTestSuite.base + "misc/" + name;
+			assertEquals( realize( file, Integer.MAX_VALUE ), realize( file, 0 ) );
+		}
+	}
+}
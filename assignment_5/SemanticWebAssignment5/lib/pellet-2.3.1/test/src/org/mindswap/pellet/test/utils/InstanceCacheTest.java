@@ -0,0 +1,213 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test.utils;
+
+import static com.clarkparsia.pellet.utils.TermFactory.TOP;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+import static com.clarkparsia.pellet.utils.TermFactory.value;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.utils.InstanceCache;
+
+import aterm.ATermAppl;
+
+public class InstanceCacheTest extends TestCase {
+	public static TestSuite suite() {
+		return new TestSuite( InstanceCacheTest.class );
+	}
+
+	private ATermAppl	A	= term( "A" );
+	private ATermAppl	B	= term( "B" );
+	private ATermAppl	C	= term( "C" );
+	private ATermAppl	D	= term( "D" );
+	private ATermAppl	p	= term( "p" );
+	private ATermAppl	q	= term( "q" );
+
+	private ATermAppl	a	= term( "a" );
+	private ATermAppl	b	= term( "b" );
+	private ATermAppl	c	= term( "c" );
+	private ATermAppl	d	= term( "d" );
+
+	private boolean		oldCacheRetrieval;
+
+	private int			oldMaxSize;
+
+	private KnowledgeBase	kb;
+
+	@Override
+	public void setUp() {
+		oldCacheRetrieval = PelletOptions.CACHE_RETRIEVAL;
+		oldMaxSize = PelletOptions.MAX_INSTANCE_CACHE;
+		PelletOptions.CACHE_RETRIEVAL = true;
+
+		kb = new KnowledgeBase();
+		kb.addClass( A );
+		kb.addClass( B );
+		kb.addClass( C );
+		kb.addClass( D );
+		kb.addObjectProperty( p );
+		kb.addObjectProperty( q );
+
+		kb.addSubClass( A, B );
+		kb.addSubClass( some( p, C ), B );
+
+		kb.addIndividual( a );
+		kb.addIndividual( b );
+		kb.addIndividual( c );
+
+		kb.addType( a, A );
+		kb.addType( c, D );
+	}
+
+	@Override
+	public void tearDown() {
+		PelletOptions.CACHE_RETRIEVAL = oldCacheRetrieval;
+		PelletOptions.MAX_INSTANCE_CACHE = oldMaxSize;
+	}
+
+	private static Set<ATermAppl> set(ATermAppl... terms) {
+		Set<ATermAppl> set = new HashSet<ATermAppl>();
+		Collections.addAll( set, terms );
+		return set;
+	}
+
+	public void testHitsAndMisses() {
+		InstanceCache cache = kb.getInstanceCache();
+
+		assertEquals( set( a ), kb.getInstances( B ) );
+		assertEquals( 0, cache.getHitCount() );
+		assertEquals( 1, cache.getMissCount() );
+		assertTrue( cache.contains( B ) );
+
+		assertEquals( set( a ), kb.getInstances( B ) );
+		assertEquals( 1, cache.getHitCount() );
+		assertEquals( 1, cache.getMissCount() );
+		assertEquals( 0.5, cache.getHitRate(), 0 );
+	}
+
+	public void testPartialRetrievalNotCached() {
+		assertEquals( set( a ), kb.retrieve( B, Collections.singleton( a ) ) );
+		assertFalse( kb.getInstanceCache().contains( B ) );
+
+		assertEquals( set( a ), kb.getInstances( B ) );
+		assertTrue( kb.getInstanceCache().contains( B ) );
+	}
+
+	public void testSelectiveInvalidation() {
+		InstanceCache cache = kb.getInstanceCache();
+
+		assertEquals( set( a ), kb.getInstances( B ) );
+		assertEquals( set( c ), kb.getInstances( D ) );
+
+		// q is not related to B or D
+		kb.addPropertyValue( q, a, b );
+		assertEquals( set( a ), kb.getInstances( B ) );
+		assertEquals( set( c ), kb.getInstances( D ) );
+		assertEquals( 2, cache.getHitCount() );
+		assertEquals( 0, cache.getInvalidationCount() );
+
+		// C is related to B through the TBox
+		kb.addType( b, C );
+		kb.addPropertyValue( p, c, b );
+		assertTrue( kb.isConsistent() );
+		assertFalse( cache.contains( B ) );
+		assertTrue( cache.contains( D ) );
+		assertEquals( 1, cache.getInvalidationCount() );
+
+		assertEquals( set( a, c ), kb.getInstances( B ) );
+		assertEquals( set( c ), kb.getInstances( D ) );
+
+		// removals are handled the same way
+		kb.removeType( a, A );
+		assertEquals( set( c ), kb.getInstances( B ) );
+		assertEquals( set( c ), kb.getInstances( D ) );
+		assertEquals( 2, cache.getInvalidationCount() );
+	}
+
+	public void testIndividualChanges() {
+		InstanceCache cache = kb.getInstanceCache();
+
+		assertEquals( set( a, b, c ), kb.getInstances( TOP ) );
+		assertEquals( set( a ), kb.getInstances( B ) );
+
+		kb.addIndividual( d );
+		assertEquals( set( a, b, c, d ), kb.getInstances( TOP ) );
+		assertEquals( set( a ), kb.getInstances( B ) );
+		assertEquals( 1, cache.getInvalidationCount() );
+	}
+
+	public void testSchemaChange() {
+		InstanceCache cache = kb.getInstanceCache();
+
+		assertEquals( set( a ), kb.getInstances( B ) );
+		assertEquals( set( c ), kb.getInstances( D ) );
+
+		kb.addSubClass( D, B );
+		assertEquals( set( a, c ), kb.getInstances( B ) );
+		assertEquals( 0, cache.getHitCount() );
+		assertEquals( 2, cache.getInvalidationCount() );
+	}
+
+	public void testNominalsDisableSelectiveInvalidation() {
+		kb.addEquivalentClass( D, some( q, value( b ) ) );
+
+		assertEquals( set( c ), kb.getInstances( D ) );
+		assertEquals( set( a ), kb.getInstances( B ) );
+
+		kb.addPropertyValue( p, a, b );
+		assertTrue( kb.isConsistent() );
+		assertFalse( kb.getInstanceCache().contains( D ) );
+		assertFalse( kb.getInstanceCache().contains( B ) );
+		assertEquals( set( c ), kb.getInstances( D ) );
+	}
+
+	public void testEviction() {
+		PelletOptions.MAX_INSTANCE_CACHE = 5;
+
+		kb = new KnowledgeBase();
+		kb.addClass( A );
+		kb.addClass( B );
+		kb.addClass( C );
+		kb.addIndividual( a );
+		kb.addIndividual( b );
+		kb.addIndividual( c );
+		kb.addType( a, A );
+		kb.addType( b, A );
+		kb.addType( c, B );
+
+		InstanceCache cache = kb.getInstanceCache();
+		assertEquals( 5, cache.getMaxSize() );
+
+		assertEquals( set( a, b ), kb.getInstances( A ) );
+		assertEquals( set( c ), kb.getInstances( B ) );
+		assertEquals( 5, cache.getSize() );
+		assertEquals( 0, cache.getEvictionCount() );
+
+		assertEquals( set(), kb.getInstances( C ) );
+		assertTrue( cache.getSize() <= 5 );
+		assertEquals( 1, cache.getEvictionCount() );
+		assertTrue( cache.contains( C ) );
+
+		// results larger than the cache are not cached
+		cache.setMaxSize( 3 );
+		assertEquals( set( a, b, c ), kb.getInstances( TOP ) );
+		assertFalse( cache.contains( TOP ) );
+
+		cache.setMaxSize( 0 );
+		assertEquals( 0, cache.getSize() );
+		assertEquals( 0, cache.getEntryCount() );
+	}
+}
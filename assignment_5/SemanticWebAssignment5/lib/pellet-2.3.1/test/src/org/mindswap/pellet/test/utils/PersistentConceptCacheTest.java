@@ -0,0 +1,193 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test.utils;
+
+import static com.clarkparsia.pellet.utils.TermFactory.and;
+import static com.clarkparsia.pellet.utils.TermFactory.not;
+import static com.clarkparsia.pellet.utils.TermFactory.oneOf;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.PelletOptions;
+import org.mindswap.pellet.tableau.cache.CachedNode;
+import org.mindswap.pellet.tableau.cache.ConceptCache;
+import org.mindswap.pellet.tableau.cache.PersistentConceptCache;
+
+import aterm.ATermAppl;
+
+public class PersistentConceptCacheTest extends TestCase {
+	public static TestSuite suite() {
+		return new TestSuite( PersistentConceptCacheTest.class );
+	}
+
+	private ATermAppl	A	= term( "A" );
+	private ATermAppl	B	= term( "B" );
+	private ATermAppl	C	= term( "C" );
+	private ATermAppl	D	= term( "D" );
+	private ATermAppl	p	= term( "p" );
+
+	private File		directory;
+
+	private String		oldDirectory;
+
+	@Override
+	public void setUp() throws IOException {
+		directory = File.createTempFile( "pellet-cache", "" );
+		directory.delete();
+		directory.mkdir();
+
+		oldDirectory = PelletOptions.CONCEPT_CACHE_DIRECTORY;
+		PelletOptions.CONCEPT_CACHE_DIRECTORY = directory.getPath();
+	}
+
+	@Override
+	public void tearDown() {
+		PelletOptions.CONCEPT_CACHE_DIRECTORY = oldDirectory;
+
+		for( File file : directory.listFiles() ) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private KnowledgeBase createKB() {
+		KnowledgeBase kb = new KnowledgeBase();
+		kb.addClass( A );
+		kb.addClass( B );
+		kb.addClass( C );
+		kb.addClass( D );
+		kb.addObjectProperty( p );
+
+		kb.addSubClass( A, some( p, B ) );
+		kb.addSubClass( B, C );
+		kb.addSubClass( C, not( D ) );
+		kb.addSubClass( D, some( p, and( B, D ) ) );
+
+		return kb;
+	}
+
+	public void testRestore() {
+		KnowledgeBase kb = createKB();
+		kb.classify();
+
+		ConceptCache cache = kb.getABox().getCache();
+		assertTrue( cache instanceof PersistentConceptCache );
+		File file = ((PersistentConceptCache) cache).getFile();
+		assertTrue( file.exists() );
+
+		KnowledgeBase restored = createKB();
+		restored.prepare();
+
+		ConceptCache restoredCache = restored.getABox().getCache();
+		assertEquals( file, ((PersistentConceptCache) restoredCache).getFile() );
+		assertEquals( cache.size(), restoredCache.size() );
+
+		for( ATermAppl c : new ATermAppl[] { A, not( A ), D, not( D ) } ) {
+			CachedNode expected = cache.get( c );
+			CachedNode actual = restoredCache.get( c );
+			assertNotNull( actual );
+			assertEquals( expected.isBottom(), actual.isBottom() );
+			assertEquals( expected.isComplete(), actual.isComplete() );
+			if( expected.isComplete() && !expected.isBottom() && !expected.isTop() ) {
+				assertEquals( expected.isIndependent(), actual.isIndependent() );
+				assertEquals( expected.getDepends().keySet(), actual.getDepends().keySet() );
+				assertEquals( expected.getOutEdges().size(), actual.getOutEdges().size() );
+				assertEquals( expected.getInEdges().size(), actual.getInEdges().size() );
+				assertEquals( expected.hasRNeighbor( restored.getRole( p ) ), actual
+						.hasRNeighbor( restored.getRole( p ) ) );
+			}
+		}
+
+		restored.classify();
+		assertFalse( restored.isSatisfiable( D ) );
+		assertTrue( restored.isSubClassOf( B, not( D ) ) );
+		assertEquals( kb.getSubClasses( C ), restored.getSubClasses( C ) );
+	}
+
+	public void testSchemaChange() {
+		KnowledgeBase kb = createKB();
+		kb.classify();
+		long fingerprint = ((PersistentConceptCache) kb.getABox().getCache()).getFingerprint();
+
+		kb.addSubClass( A, D );
+		assertFalse( kb.isSatisfiable( A ) );
+		kb.classify();
+
+		PersistentConceptCache cache = (PersistentConceptCache) kb.getABox().getCache();
+		assertTrue( fingerprint != cache.getFingerprint() );
+
+		KnowledgeBase other = createKB();
+		other.addSubClass( A, D );
+		other.prepare();
+		assertEquals( cache.getFingerprint(), ((PersistentConceptCache) other.getABox().getCache())
+				.getFingerprint() );
+		assertTrue( other.getABox().getCache().get( A ).isBottom() );
+	}
+
+	public void testABoxChange() {
+		KnowledgeBase kb = createKB();
+		kb.classify();
+		long fingerprint = ((PersistentConceptCache) kb.getABox().getCache()).getFingerprint();
+
+		ATermAppl a = term( "a" );
+		kb.addIndividual( a );
+		kb.addType( a, A );
+		kb.realize();
+
+		assertEquals( fingerprint, ((PersistentConceptCache) kb.getABox().getCache())
+				.getFingerprint() );
+	}
+
+	public void testOptionChange() {
+		KnowledgeBase kb = createKB();
+		kb.prepare();
+		long fingerprint = ((PersistentConceptCache) kb.getABox().getCache()).getFingerprint();
+
+		boolean oldUNA = PelletOptions.USE_UNIQUE_NAME_ASSUMPTION;
+		PelletOptions.USE_UNIQUE_NAME_ASSUMPTION = !oldUNA;
+		try {
+			KnowledgeBase other = createKB();
+			other.prepare();
+			assertTrue( fingerprint != ((PersistentConceptCache) other.getABox().getCache())
+					.getFingerprint() );
+		} finally {
+			PelletOptions.USE_UNIQUE_NAME_ASSUMPTION = oldUNA;
+		}
+	}
+
+	public void testCopies() {
+		KnowledgeBase kb = createKB();
+		kb.classify();
+
+		KnowledgeBase copy = kb.copy( true );
+		copy.getABox().clearCaches( true );
+		assertFalse( copy.getABox().getCache() instanceof PersistentConceptCache );
+		assertTrue( copy.isSatisfiable( A ) );
+
+		File[] files = directory.listFiles();
+		assertEquals( 1, files.length );
+		assertEquals( ((PersistentConceptCache) kb.getABox().getCache()).getFile(), files[0] );
+	}
+
+	public void testNominals() {
+		KnowledgeBase kb = createKB();
+		ATermAppl a = term( "a" );
+		kb.addIndividual( a );
+		kb.addEquivalentClass( C, oneOf( a ) );
+		kb.classify();
+
+		assertFalse( kb.getABox().getCache() instanceof PersistentConceptCache );
+		assertEquals( 0, directory.listFiles().length );
+	}
+}
@@ -0,0 +1,250 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test.utils;
+
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.mindswap.pellet.utils.TermDictionary;
+import org.mindswap.pellet.utils.TermMap;
+
+import aterm.ATermAppl;
+
+public class TermMapTest extends TestCase {
+	public static TestSuite suite() {
+		return new TestSuite( TermMapTest.class );
+	}
+
+	private static ATermAppl[] terms(int n) {
+		ATermAppl[] terms = new ATermAppl[n];
+		for( int i = 0; i < n; i++ ) {
+			terms[i] = term( "t" + i );
+		}
+		return terms;
+	}
+
+	public void testDictionary() {
+		TermDictionary dictionary = new TermDictionary();
+		ATermAppl[] terms = terms( 1000 );
+
+		for( int i = 0; i < terms.length; i++ ) {
+			assertEquals( -1, dictionary.lookup( terms[i] ) );
+			assertEquals( i, dictionary.intern( terms[i] ) );
+		}
+		assertEquals( terms.length, dictionary.size() );
+
+		for( int i = 0; i < terms.length; i++ ) {
+			assertEquals( i, dictionary.intern( terms[i] ) );
+			assertEquals( i, dictionary.lookup( terms[i] ) );
+			assertSame( terms[i], dictionary.get( i ) );
+		}
+		assertEquals( terms.length, dictionary.size() );
+	}
+
+	public void testForkedDictionary() {
+		TermDictionary parent = new TermDictionary();
+		ATermAppl[] terms = terms( 300 );
+		for( int i = 0; i < 100; i++ ) {
+			parent.intern( terms[i] );
+		}
+
+		TermMap<Integer> map = new TermMap<Integer>( parent );
+		for( int i = 0; i < 100; i += 2 ) {
+			map.put( terms[i], i );
+		}
+
+		TermDictionary child = new TermDictionary( parent );
+		assertEquals( 100, child.sharedIds( parent ) );
+		assertEquals( 100, parent.sharedIds( child ) );
+		assertEquals( 0, child.sharedIds( new TermDictionary() ) );
+
+		// terms added after the fork get different ids in the two dictionaries
+		for( int i = 100; i < 200; i++ ) {
+			assertEquals( i, child.intern( terms[i] ) );
+		}
+		for( int i = 200; i < 300; i++ ) {
+			assertEquals( i - 100, parent.intern( terms[i] ) );
+		}
+		assertEquals( 200, parent.size() );
+		assertEquals( 200, child.size() );
+		assertEquals( -1, child.lookup( terms[250] ) );
+		assertEquals( -1, parent.lookup( terms[150] ) );
+
+		for( int i = 0; i < 100; i++ ) {
+			assertEquals( i, child.lookup( terms[i] ) );
+			assertSame( terms[i], child.get( i ) );
+		}
+		assertSame( terms[150], child.get( 150 ) );
+		assertSame( terms[250], parent.get( 150 ) );
+
+		TermDictionary grandChild = new TermDictionary( child );
+		assertEquals( 100, grandChild.sharedIds( parent ) );
+		assertEquals( 200, grandChild.sharedIds( child ) );
+
+		TermMap<Integer> copy = new TermMap<Integer>( child, map );
+		assertEquals( map, copy );
+
+		// ids that are not shared have to be translated
+		copy.put( terms[150], 150 );
+		map.put( terms[250], 250 );
+		assertEquals( copy, new TermMap<Integer>( parent, copy ) );
+		assertEquals( map, new TermMap<Integer>( child, map ) );
+		assertEquals( Integer.valueOf( 250 ), new TermMap<Integer>( grandChild, map ).get( terms[250] ) );
+	}
+
+	public void testConcurrentDictionary() throws InterruptedException {
+		final TermDictionary dictionary = new TermDictionary();
+		final ATermAppl[] terms = terms( 5000 );
+		final int[][] ids = new int[4][terms.length];
+
+		Thread[] threads = new Thread[ids.length];
+		for( int t = 0; t < threads.length; t++ ) {
+			final int[] result = ids[t];
+			final int offset = t * 1000;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for( int i = 0; i < terms.length; i++ ) {
+						int index = (i + offset) % terms.length;
+						result[index] = dictionary.intern( terms[index] );
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for( Thread thread : threads ) {
+			thread.join();
+		}
+
+		assertEquals( terms.length, dictionary.size() );
+		for( int i = 0; i < terms.length; i++ ) {
+			for( int t = 1; t < ids.length; t++ ) {
+				assertEquals( ids[0][i], ids[t][i] );
+			}
+			assertSame( terms[i], dictionary.get( ids[0][i] ) );
+		}
+	}
+
+	public void testRandomOperations() {
+		TermDictionary dictionary = new TermDictionary();
+		ATermAppl[] terms = terms( 200 );
+		Random random = new Random( 42 );
+
+		TermMap<Integer> map = new TermMap<Integer>( dictionary );
+		Map<ATermAppl, Integer> expected = new HashMap<ATermAppl, Integer>();
+
+		for( int i = 0; i < 20000; i++ ) {
+			ATermAppl term = terms[random.nextInt( random.nextBoolean()
+				? 10
+				: terms.length )];
+			switch ( random.nextInt( 4 ) ) {
+			case 0:
+			case 1:
+				assertEquals( expected.put( term, i ), map.put( term, i ) );
+				break;
+			case 2:
+				assertEquals( expected.remove( term ), map.remove( term ) );
+				break;
+			default:
+				assertEquals( expected.containsKey( term ), map.containsKey( term ) );
+				assertEquals( expected.get( term ), map.get( term ) );
+			}
+			assertEquals( expected.size(), map.size() );
+
+			if( i % 1000 == 0 ) {
+				assertEquals( expected, map );
+				assertEquals( expected.keySet(), map.keySet() );
+				assertEquals( expected.hashCode(), map.hashCode() );
+				assertEquals( expected, new TermMap<Integer>( dictionary, map ) );
+				assertEquals( expected, new TermMap<Integer>( new TermDictionary(), map ) );
+			}
+		}
+
+		map.clear();
+		assertTrue( map.isEmpty() );
+		assertFalse( map.keySet().iterator().hasNext() );
+		assertNull( map.get( terms[0] ) );
+	}
+
+	public void testIteratorRemove() {
+		TermDictionary dictionary = new TermDictionary();
+		ATermAppl[] terms = terms( 100 );
+
+		TermMap<Integer> map = new TermMap<Integer>( dictionary );
+		for( int i = 0; i < terms.length; i++ ) {
+			map.put( terms[i], i );
+		}
+
+		for( Iterator<Map.Entry<ATermAppl, Integer>> i = map.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<ATermAppl, Integer> e = i.next();
+			if( e.getValue() % 2 == 0 ) {
+				i.remove();
+			}
+			else {
+				e.setValue( -e.getValue() );
+			}
+		}
+
+		assertEquals( terms.length / 2, map.size() );
+		for( int i = 0; i < terms.length; i++ ) {
+			if( i % 2 == 0 ) {
+				assertFalse( map.containsKey( terms[i] ) );
+			}
+			else {
+				assertEquals( Integer.valueOf( -i ), map.get( terms[i] ) );
+			}
+		}
+
+		// the copy does not share the arrays with the original map
+		TermMap<Integer> copy = new TermMap<Integer>( dictionary, map );
+		List<ATermAppl> keys = new ArrayList<ATermAppl>( copy.keySet() );
+		for( ATermAppl key : keys ) {
+			copy.remove( key );
+		}
+		assertTrue( copy.isEmpty() );
+		assertEquals( terms.length / 2, map.size() );
+	}
+
+	public void testSlotIteration() {
+		TermDictionary dictionary = new TermDictionary();
+		ATermAppl[] terms = terms( 50 );
+
+		TermMap<Integer> map = new TermMap<Integer>( dictionary );
+		assertEquals( -1, map.nextSlot( 0 ) );
+		assertNull( map.get( terms[0] ) );
+
+		for( int i = 0; i < terms.length; i++ ) {
+			map.put( terms[i], i );
+		}
+
+		Map<ATermAppl, Integer> visited = new HashMap<ATermAppl, Integer>();
+		for( int i = map.nextSlot( 0 ); i >= 0; i = map.nextSlot( i + 1 ) ) {
+			ATermAppl key = map.getKeyAt( i );
+			Integer value = map.getValueAt( i );
+			assertNull( visited.put( key, value ) );
+			if( value % 3 == 0 ) {
+				map.removeAt( i );
+			}
+		}
+		assertEquals( terms.length, visited.size() );
+
+		for( int i = 0; i < terms.length; i++ ) {
+			assertEquals( Integer.valueOf( i ), visited.get( terms[i] ) );
+			assertEquals( i % 3 != 0, map.containsKey( terms[i] ) );
+		}
+		assertEquals( terms.length - (terms.length + 2) / 3, map.size() );
+	}
+}
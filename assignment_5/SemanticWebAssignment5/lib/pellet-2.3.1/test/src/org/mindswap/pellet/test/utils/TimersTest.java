@@ -0,0 +1,234 @@
+// Copyright (c) 2006 - 2008, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+// This source code is available under the terms of the Affero General Public License v3.
+//
+// Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+// Questions, comments, or requests for clarification: licensing@clarkparsia.com
+
+package org.mindswap.pellet.test.utils;
+
+import static com.clarkparsia.pellet.utils.TermFactory.and;
+import static com.clarkparsia.pellet.utils.TermFactory.some;
+import static com.clarkparsia.pellet.utils.TermFactory.term;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.mindswap.pellet.KnowledgeBase;
+import org.mindswap.pellet.utils.Histogram;
+import org.mindswap.pellet.utils.Timer;
+import org.mindswap.pellet.utils.Timers;
+import org.mindswap.pellet.utils.Timers.Span;
+
+import aterm.ATermAppl;
+
+public class TimersTest extends TestCase {
+	public static TestSuite suite() {
+		return new TestSuite( TimersTest.class );
+	}
+
+	private static void assertApprox(long expected, long actual) {
+		assertTrue( "Expected " + expected + " but was " + actual,
+				Math.abs( expected - actual ) <= expected / Histogram.SUB_BUCKETS );
+	}
+
+	public void testHistogram() {
+		Histogram histogram = new Histogram();
+		assertEquals( 0, histogram.getPercentile( 99 ) );
+
+		for( long i = 1; i <= 100000; i++ ) {
+			histogram.record( i * 1000 );
+		}
+
+		assertEquals( 100000, histogram.getCount() );
+		assertEquals( 1000, histogram.getMin() );
+		assertEquals( 100000000, histogram.getMax() );
+		assertApprox( 50000000, histogram.getPercentile( 50 ) );
+		assertApprox( 99000000, histogram.getPercentile( 99 ) );
+		assertEquals( 100000000, histogram.getPercentile( 100 ) );
+		assertApprox( 1000, histogram.getPercentile( 0 ) );
+
+		Histogram other = new Histogram();
+		for( int i = 0; i < 100000; i++ ) {
+			other.record( 7 );
+		}
+		other.add( histogram );
+		assertEquals( 200000, other.getCount() );
+		assertEquals( 7, other.getPercentile( 50 ) );
+		assertApprox( 98000000, other.getPercentile( 99.5 ) );
+		assertEquals( 100000000, other.getMax() );
+	}
+
+	public void testRecursiveStart() {
+		Timers timers = new Timers();
+		timers.setProfiling( true );
+		Timer timer = timers.startTimer( "test" );
+		timer.start();
+		assertEquals( -1, timer.stop() );
+		assertTrue( timer.isStarted() );
+		assertTrue( timer.stop() >= 0 );
+		assertFalse( timer.isStarted() );
+		assertEquals( -Long.MAX_VALUE, timer.stop() );
+
+		assertEquals( 1, timer.getCount() );
+		assertEquals( 1, timer.getHistogram().getCount() );
+	}
+
+	public void testSpans() {
+		Timers timers = new Timers();
+		timers.setProfiling( true );
+		Timer a = timers.createSpan( "a" );
+		Timer b = timers.createSpan( "b" );
+		Timer c = timers.createTimer( "c" );
+
+		a.start();
+		b.start();
+		c.start();
+		b.start();
+		b.stop();
+		c.stop();
+		b.stop();
+		b.start();
+		b.stop();
+		a.stop();
+		b.start();
+		b.stop();
+
+		Span root = timers.getRootSpan();
+		assertEquals( 2, root.getChildren().size() );
+		assertEquals( 1, root.getChild( "a" ).getHistogram().getCount() );
+		assertEquals( 1, root.getChild( "b" ).getHistogram().getCount() );
+		assertEquals( 2, root.getChild( "a" ).getChild( "b" ).getHistogram().getCount() );
+		assertNull( root.getChild( "c" ) );
+		assertNull( root.getChild( "a" ).getChild( "b" ).getChild( "b" ) );
+		assertEquals( 3, b.getCount() );
+
+		timers.resetAll();
+		assertTrue( root.getChildren().isEmpty() );
+		assertEquals( 0, b.getCount() );
+	}
+
+	public void testWithoutProfiling() {
+		Timers timers = new Timers();
+		Timer a = timers.createSpan( "a" );
+
+		a.start();
+		a.start();
+		assertEquals( -1, a.stop() );
+		assertTrue( a.isStarted() );
+		assertTrue( a.stop() >= 0 );
+		assertFalse( a.isStarted() );
+
+		assertEquals( 1, a.getCount() );
+		assertEquals( 0, a.getHistogram().getCount() );
+		assertTrue( timers.getRootSpan().getChildren().isEmpty() );
+
+		timers.setProfiling( true );
+		a.start();
+		a.stop();
+		assertEquals( 2, a.getCount() );
+		assertEquals( 1, a.getHistogram().getCount() );
+		assertNotNull( timers.getRootSpan().getChild( "a" ) );
+	}
+
+	public void testConcurrentTimer() throws InterruptedException {
+		testConcurrentTimer( false );
+		testConcurrentTimer( true );
+	}
+
+	private void testConcurrentTimer(boolean profiling) throws InterruptedException {
+		final Timers timers = new Timers();
+		timers.setProfiling( profiling );
+		final int count = 1000;
+
+		Thread[] threads = new Thread[4];
+		for( int t = 0; t < threads.length; t++ ) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for( int i = 0; i < count; i++ ) {
+						Timer timer = timers.startTimer( "test" );
+						timer.start();
+						timer.stop();
+						timer.stop();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for( Thread thread : threads ) {
+			thread.join();
+		}
+
+		Timer timer = timers.getTimer( "test" );
+		assertFalse( timer.isStarted() );
+		assertEquals( threads.length * count, timer.getCount() );
+		assertEquals( profiling
+			? threads.length * count
+			: 0, timer.getHistogram().getCount() );
+	}
+
+	public void testStopByOtherThread() throws InterruptedException {
+		final Timer timer = new Timer( "test" );
+		timer.start();
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				timer.restart();
+				timer.stop();
+			}
+		};
+		thread.start();
+		thread.join();
+
+		assertFalse( timer.isStarted() );
+		assertEquals( 2, timer.getCount() );
+	}
+
+	public void testKnowledgeBaseSpans() {
+		ATermAppl A = term( "A" ), B = term( "B" ), C = term( "C" ), p = term( "p" );
+
+		KnowledgeBase kb = new KnowledgeBase();
+		kb.timers.setProfiling( true );
+		kb.addClass( A );
+		kb.addClass( B );
+		kb.addClass( C );
+		kb.addObjectProperty( p );
+		kb.addSubClass( A, some( p, and( B, C ) ) );
+		kb.addSubClass( B, some( p, C ) );
+		kb.addIndividual( term( "a" ) );
+		kb.addType( term( "a" ), A );
+
+		kb.realize();
+
+		Span root = kb.timers.getRootSpan();
+		assertNotNull( root.getChild( "consistency" ) );
+		assertNotNull( root.getChild( "consistency" ).getChild( "isConsistent" ) );
+		assertNotNull( root.getChild( "classify" ) );
+		assertNotNull( root.getChild( "realize" ) );
+		assertNotNull( root.getChild( "realize" ).getChild( "isConsistent" ) );
+
+		assertTrue( kb.timers.getTimer( "isConsistent" ).getHistogram().getCount() > 1 );
+
+		StringWriter json = new StringWriter();
+		kb.timers.printJSON( json );
+		String str = json.toString();
+		assertTrue( str.contains( "\"name\": \"classify\"" ) );
+		assertTrue( str.contains( "\"children\": [" ) );
+		assertTrue( str.contains( "\"p99\": " ) );
+
+		int depth = 0;
+		for( char c : str.toCharArray() ) {
+			if( c == '{' || c == '[' ) {
+				depth++;
+			}
+			else if( c == '}' || c == ']' ) {
+				depth--;
+			}
+			assertTrue( depth >= 0 );
+		}
+		assertEquals( 0, depth );
+	}
+}